@@ -0,0 +1,47 @@
+package com.macmoment.skriptprofiler;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.List;
+
+/**
+ * Settings backed by the plugin's config.yml. Always reads the current config, so reloads are picked up.
+ */
+public class BukkitSettings implements ProfilerSettings {
+    
+    private final JavaPlugin plugin;
+    
+    public BukkitSettings(JavaPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public boolean getBoolean(String path, boolean def) {
+        return plugin.getConfig().getBoolean(path, def);
+    }
+    
+    @Override
+    public int getInt(String path, int def) {
+        return plugin.getConfig().getInt(path, def);
+    }
+    
+    @Override
+    public long getLong(String path, long def) {
+        return plugin.getConfig().getLong(path, def);
+    }
+    
+    @Override
+    public double getDouble(String path, double def) {
+        return plugin.getConfig().getDouble(path, def);
+    }
+    
+    @Override
+    public String getString(String path, String def) {
+        return plugin.getConfig().getString(path, def);
+    }
+    
+    @Override
+    public List<String> getStringList(String path) {
+        return plugin.getConfig().getStringList(path);
+    }
+}
@@ -0,0 +1,33 @@
+package com.macmoment.skriptprofiler;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+/**
+ * Environment the analysis components run in: the plugin on a server, or the command-line analyzer.
+ * Components that only read scripts and settings depend on this instead of the Bukkit plugin.
+ */
+public interface ProfilerContext {
+    
+    Logger getLogger();
+    
+    /**
+     * Gets the settings, i.e. config.yml on a server
+     */
+    ProfilerSettings getSettings();
+    
+    /**
+     * Gets the folder the profiler writes its own files to
+     */
+    File getDataFolder();
+    
+    /**
+     * Gets the folder containing the Skript scripts to analyze
+     */
+    File getScriptsFolder();
+    
+    /**
+     * Runs a task off the main thread, e.g. on the Bukkit scheduler's async workers
+     */
+    void runAsync(Runnable task);
+}
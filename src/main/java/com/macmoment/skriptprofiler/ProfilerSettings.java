@@ -0,0 +1,24 @@
+package com.macmoment.skriptprofiler;
+
+import java.util.List;
+
+/**
+ * Read-only access to profiler settings by dotted path, e.g. "thresholds.slow-execution"
+ */
+public interface ProfilerSettings {
+    
+    boolean getBoolean(String path, boolean def);
+    
+    int getInt(String path, int def);
+    
+    long getLong(String path, long def);
+    
+    double getDouble(String path, double def);
+    
+    String getString(String path, String def);
+    
+    /**
+     * Gets a list of strings, or an empty list if the path is not set
+     */
+    List<String> getStringList(String path);
+}
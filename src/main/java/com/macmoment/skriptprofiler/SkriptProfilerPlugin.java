@@ -2,15 +2,20 @@ package com.macmoment.skriptprofiler;
 
 import com.macmoment.skriptprofiler.commands.ProfilerCommand;
 import com.macmoment.skriptprofiler.profiler.ProfilerManager;
+import com.macmoment.skriptprofiler.rules.RuleRegistry;
+import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+
 /**
  * Main plugin class for SkriptProfiler.
  * A production-ready Skript performance profiler.
  */
-public class SkriptProfilerPlugin extends JavaPlugin {
+public class SkriptProfilerPlugin extends JavaPlugin implements ProfilerContext {
     
     private static SkriptProfilerPlugin instance;
+    private final ProfilerSettings settings = new BukkitSettings(this);
     private ProfilerManager profilerManager;
     
     @Override
@@ -27,6 +32,13 @@ public class SkriptProfilerPlugin extends JavaPlugin {
             return;
         }
         
+        // Load custom analysis rules from the rules folder
+        File rulesFolder = new File(getDataFolder(), "rules");
+        int rules = RuleRegistry.loadJars(rulesFolder, getClassLoader(), getLogger());
+        if (rules > 0) {
+            getLogger().info("Loaded " + rules + " custom analysis rule(s)");
+        }
+        
         // Initialize profiler manager
         profilerManager = new ProfilerManager(this);
         
@@ -46,13 +58,32 @@ public class SkriptProfilerPlugin extends JavaPlugin {
     
     @Override
     public void onDisable() {
-        if (profilerManager != null && profilerManager.isProfiling()) {
-            profilerManager.stopProfiling();
+        if (profilerManager != null) {
+            profilerManager.shutdown();
         }
         
         getLogger().info("SkriptProfiler disabled!");
     }
     
+    @Override
+    public ProfilerSettings getSettings() {
+        return settings;
+    }
+    
+    /**
+     * Gets Skript's scripts folder, plugins/Skript/scripts
+     */
+    @Override
+    public File getScriptsFolder() {
+        File pluginsFolder = getDataFolder().getParentFile();
+        return new File(new File(pluginsFolder, "Skript"), "scripts");
+    }
+    
+    @Override
+    public void runAsync(Runnable task) {
+        Bukkit.getScheduler().runTaskAsynchronously(this, task);
+    }
+    
     public static SkriptProfilerPlugin getInstance() {
         return instance;
     }
@@ -0,0 +1,302 @@
+package com.macmoment.skriptprofiler.cli;
+
+import com.macmoment.skriptprofiler.ProfilerContext;
+import com.macmoment.skriptprofiler.ProfilerSettings;
+import com.macmoment.skriptprofiler.model.CallGraphAnalysis;
+import com.macmoment.skriptprofiler.model.PerformanceIssue;
+import com.macmoment.skriptprofiler.model.ProfileSnapshot;
+import com.macmoment.skriptprofiler.model.ScriptInfo;
+import com.macmoment.skriptprofiler.profiler.BottleneckAnalyzer;
+import com.macmoment.skriptprofiler.profiler.HtmlReportWriter;
+import com.macmoment.skriptprofiler.profiler.ReportGenerator;
+import com.macmoment.skriptprofiler.profiler.ScriptFileLoader;
+import com.macmoment.skriptprofiler.profiler.SessionMerger;
+import com.macmoment.skriptprofiler.rules.RuleRegistry;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
+
+/**
+ * Headless entry point for linting scripts in CI without a server.
+ *
+ * <pre>
+ * java -jar SkriptProfiler.jar [options] &lt;scripts-folder&gt;
+ * java -jar SkriptProfiler.jar merge [options] &lt;sessions-folder&gt;
+ * </pre>
+ *
+ * Exits with 0 when no issue reaches the --fail-on severity, 1 when one does and 2 on usage or I/O errors.
+ */
+public class CommandLineAnalyzer implements ProfilerContext {
+    
+    static final int EXIT_OK = 0;
+    static final int EXIT_ISSUES = 1;
+    static final int EXIT_ERROR = 2;
+    
+    private final Logger logger;
+    private final MapSettings settings;
+    private final File scriptsFolder;
+    
+    CommandLineAnalyzer(Logger logger, MapSettings settings, File scriptsFolder) {
+        this.logger = logger;
+        this.settings = settings;
+        this.scriptsFolder = scriptsFolder;
+    }
+    
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+    
+    /**
+     * Runs the analyzer and returns the exit code
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        MapSettings settings = new MapSettings();
+        String format = null;
+        String failOn = "HIGH";
+        Path output = null;
+        Path target = null;
+        boolean merge = false;
+        boolean verbose = false;
+        
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "merge" -> merge = true;
+                    case "--format" -> format = requireValue(args, ++i, arg).toLowerCase(Locale.ROOT);
+                    case "--fail-on" -> failOn = requireValue(args, ++i, arg).toUpperCase(Locale.ROOT);
+                    case "--output", "-o" -> output = Paths.get(requireValue(args, ++i, arg));
+                    case "--config" -> settings.loadYaml(Paths.get(requireValue(args, ++i, arg)));
+                    case "--set" -> {
+                        String assignment = requireValue(args, ++i, arg);
+                        int equals = assignment.indexOf('=');
+                        if (equals < 1) {
+                            throw new IllegalArgumentException("--set expects key=value: " + assignment);
+                        }
+                        settings.set(assignment.substring(0, equals), assignment.substring(equals + 1));
+                    }
+                    case "--threads" -> {
+                        int threads = Math.max(1, Integer.parseInt(requireValue(args, ++i, arg)));
+                        System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism",
+                            String.valueOf(Math.max(1, threads - 1)));
+                        settings.set("analysis.threads", String.valueOf(threads));
+                    }
+                    case "--verbose", "-v" -> verbose = true;
+                    case "--help", "-h" -> {
+                        printUsage(out);
+                        return EXIT_OK;
+                    }
+                    default -> {
+                        if (arg.startsWith("-") || target != null) {
+                            throw new IllegalArgumentException("Unexpected argument: " + arg);
+                        }
+                        target = Paths.get(arg);
+                    }
+                }
+            }
+            if (target == null) {
+                throw new IllegalArgumentException("Missing " + (merge ? "sessions" : "scripts") + " folder");
+            }
+            if (format == null) {
+                format = merge ? "html" : "text";
+            }
+            if (merge ? !format.equals("text") && !format.equals("html")
+                : !format.equals("text") && !format.equals("json") && !format.equals("github")) {
+                throw new IllegalArgumentException("Unknown format: " + format);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            err.println("Error: " + e.getMessage());
+            printUsage(err);
+            return EXIT_ERROR;
+        }
+        
+        PerformanceIssue.Severity threshold;
+        try {
+            threshold = failOn.equals("NONE") ? null : PerformanceIssue.Severity.valueOf(failOn);
+        } catch (IllegalArgumentException e) {
+            err.println("Error: --fail-on must be LOW, MEDIUM, HIGH, CRITICAL or NONE");
+            return EXIT_ERROR;
+        }
+        
+        Logger logger = createLogger(err, verbose);
+        File folder = target.toFile();
+        if (!folder.isDirectory()) {
+            err.println("Error: not a folder: " + target);
+            return EXIT_ERROR;
+        }
+        
+        // Custom rules are picked up from jars added to the class path
+        RuleRegistry.loadServices(CommandLineAnalyzer.class.getClassLoader(), logger);
+        
+        CommandLineAnalyzer analyzer = new CommandLineAnalyzer(logger, settings, folder);
+        Writer writer = null;
+        try {
+            // Standard output is flushed but never closed
+            writer = output != null
+                ? Files.newBufferedWriter(output, StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            List<PerformanceIssue> issues = merge
+                ? analyzer.mergeSessions(target, format, writer)
+                : analyzer.analyzeScripts(target, format, writer);
+            writer.flush();
+            
+            long failing = threshold == null ? 0 : issues.stream()
+                .filter(issue -> issue.getSeverity().compareTo(threshold) >= 0)
+                .count();
+            if (failing > 0) {
+                err.printf("%d issue(s) at or above %s%n", failing, threshold);
+                return EXIT_ISSUES;
+            }
+            return EXIT_OK;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_ERROR;
+        } catch (LinkageError e) {
+            // The Bukkit API is provided by the server, so it is missing unless added to the class path
+            err.println("Error: missing class " + e.getMessage() + "; add the server jar to the class path or use --format html");
+            return EXIT_ERROR;
+        } finally {
+            if (output != null && writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    err.println("Error: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Loads and statically analyzes every script below the folder and writes the findings
+     */
+    List<PerformanceIssue> analyzeScripts(Path root, String format, Writer writer) throws IOException {
+        long start = System.nanoTime();
+        ScriptFileLoader loader = new ScriptFileLoader(this);
+        loader.loadAllScripts();
+        Map<String, ScriptInfo> scripts = loader.getLoadedScripts();
+        
+        BottleneckAnalyzer analyzer = new BottleneckAnalyzer(this);
+        List<PerformanceIssue> issues = analyzer.analyze(new ProfileSnapshot("ci"), scripts, CallGraphAnalysis.empty());
+        analyzer.shutdown();
+        // Scripts load in parallel, so order the findings to keep CI output stable between runs
+        issues.sort(Comparator.comparing(PerformanceIssue::getSeverity).reversed()
+            .thenComparing(PerformanceIssue::getScriptFile, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(PerformanceIssue::getLineNumber));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        
+        FindingsWriter findings = new FindingsWriter(root, writer);
+        switch (format) {
+            case "json" -> findings.writeJson(issues, scripts.size(), elapsedMs);
+            case "github" -> findings.writeGithub(issues);
+            default -> findings.writeText(issues);
+        }
+        logger.info(String.format("Analyzed %d script(s) in %dms, %d issue(s)", scripts.size(), elapsedMs, issues.size()));
+        return issues;
+    }
+    
+    /**
+     * Merges saved sessions into a fleet report. The HTML report, the default, also charts per-second
+     * history; the text report needs the Bukkit API on the class path.
+     */
+    List<PerformanceIssue> mergeSessions(Path sessionsFolder, String format, Writer writer) throws IOException {
+        ProfileSnapshot fleet = new SessionMerger(settings.getInt("fleet.merge-threads", 4))
+            .merge(SessionMerger.findSessionFiles(sessionsFolder), "fleet");
+        BottleneckAnalyzer analyzer = new BottleneckAnalyzer(this);
+        List<PerformanceIssue> issues = analyzer.analyze(fleet, Map.of(), CallGraphAnalysis.empty());
+        analyzer.shutdown();
+        
+        if (format.equals("html")) {
+            new HtmlReportWriter(writer, settings.getBoolean("reporting.include-suggestions", true))
+                .write(fleet, issues, Map.of(), CallGraphAnalysis.empty());
+            return issues;
+        }
+        String report = new ReportGenerator(this).generateReport(fleet, issues, Map.of(),
+            CallGraphAnalysis.empty(), true);
+        // Strip the section sign color codes the in-game report uses
+        writer.write(report.replaceAll("§[0-9A-FK-ORa-fk-or]", ""));
+        writer.write(System.lineSeparator());
+        return issues;
+    }
+    
+    @Override
+    public Logger getLogger() {
+        return logger;
+    }
+    
+    @Override
+    public ProfilerSettings getSettings() {
+        return settings;
+    }
+    
+    @Override
+    public File getDataFolder() {
+        return new File(".");
+    }
+    
+    @Override
+    public File getScriptsFolder() {
+        return scriptsFolder;
+    }
+    
+    @Override
+    public void runAsync(Runnable task) {
+        ForkJoinPool.commonPool().execute(task);
+    }
+    
+    static Logger createLogger(PrintStream err, boolean verbose) {
+        Logger logger = Logger.getLogger("SkriptProfiler");
+        logger.setUseParentHandlers(false);
+        // A ConsoleHandler would close System.err when given another stream, so flush a plain handler instead
+        StreamHandler handler = new StreamHandler(err, new SimpleFormatter()) {
+            @Override
+            public synchronized void publish(LogRecord record) {
+                super.publish(record);
+                flush();
+            }
+        };
+        handler.setLevel(Level.ALL);
+        logger.addHandler(handler);
+        logger.setLevel(verbose ? Level.INFO : Level.WARNING);
+        return logger;
+    }
+    
+    static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " requires a value");
+        }
+        return args[index];
+    }
+    
+    private static void printUsage(PrintStream stream) {
+        stream.println("Usage: java -jar SkriptProfiler.jar [options] <scripts-folder>");
+        stream.println("       java -jar SkriptProfiler.jar merge [options] <sessions-folder>");
+        stream.println("Options:");
+        stream.println("  --format text|json|github  Output format for findings (default: text)");
+        stream.println("  --format text|html         Output format for merged sessions (default: html)");
+        stream.println("  --fail-on LOW|MEDIUM|HIGH|CRITICAL|NONE");
+        stream.println("                             Exit with 1 if an issue reaches this severity (default: HIGH)");
+        stream.println("  --output, -o <file>        Write findings to a file instead of stdout");
+        stream.println("  --config <config.yml>      Read thresholds from a config.yml");
+        stream.println("  --set <key>=<value>        Override a single setting, e.g. thresholds.long-wait=200");
+        stream.println("  --threads <n>              Number of threads used to parse scripts");
+        stream.println("  --verbose, -v              Log progress to stderr");
+    }
+}
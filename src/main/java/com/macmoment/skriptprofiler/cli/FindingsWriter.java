@@ -0,0 +1,93 @@
+package com.macmoment.skriptprofiler.cli;
+
+import com.macmoment.skriptprofiler.model.PerformanceIssue;
+import com.macmoment.skriptprofiler.util.JsonStrings;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Writes analyzer findings in machine-readable formats, with script paths relative to the analyzed folder
+ */
+class FindingsWriter {
+    
+    private final Path root;
+    private final Writer writer;
+    
+    FindingsWriter(Path root, Writer writer) {
+        this.root = root.toAbsolutePath().normalize();
+        this.writer = writer;
+    }
+    
+    /**
+     * One finding per line: "file:line: SEVERITY [Type] description"
+     */
+    void writeText(List<PerformanceIssue> issues) throws IOException {
+        for (PerformanceIssue issue : issues) {
+            writer.write(String.format("%s:%d: %s [%s] %s%n", relativize(issue.getScriptFile()), issue.getLineNumber(),
+                issue.getSeverity(), issue.getTitle(), issue.getDescription()));
+        }
+    }
+    
+    /**
+     * GitHub Actions workflow commands, shown as annotations on the changed lines
+     */
+    void writeGithub(List<PerformanceIssue> issues) throws IOException {
+        for (PerformanceIssue issue : issues) {
+            String level = switch (issue.getSeverity()) {
+                case CRITICAL, HIGH -> "error";
+                case MEDIUM -> "warning";
+                case LOW -> "notice";
+            };
+            // Findings without a file are annotated on the run instead of a line
+            String location = issue.getScriptFile() == null ? ""
+                : String.format("file=%s,line=%d,", escapeProperty(relativize(issue.getScriptFile())), issue.getLineNumber());
+            writer.write(String.format("::%s %stitle=%s::%s%n", level, location,
+                escapeProperty(issue.getTitle()),
+                escapeData(issue.getDescription() + " " + issue.getSuggestion())));
+        }
+    }
+    
+    void writeJson(List<PerformanceIssue> issues, int scripts, long elapsedMs) throws IOException {
+        writer.write("{\"scripts\":" + scripts + ",\"elapsedMs\":" + elapsedMs + ",\"issues\":[");
+        for (int i = 0; i < issues.size(); i++) {
+            PerformanceIssue issue = issues.get(i);
+            writer.write(i == 0 ? "\n  {\"file\":" : ",\n  {\"file\":");
+            JsonStrings.write(writer, relativize(issue.getScriptFile()));
+            writer.write(",\"line\":");
+            writer.write(Integer.toString(issue.getLineNumber()));
+            writer.write(",\"severity\":");
+            JsonStrings.write(writer, issue.getSeverity().name());
+            writer.write(",\"type\":");
+            JsonStrings.write(writer, issue.getType().name());
+            writer.write(",\"title\":");
+            JsonStrings.write(writer, issue.getTitle());
+            writer.write(",\"description\":");
+            JsonStrings.write(writer, issue.getDescription());
+            writer.write(",\"suggestion\":");
+            JsonStrings.write(writer, issue.getSuggestion());
+            writer.write('}');
+        }
+        writer.write(issues.isEmpty() ? "]}\n" : "\n]}\n");
+    }
+    
+    /**
+     * Gets the script path relative to the analyzed folder; a null path, e.g. from a custom rule, is kept as-is
+     */
+    private String relativize(String scriptFile) {
+        if (scriptFile == null) return null;
+        Path path = Paths.get(scriptFile).toAbsolutePath().normalize();
+        return (path.startsWith(root) ? root.relativize(path) : path).toString().replace('\\', '/');
+    }
+    
+    private static String escapeData(String value) {
+        return value.replace("%", "%25").replace("\r", "%0D").replace("\n", "%0A");
+    }
+    
+    private static String escapeProperty(String value) {
+        return escapeData(value).replace(":", "%3A").replace(",", "%2C");
+    }
+}
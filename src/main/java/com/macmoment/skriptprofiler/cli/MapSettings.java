@@ -0,0 +1,164 @@
+package com.macmoment.skriptprofiler.cli;
+
+import com.macmoment.skriptprofiler.ProfilerSettings;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings held in a flat map of dotted paths, used when running without a server.
+ * Values can be read from a config.yml and overridden individually; anything unset falls back
+ * to the default at the call site, which matches the bundled config.yml.
+ */
+public class MapSettings implements ProfilerSettings {
+    
+    private final Map<String, String> values;
+    private final Map<String, List<String>> lists;
+    
+    public MapSettings() {
+        this.values = new HashMap<>();
+        this.lists = new HashMap<>();
+    }
+    
+    /**
+     * Sets a single value, e.g. from a "--set thresholds.slow-execution=20" argument
+     */
+    public void set(String path, String value) {
+        values.put(path, value);
+    }
+    
+    /**
+     * Loads a config.yml. Only the subset the plugin's own config uses is understood:
+     * nested sections, scalar values and "- item" lists.
+     */
+    public void loadYaml(Path file) throws IOException {
+        Deque<String> sections = new ArrayDeque<>();
+        Deque<Integer> indents = new ArrayDeque<>();
+        String lastKey = null;
+        
+        for (String raw : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String line = stripComment(raw);
+            if (line.isBlank()) continue;
+            
+            int indent = line.length() - line.stripLeading().length();
+            String content = line.strip();
+            
+            if (content.startsWith("- ")) {
+                if (lastKey != null) {
+                    lists.computeIfAbsent(lastKey, k -> new ArrayList<>()).add(unquote(content.substring(2).strip()));
+                }
+                continue;
+            }
+            
+            while (!indents.isEmpty() && indents.peek() >= indent) {
+                indents.pop();
+                sections.pop();
+            }
+            
+            int colon = content.indexOf(':');
+            if (colon < 0) continue;
+            String key = content.substring(0, colon).strip();
+            String value = content.substring(colon + 1).strip();
+            String path = sections.isEmpty() ? key : sections.peek() + "." + key;
+            
+            if (value.isEmpty()) {
+                sections.push(path);
+                indents.push(indent);
+                lastKey = path;
+            } else {
+                values.put(path, unquote(value));
+                lastKey = null;
+            }
+        }
+    }
+    
+    @Override
+    public boolean getBoolean(String path, boolean def) {
+        String value = values.get(path);
+        return value != null ? Boolean.parseBoolean(value) : def;
+    }
+    
+    @Override
+    public int getInt(String path, int def) {
+        String value = values.get(path);
+        try {
+            return value != null ? Integer.parseInt(value) : def;
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+    
+    @Override
+    public long getLong(String path, long def) {
+        String value = values.get(path);
+        try {
+            return value != null ? Long.parseLong(value) : def;
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+    
+    @Override
+    public double getDouble(String path, double def) {
+        String value = values.get(path);
+        try {
+            return value != null ? Double.parseDouble(value) : def;
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+    
+    @Override
+    public String getString(String path, String def) {
+        return values.getOrDefault(path, def);
+    }
+    
+    /**
+     * Gets a "- item" list, or a flow list such as "[a, b]" or "a,b", which is how lists are passed with --set
+     */
+    @Override
+    public List<String> getStringList(String path) {
+        String value = values.get(path);
+        if (lists.containsKey(path) || value == null) {
+            return new ArrayList<>(lists.getOrDefault(path, List.of()));
+        }
+        
+        String items = value.startsWith("[") && value.endsWith("]") ? value.substring(1, value.length() - 1) : value;
+        List<String> list = new ArrayList<>();
+        for (String item : items.split(",")) {
+            if (!item.isBlank()) {
+                list.add(unquote(item.strip()));
+            }
+        }
+        return list;
+    }
+    
+    private static String stripComment(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"' || c == '\'') {
+                quoted = !quoted;
+            } else if (c == '#' && !quoted && (i == 0 || Character.isWhitespace(line.charAt(i - 1)))) {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+    
+    private static String unquote(String value) {
+        if (value.length() >= 2 && (value.startsWith("\"") && value.endsWith("\"")
+            || value.startsWith("'") && value.endsWith("'"))) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,449 @@
+package com.macmoment.skriptprofiler.cli;
+
+import com.macmoment.skriptprofiler.ProfilerContext;
+import com.macmoment.skriptprofiler.ProfilerSettings;
+import com.macmoment.skriptprofiler.profiler.ExecutionTracker;
+import com.macmoment.skriptprofiler.profiler.ScriptFileLoader;
+import com.macmoment.skriptprofiler.util.LogHistogram;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Headless stress test for the profiler itself: generates a synthetic script corpus, then replays a synthetic
+ * execution stream into {@link ExecutionTracker} from several threads at a target rate and reports
+ * throughput, latency of the record calls, heap growth and GC activity. Needs no Bukkit classes.
+ *
+ * <pre>
+ * java -cp SkriptProfiler.jar com.macmoment.skriptprofiler.cli.StressHarness --rate 500000 --threads 8
+ * </pre>
+ */
+public class StressHarness implements ProfilerContext {
+    
+    // Every block the generator writes has this shape, so the replay knows which line holds what
+    private static final int BLOCK_LINES = 9;
+    private static final int EVENT_OFFSET = 1;
+    private static final int VARIABLE_OFFSET = 2;
+    private static final int LOOP_OFFSET = 3;
+    private static final int WAIT_OFFSET = 6;
+    private static final String[] EVENTS = {"player move", "damage", "inventory click", "join", "break", "chat"};
+    private static final long TICK_NANOS = 50_000_000L;
+    
+    private final Logger logger;
+    private final MapSettings settings;
+    private final File workFolder;
+    private final File scriptsFolder;
+    
+    StressHarness(Logger logger, MapSettings settings, File workFolder) {
+        this.logger = logger;
+        this.settings = settings;
+        this.workFolder = workFolder;
+        this.scriptsFolder = new File(workFolder, "scripts");
+    }
+    
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+    
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        MapSettings settings = new MapSettings();
+        Options options = new Options();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--scripts" -> options.scripts = Integer.parseInt(CommandLineAnalyzer.requireValue(args, ++i, arg));
+                    case "--blocks" -> options.blocks = Integer.parseInt(CommandLineAnalyzer.requireValue(args, ++i, arg));
+                    case "--threads" -> options.threads = Integer.parseInt(CommandLineAnalyzer.requireValue(args, ++i, arg));
+                    case "--rate" -> options.rate = Long.parseLong(CommandLineAnalyzer.requireValue(args, ++i, arg));
+                    case "--duration" -> options.durationSeconds = Integer.parseInt(CommandLineAnalyzer.requireValue(args, ++i, arg));
+                    case "--warmup" -> options.warmupSeconds = Integer.parseInt(CommandLineAnalyzer.requireValue(args, ++i, arg));
+                    case "--players" -> options.players = Integer.parseInt(CommandLineAnalyzer.requireValue(args, ++i, arg));
+                    case "--work-dir" -> options.workDir = Paths.get(CommandLineAnalyzer.requireValue(args, ++i, arg));
+                    case "--config" -> settings.loadYaml(Paths.get(CommandLineAnalyzer.requireValue(args, ++i, arg)));
+                    case "--set" -> {
+                        String assignment = CommandLineAnalyzer.requireValue(args, ++i, arg);
+                        int equals = assignment.indexOf('=');
+                        if (equals < 1) {
+                            throw new IllegalArgumentException("--set expects key=value: " + assignment);
+                        }
+                        settings.set(assignment.substring(0, equals), assignment.substring(equals + 1));
+                    }
+                    case "--keep" -> options.keep = true;
+                    case "--verbose", "-v" -> options.verbose = true;
+                    case "--help", "-h" -> {
+                        printUsage(out);
+                        return CommandLineAnalyzer.EXIT_OK;
+                    }
+                    default -> throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+            }
+            if (options.scripts < 1 || options.blocks < 1 || options.threads < 1 || options.rate < 0
+                    || options.durationSeconds < 1 || options.warmupSeconds < 0 || options.players < 1) {
+                throw new IllegalArgumentException("Counts must be positive");
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            err.println("Error: " + e.getMessage());
+            printUsage(err);
+            return CommandLineAnalyzer.EXIT_ERROR;
+        }
+        
+        Path workDir = null;
+        try {
+            workDir = options.workDir != null ? Files.createDirectories(options.workDir)
+                : Files.createTempDirectory("skriptprofiler-stress");
+            StressHarness harness = new StressHarness(CommandLineAnalyzer.createLogger(err, options.verbose),
+                settings, workDir.toFile());
+            harness.execute(options, out);
+            return CommandLineAnalyzer.EXIT_OK;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return CommandLineAnalyzer.EXIT_ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CommandLineAnalyzer.EXIT_ERROR;
+        } finally {
+            if (workDir != null && !options.keep && options.workDir == null) {
+                deleteRecursively(workDir);
+            }
+        }
+    }
+    
+    private void execute(Options options, PrintStream out) throws IOException, InterruptedException {
+        // Corpus: write and load it through the same loader the plugin uses
+        long start = System.nanoTime();
+        List<String> scriptFiles = generateCorpus(options.scripts, options.blocks);
+        long generateMs = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        ScriptFileLoader loader = new ScriptFileLoader(this);
+        loader.loadAllScripts();
+        long loadMs = (System.nanoTime() - start) / 1_000_000;
+        out.printf("Corpus:      %d scripts, %d lines, written in %dms, loaded in %dms%n",
+            loader.getLoadedScripts().size(), (long) options.scripts * options.blocks * BLOCK_LINES, generateMs, loadMs);
+        
+        // The calling thread plays the server thread: it creates the tracker and drives the ticks
+        ExecutionTracker tracker = new ExecutionTracker(this);
+        tracker.startTracking();
+        UUID[] players = new UUID[options.players];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new UUID(0x5EED, i);
+        }
+        
+        Worker[] workers = new Worker[options.threads];
+        double intervalNanos = options.rate > 0 ? 1e9 * options.threads / options.rate : 0;
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(tracker, scriptFiles, options.blocks, players, intervalNanos, 31L * i + 7);
+            workers[i].thread = new Thread(workers[i], "SkriptProfiler-Stress-" + i);
+            workers[i].thread.setDaemon(true);
+            workers[i].thread.start();
+        }
+        
+        tick(tracker, options.players, options.warmupSeconds * 1_000_000_000L);
+        long heapBefore = usedHeapAfterGc();
+        long[] gcBefore = gcTotals();
+        resetPeakHeap();
+        for (Worker worker : workers) {
+            worker.measuring = true;
+        }
+        long measureStart = System.nanoTime();
+        long ticks = tick(tracker, options.players, options.durationSeconds * 1_000_000_000L);
+        for (Worker worker : workers) {
+            worker.measuring = false;
+            worker.running = false;
+        }
+        long measureNanos = System.nanoTime() - measureStart;
+        for (Worker worker : workers) {
+            worker.thread.join();
+        }
+        long[] gcAfter = gcTotals();
+        long peakHeap = peakHeap();
+        long heapAfter = usedHeapAfterGc();
+        tracker.stopTracking();
+        
+        LogHistogram latency = new LogHistogram();
+        long records = 0;
+        long maxLatency = 0;
+        for (Worker worker : workers) {
+            latency.merge(worker.latency);
+            records += worker.records;
+            maxLatency = Math.max(maxLatency, worker.maxLatency);
+        }
+        
+        double seconds = measureNanos / 1e9;
+        out.printf("Load:        %d threads, target %s records/s, %d players, %.1fs measured after %ds warmup, %d ticks%n",
+            options.threads, options.rate > 0 ? String.valueOf(options.rate) : "unlimited", options.players,
+            seconds, options.warmupSeconds, ticks);
+        out.printf("Throughput:  %,.0f records/s (%,d records)%n", records / seconds, records);
+        out.printf("Latency:     p50 <= %dns, p90 <= %dns, p99 <= %dns, p99.9 <= %dns, max %dns%n",
+            latency.getPercentile(50), latency.getPercentile(90), latency.getPercentile(99),
+            latency.getPercentile(99.9), maxLatency);
+        out.printf("Heap:        %.1fMB -> %.1fMB after GC (%+.1fMB), peak %.1fMB%n",
+            heapBefore / 1048576.0, heapAfter / 1048576.0, (heapAfter - heapBefore) / 1048576.0, peakHeap / 1048576.0);
+        out.printf("GC:          %d collections, %dms (%.2f%% of wall time)%n",
+            gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1], (gcAfter[1] - gcBefore[1]) / 10.0 / seconds);
+        out.printf("Tracked:     %d elements, %d loops, %d variable patterns, %d wait lines%n",
+            tracker.getProfileData().size(), tracker.getLoopData().size(),
+            tracker.getVariableData().size(), tracker.getWaitData().size());
+        if (tracker.getCounterStore() != null) {
+            out.printf("Off-heap:    %.1fMB of counter slots%n", tracker.getCounterStore().getAllocatedBytes() / 1048576.0);
+        }
+    }
+    
+    /**
+     * Calls the tick hook every 50ms for the given time, like the server's tick task
+     *
+     * @return number of ticks
+     */
+    private long tick(ExecutionTracker tracker, int players, long durationNanos) {
+        long end = System.nanoTime() + durationNanos;
+        long ticks = 0;
+        for (long next = System.nanoTime(); next < end; next += TICK_NANOS) {
+            LockSupport.parkNanos(next - System.nanoTime());
+            tracker.updateServerPopulation(players, players * 20);
+            tracker.onServerTick();
+            ticks++;
+        }
+        return ticks;
+    }
+    
+    /**
+     * Writes scripts made of identical blocks: a trigger, a variable read, a loop over all players
+     * with a nested condition, a wait and a variable write
+     *
+     * @return the script paths, in the form the loader keys them by
+     */
+    private List<String> generateCorpus(int scripts, int blocks) throws IOException {
+        List<String> files = new ArrayList<>(scripts);
+        for (int s = 0; s < scripts; s++) {
+            Path folder = scriptsFolder.toPath().resolve("pack" + (s % 16));
+            Files.createDirectories(folder);
+            Path file = folder.resolve("script" + s + ".sk");
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (int b = 0; b < blocks; b++) {
+                    writer.write("on " + EVENTS[(s + b) % EVENTS.length] + ":\n");
+                    writer.write("\tset {_count} to {stats::%player%::counter" + b + "}\n");
+                    writer.write("\tloop all players:\n");
+                    writer.write("\t\tif loop-player is not player:\n");
+                    writer.write("\t\t\tadd 1 to {_count}\n");
+                    writer.write("\twait 1 tick\n");
+                    writer.write("\tset {stats::%player%::counter" + b + "} to {_count}\n");
+                    writer.write("\tsend \"done\" to player\n");
+                    writer.write("\n");
+                }
+            }
+            files.add(file.toString());
+        }
+        return files;
+    }
+    
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+    
+    /**
+     * Sums the peaks of the heap pools, an upper bound since pools peak at different times
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+    
+    /**
+     * Gets the total collection count and time in milliseconds across all collectors
+     */
+    private static long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[] {count, time};
+    }
+    
+    private static void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException ignored) {
+            // Left for the OS to clean up with the rest of the temp folder
+        }
+    }
+    
+    private static void printUsage(PrintStream stream) {
+        stream.println("Usage: java -cp SkriptProfiler.jar com.macmoment.skriptprofiler.cli.StressHarness [options]");
+        stream.println("Options:");
+        stream.println("  --scripts <n>         Scripts in the generated corpus (default: 200)");
+        stream.println("  --blocks <n>          Trigger blocks per script, " + BLOCK_LINES + " lines each (default: 25)");
+        stream.println("  --threads <n>         Recording threads (default: 8)");
+        stream.println("  --rate <n>            Target records per second over all threads, 0 = unlimited (default: 500000)");
+        stream.println("  --duration <s>        Measured seconds (default: 10)");
+        stream.println("  --warmup <s>          Seconds of load before measuring (default: 3)");
+        stream.println("  --players <n>         Distinct players used for attribution, with --set advanced.track-attribution=true (default: 100)");
+        stream.println("  --config <config.yml> Read tracker settings from a config.yml");
+        stream.println("  --set <key>=<value>   Override a single setting, e.g. flight-recorder.enabled=false");
+        stream.println("  --work-dir <folder>   Write the corpus and flight recordings here instead of a temp folder");
+        stream.println("  --keep                Keep the temp folder");
+        stream.println("  --verbose, -v         Log tracker messages to stderr");
+    }
+    
+    @Override
+    public Logger getLogger() {
+        return logger;
+    }
+    
+    @Override
+    public ProfilerSettings getSettings() {
+        return settings;
+    }
+    
+    @Override
+    public File getDataFolder() {
+        return workFolder;
+    }
+    
+    @Override
+    public File getScriptsFolder() {
+        return scriptsFolder;
+    }
+    
+    @Override
+    public void runAsync(Runnable task) {
+        ForkJoinPool.commonPool().execute(task);
+    }
+    
+    private static class Options {
+        int scripts = 200;
+        int blocks = 25;
+        int threads = 8;
+        long rate = 500_000;
+        int durationSeconds = 10;
+        int warmupSeconds = 3;
+        int players = 100;
+        Path workDir;
+        boolean keep;
+        boolean verbose;
+    }
+    
+    /**
+     * Replays a skewed stream of executions: most records hit a few hot blocks, like real servers.
+     * Every 8th record also reports a loop, every 4th a variable access and every 32nd a wait.
+     */
+    private static class Worker implements Runnable {
+        
+        private final ExecutionTracker tracker;
+        private final List<String> scriptFiles;
+        private final int blocks;
+        private final UUID[] players;
+        private final String[] variableNames;
+        private final double intervalNanos;
+        private final SplittableRandom random;
+        private final LogHistogram latency = new LogHistogram();
+        
+        private Thread thread;
+        private volatile boolean running = true;
+        private volatile boolean measuring;
+        private long records;
+        private long maxLatency;
+        
+        Worker(ExecutionTracker tracker, List<String> scriptFiles, int blocks, UUID[] players,
+               double intervalNanos, long seed) {
+            this.tracker = tracker;
+            this.scriptFiles = scriptFiles;
+            this.blocks = blocks;
+            this.players = players;
+            // Built up front so the harness's own allocations do not show up in the GC figures
+            this.variableNames = new String[players.length];
+            for (int i = 0; i < players.length; i++) {
+                variableNames[i] = "stats::" + players[i] + "::counter";
+            }
+            this.intervalNanos = intervalNanos;
+            this.random = new SplittableRandom(seed);
+        }
+        
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            long sent = 0;
+            while (running) {
+                if (intervalNanos > 0) {
+                    long due = start + (long) (sent * intervalNanos);
+                    long wait = due - System.nanoTime();
+                    if (wait > 20_000) {
+                        LockSupport.parkNanos(wait);
+                    } else if (wait < -1_000_000_000L) {
+                        // Fell more than a second behind; drop the backlog instead of bursting
+                        start = System.nanoTime();
+                        sent = 0;
+                    }
+                }
+                sent++;
+                
+                // Cubing a uniform value skews picks towards the first scripts and blocks
+                double pick = random.nextDouble();
+                int element = (int) (pick * pick * pick * scriptFiles.size() * blocks);
+                String file = scriptFiles.get(element / blocks);
+                int firstLine = (element % blocks) * BLOCK_LINES;
+                int playerIndex = random.nextInt(players.length);
+                
+                long begin = System.nanoTime();
+                record(file, firstLine, playerIndex, sent);
+                long elapsed = System.nanoTime() - begin;
+                
+                if (measuring) {
+                    latency.record(elapsed);
+                    maxLatency = Math.max(maxLatency, elapsed);
+                    records++;
+                }
+            }
+        }
+        
+        private void record(String file, int firstLine, int playerIndex, long sequence) {
+            tracker.recordExecutionStart(file);
+            tracker.recordExecutionEnd(file, firstLine + EVENT_OFFSET, "Event", "on event", players[playerIndex], "world",
+                (int) (sequence & 31), (int) (sequence >> 5 & 31));
+            if ((sequence & 3) == 0) {
+                tracker.recordVariableAccess(file, firstLine + VARIABLE_OFFSET, variableNames[playerIndex], false);
+            }
+            if ((sequence & 7) == 0) {
+                tracker.recordLoop(file, firstLine + LOOP_OFFSET, "all players", players.length, 2_000);
+            }
+            if ((sequence & 31) == 0) {
+                long token = tracker.recordWaitSuspend(file, firstLine + WAIT_OFFSET);
+                tracker.recordWaitResume(file, firstLine + WAIT_OFFSET, token);
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.macmoment.skriptprofiler.commands;
 
 import com.macmoment.skriptprofiler.SkriptProfilerPlugin;
 import com.macmoment.skriptprofiler.profiler.ProfilerManager;
+import com.macmoment.skriptprofiler.profiler.TickMonitor;
+import com.macmoment.skriptprofiler.util.TickHistogram;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -23,9 +25,11 @@ public class ProfilerCommand implements CommandExecutor, TabCompleter {
     private final ProfilerManager profilerManager;
     
     private static final List<String> SUBCOMMANDS = Arrays.asList(
-        "start", "stop", "report", "reset", "help", "status"
+        "start", "stop", "report", "reset", "help", "status", "live", "save", "merge", "export"
     );
     
+    private static final List<String> EXPORT_FORMATS = Arrays.asList("html", "json", "csv");
+    
     public ProfilerCommand(SkriptProfilerPlugin plugin, ProfilerManager profilerManager) {
         this.plugin = plugin;
         this.profilerManager = profilerManager;
@@ -51,6 +55,10 @@ public class ProfilerCommand implements CommandExecutor, TabCompleter {
             case "report" -> handleReport(sender, args);
             case "reset" -> handleReset(sender);
             case "status" -> handleStatus(sender);
+            case "live" -> handleLive(sender);
+            case "save" -> handleSave(sender);
+            case "merge" -> handleMerge(sender, args);
+            case "export" -> handleExport(sender, args);
             case "help" -> sendHelp(sender);
             default -> {
                 sender.sendMessage(ChatColor.RED + "Unknown subcommand. Use '/skprofile help' for help.");
@@ -104,8 +112,13 @@ public class ProfilerCommand implements CommandExecutor, TabCompleter {
         
         sender.sendMessage(ChatColor.GRAY + "Generating performance report...");
         
-        String report = profilerManager.generateReport(detailed);
-        
+        profilerManager.generateReport(detailed, report -> sendReport(sender, report));
+    }
+    
+    /**
+     * Sends a generated report to the sender and/or the console
+     */
+    private void sendReport(CommandSender sender, String report) {
         // Send report based on configuration
         String format = plugin.getConfig().getString("reporting.format", "BOTH");
         
@@ -158,6 +171,21 @@ public class ProfilerCommand implements CommandExecutor, TabCompleter {
             ChatColor.WHITE,
             profilerManager.getCurrentTPS()
         ));
+        TickMonitor tickMonitor = profilerManager.getTickMonitor();
+        TickHistogram ticks = tickMonitor.getHistogram();
+        if (ticks.getTickCount() > 0) {
+            sender.sendMessage(String.format("%sMSPT: %s%.1f %s(p50 %.1f, p95 %.1f, p99 %.1f, max %.1f, %s)",
+                ChatColor.AQUA,
+                ChatColor.WHITE,
+                tickMonitor.getCurrentMspt(),
+                ChatColor.GRAY,
+                ticks.getPercentileMs(50),
+                ticks.getPercentileMs(95),
+                ticks.getPercentileMs(99),
+                ticks.getMaxMs(),
+                tickMonitor.isUsingTickEvents() ? "busy time" : "tick interval"
+            ));
+        }
         sender.sendMessage(String.format("%sScripts Loaded: %s%d",
             ChatColor.AQUA,
             ChatColor.WHITE,
@@ -171,6 +199,70 @@ public class ProfilerCommand implements CommandExecutor, TabCompleter {
         }
     }
     
+    /**
+     * Handles the live subcommand
+     */
+    private void handleLive(CommandSender sender) {
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage(ChatColor.RED + "The live dashboard is only available in-game.");
+            return;
+        }
+        
+        if (profilerManager.toggleLiveDashboard(player)) {
+            sender.sendMessage(ChatColor.GREEN + "Live dashboard enabled. Use '/skprofile live' again to hide it.");
+            if (!profilerManager.isProfiling()) {
+                sender.sendMessage(ChatColor.GRAY + "Start profiling with '/skprofile start' to see live data.");
+            }
+        } else {
+            sender.sendMessage(ChatColor.YELLOW + "Live dashboard disabled.");
+        }
+    }
+    
+    /**
+     * Handles the save subcommand
+     */
+    private void handleSave(CommandSender sender) {
+        if (profilerManager.getExecutionTracker().getProfileData().isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + "No profiling data to save. Start profiling first!");
+            return;
+        }
+        
+        sender.sendMessage(ChatColor.GRAY + "Saving session...");
+        profilerManager.saveSession(sender::sendMessage);
+    }
+    
+    /**
+     * Handles the merge subcommand
+     */
+    private void handleMerge(CommandSender sender, String[] args) {
+        String folder = args.length > 1 ? args[1] : null;
+        if (folder != null && (folder.contains("..") || folder.contains("/") || folder.contains("\\"))) {
+            sender.sendMessage(ChatColor.RED + "The folder must be a plain name inside the sessions folder.");
+            return;
+        }
+        
+        sender.sendMessage(ChatColor.GRAY + "Merging saved sessions in the background...");
+        profilerManager.mergeSessions(folder, sender::sendMessage);
+    }
+    
+    /**
+     * Handles the export subcommand
+     */
+    private void handleExport(CommandSender sender, String[] args) {
+        String format = args.length > 1 ? args[1].toLowerCase() : "html";
+        if (!EXPORT_FORMATS.contains(format)) {
+            sender.sendMessage(ChatColor.RED + "Unknown export format. Use: " + String.join(", ", EXPORT_FORMATS));
+            return;
+        }
+        if (profilerManager.getExecutionTracker().getProfileData().isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + "No profiling data to export. Start profiling first!");
+            return;
+        }
+        
+        sender.sendMessage(ChatColor.GRAY + "Exporting " + format.toUpperCase() + " in the background...");
+        profilerManager.exportReport(format, sender::sendMessage);
+    }
+    
     /**
      * Sends help message
      */
@@ -181,6 +273,10 @@ public class ProfilerCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.YELLOW + "/skprofile report [detailed]" + ChatColor.GRAY + " - Generate report");
         sender.sendMessage(ChatColor.YELLOW + "/skprofile reset" + ChatColor.GRAY + " - Reset profiling data");
         sender.sendMessage(ChatColor.YELLOW + "/skprofile status" + ChatColor.GRAY + " - Show profiler status");
+        sender.sendMessage(ChatColor.YELLOW + "/skprofile live" + ChatColor.GRAY + " - Toggle the live dashboard");
+        sender.sendMessage(ChatColor.YELLOW + "/skprofile save" + ChatColor.GRAY + " - Save this session for merging");
+        sender.sendMessage(ChatColor.YELLOW + "/skprofile merge [folder]" + ChatColor.GRAY + " - Merge saved sessions into a fleet report");
+        sender.sendMessage(ChatColor.YELLOW + "/skprofile export [html|json|csv]" + ChatColor.GRAY + " - Export a report or raw data file");
         sender.sendMessage(ChatColor.YELLOW + "/skprofile help" + ChatColor.GRAY + " - Show this help");
     }
     
@@ -202,6 +298,12 @@ public class ProfilerCommand implements CommandExecutor, TabCompleter {
                 .collect(Collectors.toList());
         }
         
+        if (args.length == 2 && args[0].equalsIgnoreCase("export")) {
+            return EXPORT_FORMATS.stream()
+                .filter(opt -> opt.startsWith(args[1].toLowerCase()))
+                .collect(Collectors.toList());
+        }
+        
         return new ArrayList<>();
     }
 }
@@ -0,0 +1,43 @@
+package com.macmoment.skriptprofiler.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning a profiling session, from /skprofile start to stop.
+ * Disabled by default; enable "skriptprofiler.ProfilingSession" in a JFR settings file to record it.
+ */
+@Name("skriptprofiler.ProfilingSession")
+@Label("Profiling Session")
+@Category({"Skript", "Profiler"})
+@Description("A SkriptProfiler profiling session")
+@StackTrace(false)
+@Enabled(false)
+public class ProfilingSessionEvent extends Event {
+    
+    @Label("Scripts Loaded")
+    private int scriptsLoaded;
+    
+    @Label("Elements Tracked")
+    private int elementsTracked;
+    
+    @Label("Total Executions")
+    private long totalExecutions;
+    
+    public void setScriptsLoaded(int scriptsLoaded) {
+        this.scriptsLoaded = scriptsLoaded;
+    }
+    
+    public void setElementsTracked(int elementsTracked) {
+        this.elementsTracked = elementsTracked;
+    }
+    
+    public void setTotalExecutions(long totalExecutions) {
+        this.totalExecutions = totalExecutions;
+    }
+}
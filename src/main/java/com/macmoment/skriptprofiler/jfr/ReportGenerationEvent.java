@@ -0,0 +1,43 @@
+package com.macmoment.skriptprofiler.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering analysis and formatting of a profiler report.
+ * Disabled by default; enable "skriptprofiler.ReportGeneration" in a JFR settings file to record it.
+ */
+@Name("skriptprofiler.ReportGeneration")
+@Label("Report Generation")
+@Category({"Skript", "Profiler"})
+@Description("Bottleneck analysis and report generation by SkriptProfiler")
+@StackTrace(false)
+@Enabled(false)
+public class ReportGenerationEvent extends Event {
+    
+    @Label("Elements")
+    private int elements;
+    
+    @Label("Issues")
+    private int issues;
+    
+    @Label("Detailed")
+    private boolean detailed;
+    
+    public void setElements(int elements) {
+        this.elements = elements;
+    }
+    
+    public void setIssues(int issues) {
+        this.issues = issues;
+    }
+    
+    public void setDetailed(boolean detailed) {
+        this.detailed = detailed;
+    }
+}
@@ -0,0 +1,90 @@
+package com.macmoment.skriptprofiler.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a single recorded Skript execution, spanning the execution itself so it lines up
+ * with GC and lock events on the JFR timeline. The event is begun when the execution starts and
+ * kept per thread until it ends.
+ * Disabled by default; enable "skriptprofiler.ScriptExecution" in a JFR settings file to record it.
+ */
+@Name("skriptprofiler.ScriptExecution")
+@Label("Script Execution")
+@Category({"Skript", "Profiler"})
+@Description("A Skript element execution recorded by SkriptProfiler")
+@StackTrace(false)
+@Enabled(false)
+public class ScriptExecutionEvent extends Event {
+    
+    private static final EventType TYPE = EventType.getEventType(ScriptExecutionEvent.class);
+    private static final ThreadLocal<ScriptExecutionEvent> PENDING = new ThreadLocal<>();
+    
+    @Label("Script File")
+    private String scriptFile;
+    
+    @Label("Line")
+    private int lineNumber;
+    
+    @Label("Element Type")
+    private String elementType;
+    
+    @Label("Element Name")
+    private String elementName;
+    
+    @Label("Execution Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long executionTime;
+    
+    @Label("Thread Class")
+    private String threadClass;
+    
+    /**
+     * Checks whether any running recording has this event enabled. A single volatile read when JFR is idle.
+     */
+    public static boolean isRecording() {
+        return TYPE.isEnabled();
+    }
+    
+    /**
+     * Begins the event of an execution starting on this thread, replacing one that never ended
+     */
+    public static void start() {
+        ScriptExecutionEvent event = new ScriptExecutionEvent();
+        event.begin();
+        PENDING.set(event);
+    }
+    
+    /**
+     * Drops this thread's begun event, e.g. when the execution is left out by sampling
+     */
+    public static void discard() {
+        PENDING.remove();
+    }
+    
+    /**
+     * Ends and commits this thread's begun event. Executions that started before a recording enabled
+     * the event have no start on the timeline and are not emitted.
+     */
+    public static void emit(String scriptFile, int lineNumber, String elementType, String elementName,
+                            long executionTimeNanos, String threadClass) {
+        ScriptExecutionEvent event = PENDING.get();
+        if (event == null) return;
+        PENDING.remove();
+        event.end();
+        event.scriptFile = scriptFile;
+        event.lineNumber = lineNumber;
+        event.elementType = elementType;
+        event.elementName = elementName;
+        event.executionTime = executionTimeNanos;
+        event.threadClass = threadClass;
+        event.commit();
+    }
+}
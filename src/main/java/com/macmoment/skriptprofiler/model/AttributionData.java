@@ -0,0 +1,118 @@
+package com.macmoment.skriptprofiler.model;
+
+import com.macmoment.skriptprofiler.util.SpaceSaving;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Represents per-element execution time attributed to players, worlds and chunks.
+ * Each dimension is a fixed-size heavy hitters sketch, so memory does not grow with player count.
+ * Players are keyed by UUID and chunks by a packed world and coordinates key, so recording builds
+ * no strings; {@link #getChunkName(long)} formats a chunk key when a report reads it.
+ */
+public class AttributionData {
+    
+    // World index in the top 20 bits, then chunk X and Z in 22 bits each, enough for a 30M block border
+    private static final int COORDINATE_BITS = 22;
+    private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+    private static final Map<String, Integer> WORLD_INDICES = new ConcurrentHashMap<>();
+    private static final List<String> WORLD_NAMES = new CopyOnWriteArrayList<>();
+    
+    private final SpaceSaving<UUID> players;
+    private final SpaceSaving<String> worlds;
+    private final SpaceSaving<Long> chunks;
+    
+    public AttributionData(int capacity) {
+        this.players = new SpaceSaving<>(capacity);
+        this.worlds = new SpaceSaving<>(capacity);
+        this.chunks = new SpaceSaving<>(capacity);
+    }
+    
+    /**
+     * Attributes execution time to the given dimensions. A null player or world skips that dimension.
+     */
+    public void record(long executionTimeNanos, UUID playerId, String worldName, int chunkX, int chunkZ) {
+        // Weight by time, but count each execution at least once so zero-time recordings still show up
+        long weight = Math.max(1, executionTimeNanos);
+        if (playerId != null) {
+            players.offer(playerId, weight);
+        }
+        if (worldName != null) {
+            worlds.offer(worldName, weight);
+            chunks.offer(getChunkKey(worldName, chunkX, chunkZ), weight);
+        }
+    }
+    
+    /**
+     * Merges another element's attribution sketches into this one
+     */
+    public void merge(AttributionData other) {
+        players.merge(other.players);
+        worlds.merge(other.worlds);
+        chunks.merge(other.chunks);
+    }
+    
+    public int getCapacity() {
+        return players.getCapacity();
+    }
+    
+    public SpaceSaving<UUID> getPlayers() {
+        return players;
+    }
+    
+    public SpaceSaving<String> getWorlds() {
+        return worlds;
+    }
+    
+    public SpaceSaving<Long> getChunks() {
+        return chunks;
+    }
+    
+    /**
+     * Packs a world and chunk coordinates into a chunk key
+     */
+    public static long getChunkKey(String worldName, int chunkX, int chunkZ) {
+        return (long) getWorldIndex(worldName) << (2 * COORDINATE_BITS)
+            | (chunkX & COORDINATE_MASK) << COORDINATE_BITS
+            | chunkZ & COORDINATE_MASK;
+    }
+    
+    /**
+     * Formats a chunk key as "world x,z"
+     */
+    public static String getChunkName(long chunkKey) {
+        int x = (int) (chunkKey << (64 - 2 * COORDINATE_BITS) >> (64 - COORDINATE_BITS));
+        int z = (int) (chunkKey << (64 - COORDINATE_BITS) >> (64 - COORDINATE_BITS));
+        return WORLD_NAMES.get((int) (chunkKey >>> (2 * COORDINATE_BITS))) + " " + x + "," + z;
+    }
+    
+    /**
+     * Parses a chunk name written by {@link #getChunkName(long)} back into a key
+     */
+    public static long parseChunkKey(String chunkName) {
+        int space = chunkName.lastIndexOf(' ');
+        int comma = chunkName.lastIndexOf(',');
+        if (space < 0 || comma < space) {
+            throw new IllegalArgumentException("Not a chunk name: " + chunkName);
+        }
+        return getChunkKey(chunkName.substring(0, space), Integer.parseInt(chunkName.substring(space + 1, comma)),
+            Integer.parseInt(chunkName.substring(comma + 1)));
+    }
+    
+    private static int getWorldIndex(String worldName) {
+        Integer index = WORLD_INDICES.get(worldName);
+        if (index != null) {
+            return index;
+        }
+        synchronized (WORLD_NAMES) {
+            return WORLD_INDICES.computeIfAbsent(worldName, name -> {
+                WORLD_NAMES.add(name);
+                return WORLD_NAMES.size() - 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.macmoment.skriptprofiler.model;
+
+/**
+ * Represents a call site joined with runtime data: how often it was reached and how much
+ * of the callee's measured time is attributed to it
+ */
+public class CallEdge {
+    private final CallSite site;
+    private final long triggerExecutions;
+    private final double callsPerTrigger;
+    private final long attributedTimeNanos;
+    private final double calleeAverageMs;
+    
+    public CallEdge(CallSite site, long triggerExecutions, double callsPerTrigger,
+                    long attributedTimeNanos, double calleeAverageMs) {
+        this.site = site;
+        this.triggerExecutions = triggerExecutions;
+        this.callsPerTrigger = callsPerTrigger;
+        this.attributedTimeNanos = attributedTimeNanos;
+        this.calleeAverageMs = calleeAverageMs;
+    }
+    
+    public CallSite getSite() {
+        return site;
+    }
+    
+    /**
+     * Gets how often the enclosing trigger ran, or 0 if it has no runtime data
+     */
+    public long getTriggerExecutions() {
+        return triggerExecutions;
+    }
+    
+    /**
+     * Gets the estimated calls per trigger execution (product of enclosing loops' average iterations)
+     */
+    public double getCallsPerTrigger() {
+        return callsPerTrigger;
+    }
+    
+    /**
+     * Gets the part of the callee's total time attributed to this call site
+     */
+    public long getAttributedTimeNanos() {
+        return attributedTimeNanos;
+    }
+    
+    public double getCalleeAverageMs() {
+        return calleeAverageMs;
+    }
+    
+    /**
+     * Gets the estimated function time per trigger execution in milliseconds
+     */
+    public double getCostPerTriggerMs() {
+        return calleeAverageMs * callsPerTrigger;
+    }
+}
@@ -0,0 +1,52 @@
+package com.macmoment.skriptprofiler.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents the static call graph joined with one profiling session's runtime data
+ */
+public class CallGraphAnalysis {
+    private final List<FunctionCost> functionCosts;
+    private final List<CallPath> hotPaths;
+    private final List<CallEdge> edges;
+    
+    public CallGraphAnalysis(List<FunctionCost> functionCosts, List<CallPath> hotPaths, List<CallEdge> edges) {
+        this.functionCosts = new ArrayList<>(functionCosts);
+        this.hotPaths = new ArrayList<>(hotPaths);
+        this.edges = new ArrayList<>(edges);
+    }
+    
+    /**
+     * Creates an analysis without any functions, used when no scripts are loaded
+     */
+    public static CallGraphAnalysis empty() {
+        return new CallGraphAnalysis(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+    }
+    
+    /**
+     * Gets function costs, highest inclusive time first
+     */
+    public List<FunctionCost> getFunctionCosts() {
+        return Collections.unmodifiableList(functionCosts);
+    }
+    
+    /**
+     * Gets the call paths carrying the most time, highest first
+     */
+    public List<CallPath> getHotPaths() {
+        return Collections.unmodifiableList(hotPaths);
+    }
+    
+    /**
+     * Gets every resolved call site with its runtime estimates
+     */
+    public List<CallEdge> getEdges() {
+        return Collections.unmodifiableList(edges);
+    }
+    
+    public boolean isEmpty() {
+        return functionCosts.isEmpty();
+    }
+}
@@ -0,0 +1,37 @@
+package com.macmoment.skriptprofiler.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a chain of calls from a trigger down to a function, with the time estimated to flow along it
+ */
+public class CallPath {
+    private final List<String> frames;
+    private final long estimatedTimeNanos;
+    
+    public CallPath(List<String> frames, long estimatedTimeNanos) {
+        this.frames = new ArrayList<>(frames);
+        this.estimatedTimeNanos = estimatedTimeNanos;
+    }
+    
+    /**
+     * Gets the frames from the trigger to the last called function
+     */
+    public List<String> getFrames() {
+        return new ArrayList<>(frames);
+    }
+    
+    public long getEstimatedTimeNanos() {
+        return estimatedTimeNanos;
+    }
+    
+    public double getEstimatedTimeMs() {
+        return estimatedTimeNanos / 1_000_000.0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.join(" → ", frames);
+    }
+}
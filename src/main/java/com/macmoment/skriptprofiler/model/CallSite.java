@@ -0,0 +1,88 @@
+package com.macmoment.skriptprofiler.model;
+
+import java.util.Arrays;
+
+/**
+ * Represents a single static call to a Skript function, found while parsing a script
+ */
+public class CallSite {
+    private final String scriptFile;
+    private final int lineNumber;
+    private final String functionName;
+    private final int triggerLine;
+    private final ScriptNode.Kind triggerKind;
+    private final String triggerName;
+    private final int[] loopLines;
+    
+    public CallSite(String scriptFile, int lineNumber, String functionName,
+                    int triggerLine, ScriptNode.Kind triggerKind, String triggerName, int[] loopLines) {
+        this.scriptFile = scriptFile;
+        this.lineNumber = lineNumber;
+        this.functionName = functionName;
+        this.triggerLine = triggerLine;
+        this.triggerKind = triggerKind;
+        this.triggerName = triggerName;
+        this.loopLines = loopLines.clone();
+    }
+    
+    public String getScriptFile() {
+        return scriptFile;
+    }
+    
+    public int getLineNumber() {
+        return lineNumber;
+    }
+    
+    public String getFunctionName() {
+        return functionName;
+    }
+    
+    /**
+     * Gets the line of the enclosing event, function or command, or 0 at top level
+     */
+    public int getTriggerLine() {
+        return triggerLine;
+    }
+    
+    public ScriptNode.Kind getTriggerKind() {
+        return triggerKind;
+    }
+    
+    /**
+     * Gets the enclosing trigger's text; for function callers this is the function name
+     */
+    public String getTriggerName() {
+        return triggerName;
+    }
+    
+    /**
+     * Checks if the call is made from inside another function
+     */
+    public boolean isFromFunction() {
+        return triggerKind == ScriptNode.Kind.FUNCTION;
+    }
+    
+    /**
+     * Gets the lines of the enclosing loops, outermost first
+     */
+    public int[] getLoopLines() {
+        return loopLines.clone();
+    }
+    
+    public int getLoopDepth() {
+        return loopLines.length;
+    }
+    
+    public String getLocationString() {
+        return scriptFile + ":" + lineNumber;
+    }
+    
+    public String getTriggerLocationString() {
+        return scriptFile + ":" + triggerLine;
+    }
+    
+    @Override
+    public String toString() {
+        return getLocationString() + " -> " + functionName + "() loops=" + Arrays.toString(loopLines);
+    }
+}
@@ -0,0 +1,40 @@
+package com.macmoment.skriptprofiler.model;
+
+/**
+ * Storage for element execution counters, on the heap per element or in the slots of an
+ * {@link OffHeapCounterStore} shared by all elements. Methods take the element ID to select the slot;
+ * per-element storage ignores it. All methods are thread-safe.
+ */
+interface ElementCounters {
+    
+    /**
+     * Adds executions and their time; the main thread part is included in the total
+     */
+    void add(int id, long count, long totalNanos, long mainThreadNanos);
+    
+    /**
+     * Widens min and max to include the given range; a min of 0 means none
+     */
+    void updateMinMax(int id, long minNanos, long maxNanos);
+    
+    void addSampling(int id, long sampled, long countVariance, double timeVarianceMs);
+    
+    long getCount(int id);
+    
+    long getTotalNanos(int id);
+    
+    long getMainThreadNanos(int id);
+    
+    /**
+     * Gets the fastest non-zero execution, or Long.MAX_VALUE if none was recorded
+     */
+    long getMinNanos(int id);
+    
+    long getMaxNanos(int id);
+    
+    long getSampled(int id);
+    
+    long getCountVariance(int id);
+    
+    double getTimeVarianceMs(int id);
+}
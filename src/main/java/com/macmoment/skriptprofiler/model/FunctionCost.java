@@ -0,0 +1,80 @@
+package com.macmoment.skriptprofiler.model;
+
+/**
+ * Represents the inclusive and self cost of a Skript function derived from the call graph
+ */
+public class FunctionCost {
+    private final String functionName;
+    private final String scriptFile;
+    private final int lineNumber;
+    private final long executionCount;
+    private final long inclusiveTimeNanos;
+    private final long selfTimeNanos;
+    private final int callSiteCount;
+    private final int callerCount;
+    
+    public FunctionCost(String functionName, String scriptFile, int lineNumber, long executionCount,
+                        long inclusiveTimeNanos, long selfTimeNanos, int callSiteCount, int callerCount) {
+        this.functionName = functionName;
+        this.scriptFile = scriptFile;
+        this.lineNumber = lineNumber;
+        this.executionCount = executionCount;
+        this.inclusiveTimeNanos = inclusiveTimeNanos;
+        this.selfTimeNanos = selfTimeNanos;
+        this.callSiteCount = callSiteCount;
+        this.callerCount = callerCount;
+    }
+    
+    public String getFunctionName() {
+        return functionName;
+    }
+    
+    public String getScriptFile() {
+        return scriptFile;
+    }
+    
+    public int getLineNumber() {
+        return lineNumber;
+    }
+    
+    public long getExecutionCount() {
+        return executionCount;
+    }
+    
+    /**
+     * Gets the time spent in the function including the functions it calls
+     */
+    public long getInclusiveTimeNanos() {
+        return inclusiveTimeNanos;
+    }
+    
+    /**
+     * Gets the inclusive time minus the time attributed to its callees
+     */
+    public long getSelfTimeNanos() {
+        return selfTimeNanos;
+    }
+    
+    public double getInclusiveTimeMs() {
+        return inclusiveTimeNanos / 1_000_000.0;
+    }
+    
+    public double getSelfTimeMs() {
+        return selfTimeNanos / 1_000_000.0;
+    }
+    
+    public int getCallSiteCount() {
+        return callSiteCount;
+    }
+    
+    /**
+     * Gets the number of distinct triggers calling this function
+     */
+    public int getCallerCount() {
+        return callerCount;
+    }
+    
+    public String getLocationString() {
+        return scriptFile + ":" + lineNumber;
+    }
+}
@@ -0,0 +1,91 @@
+package com.macmoment.skriptprofiler.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Element counters held in atomics on the heap, the default storage
+ */
+final class HeapCounters implements ElementCounters {
+    private final AtomicLong executionCount = new AtomicLong();
+    private final AtomicLong totalExecutionTime = new AtomicLong();
+    private final AtomicLong mainThreadExecutionTime = new AtomicLong();
+    private volatile long maxExecutionTime;
+    private volatile long minExecutionTime = Long.MAX_VALUE;
+    // Sampled executions stand in for several; these sums give the variance of the scaled-up estimates
+    private final AtomicLong sampledExecutions = new AtomicLong();
+    private final AtomicLong countVariance = new AtomicLong();
+    private final DoubleAdder timeVarianceMs = new DoubleAdder();
+    
+    @Override
+    public void add(int id, long count, long totalNanos, long mainThreadNanos) {
+        executionCount.addAndGet(count);
+        if (totalNanos != 0) {
+            totalExecutionTime.addAndGet(totalNanos);
+        }
+        if (mainThreadNanos != 0) {
+            mainThreadExecutionTime.addAndGet(mainThreadNanos);
+        }
+    }
+    
+    @Override
+    public void updateMinMax(int id, long minNanos, long maxNanos) {
+        // Most executions move neither bound, so those skip the lock
+        if (maxNanos <= maxExecutionTime && (minNanos <= 0 || minNanos >= minExecutionTime)) return;
+        synchronized (this) {
+            if (maxNanos > maxExecutionTime) {
+                maxExecutionTime = maxNanos;
+            }
+            if (minNanos > 0 && minNanos < minExecutionTime) {
+                minExecutionTime = minNanos;
+            }
+        }
+    }
+    
+    @Override
+    public void addSampling(int id, long sampled, long countVarianceSum, double timeVarianceSum) {
+        sampledExecutions.addAndGet(sampled);
+        countVariance.addAndGet(countVarianceSum);
+        timeVarianceMs.add(timeVarianceSum);
+    }
+    
+    @Override
+    public long getCount(int id) {
+        return executionCount.get();
+    }
+    
+    @Override
+    public long getTotalNanos(int id) {
+        return totalExecutionTime.get();
+    }
+    
+    @Override
+    public long getMainThreadNanos(int id) {
+        return mainThreadExecutionTime.get();
+    }
+    
+    @Override
+    public long getMinNanos(int id) {
+        return minExecutionTime;
+    }
+    
+    @Override
+    public long getMaxNanos(int id) {
+        return maxExecutionTime;
+    }
+    
+    @Override
+    public long getSampled(int id) {
+        return sampledExecutions.get();
+    }
+    
+    @Override
+    public long getCountVariance(int id) {
+        return countVariance.get();
+    }
+    
+    @Override
+    public double getTimeVarianceMs(int id) {
+        return timeVarianceMs.sum();
+    }
+}
@@ -0,0 +1,258 @@
+package com.macmoment.skriptprofiler.model;
+
+import com.macmoment.skriptprofiler.util.LogHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents iteration statistics for a single loop, tracked per loop entry
+ */
+public class LoopProfileData {
+    private static final int MIN_SCALING_SAMPLES = 10;
+    private static final double MIN_SCALING_POPULATION = 5;
+    
+    private final String scriptFile;
+    private volatile int lineNumber;
+    private final String loopExpression;
+    private final AtomicLong entryCount;
+    private final AtomicLong totalIterations;
+    private final AtomicLong totalBodyTime;
+    private final LogHistogram iterationHistogram;
+    private volatile long maxIterations;
+    
+    // Running sums for correlating iteration counts with server population
+    private long samples;
+    private double sumIterations;
+    private double sumIterationsSquared;
+    private double sumPlayers;
+    private double sumPlayersSquared;
+    private double sumPlayersIterations;
+    private double sumEntities;
+    private double sumEntitiesSquared;
+    private double sumEntitiesIterations;
+    
+    public LoopProfileData(String scriptFile, int lineNumber, String loopExpression) {
+        this.scriptFile = scriptFile;
+        this.lineNumber = lineNumber;
+        this.loopExpression = loopExpression;
+        this.entryCount = new AtomicLong(0);
+        this.totalIterations = new AtomicLong(0);
+        this.totalBodyTime = new AtomicLong(0);
+        this.iterationHistogram = new LogHistogram();
+        this.maxIterations = 0;
+    }
+    
+    /**
+     * Records one complete run of the loop
+     *
+     * @param iterations number of iterations in this run
+     * @param bodyTimeNanos total time spent in the loop body for this run
+     * @param onlinePlayers online players when the loop ran
+     * @param loadedEntities loaded entities when the loop ran
+     */
+    public void recordEntry(long iterations, long bodyTimeNanos, int onlinePlayers, int loadedEntities) {
+        entryCount.incrementAndGet();
+        totalIterations.addAndGet(iterations);
+        totalBodyTime.addAndGet(bodyTimeNanos);
+        iterationHistogram.record(iterations);
+        
+        synchronized (this) {
+            if (iterations > maxIterations) {
+                maxIterations = iterations;
+            }
+            samples++;
+            sumIterations += iterations;
+            sumIterationsSquared += (double) iterations * iterations;
+            sumPlayers += onlinePlayers;
+            sumPlayersSquared += (double) onlinePlayers * onlinePlayers;
+            sumPlayersIterations += (double) onlinePlayers * iterations;
+            sumEntities += loadedEntities;
+            sumEntitiesSquared += (double) loadedEntities * loadedEntities;
+            sumEntitiesIterations += (double) loadedEntities * iterations;
+        }
+    }
+    
+    /**
+     * Adds pre-aggregated loop statistics, e.g. from another server's saved session
+     *
+     * @param populationSums correlation sums as returned by {@link #getPopulationSums()}
+     */
+    public void addAggregate(long entries, long iterations, long bodyTimeNanos, long maxIterations,
+                             LogHistogram histogram, double[] populationSums) {
+        entryCount.addAndGet(entries);
+        totalIterations.addAndGet(iterations);
+        totalBodyTime.addAndGet(bodyTimeNanos);
+        iterationHistogram.merge(histogram);
+        
+        synchronized (this) {
+            if (maxIterations > this.maxIterations) {
+                this.maxIterations = maxIterations;
+            }
+            samples += (long) populationSums[0];
+            sumIterations += populationSums[1];
+            sumIterationsSquared += populationSums[2];
+            sumPlayers += populationSums[3];
+            sumPlayersSquared += populationSums[4];
+            sumPlayersIterations += populationSums[5];
+            sumEntities += populationSums[6];
+            sumEntitiesSquared += populationSums[7];
+            sumEntitiesIterations += populationSums[8];
+        }
+    }
+    
+    /**
+     * Merges another loop's statistics into this one; the correlation sums are additive
+     */
+    public void merge(LoopProfileData other) {
+        addAggregate(other.getEntryCount(), other.getTotalIterations(), other.getTotalBodyTimeNanos(),
+            other.getMaxIterations(), other.getIterationHistogram(), other.getPopulationSums());
+    }
+    
+    /**
+     * Gets the running correlation sums: samples, then sums of iterations, iterations², players,
+     * players², players × iterations, entities, entities² and entities × iterations
+     */
+    public synchronized double[] getPopulationSums() {
+        return new double[] {
+            samples, sumIterations, sumIterationsSquared,
+            sumPlayers, sumPlayersSquared, sumPlayersIterations,
+            sumEntities, sumEntitiesSquared, sumEntitiesIterations
+        };
+    }
+    
+    public long getEntryCount() {
+        return entryCount.get();
+    }
+    
+    public long getTotalIterations() {
+        return totalIterations.get();
+    }
+    
+    public long getMaxIterations() {
+        return maxIterations;
+    }
+    
+    public double getAverageIterations() {
+        long entries = entryCount.get();
+        return entries == 0 ? 0 : totalIterations.get() / (double) entries;
+    }
+    
+    /**
+     * Returns the average body time per iteration in milliseconds
+     */
+    public double getAverageIterationTimeMs() {
+        long iterations = totalIterations.get();
+        return iterations == 0 ? 0 : (totalBodyTime.get() / (double) iterations) / 1_000_000.0;
+    }
+    
+    /**
+     * Returns the average body time per loop entry in milliseconds
+     */
+    public double getAverageEntryTimeMs() {
+        long entries = entryCount.get();
+        return entries == 0 ? 0 : (totalBodyTime.get() / (double) entries) / 1_000_000.0;
+    }
+    
+    public long getTotalBodyTimeNanos() {
+        return totalBodyTime.get();
+    }
+    
+    public LogHistogram getIterationHistogram() {
+        return iterationHistogram;
+    }
+    
+    /**
+     * Returns the Pearson correlation between iterations and online players, or NaN if undefined
+     */
+    public synchronized double getPlayerCorrelation() {
+        return correlation(sumPlayers, sumPlayersSquared, sumPlayersIterations);
+    }
+    
+    /**
+     * Returns the Pearson correlation between iterations and loaded entities, or NaN if undefined
+     */
+    public synchronized double getEntityCorrelation() {
+        return correlation(sumEntities, sumEntitiesSquared, sumEntitiesIterations);
+    }
+    
+    /**
+     * Returns average iterations divided by average online players, or NaN if no players were online
+     */
+    public synchronized double getIterationsPerPlayer() {
+        return sumPlayers == 0 ? Double.NaN : sumIterations / sumPlayers;
+    }
+    
+    /**
+     * Returns average iterations divided by average loaded entities, or NaN if no entities were loaded
+     */
+    public synchronized double getIterationsPerEntity() {
+        return sumEntities == 0 ? Double.NaN : sumIterations / sumEntities;
+    }
+    
+    public synchronized double getAveragePlayers() {
+        return samples == 0 ? 0 : sumPlayers / samples;
+    }
+    
+    public synchronized double getAverageEntities() {
+        return samples == 0 ? 0 : sumEntities / samples;
+    }
+    
+    /**
+     * Checks whether iteration counts grow with the number of online players
+     */
+    public boolean scalesWithPlayers(double minCorrelation) {
+        return scalesWith(getPlayerCorrelation(), getIterationsPerPlayer(), getAveragePlayers(), minCorrelation);
+    }
+    
+    /**
+     * Checks whether iteration counts grow with the number of loaded entities
+     */
+    public boolean scalesWithEntities(double minCorrelation) {
+        return scalesWith(getEntityCorrelation(), getIterationsPerEntity(), getAverageEntities(), minCorrelation);
+    }
+    
+    private boolean scalesWith(double correlation, double ratio, double averagePopulation, double minCorrelation) {
+        if (entryCount.get() < MIN_SCALING_SAMPLES || averagePopulation < MIN_SCALING_POPULATION) {
+            return false;
+        }
+        if (!Double.isNaN(correlation)) {
+            return correlation >= minCorrelation;
+        }
+        // Population or iterations never changed, so fall back to "about one iteration per player/entity"
+        return ratio >= 0.9 && ratio <= 1.1;
+    }
+    
+    private double correlation(double sumX, double sumXSquared, double sumXY) {
+        long n = samples;
+        if (n < 2) return Double.NaN;
+        
+        double covariance = n * sumXY - sumX * sumIterations;
+        double varianceX = n * sumXSquared - sumX * sumX;
+        double varianceY = n * sumIterationsSquared - sumIterations * sumIterations;
+        if (varianceX <= 0 || varianceY <= 0) return Double.NaN;
+        return covariance / Math.sqrt(varianceX * varianceY);
+    }
+    
+    public String getScriptFile() {
+        return scriptFile;
+    }
+    
+    public int getLineNumber() {
+        return lineNumber;
+    }
+    
+    /**
+     * Moves this entry to another line after its script was edited
+     */
+    public void relocate(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+    
+    public String getLoopExpression() {
+        return loopExpression;
+    }
+    
+    public String getLocationString() {
+        return scriptFile + ":" + lineNumber;
+    }
+}
@@ -0,0 +1,190 @@
+package com.macmoment.skriptprofiler.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Columnar store for element counters outside the Java heap. Each element ID owns a fixed 64-byte
+ * slot (one cache line) in a direct buffer, updated with atomic var handles, so thousands of
+ * elements cost the garbage collector nothing and neighbouring elements never share a line.
+ *
+ * Slots are allocated in chunks of {@value #CHUNK_SLOTS} on first use of an ID in the chunk.
+ * The memory is released when the store is no longer referenced.
+ */
+public class OffHeapCounterStore {
+    
+    public static final int SLOT_BYTES = 64;
+    public static final int CHUNK_SLOTS = 4096;
+    private static final int CHUNK_SHIFT = 12;
+    
+    private static final int COUNT = 0;
+    private static final int TOTAL = 8;
+    private static final int MAIN = 16;
+    private static final int MIN = 24;
+    private static final int MAX = 32;
+    private static final int SAMPLED = 40;
+    private static final int COUNT_VARIANCE = 48;
+    private static final int TIME_VARIANCE = 56;
+    
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile int allocatedChunks;
+    private final ElementCounters slots = new Slots();
+    
+    /**
+     * Allocates the chunk holding the given element ID's slot if needed and gets the counters
+     * shared by every slot in this store, so elements cost no object of their own
+     */
+    ElementCounters counters(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Element ID must not be negative: " + id);
+        }
+        chunk(id >>> CHUNK_SHIFT);
+        return slots;
+    }
+    
+    private ByteBuffer chunk(int index) {
+        ByteBuffer[] current = chunks;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        synchronized (this) {
+            current = chunks;
+            if (index >= current.length) {
+                ByteBuffer[] grown = new ByteBuffer[Math.max(index + 1, current.length * 2)];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                current = grown;
+            }
+            if (current[index] == null) {
+                current[index] = allocateChunk();
+                allocatedChunks++;
+            }
+            chunks = current;
+            return current[index];
+        }
+    }
+    
+    private static ByteBuffer allocateChunk() {
+        // Extra room so the slots can start on a cache line
+        ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SLOTS * SLOT_BYTES + SLOT_BYTES).alignedSlice(SLOT_BYTES);
+        for (int slot = 0; slot < CHUNK_SLOTS; slot++) {
+            LONGS.set(chunk, slot * SLOT_BYTES + MIN, Long.MAX_VALUE);
+        }
+        VarHandle.releaseFence();
+        return chunk;
+    }
+    
+    /**
+     * Gets the off-heap memory allocated for slots in bytes
+     */
+    public long getAllocatedBytes() {
+        return (long) allocatedChunks * CHUNK_SLOTS * SLOT_BYTES;
+    }
+    
+    /**
+     * Counters reading and writing the slot of the element ID passed in; the ID's chunk must
+     * already be allocated by {@link #counters(int)}
+     */
+    private final class Slots implements ElementCounters {
+        
+        @Override
+        public void add(int id, long count, long totalNanos, long mainThreadNanos) {
+            ByteBuffer chunk = chunkOf(id);
+            int base = base(id);
+            LONGS.getAndAdd(chunk, base + COUNT, count);
+            if (totalNanos != 0) {
+                LONGS.getAndAdd(chunk, base + TOTAL, totalNanos);
+            }
+            if (mainThreadNanos != 0) {
+                LONGS.getAndAdd(chunk, base + MAIN, mainThreadNanos);
+            }
+        }
+        
+        @Override
+        public void updateMinMax(int id, long minNanos, long maxNanos) {
+            ByteBuffer chunk = chunkOf(id);
+            int base = base(id);
+            long current = get(chunk, base + MAX);
+            while (maxNanos > current && !LONGS.compareAndSet(chunk, base + MAX, current, maxNanos)) {
+                current = get(chunk, base + MAX);
+            }
+            if (minNanos <= 0) return;
+            current = get(chunk, base + MIN);
+            while (minNanos < current && !LONGS.compareAndSet(chunk, base + MIN, current, minNanos)) {
+                current = get(chunk, base + MIN);
+            }
+        }
+        
+        @Override
+        public void addSampling(int id, long sampled, long countVariance, double timeVarianceMs) {
+            ByteBuffer chunk = chunkOf(id);
+            int base = base(id);
+            LONGS.getAndAdd(chunk, base + SAMPLED, sampled);
+            LONGS.getAndAdd(chunk, base + COUNT_VARIANCE, countVariance);
+            long bits = get(chunk, base + TIME_VARIANCE);
+            while (!LONGS.compareAndSet(chunk, base + TIME_VARIANCE, bits,
+                    Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + timeVarianceMs))) {
+                bits = get(chunk, base + TIME_VARIANCE);
+            }
+        }
+        
+        private ByteBuffer chunkOf(int id) {
+            return chunks[id >>> CHUNK_SHIFT];
+        }
+        
+        private int base(int id) {
+            return (id & (CHUNK_SLOTS - 1)) * SLOT_BYTES;
+        }
+        
+        private long get(ByteBuffer chunk, int offset) {
+            return (long) LONGS.getVolatile(chunk, offset);
+        }
+        
+        private long get(int id, int field) {
+            return get(chunkOf(id), base(id) + field);
+        }
+        
+        @Override
+        public long getCount(int id) {
+            return get(id, COUNT);
+        }
+        
+        @Override
+        public long getTotalNanos(int id) {
+            return get(id, TOTAL);
+        }
+        
+        @Override
+        public long getMainThreadNanos(int id) {
+            return get(id, MAIN);
+        }
+        
+        @Override
+        public long getMinNanos(int id) {
+            return get(id, MIN);
+        }
+        
+        @Override
+        public long getMaxNanos(int id) {
+            return get(id, MAX);
+        }
+        
+        @Override
+        public long getSampled(int id) {
+            return get(id, SAMPLED);
+        }
+        
+        @Override
+        public long getCountVariance(int id) {
+            return get(id, COUNT_VARIANCE);
+        }
+        
+        @Override
+        public double getTimeVarianceMs(int id) {
+            return Double.longBitsToDouble(get(id, TIME_VARIANCE));
+        }
+    }
+}
@@ -15,7 +15,13 @@ public class PerformanceIssue {
         LONG_WAIT("Excessive Wait/Delay"),
         EXCESSIVE_VARIABLES("Excessive Variable Access"),
         HIGH_FREQUENCY("High Execution Frequency"),
-        TPS_IMPACT("TPS Impact Detected");
+        TPS_IMPACT("TPS Impact Detected"),
+        RESUME_STORM("Wait Resume Storm"),
+        NESTED_LOOP("Nested Server-Wide Loop"),
+        LOOP_IN_HOT_EVENT("Loop in High-Frequency Event"),
+        WAIT_IN_LOOP("Wait Inside Loop"),
+        FUNCTION_IN_LOOP("Function Called in Loop"),
+        CUSTOM("Custom Rule");
         
         private final String displayName;
         
@@ -29,6 +35,7 @@ public class PerformanceIssue {
     }
     
     private final IssueType type;
+    private final String title;
     private final Severity severity;
     private final String scriptFile;
     private final int lineNumber;
@@ -38,7 +45,16 @@ public class PerformanceIssue {
     
     public PerformanceIssue(IssueType type, Severity severity, String scriptFile, int lineNumber,
                            String description, String suggestion, ProfileData relatedData) {
+        this(type, null, severity, scriptFile, lineNumber, description, suggestion, relatedData);
+    }
+    
+    /**
+     * Creates an issue with its own title, e.g. for a {@link IssueType#CUSTOM} issue from a custom rule
+     */
+    public PerformanceIssue(IssueType type, String title, Severity severity, String scriptFile, int lineNumber,
+                           String description, String suggestion, ProfileData relatedData) {
         this.type = type;
+        this.title = title;
         this.severity = severity;
         this.scriptFile = scriptFile;
         this.lineNumber = lineNumber;
@@ -51,6 +67,13 @@ public class PerformanceIssue {
         return type;
     }
     
+    /**
+     * Gets the title shown in reports, the type's display name unless the issue has its own
+     */
+    public String getTitle() {
+        return title != null ? title : type.getDisplayName();
+    }
+    
     public Severity getSeverity() {
         return severity;
     }
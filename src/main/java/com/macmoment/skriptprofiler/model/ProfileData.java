@@ -1,46 +1,209 @@
 package com.macmoment.skriptprofiler.model;
 
-import java.util.concurrent.atomic.AtomicLong;
+import com.macmoment.skriptprofiler.util.TimeSeries;
+
+import java.util.UUID;
+import java.util.concurrent.Executor;
 
 /**
  * Represents profiling data for a single script element (event, function, command, etc.)
  */
 public class ProfileData {
+    private final int id;
     private final String scriptFile;
-    private final int lineNumber;
+    private volatile int lineNumber;
     private final String elementType;
     private final String elementName;
-    private final AtomicLong executionCount;
-    private final AtomicLong totalExecutionTime;
-    private volatile long maxExecutionTime;
-    private volatile long minExecutionTime;
+    private final ElementCounters counters;
+    private volatile AttributionData attribution;
+    // Executions and nanoseconds per second; the counters at the last sample give the next deltas
+    private volatile TimeSeries history;
+    private long historyCount;
+    private long historyNanos;
     
     public ProfileData(String scriptFile, int lineNumber, String elementType, String elementName) {
+        this(-1, scriptFile, lineNumber, elementType, elementName);
+    }
+    
+    /**
+     * Creates profile data with a compact numeric element ID used by raw event recorders
+     */
+    public ProfileData(int id, String scriptFile, int lineNumber, String elementType, String elementName) {
+        this(id, scriptFile, lineNumber, elementType, elementName, null);
+    }
+    
+    /**
+     * Creates profile data whose counters live in the element ID's slot of an off-heap store,
+     * or on the heap if the store is null
+     */
+    public ProfileData(int id, String scriptFile, int lineNumber, String elementType, String elementName,
+                       OffHeapCounterStore store) {
+        this.id = id;
         this.scriptFile = scriptFile;
         this.lineNumber = lineNumber;
         this.elementType = elementType;
         this.elementName = elementName;
-        this.executionCount = new AtomicLong(0);
-        this.totalExecutionTime = new AtomicLong(0);
-        this.maxExecutionTime = 0;
-        this.minExecutionTime = Long.MAX_VALUE;
+        this.counters = store != null ? store.counters(id) : new HeapCounters();
     }
     
+    /**
+     * Records an execution that ran on the main thread
+     */
     public void recordExecution(long executionTimeNanos) {
-        executionCount.incrementAndGet();
-        totalExecutionTime.addAndGet(executionTimeNanos);
+        recordExecution(executionTimeNanos, ThreadClass.MAIN);
+    }
+    
+    public void recordExecution(long executionTimeNanos, ThreadClass threadClass) {
+        counters.add(id, 1, executionTimeNanos, threadClass == ThreadClass.MAIN ? executionTimeNanos : 0);
+        updateMinMax(executionTimeNanos);
+    }
+    
+    /**
+     * Records a timed execution that was sampled with probability 1/weight and so stands in for
+     * weight executions. Counts and totals are scaled up (an unbiased estimate); the variance of
+     * the estimates grows with weight × (weight - 1).
+     */
+    public void recordSampledExecution(long executionTimeNanos, ThreadClass threadClass, int weight) {
+        if (weight <= 1) {
+            recordExecution(executionTimeNanos, threadClass);
+            return;
+        }
         
+        long scaledTime = executionTimeNanos * weight;
+        counters.add(id, weight, scaledTime, threadClass == ThreadClass.MAIN ? scaledTime : 0);
+        updateMinMax(executionTimeNanos);
+        
+        long spread = (long) weight * (weight - 1);
+        double timeMs = executionTimeNanos / 1_000_000.0;
+        counters.addSampling(id, 1, spread, spread * timeMs * timeMs);
+    }
+    
+    private void updateMinMax(long executionTimeNanos) {
         // Update min/max only for non-zero times
         if (executionTimeNanos > 0) {
+            counters.updateMinMax(id, executionTimeNanos, executionTimeNanos);
+        }
+    }
+    
+    /**
+     * Adds the sampling terms of pre-aggregated executions, e.g. from another server's saved session
+     */
+    public void addSamplingAggregate(long sampled, long countVarianceSum, double timeVarianceSum) {
+        counters.addSampling(id, sampled, countVarianceSum, timeVarianceSum);
+    }
+    
+    /**
+     * Adds pre-aggregated executions, e.g. from another server's saved session
+     */
+    public void addAggregate(long count, long totalTimeNanos, long mainThreadTimeNanos,
+                             long minTimeNanos, long maxTimeNanos) {
+        counters.add(id, count, totalTimeNanos, mainThreadTimeNanos);
+        counters.updateMinMax(id, minTimeNanos, maxTimeNanos);
+    }
+    
+    /**
+     * Merges another element's counters, attribution and history into this one. Runs on the thread
+     * that samples the history, since the merged executions are moved past the last sample.
+     */
+    public void merge(ProfileData other) {
+        long count = other.getExecutionCount();
+        long nanos = other.getTotalExecutionTimeNanos();
+        addAggregate(count, nanos,
+            other.getMainThreadExecutionTimeNanos(), other.getMinExecutionTimeNanos(), other.getMaxExecutionTimeNanos());
+        addSamplingAggregate(other.getSampledExecutions(), other.getCountVariance(), other.getTimeVarianceMs());
+        AttributionData otherAttribution = other.getAttribution();
+        if (otherAttribution != null) {
+            getOrCreateAttribution(otherAttribution.getCapacity()).merge(otherAttribution);
+        }
+        TimeSeries otherHistory = other.getHistory();
+        if (otherHistory != null) {
+            mergeHistory(otherHistory);
+        }
+        if (history != null) {
+            // The merged executions came with their own history, so the next sample must not add them again
+            historyCount += count;
+            historyNanos += nanos;
+        }
+    }
+    
+    /**
+     * Appends the executions and time since the last sample to the per-second history, if there were any.
+     * Called once per second from a single thread.
+     *
+     * @param blockPoints points per compressed block when the history is created
+     * @param sealer compresses full blocks in the background
+     */
+    public void sampleHistory(long epochSecond, int blockPoints, Executor sealer) {
+        long count = getExecutionCount();
+        long nanos = getTotalExecutionTimeNanos();
+        if (count == historyCount && nanos == historyNanos) return;
+        
+        TimeSeries current = history;
+        if (current == null) {
             synchronized (this) {
-                if (executionTimeNanos > maxExecutionTime) {
-                    maxExecutionTime = executionTimeNanos;
+                current = history;
+                if (current == null) {
+                    current = new TimeSeries(2, blockPoints, sealer);
+                    history = current;
                 }
-                if (executionTimeNanos < minExecutionTime) {
-                    minExecutionTime = executionTimeNanos;
+            }
+        }
+        current.append(epochSecond, count - historyCount, nanos - historyNanos);
+        historyCount = count;
+        historyNanos = nanos;
+    }
+    
+    /**
+     * Adds per-second history recorded elsewhere, e.g. from another server's saved session
+     */
+    public void mergeHistory(TimeSeries other) {
+        synchronized (this) {
+            if (history == null) {
+                history = other.copy();
+                return;
+            }
+        }
+        history.merge(other);
+    }
+    
+    /**
+     * Gets the executions (column 0) and nanoseconds (column 1) per epoch second, or null if no history was kept
+     */
+    public TimeSeries getHistory() {
+        return history;
+    }
+    
+    /**
+     * Attributes an execution's time to a player, world and chunk.
+     * The per-element sketches are created on first use with the given top-K capacity.
+     */
+    public void recordAttribution(long executionTimeNanos, UUID playerId, String worldName,
+                                  int chunkX, int chunkZ, int capacity) {
+        getOrCreateAttribution(capacity).record(executionTimeNanos, playerId, worldName, chunkX, chunkZ);
+    }
+    
+    /**
+     * Gets the attribution sketches, creating them with the given top-K capacity on first use
+     */
+    public AttributionData getOrCreateAttribution(int capacity) {
+        AttributionData current = attribution;
+        if (current == null) {
+            synchronized (this) {
+                current = attribution;
+                if (current == null) {
+                    current = new AttributionData(capacity);
+                    attribution = current;
                 }
             }
         }
+        return current;
+    }
+    
+    /**
+     * Gets the player/world/chunk attribution, or null if none was recorded
+     */
+    public AttributionData getAttribution() {
+        return attribution;
     }
     
     /**
@@ -53,15 +216,30 @@ public class ProfileData {
      * where timing data is not meaningful.
      */
     public void incrementExecutionCount() {
-        executionCount.incrementAndGet();
+        counters.add(id, 1, 0, 0);
     }
     
     public long getExecutionCount() {
-        return executionCount.get();
+        return counters.getCount(id);
     }
     
     public long getTotalExecutionTimeNanos() {
-        return totalExecutionTime.get();
+        return counters.getTotalNanos(id);
+    }
+    
+    /**
+     * Gets the part of the total execution time that ran on the main thread
+     */
+    public long getMainThreadExecutionTimeNanos() {
+        return counters.getMainThreadNanos(id);
+    }
+    
+    /**
+     * Returns the fraction (0-1) of execution time spent on the main thread
+     */
+    public double getMainThreadShare() {
+        long total = counters.getTotalNanos(id);
+        return total == 0 ? 1.0 : counters.getMainThreadNanos(id) / (double) total;
     }
     
     /**
@@ -70,18 +248,73 @@ public class ProfileData {
      * low values since those executions don't contribute to total time.
      */
     public double getAverageExecutionTimeMs() {
-        long count = executionCount.get();
-        long totalTime = totalExecutionTime.get();
+        long count = counters.getCount(id);
+        long totalTime = counters.getTotalNanos(id);
         if (count == 0 || totalTime == 0) return 0;
         return (totalTime / (double) count) / 1_000_000.0;
     }
     
+    public long getMaxExecutionTimeNanos() {
+        return counters.getMaxNanos(id);
+    }
+    
+    /**
+     * Gets the fastest non-zero execution in nanoseconds, or 0 if none was recorded
+     */
+    public long getMinExecutionTimeNanos() {
+        long min = counters.getMinNanos(id);
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+    
     public double getMaxExecutionTimeMs() {
-        return maxExecutionTime / 1_000_000.0;
+        return counters.getMaxNanos(id) / 1_000_000.0;
     }
     
     public double getMinExecutionTimeMs() {
-        return (minExecutionTime == Long.MAX_VALUE) ? 0 : minExecutionTime / 1_000_000.0;
+        return getMinExecutionTimeNanos() / 1_000_000.0;
+    }
+    
+    /**
+     * Checks whether the count and times are scaled-up estimates from sampled executions
+     */
+    public boolean isEstimated() {
+        return counters.getCountVariance(id) > 0;
+    }
+    
+    /**
+     * Gets the number of sampled executions that were scaled up
+     */
+    public long getSampledExecutions() {
+        return counters.getSampled(id);
+    }
+    
+    public long getCountVariance() {
+        return counters.getCountVariance(id);
+    }
+    
+    public double getTimeVarianceMs() {
+        return counters.getTimeVarianceMs(id);
+    }
+    
+    /**
+     * Gets the half-width of the 95% confidence interval of the execution count (0 if exact)
+     */
+    public double getCountConfidence() {
+        return 1.96 * Math.sqrt(counters.getCountVariance(id));
+    }
+    
+    /**
+     * Gets the half-width of the 95% confidence interval of the total execution time in milliseconds (0 if exact)
+     */
+    public double getTotalTimeConfidenceMs() {
+        return 1.96 * Math.sqrt(counters.getTimeVarianceMs(id));
+    }
+    
+    /**
+     * Gets the numeric element ID, or -1 if none was assigned
+     */
+    public int getId() {
+        return id;
     }
     
     public String getScriptFile() {
@@ -92,6 +325,13 @@ public class ProfileData {
         return lineNumber;
     }
     
+    /**
+     * Moves this entry to another line after its script was edited
+     */
+    public void relocate(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+    
     public String getElementType() {
         return elementType;
     }
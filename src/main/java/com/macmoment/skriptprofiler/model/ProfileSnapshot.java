@@ -0,0 +1,286 @@
+package com.macmoment.skriptprofiler.model;
+
+import com.macmoment.skriptprofiler.util.TickHistogram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bundles everything a report is built from: element timings, loops, variables, waits, thread usage, tick durations
+ * and, when every plugin's listeners were timed, listener time per plugin and event. Scheduler task counts
+ * and task time per plugin come along when the scheduler was profiled.
+ *
+ * Snapshots taken from a running tracker view its live data. Snapshots are mergeable: all counters,
+ * histograms and sketches combine associatively, so per-server sessions can be folded into one
+ * fleet-wide snapshot in any order. Merging copies into this snapshot's own objects and is not thread-safe.
+ */
+public class ProfileSnapshot {
+    private static final int MAX_RESUME_STORMS = 50;
+    
+    private final String source;
+    private final Map<String, ProfileData> profileData;
+    private final Map<String, LoopProfileData> loopData;
+    private final Map<String, VariableAccessData> variableData;
+    private final Map<String, WaitProfileData> waitData;
+    private final List<ResumeStorm> resumeStorms;
+    private final ThreadUsage threadUsage;
+    private final TickHistogram tickHistogram;
+    private final Map<String, ProfileData> listenerData;
+    private final Map<String, ProfileData> taskData;
+    private final Map<String, TaskCounts> taskCounts;
+    private long resumeStormCount;
+    private long trackedTicks;
+    private long durationMs;
+    private double tps;
+    private int nodeCount;
+    private boolean live;
+    
+    /**
+     * Creates an empty snapshot to merge sessions into
+     */
+    public ProfileSnapshot(String source) {
+        this.source = source;
+        this.profileData = new HashMap<>();
+        this.loopData = new HashMap<>();
+        this.variableData = new HashMap<>();
+        this.waitData = new HashMap<>();
+        this.resumeStorms = new ArrayList<>();
+        this.threadUsage = new ThreadUsage();
+        this.tickHistogram = new TickHistogram();
+        this.listenerData = new HashMap<>();
+        this.taskData = new HashMap<>();
+        this.taskCounts = new HashMap<>();
+    }
+    
+    /**
+     * Creates a snapshot of a single server's session
+     */
+    public ProfileSnapshot(String source, Map<String, ProfileData> profileData, List<LoopProfileData> loopData,
+                           List<VariableAccessData> variableData, List<WaitProfileData> waitData,
+                           List<ResumeStorm> resumeStorms, long resumeStormCount, ThreadUsage threadUsage,
+                           long trackedTicks, long durationMs, double tps, TickHistogram tickHistogram,
+                           Map<String, ProfileData> listenerData, Map<String, ProfileData> taskData,
+                           Map<String, TaskCounts> taskCounts) {
+        this.source = source;
+        this.profileData = new HashMap<>(profileData);
+        this.loopData = new HashMap<>();
+        for (LoopProfileData loop : loopData) {
+            this.loopData.put(loop.getLocationString(), loop);
+        }
+        this.variableData = new HashMap<>();
+        for (VariableAccessData variable : variableData) {
+            this.variableData.put(variable.getPattern(), variable);
+        }
+        this.waitData = new HashMap<>();
+        for (WaitProfileData wait : waitData) {
+            this.waitData.put(wait.getLocationString(), wait);
+        }
+        this.resumeStorms = new ArrayList<>(resumeStorms);
+        this.resumeStormCount = resumeStormCount;
+        this.threadUsage = threadUsage;
+        this.trackedTicks = trackedTicks;
+        this.durationMs = durationMs;
+        this.tps = tps;
+        this.tickHistogram = tickHistogram;
+        this.listenerData = new HashMap<>(listenerData);
+        this.taskData = new HashMap<>(taskData);
+        this.taskCounts = new HashMap<>(taskCounts);
+        this.nodeCount = 1;
+        this.live = true;
+    }
+    
+    /**
+     * Copies this snapshot into objects of its own, which no longer change while the tracker records.
+     * Unlike merging, the copy keeps element IDs.
+     */
+    public ProfileSnapshot copy() {
+        ProfileSnapshot copy = new ProfileSnapshot(source);
+        for (Map.Entry<String, ProfileData> entry : profileData.entrySet()) {
+            ProfileData data = entry.getValue();
+            copy.profileData.put(entry.getKey(), new ProfileData(data.getId(), data.getScriptFile(),
+                data.getLineNumber(), data.getElementType(), data.getElementName()));
+        }
+        copy.merge(this);
+        return copy;
+    }
+    
+    /**
+     * Merges another snapshot into this one
+     */
+    public void merge(ProfileSnapshot other) {
+        mergeSession(other.nodeCount, other.durationMs, other.trackedTicks, other.tps, other.resumeStormCount);
+        for (Map.Entry<String, ProfileData> entry : other.profileData.entrySet()) {
+            mergeProfileData(entry.getKey(), entry.getValue());
+        }
+        other.loopData.values().forEach(this::mergeLoop);
+        other.variableData.values().forEach(this::mergeVariable);
+        other.waitData.values().forEach(this::mergeWait);
+        other.resumeStorms.forEach(this::mergeResumeStorm);
+        threadUsage.merge(other.threadUsage);
+        tickHistogram.merge(other.tickHistogram);
+        for (Map.Entry<String, ProfileData> entry : other.listenerData.entrySet()) {
+            mergeListenerData(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, ProfileData> entry : other.taskData.entrySet()) {
+            mergeTaskData(entry.getKey(), entry.getValue());
+        }
+        other.taskCounts.values().forEach(this::mergeTaskCounts);
+    }
+    
+    /**
+     * Merges session-level totals. Ticks add up so per-tick figures stay per server; the duration
+     * is the longest session, since servers are profiled side by side; TPS is averaged over nodes.
+     */
+    public void mergeSession(int nodes, long durationMs, long trackedTicks, double tps, long resumeStormCount) {
+        if (nodes > 0) {
+            this.tps = (this.tps * nodeCount + tps * nodes) / (nodeCount + nodes);
+        }
+        this.nodeCount += nodes;
+        this.durationMs = Math.max(this.durationMs, durationMs);
+        this.trackedTicks += trackedTicks;
+        this.resumeStormCount += resumeStormCount;
+    }
+    
+    public void mergeProfileData(String key, ProfileData data) {
+        profileData.computeIfAbsent(key, k -> new ProfileData(data.getScriptFile(), data.getLineNumber(),
+            data.getElementType(), data.getElementName())).merge(data);
+    }
+    
+    public void mergeListenerData(String key, ProfileData data) {
+        listenerData.computeIfAbsent(key, k -> new ProfileData(data.getScriptFile(), data.getLineNumber(),
+            data.getElementType(), data.getElementName())).merge(data);
+    }
+    
+    public void mergeTaskData(String key, ProfileData data) {
+        taskData.computeIfAbsent(key, k -> new ProfileData(data.getScriptFile(), data.getLineNumber(),
+            data.getElementType(), data.getElementName())).merge(data);
+    }
+    
+    public void mergeTaskCounts(TaskCounts counts) {
+        taskCounts.computeIfAbsent(counts.getPlugin(), TaskCounts::new).merge(counts);
+    }
+    
+    public void mergeLoop(LoopProfileData data) {
+        loopData.computeIfAbsent(data.getLocationString(), k -> new LoopProfileData(data.getScriptFile(),
+            data.getLineNumber(), data.getLoopExpression())).merge(data);
+    }
+    
+    public void mergeVariable(VariableAccessData data) {
+        variableData.computeIfAbsent(data.getPattern(), k -> new VariableAccessData(data.getPattern(),
+            data.getScriptFile(), data.getLineNumber(), data.getDistinctKeys().getPrecision())).merge(data);
+    }
+    
+    public void mergeWait(WaitProfileData data) {
+        waitData.computeIfAbsent(data.getLocationString(), k -> new WaitProfileData(data.getScriptFile(),
+            data.getLineNumber())).merge(data);
+    }
+    
+    /**
+     * Adds a resume storm, keeping only the largest ones
+     */
+    public void mergeResumeStorm(ResumeStorm storm) {
+        resumeStorms.add(storm);
+        if (resumeStorms.size() > MAX_RESUME_STORMS) {
+            resumeStorms.sort((s1, s2) -> Integer.compare(s2.getResumeCount(), s1.getResumeCount()));
+            resumeStorms.subList(MAX_RESUME_STORMS, resumeStorms.size()).clear();
+        }
+    }
+    
+    /**
+     * Gets where the snapshot came from, e.g. a server name or "fleet"
+     */
+    public String getSource() {
+        return source;
+    }
+    
+    /**
+     * Gets profile data keyed by "file:line:type"
+     */
+    public Map<String, ProfileData> getProfileData() {
+        return new HashMap<>(profileData);
+    }
+    
+    /**
+     * Gets listener time keyed by "plugin:event class"; the script file of each entry is the plugin name
+     */
+    public Map<String, ProfileData> getListenerData() {
+        return new HashMap<>(listenerData);
+    }
+    
+    /**
+     * Gets scheduler task time keyed by "plugin:period:task class"; the script file of each entry is
+     * the plugin name and the line number is the period in ticks, 0 for one-shot tasks
+     */
+    public Map<String, ProfileData> getTaskData() {
+        return new HashMap<>(taskData);
+    }
+    
+    /**
+     * Gets sampled scheduler task counts by plugin name
+     */
+    public Map<String, TaskCounts> getTaskCounts() {
+        return new HashMap<>(taskCounts);
+    }
+    
+    public List<LoopProfileData> getLoopData() {
+        return new ArrayList<>(loopData.values());
+    }
+    
+    public List<VariableAccessData> getVariableData() {
+        return new ArrayList<>(variableData.values());
+    }
+    
+    public List<WaitProfileData> getWaitData() {
+        return new ArrayList<>(waitData.values());
+    }
+    
+    public List<ResumeStorm> getResumeStorms() {
+        return new ArrayList<>(resumeStorms);
+    }
+    
+    public long getResumeStormCount() {
+        return resumeStormCount;
+    }
+    
+    public ThreadUsage getThreadUsage() {
+        return threadUsage;
+    }
+    
+    /**
+     * Gets the duration of every measured server tick, of all servers for merged snapshots
+     */
+    public TickHistogram getTickHistogram() {
+        return tickHistogram;
+    }
+    
+    public long getTrackedTicks() {
+        return trackedTicks;
+    }
+    
+    public long getDurationMs() {
+        return durationMs;
+    }
+    
+    /**
+     * Gets the TPS, averaged over nodes for merged snapshots
+     */
+    public double getTps() {
+        return tps;
+    }
+    
+    /**
+     * Checks whether the snapshot views a running tracker's data, which keeps changing
+     */
+    public boolean isLive() {
+        return live;
+    }
+    
+    /**
+     * Gets the number of server sessions merged into this snapshot
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+}
@@ -0,0 +1,43 @@
+package com.macmoment.skriptprofiler.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents a single tick in which an unusually large number of waits expired at once
+ */
+public class ResumeStorm {
+    private final long tick;
+    private final long timestamp;
+    private final int resumeCount;
+    private final Map<String, Integer> contributors;
+    
+    public ResumeStorm(long tick, long timestamp, int resumeCount, Map<String, Integer> contributors) {
+        this.tick = tick;
+        this.timestamp = timestamp;
+        this.resumeCount = resumeCount;
+        this.contributors = new LinkedHashMap<>(contributors);
+    }
+    
+    public long getTick() {
+        return tick;
+    }
+    
+    /**
+     * Gets the wall clock time of the storm in milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public int getResumeCount() {
+        return resumeCount;
+    }
+    
+    /**
+     * Gets the wait locations (file:line) that resumed in this tick with their resume counts, largest first
+     */
+    public Map<String, Integer> getContributors() {
+        return new LinkedHashMap<>(contributors);
+    }
+}
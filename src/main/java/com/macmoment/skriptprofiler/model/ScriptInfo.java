@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Represents a Skript file that has been analyzed
@@ -13,23 +14,40 @@ public class ScriptInfo {
     private final String fileName;
     private final List<String> lines;
     private final Map<Integer, String> lineElements; // line number -> element description
+    private final Map<Integer, Long> periodicTriggers; // line number -> period in ticks
     private int totalEventCount;
     private int totalFunctionCount;
     private int totalCommandCount;
     private int totalLoopCount;
     private int totalVariableAccess;
+    private ScriptNode blockTree;
     
     public ScriptInfo(String filePath, String fileName, List<String> lines) {
         this.filePath = filePath;
         this.fileName = fileName;
         this.lines = new ArrayList<>(lines);
         this.lineElements = new HashMap<>();
+        this.periodicTriggers = new TreeMap<>();
     }
     
     public void addLineElement(int lineNumber, String element) {
         lineElements.put(lineNumber, element);
     }
     
+    /**
+     * Records an "every ..." trigger with its period in ticks, or -1 if the period could not be read
+     */
+    public void addPeriodicTrigger(int lineNumber, long periodTicks) {
+        periodicTriggers.put(lineNumber, periodTicks);
+    }
+    
+    /**
+     * Gets the periodic triggers by line number, with their period in ticks (-1 if unknown)
+     */
+    public Map<Integer, Long> getPeriodicTriggers() {
+        return new TreeMap<>(periodicTriggers);
+    }
+    
     public String getFilePath() {
         return filePath;
     }
@@ -92,4 +110,15 @@ public class ScriptInfo {
     public void setTotalVariableAccess(int totalVariableAccess) {
         this.totalVariableAccess = totalVariableAccess;
     }
+    
+    /**
+     * Gets the indentation-based block tree, or null if the script has not been analyzed
+     */
+    public ScriptNode getBlockTree() {
+        return blockTree;
+    }
+    
+    public void setBlockTree(ScriptNode blockTree) {
+        this.blockTree = blockTree;
+    }
 }
@@ -0,0 +1,101 @@
+package com.macmoment.skriptprofiler.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Represents a node in a script's indentation-based block tree
+ */
+public class ScriptNode {
+    
+    public enum Kind {
+        ROOT,
+        EVENT,
+        PERIODIC,
+        FUNCTION,
+        COMMAND,
+        LOOP,
+        WHILE,
+        WAIT,
+        CONDITION,
+        SECTION,
+        STATEMENT;
+        
+        /**
+         * Checks if this kind starts a trigger (code Skript runs on its own)
+         */
+        public boolean isTrigger() {
+            return this == EVENT || this == PERIODIC || this == FUNCTION || this == COMMAND;
+        }
+    }
+    
+    private final Kind kind;
+    private final int lineNumber;
+    private final int indent;
+    private final String text;
+    private final ScriptNode parent;
+    private final List<ScriptNode> children;
+    
+    public ScriptNode(Kind kind, int lineNumber, int indent, String text, ScriptNode parent) {
+        this.kind = kind;
+        this.lineNumber = lineNumber;
+        this.indent = indent;
+        this.text = text;
+        this.parent = parent;
+        this.children = new ArrayList<>();
+    }
+    
+    public void addChild(ScriptNode child) {
+        children.add(child);
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    public int getLineNumber() {
+        return lineNumber;
+    }
+    
+    public int getIndent() {
+        return indent;
+    }
+    
+    /**
+     * Gets the line content without indentation, comments or the trailing block colon
+     */
+    public String getText() {
+        return text;
+    }
+    
+    public ScriptNode getParent() {
+        return parent;
+    }
+    
+    public List<ScriptNode> getChildren() {
+        return children;
+    }
+    
+    /**
+     * Gets the nearest enclosing event, periodic event, function or command, or null at top level
+     */
+    public ScriptNode getEnclosingTrigger() {
+        for (ScriptNode node = parent; node != null; node = node.parent) {
+            if (node.kind.isTrigger()) {
+                return node;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Visits this node and all of its descendants in source order
+     */
+    public void walk(Consumer<ScriptNode> visitor) {
+        visitor.accept(this);
+        for (ScriptNode child : children) {
+            child.walk(visitor);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.macmoment.skriptprofiler.model;
+
+/**
+ * Scheduler task counts of one plugin, sampled once per second: tasks waiting to run (sync and
+ * async) and async tasks currently running on worker threads.
+ */
+public class TaskCounts {
+    private final String plugin;
+    private int pendingSync;
+    private int pendingAsync;
+    private int active;
+    private int peakPending;
+    private int peakActive;
+    private long samples;
+    private long pendingSum;
+    
+    public TaskCounts(String plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Records one sample of the plugin's tasks
+     */
+    public synchronized void sample(int pendingSync, int pendingAsync, int active) {
+        this.pendingSync = pendingSync;
+        this.pendingAsync = pendingAsync;
+        this.active = active;
+        peakPending = Math.max(peakPending, pendingSync + pendingAsync);
+        peakActive = Math.max(peakActive, active);
+        samples++;
+        pendingSum += pendingSync + pendingAsync;
+    }
+    
+    /**
+     * Adds another server's counts: current counts and averages add up, peaks are the highest of either
+     */
+    public void merge(TaskCounts other) {
+        addAggregate(other.getPendingSync(), other.getPendingAsync(), other.getActive(), other.getPeakPending(),
+            other.getPeakActive(), other.getSamples(), other.getPendingSum());
+    }
+    
+    /**
+     * Adds pre-aggregated counts, e.g. from another server's saved session
+     */
+    public synchronized void addAggregate(int pendingSync, int pendingAsync, int active, int peakPending,
+                                          int peakActive, long samples, long pendingSum) {
+        this.pendingSync += pendingSync;
+        this.pendingAsync += pendingAsync;
+        this.active += active;
+        this.peakPending = Math.max(this.peakPending, peakPending);
+        this.peakActive = Math.max(this.peakActive, peakActive);
+        // Keep the average a per-server figure summed over servers
+        if (this.samples == 0) {
+            this.samples = samples;
+            this.pendingSum = pendingSum;
+        } else if (samples > 0) {
+            this.pendingSum += Math.round(pendingSum * (this.samples / (double) samples));
+        }
+    }
+    
+    public String getPlugin() {
+        return plugin;
+    }
+    
+    public synchronized int getPendingSync() {
+        return pendingSync;
+    }
+    
+    public synchronized int getPendingAsync() {
+        return pendingAsync;
+    }
+    
+    /**
+     * Gets the async tasks running at the last sample
+     */
+    public synchronized int getActive() {
+        return active;
+    }
+    
+    public synchronized int getPeakPending() {
+        return peakPending;
+    }
+    
+    public synchronized int getPeakActive() {
+        return peakActive;
+    }
+    
+    public synchronized long getSamples() {
+        return samples;
+    }
+    
+    public synchronized long getPendingSum() {
+        return pendingSum;
+    }
+    
+    public synchronized double getAveragePending() {
+        return samples == 0 ? 0 : pendingSum / (double) samples;
+    }
+}
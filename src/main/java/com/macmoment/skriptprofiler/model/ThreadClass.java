@@ -0,0 +1,20 @@
+package com.macmoment.skriptprofiler.model;
+
+/**
+ * Classifies the thread a script execution ran on
+ */
+public enum ThreadClass {
+    MAIN("Main"),
+    ASYNC("Async"),
+    OTHER("Other");
+    
+    private final String displayName;
+    
+    ThreadClass(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+}
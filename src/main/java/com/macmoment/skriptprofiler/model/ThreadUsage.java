@@ -0,0 +1,128 @@
+package com.macmoment.skriptprofiler.model;
+
+import com.macmoment.skriptprofiler.util.LogHistogram;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Represents execution counts and time split by thread class, plus async concurrency levels
+ */
+public class ThreadUsage {
+    private final AtomicLongArray executionCounts;
+    private final AtomicLongArray executionTimes;
+    private final AtomicInteger activeAsync;
+    private final LogHistogram asyncConcurrency;
+    private volatile int peakAsync;
+    
+    public ThreadUsage() {
+        this.executionCounts = new AtomicLongArray(ThreadClass.values().length);
+        this.executionTimes = new AtomicLongArray(ThreadClass.values().length);
+        this.activeAsync = new AtomicInteger(0);
+        this.asyncConcurrency = new LogHistogram();
+    }
+    
+    public void recordExecution(ThreadClass threadClass, long executionTimeNanos) {
+        executionCounts.incrementAndGet(threadClass.ordinal());
+        executionTimes.addAndGet(threadClass.ordinal(), executionTimeNanos);
+    }
+    
+    /**
+     * Marks an async execution as started and samples the concurrency level it sees
+     */
+    public void asyncStarted() {
+        int active = activeAsync.incrementAndGet();
+        asyncConcurrency.record(active);
+        if (active > peakAsync) {
+            synchronized (this) {
+                if (active > peakAsync) {
+                    peakAsync = active;
+                }
+            }
+        }
+    }
+    
+    public void asyncFinished() {
+        activeAsync.updateAndGet(n -> n > 0 ? n - 1 : 0);
+    }
+    
+    /**
+     * Adds pre-aggregated executions for a thread class, e.g. from another server's saved session
+     */
+    public void addAggregate(ThreadClass threadClass, long count, long executionTimeNanos) {
+        executionCounts.addAndGet(threadClass.ordinal(), count);
+        executionTimes.addAndGet(threadClass.ordinal(), executionTimeNanos);
+    }
+    
+    /**
+     * Adds async concurrency samples; the peak is per server, so the largest one is kept
+     */
+    public void addConcurrency(int peak, LogHistogram concurrency) {
+        asyncConcurrency.merge(concurrency);
+        synchronized (this) {
+            peakAsync = Math.max(peakAsync, peak);
+        }
+    }
+    
+    /**
+     * Merges another thread usage breakdown into this one
+     */
+    public void merge(ThreadUsage other) {
+        for (ThreadClass threadClass : ThreadClass.values()) {
+            addAggregate(threadClass, other.getExecutionCount(threadClass), other.getExecutionTimeNanos(threadClass));
+        }
+        addConcurrency(other.getPeakAsync(), other.getAsyncConcurrency());
+    }
+    
+    public long getExecutionCount(ThreadClass threadClass) {
+        return executionCounts.get(threadClass.ordinal());
+    }
+    
+    public long getExecutionTimeNanos(ThreadClass threadClass) {
+        return executionTimes.get(threadClass.ordinal());
+    }
+    
+    /**
+     * Returns the total execution time across all thread classes in milliseconds
+     */
+    public double getTotalExecutionTimeMs() {
+        long total = 0;
+        for (ThreadClass threadClass : ThreadClass.values()) {
+            total += executionTimes.get(threadClass.ordinal());
+        }
+        return total / 1_000_000.0;
+    }
+    
+    /**
+     * Returns main thread execution time per server tick in milliseconds
+     */
+    public double getMainThreadMsPerTick(long ticks) {
+        if (ticks <= 0) return 0;
+        return getExecutionTimeNanos(ThreadClass.MAIN) / 1_000_000.0 / ticks;
+    }
+    
+    public int getActiveAsync() {
+        return activeAsync.get();
+    }
+    
+    public int getPeakAsync() {
+        return peakAsync;
+    }
+    
+    /**
+     * Gets the histogram of async concurrency observed at each async execution start
+     */
+    public LogHistogram getAsyncConcurrency() {
+        return asyncConcurrency;
+    }
+    
+    public synchronized void reset() {
+        for (int i = 0; i < executionCounts.length(); i++) {
+            executionCounts.set(i, 0);
+            executionTimes.set(i, 0);
+        }
+        activeAsync.set(0);
+        asyncConcurrency.reset();
+        peakAsync = 0;
+    }
+}
@@ -0,0 +1,114 @@
+package com.macmoment.skriptprofiler.model;
+
+import com.macmoment.skriptprofiler.util.HyperLogLog;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents runtime access statistics for a normalized variable pattern (e.g. {stats::%player%::kills})
+ */
+public class VariableAccessData {
+    private final String pattern;
+    private final String scriptFile;
+    private volatile int lineNumber;
+    private final AtomicLong readCount;
+    private final AtomicLong writeCount;
+    private final HyperLogLog distinctKeys;
+    
+    public VariableAccessData(String pattern, String scriptFile, int lineNumber, int hllPrecision) {
+        this.pattern = pattern;
+        this.scriptFile = scriptFile;
+        this.lineNumber = lineNumber;
+        this.readCount = new AtomicLong(0);
+        this.writeCount = new AtomicLong(0);
+        this.distinctKeys = new HyperLogLog(hllPrecision);
+    }
+    
+    public void recordAccess(String key, boolean write) {
+        if (write) {
+            writeCount.incrementAndGet();
+        } else {
+            readCount.incrementAndGet();
+        }
+        distinctKeys.offer(key);
+    }
+    
+    /**
+     * Adds pre-aggregated counts and distinct keys, e.g. from another server's saved session
+     */
+    public void addAggregate(long reads, long writes, HyperLogLog keys) {
+        readCount.addAndGet(reads);
+        writeCount.addAndGet(writes);
+        distinctKeys.merge(keys);
+    }
+    
+    /**
+     * Merges another pattern's counts and distinct key sketch into this one
+     */
+    public void merge(VariableAccessData other) {
+        addAggregate(other.getReadCount(), other.getWriteCount(), other.distinctKeys);
+    }
+    
+    /**
+     * Gets the distinct key sketch
+     */
+    public HyperLogLog getDistinctKeys() {
+        return distinctKeys;
+    }
+    
+    public String getPattern() {
+        return pattern;
+    }
+    
+    /**
+     * Gets the script file of the first recorded access
+     */
+    public String getScriptFile() {
+        return scriptFile;
+    }
+    
+    /**
+     * Gets the line number of the first recorded access
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+    
+    /**
+     * Moves this entry to another line after its script was edited
+     */
+    public void relocate(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+    
+    public long getReadCount() {
+        return readCount.get();
+    }
+    
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+    
+    public long getTotalAccessCount() {
+        return readCount.get() + writeCount.get();
+    }
+    
+    /**
+     * Returns the estimated number of distinct concrete keys seen for this pattern
+     */
+    public long getEstimatedDistinctKeys() {
+        return distinctKeys.estimate();
+    }
+    
+    /**
+     * Returns accesses per second over the given duration
+     */
+    public double getAccessRate(long durationMs) {
+        if (durationMs <= 0) return 0;
+        return getTotalAccessCount() / (durationMs / 1000.0);
+    }
+    
+    public String getLocationString() {
+        return scriptFile + ":" + lineNumber;
+    }
+}
@@ -0,0 +1,166 @@
+package com.macmoment.skriptprofiler.model;
+
+import com.macmoment.skriptprofiler.util.LogHistogram;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents runtime statistics for a single wait statement: suspended triggers, parked time and resumes per tick
+ */
+public class WaitProfileData {
+    private final String scriptFile;
+    private volatile int lineNumber;
+    private final AtomicInteger currentlySuspended;
+    private final AtomicLong totalSuspensions;
+    private final AtomicLong totalResumes;
+    private final AtomicLong totalParkedTime;
+    private final LogHistogram parkedMillisHistogram;
+    private volatile int peakSuspended;
+    private volatile long maxParkedTime;
+    
+    // Resumes within the current tick, guarded by this
+    private long resumeTick = -1;
+    private int resumesInTick;
+    private volatile int maxResumesInTick;
+    
+    public WaitProfileData(String scriptFile, int lineNumber) {
+        this.scriptFile = scriptFile;
+        this.lineNumber = lineNumber;
+        this.currentlySuspended = new AtomicInteger(0);
+        this.totalSuspensions = new AtomicLong(0);
+        this.totalResumes = new AtomicLong(0);
+        this.totalParkedTime = new AtomicLong(0);
+        this.parkedMillisHistogram = new LogHistogram();
+    }
+    
+    public void recordSuspend() {
+        totalSuspensions.incrementAndGet();
+        int suspended = currentlySuspended.incrementAndGet();
+        if (suspended > peakSuspended) {
+            synchronized (this) {
+                if (suspended > peakSuspended) {
+                    peakSuspended = suspended;
+                }
+            }
+        }
+    }
+    
+    public void recordResume(long parkedNanos, long tick) {
+        totalResumes.incrementAndGet();
+        totalParkedTime.addAndGet(parkedNanos);
+        parkedMillisHistogram.record(parkedNanos / 1_000_000);
+        // Never go negative if a trigger was suspended before a reset
+        currentlySuspended.updateAndGet(n -> n > 0 ? n - 1 : 0);
+        
+        synchronized (this) {
+            if (parkedNanos > maxParkedTime) {
+                maxParkedTime = parkedNanos;
+            }
+            if (tick != resumeTick) {
+                resumeTick = tick;
+                resumesInTick = 0;
+            }
+            resumesInTick++;
+            if (resumesInTick > maxResumesInTick) {
+                maxResumesInTick = resumesInTick;
+            }
+        }
+    }
+    
+    /**
+     * Adds pre-aggregated wait statistics, e.g. from another server's saved session.
+     * Peaks are per server, so the largest one is kept rather than summed.
+     */
+    public void addAggregate(int suspended, long suspensions, long resumes, long parkedTimeNanos,
+                             int peakSuspended, long maxParkedTimeNanos, int maxResumesInTick,
+                             LogHistogram parkedHistogram) {
+        currentlySuspended.addAndGet(suspended);
+        totalSuspensions.addAndGet(suspensions);
+        totalResumes.addAndGet(resumes);
+        totalParkedTime.addAndGet(parkedTimeNanos);
+        parkedMillisHistogram.merge(parkedHistogram);
+        
+        synchronized (this) {
+            this.peakSuspended = Math.max(this.peakSuspended, peakSuspended);
+            this.maxParkedTime = Math.max(this.maxParkedTime, maxParkedTimeNanos);
+            this.maxResumesInTick = Math.max(this.maxResumesInTick, maxResumesInTick);
+        }
+    }
+    
+    /**
+     * Merges another wait line's statistics into this one
+     */
+    public void merge(WaitProfileData other) {
+        addAggregate(other.getCurrentlySuspended(), other.getTotalSuspensions(), other.getTotalResumes(),
+            other.getTotalParkedTimeNanos(), other.getPeakSuspended(), other.getMaxParkedTimeNanos(),
+            other.getMaxResumesInTick(), other.getParkedMillisHistogram());
+    }
+    
+    /**
+     * Returns how many triggers resumed from this wait in the given tick
+     */
+    public synchronized int getResumesInTick(long tick) {
+        return tick == resumeTick ? resumesInTick : 0;
+    }
+    
+    public int getCurrentlySuspended() {
+        return currentlySuspended.get();
+    }
+    
+    public int getPeakSuspended() {
+        return peakSuspended;
+    }
+    
+    public long getTotalSuspensions() {
+        return totalSuspensions.get();
+    }
+    
+    public long getTotalResumes() {
+        return totalResumes.get();
+    }
+    
+    public int getMaxResumesInTick() {
+        return maxResumesInTick;
+    }
+    
+    public double getAverageParkedTimeMs() {
+        long resumes = totalResumes.get();
+        return resumes == 0 ? 0 : (totalParkedTime.get() / (double) resumes) / 1_000_000.0;
+    }
+    
+    public long getTotalParkedTimeNanos() {
+        return totalParkedTime.get();
+    }
+    
+    public long getMaxParkedTimeNanos() {
+        return maxParkedTime;
+    }
+    
+    public double getMaxParkedTimeMs() {
+        return maxParkedTime / 1_000_000.0;
+    }
+    
+    public LogHistogram getParkedMillisHistogram() {
+        return parkedMillisHistogram;
+    }
+    
+    public String getScriptFile() {
+        return scriptFile;
+    }
+    
+    public int getLineNumber() {
+        return lineNumber;
+    }
+    
+    /**
+     * Moves this entry to another line after its script was edited
+     */
+    public void relocate(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+    
+    public String getLocationString() {
+        return scriptFile + ":" + lineNumber;
+    }
+}
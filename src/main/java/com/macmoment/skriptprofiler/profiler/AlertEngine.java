@@ -0,0 +1,296 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.ProfilerContext;
+import com.macmoment.skriptprofiler.model.ProfileData;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Raises alerts while profiling when elements keep exceeding the slow and very slow execution thresholds.
+ * The record path only compares the execution time with the slow threshold; elements over it get a counter
+ * that a background thread reads every check interval. An element has to stay over the trigger ratio to raise
+ * an alert and under the (lower) clear ratio for several checks to recover, repeats are held back by a cooldown,
+ * and each check sends at most a few messages.
+ */
+public class AlertEngine {
+    
+    public enum Level {
+        NONE, WARNING, CRITICAL
+    }
+    
+    private final ProfilerContext context;
+    private final Map<ProfileData, ElementState> states;
+    
+    private volatile long slowThresholdNanos;
+    private volatile long verySlowThresholdNanos;
+    private volatile Consumer<String> staffSink;
+    private double triggerRatio;
+    private double clearRatio;
+    private long minSlowExecutions;
+    private int clearChecks;
+    private long cooldownMs;
+    private int maxPerCheck;
+    private long checkIntervalMs;
+    private ScheduledExecutorService executor;
+    
+    public AlertEngine(ProfilerContext context) {
+        this.context = context;
+        this.states = new ConcurrentHashMap<>();
+        this.slowThresholdNanos = Long.MAX_VALUE;
+        this.verySlowThresholdNanos = Long.MAX_VALUE;
+    }
+    
+    /**
+     * Reloads thresholds and alert settings from config
+     */
+    public synchronized void loadSettings() {
+        boolean enabled = context.getSettings().getBoolean("alerts.enabled", true);
+        double slowMs = context.getSettings().getDouble("thresholds.slow-execution", 50.0);
+        double verySlowMs = context.getSettings().getDouble("thresholds.very-slow-execution", 200.0);
+        verySlowThresholdNanos = (long) (verySlowMs * 1_000_000);
+        // Disabled alerts leave a threshold no execution reaches, so the record path stays a single branch
+        slowThresholdNanos = enabled ? (long) (slowMs * 1_000_000) : Long.MAX_VALUE;
+        
+        triggerRatio = context.getSettings().getDouble("alerts.trigger-ratio", 0.05);
+        clearRatio = Math.min(triggerRatio, context.getSettings().getDouble("alerts.clear-ratio", 0.01));
+        minSlowExecutions = Math.max(1, context.getSettings().getInt("alerts.min-slow-executions", 3));
+        clearChecks = Math.max(1, context.getSettings().getInt("alerts.clear-checks", 3));
+        cooldownMs = Math.max(0, context.getSettings().getLong("alerts.cooldown-seconds", 300)) * 1000;
+        maxPerCheck = Math.max(1, context.getSettings().getInt("alerts.max-per-check", 3));
+        checkIntervalMs = Math.max(1, context.getSettings().getLong("alerts.check-interval-seconds", 5)) * 1000;
+    }
+    
+    /**
+     * Sets where alerts for online staff are sent, in addition to the log
+     */
+    public void setStaffSink(Consumer<String> staffSink) {
+        this.staffSink = staffSink;
+    }
+    
+    /**
+     * Starts the background checks, if alerts are enabled
+     */
+    public synchronized void start() {
+        if (executor != null || slowThresholdNanos == Long.MAX_VALUE) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SkriptProfiler-Alerts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::check, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+    
+    /**
+     * Counts an execution against the thresholds. Called on the record path for every timed execution;
+     * only executions over the slow threshold get past the first comparison.
+     *
+     * @param weight the number of executions the timed one stands in for when sampling
+     */
+    public void record(ProfileData data, long executionTimeNanos, int weight) {
+        if (executionTimeNanos < slowThresholdNanos) return;
+        
+        ElementState state = states.computeIfAbsent(data, d -> new ElementState(d, weight));
+        state.slow.add(weight);
+        if (executionTimeNanos >= verySlowThresholdNanos) {
+            state.verySlow.add(weight);
+        }
+    }
+    
+    /**
+     * Drops all alert state, e.g. when profiling data is reset
+     */
+    public void reset() {
+        states.clear();
+    }
+    
+    public Level getLevel(ProfileData data) {
+        ElementState state = states.get(data);
+        return state != null ? state.level : Level.NONE;
+    }
+    
+    /**
+     * Evaluates every element that went over a threshold since the last check and sends the alerts due
+     */
+    void check() {
+        try {
+            long now = System.currentTimeMillis();
+            List<Alert> alerts = new ArrayList<>();
+            
+            Iterator<ElementState> iterator = states.values().iterator();
+            while (iterator.hasNext()) {
+                ElementState state = iterator.next();
+                Alert alert = evaluate(state, now);
+                if (alert != null) {
+                    alerts.add(alert);
+                }
+                // Quiet elements without a pending cooldown are recreated by their next slow execution
+                if (state.level == Level.NONE && state.lastSlow == 0 && now - state.lastAlertMs >= cooldownMs) {
+                    iterator.remove();
+                }
+            }
+            deliver(alerts);
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled checks
+            context.getLogger().warning("Alert check failed: " + e.getMessage());
+        }
+    }
+    
+    private Alert evaluate(ElementState state, long now) {
+        ProfileData data = state.data;
+        long slow = state.slow.sumThenReset();
+        long verySlow = state.verySlow.sumThenReset();
+        long executions = data.getExecutionCount();
+        // Slow executions are counted after the element's own counter, so a window never has fewer executions
+        long windowExecutions = Math.max(slow, executions - state.lastExecutions);
+        state.lastExecutions = executions;
+        state.lastSlow = slow;
+        
+        double slowRatio = windowExecutions == 0 ? 0 : slow / (double) windowExecutions;
+        double verySlowRatio = windowExecutions == 0 ? 0 : verySlow / (double) windowExecutions;
+        
+        Level observed = verySlow >= minSlowExecutions && verySlowRatio >= triggerRatio ? Level.CRITICAL
+            : slow >= minSlowExecutions && slowRatio >= triggerRatio ? Level.WARNING
+            : Level.NONE;
+        
+        if (observed.compareTo(state.level) >= 0) {
+            state.quietChecks = 0;
+            if (observed == state.level) {
+                return null;
+            }
+            state.level = observed;
+            // A recovered element that trips again within the cooldown only alerts if it got worse than last time
+            if (observed.compareTo(state.lastAlertLevel) <= 0 && now - state.lastAlertMs < cooldownMs) {
+                return null;
+            }
+            state.announced = true;
+            state.lastAlertLevel = observed;
+            state.lastAlertMs = now;
+            return new Alert(state, observed, slow, verySlow, windowExecutions, false);
+        }
+        
+        // Below the current level: only step down after enough checks under the clear ratio.
+        // A check without executions says nothing about whether the element got faster.
+        double currentRatio = state.level == Level.CRITICAL ? verySlowRatio : slowRatio;
+        if (currentRatio >= clearRatio) {
+            state.quietChecks = 0;
+            return null;
+        }
+        if (windowExecutions == 0 || ++state.quietChecks < clearChecks) {
+            return null;
+        }
+        state.quietChecks = 0;
+        // Leaving critical lands on warning while the element is still over the slow clear ratio
+        state.level = observed == Level.NONE && slowRatio >= clearRatio ? Level.WARNING : observed;
+        observed = state.level;
+        // Recovery is only worth a message if the alert itself went out
+        if (observed != Level.NONE || !state.announced) {
+            return null;
+        }
+        state.announced = false;
+        return new Alert(state, Level.NONE, slow, verySlow, windowExecutions, true);
+    }
+    
+    /**
+     * Sends the most severe alerts of a check to the log and online staff, folding the rest into one line
+     */
+    private void deliver(List<Alert> alerts) {
+        if (alerts.isEmpty()) return;
+        
+        alerts.sort(Comparator.comparing((Alert alert) -> alert.level).reversed()
+            .thenComparing(alert -> -alert.state.data.getAverageExecutionTimeMs()));
+        Consumer<String> sink = staffSink;
+        for (int i = 0; i < Math.min(maxPerCheck, alerts.size()); i++) {
+            String message = format(alerts.get(i));
+            context.getLogger().warning(message);
+            if (sink != null) {
+                sink.accept(message);
+            }
+        }
+        if (alerts.size() > maxPerCheck) {
+            String message = String.format("... and %d more element(s) changed alert state, see '/skprofile report'",
+                alerts.size() - maxPerCheck);
+            context.getLogger().warning(message);
+            if (sink != null) {
+                sink.accept(message);
+            }
+        }
+    }
+    
+    private String format(Alert alert) {
+        ProfileData data = alert.state.data;
+        String location = getShortFileName(data.getScriptFile()) + ":" + data.getLineNumber() + " (" + data.getElementName() + ")";
+        if (alert.recovered) {
+            return String.format("[Alert] %s is back under the slow execution threshold", location);
+        }
+        boolean critical = alert.level == Level.CRITICAL;
+        long over = critical ? alert.verySlow : alert.slow;
+        return String.format("[Alert] %s %s: %d of %d executions (%.0f%%) over %.0fms in the last %ds",
+            alert.level, location, over, alert.executions, over * 100.0 / alert.executions,
+            (critical ? verySlowThresholdNanos : slowThresholdNanos) / 1_000_000.0, checkIntervalMs / 1000);
+    }
+    
+    private static String getShortFileName(String fullPath) {
+        if (fullPath == null) return "unknown";
+        int lastSeparator = Math.max(fullPath.lastIndexOf('/'), fullPath.lastIndexOf('\\'));
+        return lastSeparator >= 0 ? fullPath.substring(lastSeparator + 1) : fullPath;
+    }
+    
+    /**
+     * Per-element counters written on the record path; everything else is only touched by the check thread
+     */
+    private static class ElementState {
+        final ProfileData data;
+        final LongAdder slow = new LongAdder();
+        final LongAdder verySlow = new LongAdder();
+        long lastExecutions;
+        long lastSlow;
+        volatile Level level = Level.NONE;
+        Level lastAlertLevel = Level.NONE;
+        long lastAlertMs = Long.MIN_VALUE / 2;
+        int quietChecks;
+        boolean announced;
+        
+        ElementState(ProfileData data, int weight) {
+            this.data = data;
+            // Executions before the first slow one belong to no window; the slow one is already counted
+            this.lastExecutions = data.getExecutionCount() - weight;
+        }
+    }
+    
+    private static class Alert {
+        final ElementState state;
+        final Level level;
+        final long slow;
+        final long verySlow;
+        final long executions;
+        final boolean recovered;
+        
+        Alert(ElementState state, Level level, long slow, long verySlow, long executions, boolean recovered) {
+            this.state = state;
+            this.level = level;
+            this.slow = slow;
+            this.verySlow = verySlow;
+            this.executions = executions;
+            this.recovered = recovered;
+        }
+    }
+}
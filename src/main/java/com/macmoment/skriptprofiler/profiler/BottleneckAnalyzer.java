@@ -1,199 +1,199 @@
 package com.macmoment.skriptprofiler.profiler;
 
-import com.macmoment.skriptprofiler.SkriptProfilerPlugin;
+import com.macmoment.skriptprofiler.ProfilerContext;
+import com.macmoment.skriptprofiler.model.CallGraphAnalysis;
 import com.macmoment.skriptprofiler.model.PerformanceIssue;
-import com.macmoment.skriptprofiler.model.ProfileData;
+import com.macmoment.skriptprofiler.model.ProfileSnapshot;
 import com.macmoment.skriptprofiler.model.ScriptInfo;
+import com.macmoment.skriptprofiler.rules.AnalysisRule;
+import com.macmoment.skriptprofiler.rules.RuleContext;
+import com.macmoment.skriptprofiler.rules.RuleInput;
+import com.macmoment.skriptprofiler.rules.RuleRegistry;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
- * Analyzes profiling data to identify performance bottlenecks
+ * Analyzes profiling data to identify performance bottlenecks.
+ *
+ * The checks are {@link AnalysisRule}s: the built-in ones followed by those in the {@link RuleRegistry}.
+ * Rules run in parallel on a pool of their own over one copy of the data, and their issues are merged
+ * in a fixed order, so the same data always gives the same list. The pool is created on the first
+ * analysis and kept until {@link #shutdown()}; analyses of one analyzer run one at a time.
  */
 public class BottleneckAnalyzer {
     
-    private final SkriptProfilerPlugin plugin;
+    private final ProfilerContext context;
     private final List<PerformanceIssue> detectedIssues;
+    private final List<AnalysisRule> builtInRules;
+    private volatile ForkJoinPool pool;
     
-    // Regex patterns for code analysis
-    private static final Pattern LOOP_PATTERN = Pattern.compile("loop\\s+", Pattern.CASE_INSENSITIVE);
-    private static final Pattern WAIT_PATTERN = Pattern.compile("wait\\s+(\\d+)\\s*(tick|second|minute)", Pattern.CASE_INSENSITIVE);
-    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{[^}]+\\}");
-    
-    public BottleneckAnalyzer(SkriptProfilerPlugin plugin) {
-        this.plugin = plugin;
+    public BottleneckAnalyzer(ProfilerContext context) {
+        this.context = context;
         this.detectedIssues = new ArrayList<>();
+        this.builtInRules = BuiltInRules.create(context);
     }
     
     /**
      * Analyzes profile data and script information to detect bottlenecks
+     *
+     * @return the detected issues, also kept for {@link #getIssues()}
      */
-    public void analyze(Map<String, ProfileData> profileData, Map<String, ScriptInfo> scripts) {
+    public synchronized List<PerformanceIssue> analyze(ProfileSnapshot snapshot, Map<String, ScriptInfo> scripts,
+                                                       CallGraphAnalysis callGraph) {
         detectedIssues.clear();
         
-        // Get thresholds from config
-        double slowThreshold = plugin.getConfig().getDouble("thresholds.slow-execution", 50.0);
-        double verySlowThreshold = plugin.getConfig().getDouble("thresholds.very-slow-execution", 200.0);
-        int loopThreshold = plugin.getConfig().getInt("thresholds.loop-iterations", 1000);
-        int waitThreshold = plugin.getConfig().getInt("thresholds.long-wait", 100);
-        int variableThreshold = plugin.getConfig().getInt("thresholds.excessive-variables", 500);
+        // Rules share the inputs across threads, so they must not change underneath them
+        ProfileSnapshot frozen = snapshot.isLive() ? snapshot.copy() : snapshot;
+        Map<String, ScriptInfo> scriptCopy = Map.copyOf(scripts);
+        Set<RuleInput> available = getAvailableInputs(frozen, scriptCopy, callGraph);
+        
+        List<AnalysisRule> rules = getEnabledRules();
+        List<AnalysisRule> scheduled = new ArrayList<>();
+        for (AnalysisRule rule : rules) {
+            if (available.containsAll(rule.getInputs())) {
+                scheduled.add(rule);
+            }
+        }
         
-        // Analyze execution times
-        analyzeExecutionTimes(profileData, slowThreshold, verySlowThreshold);
+        ForkJoinPool pool = getPool();
+        List<ForkJoinTask<List<PerformanceIssue>>> tasks = new ArrayList<>();
+        for (AnalysisRule rule : scheduled) {
+            RuleContext ruleContext = new RuleContext(rule, frozen, scriptCopy, callGraph, context.getSettings());
+            tasks.add(pool.submit(() -> evaluate(rule, ruleContext)));
+        }
         
-        // Analyze script contents
-        analyzeScriptContents(scripts, profileData, loopThreshold, waitThreshold, variableThreshold);
+        // Collect in rule order, whichever rule finishes first
+        Map<PerformanceIssue, Integer> ruleIndex = new IdentityHashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            List<PerformanceIssue> issues = collect(scheduled.get(i), tasks.get(i));
+            for (PerformanceIssue issue : issues) {
+                ruleIndex.put(issue, i);
+            }
+            detectedIssues.addAll(issues);
+        }
         
-        // Sort issues by severity
-        detectedIssues.sort((i1, i2) -> i2.getSeverity().compareTo(i1.getSeverity()));
+        // Sort issues by severity, then by rule and location so parallel rules merge deterministically
+        detectedIssues.sort(Comparator.comparing(PerformanceIssue::getSeverity).reversed()
+            .thenComparing(ruleIndex::get)
+            .thenComparing(PerformanceIssue::getScriptFile, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(PerformanceIssue::getLineNumber)
+            .thenComparing(PerformanceIssue::getDescription, Comparator.nullsFirst(Comparator.naturalOrder())));
         
-        plugin.getLogger().info("Analysis complete. Found " + detectedIssues.size() + " potential issue(s)");
+        context.getLogger().info(String.format("Analysis complete. Found %d potential issue(s) with %d of %d rule(s)",
+            detectedIssues.size(), scheduled.size(), rules.size()));
+        return new ArrayList<>(detectedIssues);
     }
     
     /**
-     * Analyzes execution times to find slow operations
+     * Gets the rule pool, creating it with the configured number of threads on first use
      */
-    private void analyzeExecutionTimes(Map<String, ProfileData> profileData, double slowThreshold, double verySlowThreshold) {
-        for (ProfileData data : profileData.values()) {
-            double avgTime = data.getAverageExecutionTimeMs();
-            double maxTime = data.getMaxExecutionTimeMs();
-            
-            // Check for very slow execution
-            if (maxTime >= verySlowThreshold) {
-                detectedIssues.add(new PerformanceIssue(
-                    PerformanceIssue.IssueType.SLOW_EVENT,
-                    PerformanceIssue.Severity.CRITICAL,
-                    data.getScriptFile(),
-                    data.getLineNumber(),
-                    String.format("Very slow execution detected: %.2fms average, %.2fms max", avgTime, maxTime),
-                    "Consider optimizing this code block. Break down complex operations, reduce database queries, or use async operations.",
-                    data
-                ));
-            } else if (avgTime >= slowThreshold) {
-                detectedIssues.add(new PerformanceIssue(
-                    PerformanceIssue.IssueType.SLOW_EVENT,
-                    PerformanceIssue.Severity.HIGH,
-                    data.getScriptFile(),
-                    data.getLineNumber(),
-                    String.format("Slow execution detected: %.2fms average", avgTime),
-                    "Review this code for potential optimizations. Consider caching results or reducing complexity.",
-                    data
-                ));
-            }
-            
-            // Check for high execution frequency
-            if (data.getExecutionCount() > 1000) {
-                double totalTime = data.getTotalExecutionTimeNanos() / 1_000_000.0;
-                detectedIssues.add(new PerformanceIssue(
-                    PerformanceIssue.IssueType.HIGH_FREQUENCY,
-                    totalTime > 1000 ? PerformanceIssue.Severity.HIGH : PerformanceIssue.Severity.MEDIUM,
-                    data.getScriptFile(),
-                    data.getLineNumber(),
-                    String.format("High execution frequency: %d times (%.2fms total)", data.getExecutionCount(), totalTime),
-                    "This code executes very frequently. Even small optimizations can have significant impact.",
-                    data
-                ));
-            }
+    private ForkJoinPool getPool() {
+        ForkJoinPool current = pool;
+        if (current == null) {
+            int threads = context.getSettings().getInt("analysis.threads", 0);
+            current = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+            pool = current;
+        }
+        return current;
+    }
+    
+    /**
+     * Evaluates a rule, logging instead of failing the analysis if it throws
+     */
+    private List<PerformanceIssue> evaluate(AnalysisRule rule, RuleContext ruleContext) {
+        try {
+            List<PerformanceIssue> issues = rule.evaluate(ruleContext);
+            return issues != null ? issues : List.of();
+        } catch (RuntimeException | LinkageError e) {
+            context.getLogger().warning("Analysis rule " + rule.getId() + " failed: " + e);
+            return List.of();
         }
     }
     
     /**
-     * Analyzes script contents for potential issues
+     * Waits for a rule's issues
      */
-    private void analyzeScriptContents(Map<String, ScriptInfo> scripts, Map<String, ProfileData> profileData,
-                                       int loopThreshold, int waitThreshold, int variableThreshold) {
-        for (ScriptInfo script : scripts.values()) {
-            List<String> lines = script.getLines();
-            
-            for (int i = 0; i < lines.size(); i++) {
-                String line = lines.get(i);
-                int lineNumber = i + 1;
-                
-                // Check for loops
-                if (LOOP_PATTERN.matcher(line).find()) {
-                    // Find related profile data
-                    ProfileData relatedData = findProfileDataForLine(profileData, script.getFilePath(), lineNumber);
-                    
-                    if (relatedData != null && relatedData.getExecutionCount() > loopThreshold) {
-                        detectedIssues.add(new PerformanceIssue(
-                            PerformanceIssue.IssueType.INEFFICIENT_LOOP,
-                            PerformanceIssue.Severity.MEDIUM,
-                            script.getFilePath(),
-                            lineNumber,
-                            "Loop with high iteration count detected",
-                            "Consider using list operations, filtering, or limiting the loop size. Review if all iterations are necessary.",
-                            relatedData
-                        ));
-                    }
-                }
-                
-                // Check for wait statements
-                Matcher waitMatcher = WAIT_PATTERN.matcher(line);
-                if (waitMatcher.find()) {
-                    int waitTime = Integer.parseInt(waitMatcher.group(1));
-                    String unit = waitMatcher.group(2).toLowerCase();
-                    
-                    // Convert to ticks
-                    int ticks = switch (unit) {
-                        case "second", "seconds" -> waitTime * 20;
-                        case "minute", "minutes" -> waitTime * 1200;
-                        default -> waitTime;
-                    };
-                    
-                    if (ticks > waitThreshold) {
-                        detectedIssues.add(new PerformanceIssue(
-                            PerformanceIssue.IssueType.LONG_WAIT,
-                            PerformanceIssue.Severity.LOW,
-                            script.getFilePath(),
-                            lineNumber,
-                            String.format("Long wait statement: %d %s", waitTime, unit),
-                            "Consider if this wait is necessary. Long waits can tie up script execution threads.",
-                            null
-                        ));
-                    }
-                }
+    private List<PerformanceIssue> collect(AnalysisRule rule, ForkJoinTask<List<PerformanceIssue>> task) {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            context.getLogger().warning("Analysis rule " + rule.getId() + " failed: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            context.getLogger().warning("Analysis interrupted while waiting for rule " + rule.getId());
+        }
+        return List.of();
+    }
+    
+    /**
+     * Gets the built-in and registered rules, without those disabled in config
+     */
+    private List<AnalysisRule> getEnabledRules() {
+        Set<String> disabled = new HashSet<>(context.getSettings().getStringList("analysis.disabled-rules"));
+        List<AnalysisRule> rules = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        for (AnalysisRule rule : builtInRules) {
+            if (!disabled.contains(rule.getId()) && ids.add(rule.getId())) {
+                rules.add(rule);
+            }
+        }
+        for (AnalysisRule rule : RuleRegistry.getRules()) {
+            if (disabled.contains(rule.getId())) {
+                continue;
             }
-            
-            // Check for excessive variable access
-            if (script.getTotalVariableAccess() > variableThreshold) {
-                detectedIssues.add(new PerformanceIssue(
-                    PerformanceIssue.IssueType.EXCESSIVE_VARIABLES,
-                    PerformanceIssue.Severity.MEDIUM,
-                    script.getFilePath(),
-                    1,
-                    String.format("Excessive variable access: %d occurrences", script.getTotalVariableAccess()),
-                    "High variable usage can impact performance. Consider reducing variable operations or using local variables.",
-                    null
-                ));
+            if (!ids.add(rule.getId())) {
+                context.getLogger().warning("Skipping analysis rule " + rule.getId() + ": a built-in rule has the same ID");
+                continue;
             }
+            rules.add(rule);
         }
+        return rules;
     }
     
     /**
-     * Finds profile data for a specific line
+     * Determines which inputs have data; e.g. a CI run without a server has no profile
      */
-    private ProfileData findProfileDataForLine(Map<String, ProfileData> profileData, String filePath, int lineNumber) {
-        for (ProfileData data : profileData.values()) {
-            if (data.getScriptFile().equals(filePath) && data.getLineNumber() == lineNumber) {
-                return data;
-            }
+    private static Set<RuleInput> getAvailableInputs(ProfileSnapshot snapshot, Map<String, ScriptInfo> scripts,
+                                                     CallGraphAnalysis callGraph) {
+        Set<RuleInput> available = EnumSet.noneOf(RuleInput.class);
+        if (!snapshot.getProfileData().isEmpty() || !snapshot.getLoopData().isEmpty()
+            || !snapshot.getWaitData().isEmpty() || !snapshot.getVariableData().isEmpty()) {
+            available.add(RuleInput.PROFILE);
         }
-        return null;
+        if (!scripts.isEmpty()) {
+            available.add(RuleInput.SCRIPTS);
+        }
+        if (!callGraph.getEdges().isEmpty()) {
+            available.add(RuleInput.CALL_GRAPH);
+        }
+        return available;
     }
     
     /**
      * Gets all detected issues
      */
-    public List<PerformanceIssue> getIssues() {
+    public synchronized List<PerformanceIssue> getIssues() {
         return new ArrayList<>(detectedIssues);
     }
     
     /**
      * Resets detected issues
      */
-    public void reset() {
+    public synchronized void reset() {
         detectedIssues.clear();
     }
+    
+    /**
+     * Stops the rule pool's threads; a later analysis starts a new pool
+     */
+    public void shutdown() {
+        ForkJoinPool current = pool;
+        pool = null;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
 }
@@ -0,0 +1,341 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.ProfilerContext;
+import com.macmoment.skriptprofiler.ProfilerSettings;
+import com.macmoment.skriptprofiler.model.CallEdge;
+import com.macmoment.skriptprofiler.model.LoopProfileData;
+import com.macmoment.skriptprofiler.model.PerformanceIssue;
+import com.macmoment.skriptprofiler.model.ResumeStorm;
+import com.macmoment.skriptprofiler.model.ScriptInfo;
+import com.macmoment.skriptprofiler.model.VariableAccessData;
+import com.macmoment.skriptprofiler.model.WaitProfileData;
+import com.macmoment.skriptprofiler.rules.AnalysisRule;
+import com.macmoment.skriptprofiler.rules.RuleContext;
+import com.macmoment.skriptprofiler.rules.RuleInput;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * The rules the analyzer ships with. Rules over large inputs (every element or every script) use
+ * parallel streams, which run on the analyzer's pool.
+ */
+final class BuiltInRules {
+    
+    // Regex patterns for code analysis
+    private static final Pattern WAIT_PATTERN = Pattern.compile("wait\\s+(\\d+)\\s*(tick|second|minute)", Pattern.CASE_INSENSITIVE);
+    
+    private BuiltInRules() {
+    }
+    
+    /**
+     * Creates the built-in rules in the order their issues are listed within a severity
+     */
+    static List<AnalysisRule> create(ProfilerContext context) {
+        StaticCostEstimator costEstimator = new StaticCostEstimator(context);
+        return List.of(
+            AnalysisRule.of("slow-execution", EnumSet.of(RuleInput.PROFILE), BuiltInRules::analyzeExecutionTimes),
+            AnalysisRule.of("high-frequency", EnumSet.of(RuleInput.PROFILE), BuiltInRules::analyzeExecutionFrequency),
+            AnalysisRule.of("long-wait", EnumSet.of(RuleInput.SCRIPTS), BuiltInRules::analyzeWaitStatements),
+            AnalysisRule.of("script-variables", EnumSet.of(RuleInput.SCRIPTS), BuiltInRules::analyzeScriptVariables),
+            AnalysisRule.of("static-cost", EnumSet.of(RuleInput.SCRIPTS), rule -> costEstimator.estimate(rule.getScripts())),
+            AnalysisRule.of("loop-iterations", EnumSet.of(RuleInput.PROFILE), BuiltInRules::analyzeLoops),
+            AnalysisRule.of("function-in-loop", EnumSet.of(RuleInput.CALL_GRAPH), BuiltInRules::analyzeFunctionCalls),
+            AnalysisRule.of("resume-storm", EnumSet.of(RuleInput.PROFILE), BuiltInRules::analyzeResumeStorms),
+            AnalysisRule.of("variable-keys", EnumSet.of(RuleInput.PROFILE), BuiltInRules::analyzeVariableAccess)
+        );
+    }
+    
+    /**
+     * Analyzes execution times to find slow operations
+     */
+    private static List<PerformanceIssue> analyzeExecutionTimes(RuleContext rule) {
+        double slowThreshold = rule.getSettings().getDouble("thresholds.slow-execution", 50.0);
+        double verySlowThreshold = rule.getSettings().getDouble("thresholds.very-slow-execution", 200.0);
+        
+        return rule.getSnapshot().getProfileData().values().parallelStream()
+            .map(data -> {
+                double avgTime = data.getAverageExecutionTimeMs();
+                double maxTime = data.getMaxExecutionTimeMs();
+                
+                // Check for very slow execution
+                if (maxTime >= verySlowThreshold) {
+                    return new PerformanceIssue(
+                        PerformanceIssue.IssueType.SLOW_EVENT,
+                        PerformanceIssue.Severity.CRITICAL,
+                        data.getScriptFile(),
+                        data.getLineNumber(),
+                        String.format("Very slow execution detected: %.2fms average, %.2fms max", avgTime, maxTime),
+                        "Consider optimizing this code block. Break down complex operations, reduce database queries, or use async operations.",
+                        data
+                    );
+                } else if (avgTime >= slowThreshold) {
+                    return new PerformanceIssue(
+                        PerformanceIssue.IssueType.SLOW_EVENT,
+                        PerformanceIssue.Severity.HIGH,
+                        data.getScriptFile(),
+                        data.getLineNumber(),
+                        String.format("Slow execution detected: %.2fms average", avgTime),
+                        "Review this code for potential optimizations. Consider caching results or reducing complexity.",
+                        data
+                    );
+                }
+                return null;
+            })
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Analyzes execution counts to find code that runs very often
+     */
+    private static List<PerformanceIssue> analyzeExecutionFrequency(RuleContext rule) {
+        return rule.getSnapshot().getProfileData().values().parallelStream()
+            .filter(data -> data.getExecutionCount() > 1000)
+            .map(data -> {
+                double totalTime = data.getTotalExecutionTimeNanos() / 1_000_000.0;
+                return new PerformanceIssue(
+                    PerformanceIssue.IssueType.HIGH_FREQUENCY,
+                    totalTime > 1000 ? PerformanceIssue.Severity.HIGH : PerformanceIssue.Severity.MEDIUM,
+                    data.getScriptFile(),
+                    data.getLineNumber(),
+                    String.format("High execution frequency: %d times (%.2fms total)", data.getExecutionCount(), totalTime),
+                    "This code executes very frequently. Even small optimizations can have significant impact.",
+                    data
+                );
+            })
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Checks whether a line mentions "wait" in any case without allocating
+     */
+    private static boolean containsWait(String line) {
+        for (int i = 0, last = line.length() - 4; i <= last; i++) {
+            if (line.regionMatches(true, i, "wait", 0, 4)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Analyzes script sources for long wait statements
+     */
+    private static List<PerformanceIssue> analyzeWaitStatements(RuleContext rule) {
+        int waitThreshold = rule.getSettings().getInt("thresholds.long-wait", 100);
+        
+        return rule.getScripts().values().parallelStream()
+            .flatMap(script -> {
+                List<PerformanceIssue> issues = new ArrayList<>();
+                List<String> lines = script.getLines();
+                
+                for (int i = 0; i < lines.size(); i++) {
+                    String line = lines.get(i);
+                    
+                    // Skip the regex on lines that cannot contain a wait
+                    if (!containsWait(line)) {
+                        continue;
+                    }
+                    Matcher waitMatcher = WAIT_PATTERN.matcher(line);
+                    if (waitMatcher.find()) {
+                        int waitTime = Integer.parseInt(waitMatcher.group(1));
+                        String unit = waitMatcher.group(2).toLowerCase();
+                        
+                        // Convert to ticks
+                        int ticks = switch (unit) {
+                            case "second", "seconds" -> waitTime * 20;
+                            case "minute", "minutes" -> waitTime * 1200;
+                            default -> waitTime;
+                        };
+                        
+                        if (ticks > waitThreshold) {
+                            issues.add(new PerformanceIssue(
+                                PerformanceIssue.IssueType.LONG_WAIT,
+                                PerformanceIssue.Severity.LOW,
+                                script.getFilePath(),
+                                i + 1,
+                                String.format("Long wait statement: %d %s", waitTime, unit),
+                                "Consider if this wait is necessary. Long waits can tie up script execution threads.",
+                                null
+                            ));
+                        }
+                    }
+                }
+                return issues.stream();
+            })
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Analyzes scripts for excessive variable use in their source
+     */
+    private static List<PerformanceIssue> analyzeScriptVariables(RuleContext rule) {
+        int variableThreshold = rule.getSettings().getInt("thresholds.excessive-variables", 500);
+        
+        List<PerformanceIssue> issues = new ArrayList<>();
+        for (ScriptInfo script : rule.getScripts().values()) {
+            if (script.getTotalVariableAccess() > variableThreshold) {
+                issues.add(new PerformanceIssue(
+                    PerformanceIssue.IssueType.EXCESSIVE_VARIABLES,
+                    PerformanceIssue.Severity.MEDIUM,
+                    script.getFilePath(),
+                    1,
+                    String.format("Excessive variable access: %d occurrences", script.getTotalVariableAccess()),
+                    "High variable usage can impact performance. Consider reducing variable operations or using local variables.",
+                    null
+                ));
+            }
+        }
+        return issues;
+    }
+    
+    /**
+     * Analyzes call sites inside loops, flagging functions whose cost is multiplied by the loop
+     */
+    private static List<PerformanceIssue> analyzeFunctionCalls(RuleContext rule) {
+        ProfilerSettings settings = rule.getSettings();
+        double slowThreshold = settings.getDouble("thresholds.slow-execution", 50.0);
+        double verySlowThreshold = settings.getDouble("thresholds.very-slow-execution", 200.0);
+        int loopThreshold = settings.getInt("thresholds.loop-iterations", 1000);
+        
+        List<PerformanceIssue> issues = new ArrayList<>();
+        for (CallEdge edge : rule.getCallGraph().getEdges()) {
+            if (edge.getSite().getLoopDepth() == 0 || edge.getTriggerExecutions() == 0) {
+                continue;
+            }
+            
+            double costPerTrigger = edge.getCostPerTriggerMs();
+            PerformanceIssue.Severity severity;
+            if (costPerTrigger >= verySlowThreshold) {
+                severity = PerformanceIssue.Severity.HIGH;
+            } else if (costPerTrigger >= slowThreshold) {
+                severity = PerformanceIssue.Severity.MEDIUM;
+            } else if (edge.getCallsPerTrigger() >= loopThreshold) {
+                severity = PerformanceIssue.Severity.LOW;
+            } else {
+                continue;
+            }
+            
+            issues.add(new PerformanceIssue(
+                PerformanceIssue.IssueType.FUNCTION_IN_LOOP,
+                severity,
+                edge.getSite().getScriptFile(),
+                edge.getSite().getLineNumber(),
+                String.format("%s() called ~%.1f times per run of '%s' (%.3fms each, %.2fms per run)",
+                    edge.getSite().getFunctionName(), edge.getCallsPerTrigger(), edge.getSite().getTriggerName(),
+                    edge.getCalleeAverageMs(), costPerTrigger),
+                "Each loop iteration pays the full function cost. Hoist loop-invariant work out of the function, or pass the whole list and loop inside it once.",
+                null
+            ));
+        }
+        return issues;
+    }
+    
+    /**
+     * Analyzes per-entry loop iterations, flagging large loops and loops that scale with players or entities
+     */
+    private static List<PerformanceIssue> analyzeLoops(RuleContext rule) {
+        int loopThreshold = rule.getSettings().getInt("thresholds.loop-iterations", 1000);
+        double scalingCorrelation = rule.getSettings().getDouble("thresholds.loop-scaling-correlation", 0.7);
+        
+        List<PerformanceIssue> issues = new ArrayList<>();
+        for (LoopProfileData data : rule.getSnapshot().getLoopData()) {
+            boolean playerScaling = data.scalesWithPlayers(scalingCorrelation);
+            boolean entityScaling = data.scalesWithEntities(scalingCorrelation);
+            
+            if (playerScaling || entityScaling) {
+                String population = playerScaling ? "online players" : "loaded entities";
+                issues.add(new PerformanceIssue(
+                    PerformanceIssue.IssueType.INEFFICIENT_LOOP,
+                    PerformanceIssue.Severity.HIGH,
+                    data.getScriptFile(),
+                    data.getLineNumber(),
+                    String.format("Loop iterations scale with %s: %.1f avg, %d max per entry (%.3fms per iteration)",
+                        population, data.getAverageIterations(), data.getMaxIterations(), data.getAverageIterationTimeMs()),
+                    "This loop grows with the server population. Run from a per-player event it becomes O(n²). Loop only the relevant subset (e.g. players in radius) or cache the result.",
+                    null
+                ));
+            } else if (data.getAverageIterations() > loopThreshold) {
+                issues.add(new PerformanceIssue(
+                    PerformanceIssue.IssueType.INEFFICIENT_LOOP,
+                    PerformanceIssue.Severity.MEDIUM,
+                    data.getScriptFile(),
+                    data.getLineNumber(),
+                    String.format("Loop with high iteration count: %.1f avg, %d max per entry (%.3fms per iteration)",
+                        data.getAverageIterations(), data.getMaxIterations(), data.getAverageIterationTimeMs()),
+                    "Consider using list operations, filtering, or limiting the loop size. Review if all iterations are necessary.",
+                    null
+                ));
+            }
+        }
+        return issues;
+    }
+    
+    /**
+     * Analyzes wait lines that took part in resume storms
+     */
+    private static List<PerformanceIssue> analyzeResumeStorms(RuleContext rule) {
+        int stormThreshold = rule.getSettings().getInt("thresholds.resume-storm", 200);
+        List<ResumeStorm> resumeStorms = rule.getSnapshot().getResumeStorms();
+        List<PerformanceIssue> issues = new ArrayList<>();
+        if (resumeStorms.isEmpty()) {
+            return issues;
+        }
+        
+        Map<String, Integer> stormAppearances = new HashMap<>();
+        for (ResumeStorm storm : resumeStorms) {
+            for (String location : storm.getContributors().keySet()) {
+                stormAppearances.merge(location, 1, Integer::sum);
+            }
+        }
+        
+        for (WaitProfileData data : rule.getSnapshot().getWaitData()) {
+            Integer appearances = stormAppearances.get(data.getLocationString());
+            if (appearances == null) {
+                continue;
+            }
+            
+            issues.add(new PerformanceIssue(
+                PerformanceIssue.IssueType.RESUME_STORM,
+                data.getMaxResumesInTick() >= stormThreshold ? PerformanceIssue.Severity.HIGH : PerformanceIssue.Severity.MEDIUM,
+                data.getScriptFile(),
+                data.getLineNumber(),
+                String.format("Wait contributed to %d resume storm(s), up to %d resumes in one tick (peak %d suspended)",
+                    appearances, data.getMaxResumesInTick(), data.getPeakSuspended()),
+                "Many triggers wake up in the same tick. Add jitter to the wait (e.g. a random number of ticks) or process the work in a single periodic batch.",
+                null
+            ));
+        }
+        return issues;
+    }
+    
+    /**
+     * Analyzes runtime variable access for list variables with very many distinct keys
+     */
+    private static List<PerformanceIssue> analyzeVariableAccess(RuleContext rule) {
+        long distinctKeyThreshold = rule.getSettings().getLong("thresholds.variable-distinct-keys", 10000);
+        
+        List<PerformanceIssue> issues = new ArrayList<>();
+        for (VariableAccessData data : rule.getSnapshot().getVariableData()) {
+            long distinctKeys = data.getEstimatedDistinctKeys();
+            if (distinctKeys < distinctKeyThreshold) {
+                continue;
+            }
+            
+            issues.add(new PerformanceIssue(
+                PerformanceIssue.IssueType.EXCESSIVE_VARIABLES,
+                distinctKeys >= distinctKeyThreshold * 10 ? PerformanceIssue.Severity.HIGH : PerformanceIssue.Severity.MEDIUM,
+                data.getScriptFile(),
+                data.getLineNumber(),
+                String.format("Variable %s has ~%d distinct keys (%d reads, %d writes)",
+                    data.getPattern(), distinctKeys, data.getReadCount(), data.getWriteCount()),
+                "Large list variables slow down Skript's variable storage. Consider clearing stale entries, using metadata or in-memory variables, or a database.",
+                null
+            ));
+        }
+        return issues;
+    }
+}
@@ -0,0 +1,559 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.model.AttributionData;
+import com.macmoment.skriptprofiler.model.LoopProfileData;
+import com.macmoment.skriptprofiler.model.PerformanceIssue;
+import com.macmoment.skriptprofiler.model.ProfileData;
+import com.macmoment.skriptprofiler.model.ProfileSnapshot;
+import com.macmoment.skriptprofiler.model.ThreadClass;
+import com.macmoment.skriptprofiler.model.ThreadUsage;
+import com.macmoment.skriptprofiler.model.VariableAccessData;
+import com.macmoment.skriptprofiler.model.WaitProfileData;
+import com.macmoment.skriptprofiler.util.JsonStrings;
+import com.macmoment.skriptprofiler.util.LogHistogram;
+import com.macmoment.skriptprofiler.util.SpaceSaving;
+import com.macmoment.skriptprofiler.util.TickHistogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Streams profiling data as JSON or CSV for external analytics. Values are written field by field
+ * straight to the writer; numbers are formatted into a reused buffer, so an export allocates next
+ * to nothing per element. Times are exported in raw nanoseconds.
+ */
+public class DataExporter {
+    
+    private static final String ELEMENT_COLUMNS = "id,script,line,type,name,executions,totalNanos,mainThreadNanos,"
+        + "minNanos,maxNanos,avgNanos,mainThreadShare,estimated,sampledExecutions,countConfidence,"
+        + "totalTimeConfidenceNanos";
+    private static final String LOOP_COLUMNS = "script,line,loop,entries,iterations,maxIterations,bodyNanos,"
+        + "iterationsP50,iterationsP95,iterationsP99,playerCorrelation,entityCorrelation";
+    private static final String WAIT_COLUMNS = "script,line,suspensions,resumes,suspendedNow,peakSuspended,"
+        + "parkedNanos,maxParkedNanos,parkedMsP50,parkedMsP95,parkedMsP99,maxResumesInTick";
+    private static final String VARIABLE_COLUMNS = "script,line,pattern,reads,writes,distinctKeys";
+    private static final String ISSUE_COLUMNS = "script,line,severity,type,title,description,suggestion";
+    
+    private final Writer writer;
+    private final char[] digits;
+    // Output is collected here and handed to the writer in blocks, not one call per field
+    private final char[] buffer;
+    private int position;
+    
+    public DataExporter(Writer writer) {
+        this.writer = writer;
+        this.digits = new char[20];
+        this.buffer = new char[8192];
+    }
+    
+    /**
+     * Writes the whole session and its issues as one JSON document, one element per line
+     */
+    public void writeJson(ProfileSnapshot snapshot, List<PerformanceIssue> issues) throws IOException {
+        ThreadUsage threadUsage = snapshot.getThreadUsage();
+        LogHistogram concurrency = threadUsage.getAsyncConcurrency();
+        
+        append("{\"source\":");
+        writeJsonString(snapshot.getSource());
+        append(",\"nodes\":");
+        writeLong(snapshot.getNodeCount());
+        append(",\"durationMs\":");
+        writeLong(snapshot.getDurationMs());
+        append(",\"trackedTicks\":");
+        writeLong(snapshot.getTrackedTicks());
+        append(",\"tps\":");
+        writeDecimal(snapshot.getTps(), 2, "null");
+        TickHistogram ticks = snapshot.getTickHistogram();
+        append(",\"ticks\":{\"count\":");
+        writeLong(ticks.getTickCount());
+        append(",\"totalNanos\":");
+        writeLong(ticks.getTotalNanos());
+        append(",\"p50\":");
+        writeLong(ticks.getPercentileNanos(50));
+        append(",\"p95\":");
+        writeLong(ticks.getPercentileNanos(95));
+        append(",\"p99\":");
+        writeLong(ticks.getPercentileNanos(99));
+        append(",\"max\":");
+        writeLong(ticks.getMaxNanos());
+        append('}');
+        append(",\"threads\":{");
+        ThreadClass[] threadClasses = ThreadClass.values();
+        for (int i = 0; i < threadClasses.length; i++) {
+            if (i > 0) append(',');
+            writeJsonString(threadClasses[i].name());
+            append(":{\"executions\":");
+            writeLong(threadUsage.getExecutionCount(threadClasses[i]));
+            append(",\"nanos\":");
+            writeLong(threadUsage.getExecutionTimeNanos(threadClasses[i]));
+            append('}');
+        }
+        append("},\"asyncConcurrency\":{\"peak\":");
+        writeLong(threadUsage.getPeakAsync());
+        append(',');
+        writePercentileValues(concurrency);
+        append('}');
+        
+        append(",\n\"elements\":[");
+        boolean first = true;
+        for (ProfileData data : snapshot.getProfileData().values()) {
+            append(first ? "\n" : ",\n");
+            first = false;
+            writeElementJson(data);
+        }
+        
+        append("],\n\"loops\":[");
+        first = true;
+        for (LoopProfileData data : snapshot.getLoopData()) {
+            append(first ? "\n" : ",\n");
+            first = false;
+            append('{');
+            writeLocationJson(data.getScriptFile(), data.getLineNumber());
+            append(",\"loop\":");
+            writeJsonString(data.getLoopExpression());
+            append(",\"entries\":");
+            writeLong(data.getEntryCount());
+            append(",\"iterations\":");
+            writeLong(data.getTotalIterations());
+            append(",\"maxIterations\":");
+            writeLong(data.getMaxIterations());
+            append(",\"bodyNanos\":");
+            writeLong(data.getTotalBodyTimeNanos());
+            append(",\"iterationPercentiles\":{");
+            writePercentileValues(data.getIterationHistogram());
+            append("},\"playerCorrelation\":");
+            writeDecimal(data.getPlayerCorrelation(), 4, "null");
+            append(",\"entityCorrelation\":");
+            writeDecimal(data.getEntityCorrelation(), 4, "null");
+            append('}');
+        }
+        
+        append("],\n\"waits\":[");
+        first = true;
+        for (WaitProfileData data : snapshot.getWaitData()) {
+            append(first ? "\n" : ",\n");
+            first = false;
+            append('{');
+            writeLocationJson(data.getScriptFile(), data.getLineNumber());
+            append(",\"suspensions\":");
+            writeLong(data.getTotalSuspensions());
+            append(",\"resumes\":");
+            writeLong(data.getTotalResumes());
+            append(",\"suspendedNow\":");
+            writeLong(data.getCurrentlySuspended());
+            append(",\"peakSuspended\":");
+            writeLong(data.getPeakSuspended());
+            append(",\"parkedNanos\":");
+            writeLong(data.getTotalParkedTimeNanos());
+            append(",\"maxParkedNanos\":");
+            writeLong(data.getMaxParkedTimeNanos());
+            append(",\"parkedMsPercentiles\":{");
+            writePercentileValues(data.getParkedMillisHistogram());
+            append("},\"maxResumesInTick\":");
+            writeLong(data.getMaxResumesInTick());
+            append('}');
+        }
+        
+        append("],\n\"variables\":[");
+        first = true;
+        for (VariableAccessData data : snapshot.getVariableData()) {
+            append(first ? "\n" : ",\n");
+            first = false;
+            append('{');
+            writeLocationJson(data.getScriptFile(), data.getLineNumber());
+            append(",\"pattern\":");
+            writeJsonString(data.getPattern());
+            append(",\"reads\":");
+            writeLong(data.getReadCount());
+            append(",\"writes\":");
+            writeLong(data.getWriteCount());
+            append(",\"distinctKeys\":");
+            writeLong(data.getEstimatedDistinctKeys());
+            append('}');
+        }
+        
+        append("],\n\"issues\":[");
+        first = true;
+        for (PerformanceIssue issue : issues) {
+            append(first ? "\n" : ",\n");
+            first = false;
+            append('{');
+            writeLocationJson(issue.getScriptFile(), issue.getLineNumber());
+            append(",\"severity\":");
+            writeJsonString(issue.getSeverity().name());
+            append(",\"type\":");
+            writeJsonString(issue.getType().name());
+            append(",\"title\":");
+            writeJsonString(issue.getTitle());
+            append(",\"description\":");
+            writeJsonString(issue.getDescription());
+            append(",\"suggestion\":");
+            writeJsonString(issue.getSuggestion());
+            if (issue.getRelatedData() != null) {
+                append(",\"elementId\":");
+                writeLong(issue.getRelatedData().getId());
+            }
+            append('}');
+        }
+        append("]}\n");
+        flush();
+    }
+    
+    private void writeElementJson(ProfileData data) throws IOException {
+        long count = data.getExecutionCount();
+        append("{\"id\":");
+        writeLong(data.getId());
+        append(',');
+        writeLocationJson(data.getScriptFile(), data.getLineNumber());
+        append(",\"type\":");
+        writeJsonString(data.getElementType());
+        append(",\"name\":");
+        writeJsonString(data.getElementName());
+        append(",\"executions\":");
+        writeLong(count);
+        append(",\"totalNanos\":");
+        writeLong(data.getTotalExecutionTimeNanos());
+        append(",\"mainThreadNanos\":");
+        writeLong(data.getMainThreadExecutionTimeNanos());
+        append(",\"minNanos\":");
+        writeLong(data.getMinExecutionTimeNanos());
+        append(",\"maxNanos\":");
+        writeLong(data.getMaxExecutionTimeNanos());
+        append(",\"avgNanos\":");
+        writeLong(count == 0 ? 0 : data.getTotalExecutionTimeNanos() / count);
+        append(",\"mainThreadShare\":");
+        writeDecimal(data.getMainThreadShare(), 4, "null");
+        if (data.isEstimated()) {
+            append(",\"estimated\":true,\"sampledExecutions\":");
+            writeLong(data.getSampledExecutions());
+            append(",\"countConfidence\":");
+            writeLong(Math.round(data.getCountConfidence()));
+            append(",\"totalTimeConfidenceNanos\":");
+            writeLong(Math.round(data.getTotalTimeConfidenceMs() * 1_000_000));
+        }
+        
+        AttributionData attribution = data.getAttribution();
+        if (attribution != null) {
+            append(",\"attribution\":{\"players\":");
+            writeContributorsJson(attribution.getPlayers(), UUID::toString);
+            append(",\"worlds\":");
+            writeContributorsJson(attribution.getWorlds(), Function.identity());
+            append(",\"chunks\":");
+            writeContributorsJson(attribution.getChunks(), AttributionData::getChunkName);
+            append('}');
+        }
+        append('}');
+    }
+    
+    /**
+     * Writes a top-K sketch as [{"key","nanos","error"}], heaviest first
+     */
+    private <K> void writeContributorsJson(SpaceSaving<K> sketch, Function<K, String> names) throws IOException {
+        append('[');
+        List<SpaceSaving.Entry<K>> entries = sketch.getTop(sketch.getCapacity());
+        for (int i = 0; i < entries.size(); i++) {
+            SpaceSaving.Entry<K> entry = entries.get(i);
+            if (i > 0) append(',');
+            append("{\"key\":");
+            writeJsonString(names.apply(entry.getKey()));
+            append(",\"nanos\":");
+            writeLong(entry.getCount());
+            append(",\"error\":");
+            writeLong(entry.getError());
+            append('}');
+        }
+        append(']');
+    }
+    
+    private void writeLocationJson(String scriptFile, int lineNumber) throws IOException {
+        append("\"script\":");
+        writeJsonString(scriptFile);
+        append(",\"line\":");
+        writeLong(lineNumber);
+    }
+    
+    /**
+     * Writes "p50","p95","p99" as the upper bound of the bucket holding each percentile
+     */
+    private void writePercentileValues(LogHistogram histogram) throws IOException {
+        append("\"p50\":");
+        writeLong(histogram.getPercentile(50));
+        append(",\"p95\":");
+        writeLong(histogram.getPercentile(95));
+        append(",\"p99\":");
+        writeLong(histogram.getPercentile(99));
+    }
+    
+    /**
+     * Writes one CSV row per element
+     */
+    public void writeElementsCsv(Collection<ProfileData> profileData) throws IOException {
+        append(ELEMENT_COLUMNS);
+        append('\n');
+        for (ProfileData data : profileData) {
+            long count = data.getExecutionCount();
+            writeLong(data.getId());
+            append(',');
+            writeCsvString(data.getScriptFile());
+            append(',');
+            writeLong(data.getLineNumber());
+            append(',');
+            writeCsvString(data.getElementType());
+            append(',');
+            writeCsvString(data.getElementName());
+            append(',');
+            writeLong(count);
+            append(',');
+            writeLong(data.getTotalExecutionTimeNanos());
+            append(',');
+            writeLong(data.getMainThreadExecutionTimeNanos());
+            append(',');
+            writeLong(data.getMinExecutionTimeNanos());
+            append(',');
+            writeLong(data.getMaxExecutionTimeNanos());
+            append(',');
+            writeLong(count == 0 ? 0 : data.getTotalExecutionTimeNanos() / count);
+            append(',');
+            writeDecimal(data.getMainThreadShare(), 4, "");
+            append(data.isEstimated() ? ",true," : ",false,");
+            writeLong(data.getSampledExecutions());
+            append(',');
+            writeLong(Math.round(data.getCountConfidence()));
+            append(',');
+            writeLong(Math.round(data.getTotalTimeConfidenceMs() * 1_000_000));
+            append('\n');
+        }
+        flush();
+    }
+    
+    public void writeLoopsCsv(Collection<LoopProfileData> loopData) throws IOException {
+        append(LOOP_COLUMNS);
+        append('\n');
+        for (LoopProfileData data : loopData) {
+            writeLocationCsv(data.getScriptFile(), data.getLineNumber());
+            writeCsvString(data.getLoopExpression());
+            append(',');
+            writeLong(data.getEntryCount());
+            append(',');
+            writeLong(data.getTotalIterations());
+            append(',');
+            writeLong(data.getMaxIterations());
+            append(',');
+            writeLong(data.getTotalBodyTimeNanos());
+            append(',');
+            writePercentilesCsv(data.getIterationHistogram());
+            writeDecimal(data.getPlayerCorrelation(), 4, "");
+            append(',');
+            writeDecimal(data.getEntityCorrelation(), 4, "");
+            append('\n');
+        }
+        flush();
+    }
+    
+    public void writeWaitsCsv(Collection<WaitProfileData> waitData) throws IOException {
+        append(WAIT_COLUMNS);
+        append('\n');
+        for (WaitProfileData data : waitData) {
+            writeLocationCsv(data.getScriptFile(), data.getLineNumber());
+            writeLong(data.getTotalSuspensions());
+            append(',');
+            writeLong(data.getTotalResumes());
+            append(',');
+            writeLong(data.getCurrentlySuspended());
+            append(',');
+            writeLong(data.getPeakSuspended());
+            append(',');
+            writeLong(data.getTotalParkedTimeNanos());
+            append(',');
+            writeLong(data.getMaxParkedTimeNanos());
+            append(',');
+            writePercentilesCsv(data.getParkedMillisHistogram());
+            writeLong(data.getMaxResumesInTick());
+            append('\n');
+        }
+        flush();
+    }
+    
+    public void writeVariablesCsv(Collection<VariableAccessData> variableData) throws IOException {
+        append(VARIABLE_COLUMNS);
+        append('\n');
+        for (VariableAccessData data : variableData) {
+            writeLocationCsv(data.getScriptFile(), data.getLineNumber());
+            writeCsvString(data.getPattern());
+            append(',');
+            writeLong(data.getReadCount());
+            append(',');
+            writeLong(data.getWriteCount());
+            append(',');
+            writeLong(data.getEstimatedDistinctKeys());
+            append('\n');
+        }
+        flush();
+    }
+    
+    public void writeIssuesCsv(Collection<PerformanceIssue> issues) throws IOException {
+        append(ISSUE_COLUMNS);
+        append('\n');
+        for (PerformanceIssue issue : issues) {
+            writeLocationCsv(issue.getScriptFile(), issue.getLineNumber());
+            append(issue.getSeverity().name());
+            append(',');
+            append(issue.getType().name());
+            append(',');
+            writeCsvString(issue.getTitle());
+            append(',');
+            writeCsvString(issue.getDescription());
+            append(',');
+            writeCsvString(issue.getSuggestion());
+            append('\n');
+        }
+        flush();
+    }
+    
+    private void writeLocationCsv(String scriptFile, int lineNumber) throws IOException {
+        writeCsvString(scriptFile);
+        append(',');
+        writeLong(lineNumber);
+        append(',');
+    }
+    
+    private void writePercentilesCsv(LogHistogram histogram) throws IOException {
+        writeLong(histogram.getPercentile(50));
+        append(',');
+        writeLong(histogram.getPercentile(95));
+        append(',');
+        writeLong(histogram.getPercentile(99));
+        append(',');
+    }
+    
+    /**
+     * Writes a JSON string literal; the buffer is drained first so the value's runs go straight to the writer
+     */
+    private void writeJsonString(String value) throws IOException {
+        drain();
+        JsonStrings.write(writer, value);
+    }
+    
+    /**
+     * Writes a CSV field, quoted only when it contains a separator, quote or line break
+     */
+    private void writeCsvString(String value) throws IOException {
+        if (value == null) return;
+        
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            append(value);
+            return;
+        }
+        
+        append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                append(value, start, i + 1 - start);
+                start = i;
+            }
+        }
+        append(value, start, value.length() - start);
+        append('"');
+    }
+    
+    private void append(char c) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = c;
+    }
+    
+    private void append(String value) throws IOException {
+        append(value, 0, value.length());
+    }
+    
+    private void append(String value, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int chunk = Math.min(length, buffer.length - position);
+            value.getChars(offset, offset + chunk, buffer, position);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+    
+    private void append(char[] chars, int offset, int length) throws IOException {
+        if (length > buffer.length - position) {
+            drain();
+        }
+        System.arraycopy(chars, offset, buffer, position, length);
+        position += length;
+    }
+    
+    private void drain() throws IOException {
+        writer.write(buffer, 0, position);
+        position = 0;
+    }
+    
+    private void flush() throws IOException {
+        drain();
+        writer.flush();
+    }
+    
+    /**
+     * Writes a long in decimal without creating a string
+     */
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        boolean negative = value < 0;
+        long remaining = negative ? -value : value;
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (negative) {
+            digits[--position] = '-';
+        }
+        append(digits, position, digits.length - position);
+    }
+    
+    /**
+     * Writes a double with a fixed number of decimals (at most 9), without creating a string.
+     * Values that are not finite, such as undefined correlations, are written as the given
+     * placeholder: null in JSON, an empty cell in CSV.
+     */
+    private void writeDecimal(double value, int decimals, String undefined) throws IOException {
+        if (!Double.isFinite(value)) {
+            append(undefined);
+            return;
+        }
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            append('-');
+        }
+        writeLong(scaled / scale);
+        if (decimals == 0) return;
+        
+        append('.');
+        long fraction = scaled % scale;
+        for (long divisor = scale / 10; divisor > 0; divisor /= 10) {
+            append((char) ('0' + fraction / divisor % 10));
+        }
+    }
+}
@@ -1,28 +1,86 @@
 package com.macmoment.skriptprofiler.profiler;
 
-import com.macmoment.skriptprofiler.SkriptProfilerPlugin;
+import com.macmoment.skriptprofiler.ProfilerContext;
+import com.macmoment.skriptprofiler.jfr.ScriptExecutionEvent;
+import com.macmoment.skriptprofiler.model.LoopProfileData;
+import com.macmoment.skriptprofiler.model.OffHeapCounterStore;
 import com.macmoment.skriptprofiler.model.ProfileData;
+import com.macmoment.skriptprofiler.model.ResumeStorm;
+import com.macmoment.skriptprofiler.model.ThreadClass;
+import com.macmoment.skriptprofiler.model.ThreadUsage;
+import com.macmoment.skriptprofiler.model.VariableAccessData;
+import com.macmoment.skriptprofiler.model.WaitProfileData;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tracks execution time and frequency of Skript elements
  */
 public class ExecutionTracker {
     
-    private final SkriptProfilerPlugin plugin;
+    // Pending weight of an execution timed only for the flight recorder, outside a session
+    private static final int RECORDER_ONLY = -1;
+    
+    private final ProfilerContext context;
     private final Map<String, ProfileData> profileDataMap;
-    private final ThreadLocal<Long> executionStartTime;
+    private final AtomicInteger nextElementId;
+    // Holds the counters of new elements when off-heap counters are enabled, null otherwise
+    private volatile OffHeapCounterStore counterStore;
+    private final Map<String, LoopProfileData> loopDataMap;
+    // Per thread: start nanos and sampling weight of the pending execution, weight 0 when none is pending
+    // and RECORDER_ONLY when timed for the flight recorder alone
+    private final ThreadLocal<long[]> pendingExecution;
+    private final Map<String, Integer> samplingRates;
+    private final ThreadLocal<ThreadClass> threadClass;
+    private final Thread mainThread;
+    private final ThreadUsage threadUsage;
+    private final FlightRecorder flightRecorder;
+    private final VariableTracker variableTracker;
+    private final WaitTracker waitTracker;
+    private final AlertEngine alertEngine;
     private volatile boolean isTracking;
+    private volatile boolean trackVariables;
+    private volatile boolean trackAttribution;
+    private volatile int attributionCapacity;
+    private volatile boolean trackHistory;
+    private volatile int historyBlockPoints;
+    private long historySecond;
+    private volatile int sampleRate;
+    private volatile List<String[]> elementSampleRates;
+    private volatile int onlinePlayers;
+    private volatile int loadedEntities;
+    private volatile long serverTick;
+    private volatile long trackingStartTick;
+    private volatile long trackingEndTick;
+    private long lastTickNanos;
     private long trackingStartTime;
     private long trackingEndTime;
     
-    public ExecutionTracker(SkriptProfilerPlugin plugin) {
-        this.plugin = plugin;
+    public ExecutionTracker(ProfilerContext context) {
+        this.context = context;
         this.profileDataMap = new ConcurrentHashMap<>();
-        this.executionStartTime = new ThreadLocal<>();
+        this.nextElementId = new AtomicInteger(0);
+        this.loopDataMap = new ConcurrentHashMap<>();
+        this.pendingExecution = ThreadLocal.withInitial(() -> new long[2]);
+        this.samplingRates = new ConcurrentHashMap<>();
+        this.sampleRate = 1;
+        this.elementSampleRates = List.of();
+        this.threadClass = ThreadLocal.withInitial(this::classifyCurrentThread);
+        // The tracker is created during plugin enable, which runs on the server thread
+        this.mainThread = Thread.currentThread();
+        this.threadUsage = new ThreadUsage();
+        this.flightRecorder = new FlightRecorder(context);
+        this.variableTracker = new VariableTracker(context);
+        this.waitTracker = new WaitTracker(context);
+        this.alertEngine = new AlertEngine(context);
         this.isTracking = false;
     }
     
@@ -31,9 +89,30 @@ public class ExecutionTracker {
      */
     public void startTracking() {
         if (!isTracking) {
+            trackVariables = context.getSettings().getBoolean("advanced.track-variables", true);
+            trackAttribution = context.getSettings().getBoolean("advanced.track-attribution", false);
+            attributionCapacity = Math.max(1, context.getSettings().getInt("advanced.attribution-top-k", 10));
+            trackHistory = context.getSettings().getBoolean("advanced.track-history", false);
+            historyBlockPoints = Math.max(2, context.getSettings().getInt("advanced.history-block-points", 600));
+            historySecond = 0;
+            if (context.getSettings().getBoolean("advanced.off-heap-counters", false)) {
+                if (counterStore == null) {
+                    counterStore = new OffHeapCounterStore();
+                }
+            } else {
+                counterStore = null;
+            }
+            loadSamplingSettings();
+            variableTracker.loadSettings();
+            waitTracker.loadSettings();
+            flightRecorder.loadSettings();
+            alertEngine.loadSettings();
+            alertEngine.start();
+            trackingStartTick = serverTick;
+            lastTickNanos = 0;
             isTracking = true;
             trackingStartTime = System.currentTimeMillis();
-            plugin.getLogger().info("Execution tracking started");
+            context.getLogger().info("Execution tracking started");
         }
     }
     
@@ -43,37 +122,147 @@ public class ExecutionTracker {
     public void stopTracking() {
         if (isTracking) {
             isTracking = false;
+            trackingEndTick = serverTick;
+            alertEngine.stop();
             trackingEndTime = System.currentTimeMillis();
-            plugin.getLogger().info("Execution tracking stopped");
+            context.getLogger().info("Execution tracking stopped");
         }
     }
     
     /**
-     * Records the start of an execution
+     * Records the start of an execution. The identifier selects the element's sampling rate;
+     * executions left out by sampling cost one random draw and are not timed.
      */
     public void recordExecutionStart(String identifier) {
-        if (!isTracking) return;
-        executionStartTime.set(System.nanoTime());
+        if (!isTracking) {
+            // Outside a session only the flight recorder times executions
+            if (flightRecorder.isEnabled()) {
+                long[] pending = pendingExecution.get();
+                pending[1] = RECORDER_ONLY;
+                pending[0] = System.nanoTime();
+            }
+            return;
+        }
+        
+        long[] pending = pendingExecution.get();
+        int rate = getSamplingRate(identifier);
+        if (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) {
+            // A skipped start still replaces an unmatched one
+            if (pending[1] > 0 && getCurrentThreadClass() == ThreadClass.ASYNC) {
+                threadUsage.asyncFinished();
+            }
+            pending[1] = 0;
+            if (ScriptExecutionEvent.isRecording()) {
+                ScriptExecutionEvent.discard();
+            }
+            return;
+        }
+        
+        // A start without a matching end must not be counted twice
+        if (pending[1] <= 0 && getCurrentThreadClass() == ThreadClass.ASYNC) {
+            threadUsage.asyncStarted();
+        }
+        pending[1] = rate;
+        if (ScriptExecutionEvent.isRecording()) {
+            ScriptExecutionEvent.start();
+        }
+        pending[0] = System.nanoTime();
+    }
+    
+    /**
+     * Gets the 1-in-N sampling rate for an element: the first configured element rate whose
+     * fragment the identifier contains, else the global rate. Lookups are cached per identifier.
+     */
+    private int getSamplingRate(String identifier) {
+        List<String[]> elementRates = elementSampleRates;
+        if (elementRates.isEmpty() || identifier == null) {
+            return sampleRate;
+        }
+        
+        Integer cached = samplingRates.get(identifier);
+        if (cached != null) {
+            return cached;
+        }
+        int rate = sampleRate;
+        for (String[] elementRate : elementRates) {
+            if (identifier.contains(elementRate[0])) {
+                rate = Integer.parseInt(elementRate[1]);
+                break;
+            }
+        }
+        // Identifiers come from a fixed set of script elements; the cap guards against misuse
+        if (samplingRates.size() < 10_000) {
+            samplingRates.put(identifier, rate);
+        }
+        return rate;
+    }
+    
+    private void loadSamplingSettings() {
+        sampleRate = Math.max(1, context.getSettings().getInt("sampling.rate", 1));
+        List<String[]> elementRates = new ArrayList<>();
+        for (String entry : context.getSettings().getStringList("sampling.element-rates")) {
+            int equals = entry.lastIndexOf('=');
+            try {
+                int rate = Math.max(1, Integer.parseInt(entry.substring(equals + 1).trim()));
+                elementRates.add(new String[] {entry.substring(0, equals).trim(), String.valueOf(rate)});
+            } catch (RuntimeException e) {
+                context.getLogger().warning("Ignoring sampling rate '" + entry + "', expected <fragment>=<N>");
+            }
+        }
+        elementSampleRates = elementRates;
+        samplingRates.clear();
     }
     
     /**
      * Records the end of an execution and calculates duration
      */
     public void recordExecutionEnd(String scriptFile, int lineNumber, String elementType, String elementName) {
-        if (!isTracking) return;
-        
-        Long startTime = executionStartTime.get();
-        if (startTime == null) return;
-        
-        long endTime = System.nanoTime();
-        long executionTime = endTime - startTime;
+        recordExecutionEnd(scriptFile, lineNumber, elementType, elementName, null, null, 0, 0);
+    }
+    
+    /**
+     * Records the end of an execution and attributes its duration to a player, world and chunk.
+     * A null player or world skips that dimension; the chunk is only used together with a world.
+     */
+    public void recordExecutionEnd(String scriptFile, int lineNumber, String elementType, String elementName,
+                                   UUID playerId, String worldName, int chunkX, int chunkZ) {
+        long[] pending = pendingExecution.get();
+        int weight = (int) pending[1];
+        if (weight == 0) return;
         
+        long startTime = pending[0];
+        long executionTime = System.nanoTime() - startTime;
         String key = scriptFile + ":" + lineNumber + ":" + elementType;
-        ProfileData data = profileDataMap.computeIfAbsent(key, 
-            k -> new ProfileData(scriptFile, lineNumber, elementType, elementName));
+        flightRecorder.record(key, scriptFile, lineNumber, elementType, elementName, startTime, executionTime,
+            serverTick);
+        if (weight == RECORDER_ONLY || !isTracking) {
+            // Started outside a session, or the session ended in between
+            pending[1] = 0;
+            return;
+        }
         
-        data.recordExecution(executionTime);
-        executionStartTime.remove();
+        // Ended first so the JFR event covers the execution rather than the bookkeeping after it
+        ThreadClass currentThreadClass = getCurrentThreadClass();
+        if (ScriptExecutionEvent.isRecording()) {
+            ScriptExecutionEvent.emit(scriptFile, lineNumber, elementType, elementName, executionTime,
+                currentThreadClass.getDisplayName());
+        }
+        
+        ProfileData data = createOrGetProfileData(key, scriptFile, lineNumber, elementType, elementName);
+        data.recordSampledExecution(executionTime, currentThreadClass, weight);
+        alertEngine.record(data, executionTime, weight);
+        if (weight == 1) {
+            threadUsage.recordExecution(currentThreadClass, executionTime);
+        } else {
+            threadUsage.addAggregate(currentThreadClass, weight, executionTime * weight);
+        }
+        if (currentThreadClass == ThreadClass.ASYNC) {
+            threadUsage.asyncFinished();
+        }
+        if (trackAttribution && (playerId != null || worldName != null)) {
+            data.recordAttribution(executionTime * weight, playerId, worldName, chunkX, chunkZ, attributionCapacity);
+        }
+        pending[1] = 0;
     }
     
     /**
@@ -81,9 +270,17 @@ public class ExecutionTracker {
      * This is used since we can't directly hook into Skript's execution
      */
     public ProfileData createOrGetProfileData(String scriptFile, int lineNumber, String elementType, String elementName) {
-        String key = scriptFile + ":" + lineNumber + ":" + elementType;
-        return profileDataMap.computeIfAbsent(key, 
-            k -> new ProfileData(scriptFile, lineNumber, elementType, elementName));
+        return createOrGetProfileData(scriptFile + ":" + lineNumber + ":" + elementType, scriptFile, lineNumber,
+            elementType, elementName);
+    }
+    
+    private ProfileData createOrGetProfileData(String key, String scriptFile, int lineNumber, String elementType,
+                                               String elementName) {
+        return profileDataMap.computeIfAbsent(key, k -> {
+            ProfileData data = new ProfileData(nextElementId.getAndIncrement(), scriptFile, lineNumber,
+                elementType, elementName, counterStore);
+            return data;
+        });
     }
     
     /**
@@ -95,6 +292,143 @@ public class ExecutionTracker {
         
         ProfileData data = createOrGetProfileData(scriptFile, lineNumber, elementType, elementName);
         data.recordExecution(executionTimeMs * 1_000_000); // Convert ms to ns
+        threadUsage.recordExecution(ThreadClass.MAIN, executionTimeMs * 1_000_000);
+    }
+    
+    /**
+     * Classifies the calling thread. The main thread is an identity check; other threads are
+     * classified once by name and cached in a thread local.
+     */
+    public ThreadClass getCurrentThreadClass() {
+        if (Thread.currentThread() == mainThread) {
+            return ThreadClass.MAIN;
+        }
+        return threadClass.get();
+    }
+    
+    private ThreadClass classifyCurrentThread() {
+        Thread thread = Thread.currentThread();
+        if (thread == mainThread) {
+            return ThreadClass.MAIN;
+        }
+        // Bukkit scheduler workers ("Craft Scheduler Thread - N") and async event threads
+        String name = thread.getName().toLowerCase();
+        if (name.contains("scheduler") || name.contains("async")) {
+            return ThreadClass.ASYNC;
+        }
+        return ThreadClass.OTHER;
+    }
+    
+    /**
+     * Records a read or write of a concrete variable name such as "stats::<uuid>::kills"
+     */
+    public void recordVariableAccess(String scriptFile, int lineNumber, String variableName, boolean write) {
+        if (!isTracking || !trackVariables) return;
+        variableTracker.recordAccess(scriptFile, lineNumber, variableName, write);
+    }
+    
+    /**
+     * Records a read or write where the source pattern (e.g. "{stats::%player%::kills}") is known
+     */
+    public void recordVariableAccess(String scriptFile, int lineNumber, String pattern, String key, boolean write) {
+        if (!isTracking || !trackVariables) return;
+        variableTracker.recordAccess(scriptFile, lineNumber, pattern, key, write);
+    }
+    
+    /**
+     * Records one complete run of a loop: how many iterations it made and the time spent in its body.
+     * Iterations are tracked per loop entry so "ran often" and "iterated a lot" stay separate metrics.
+     */
+    public void recordLoop(String scriptFile, int lineNumber, String loopExpression, long iterations, long bodyTimeNanos) {
+        if (!isTracking) return;
+        
+        String key = scriptFile + ":" + lineNumber;
+        LoopProfileData data = loopDataMap.computeIfAbsent(key,
+            k -> new LoopProfileData(scriptFile, lineNumber, loopExpression));
+        data.recordEntry(iterations, bodyTimeNanos, onlinePlayers, loadedEntities);
+    }
+    
+    /**
+     * Records a trigger being suspended at a wait statement
+     *
+     * @return a token to pass to recordWaitResume, or 0 if not tracking
+     */
+    public long recordWaitSuspend(String scriptFile, int lineNumber) {
+        if (!isTracking) return 0;
+        return waitTracker.recordSuspend(scriptFile, lineNumber);
+    }
+    
+    /**
+     * Records a suspended trigger resuming after its wait expired
+     */
+    public void recordWaitResume(String scriptFile, int lineNumber, long suspendToken) {
+        if (!isTracking || suspendToken == 0) return;
+        waitTracker.recordResume(scriptFile, lineNumber, suspendToken, serverTick);
+    }
+    
+    /**
+     * Marks a server tick boundary. Called once per tick from the main thread, outside sessions too
+     * while the flight recorder is enabled.
+     */
+    public void onServerTick() {
+        long tick = serverTick;
+        serverTick = tick + 1;
+        
+        // The interval between tick boundaries is the duration of the tick that just ended
+        long now = System.nanoTime();
+        if (lastTickNanos != 0) {
+            flightRecorder.onTickEnd(tick, now - lastTickNanos);
+        }
+        lastTickNanos = now;
+        if (!isTracking) return;
+        
+        waitTracker.onTickEnd(tick);
+        
+        if (trackHistory) {
+            // The executions since the last sample are filed under the second that just ended
+            long second = System.currentTimeMillis() / 1000;
+            if (second != historySecond) {
+                if (historySecond != 0) {
+                    for (ProfileData data : profileDataMap.values()) {
+                        data.sampleHistory(historySecond, historyBlockPoints, context::runAsync);
+                    }
+                }
+                historySecond = second;
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of server ticks seen, including ticks outside sessions while the flight recorder runs
+     */
+    public long getServerTick() {
+        return serverTick;
+    }
+    
+    /**
+     * Gets the number of server ticks since tracking started
+     */
+    public long getTrackedTicks() {
+        return (isTracking ? serverTick : trackingEndTick) - trackingStartTick;
+    }
+    
+    public AlertEngine getAlertEngine() {
+        return alertEngine;
+    }
+    
+    /**
+     * Gets execution time split by main, async and other threads
+     */
+    public ThreadUsage getThreadUsage() {
+        return threadUsage;
+    }
+    
+    /**
+     * Updates the server population snapshot used to correlate loop sizes with players and entities
+     */
+    public void updateServerPopulation(int onlinePlayers, int loadedEntities) {
+        this.onlinePlayers = onlinePlayers;
+        this.loadedEntities = loadedEntities;
     }
     
     /**
@@ -104,15 +438,131 @@ public class ExecutionTracker {
         return new HashMap<>(profileDataMap);
     }
     
+    /**
+     * Gets runtime variable access data by pattern
+     */
+    public List<VariableAccessData> getVariableData() {
+        return variableTracker.getVariableData();
+    }
+    
+    /**
+     * Gets per-loop iteration data
+     */
+    public List<LoopProfileData> getLoopData() {
+        return new ArrayList<>(loopDataMap.values());
+    }
+    
+    /**
+     * Gets per-line wait statement data
+     */
+    public List<WaitProfileData> getWaitData() {
+        return waitTracker.getWaitData();
+    }
+    
+    /**
+     * Gets the most recent resume storms
+     */
+    public List<ResumeStorm> getResumeStorms() {
+        return waitTracker.getResumeStorms();
+    }
+    
+    /**
+     * Gets the total number of resume storms this session
+     */
+    public long getResumeStormCount() {
+        return waitTracker.getTotalStormCount();
+    }
+    
+    /**
+     * Moves the data recorded for a script to the line numbers of its edited version, keeping the history of
+     * unchanged code. Entries on removed or changed lines are retired; entries landing on a line that already
+     * has data are merged into it. Must run on the main thread: an execution recorded concurrently could
+     * land in an entry after it was merged away and be lost, so only async executions finishing at that
+     * moment can still be missed.
+     *
+     * @param lineMap new line number per old line number, from {@link LineDiff#mapLines}
+     * @return number of retired entries
+     */
+    public int remapScript(String scriptFile, int[] lineMap) {
+        int retired = 0;
+        
+        List<ProfileData> movedElements = new ArrayList<>();
+        for (Iterator<ProfileData> iterator = profileDataMap.values().iterator(); iterator.hasNext(); ) {
+            ProfileData data = iterator.next();
+            if (!data.getScriptFile().equals(scriptFile)) continue;
+            
+            int lineNumber = LineDiff.mapLine(lineMap, data.getLineNumber());
+            if (lineNumber == data.getLineNumber()) continue;
+            
+            iterator.remove();
+            if (lineNumber == 0) {
+                retired++;
+            } else {
+                data.relocate(lineNumber);
+                movedElements.add(data);
+            }
+        }
+        for (ProfileData data : movedElements) {
+            String key = scriptFile + ":" + data.getLineNumber() + ":" + data.getElementType();
+            ProfileData existing = profileDataMap.putIfAbsent(key, data);
+            if (existing != null) {
+                existing.merge(data);
+            }
+        }
+        
+        List<LoopProfileData> movedLoops = new ArrayList<>();
+        for (Iterator<LoopProfileData> iterator = loopDataMap.values().iterator(); iterator.hasNext(); ) {
+            LoopProfileData data = iterator.next();
+            if (!data.getScriptFile().equals(scriptFile)) continue;
+            
+            int lineNumber = LineDiff.mapLine(lineMap, data.getLineNumber());
+            if (lineNumber == data.getLineNumber()) continue;
+            
+            iterator.remove();
+            if (lineNumber == 0) {
+                retired++;
+            } else {
+                data.relocate(lineNumber);
+                movedLoops.add(data);
+            }
+        }
+        for (LoopProfileData data : movedLoops) {
+            LoopProfileData existing = loopDataMap.putIfAbsent(data.getLocationString(), data);
+            if (existing != null) {
+                existing.merge(data);
+            }
+        }
+        
+        variableTracker.remapScript(scriptFile, lineMap);
+        return retired + waitTracker.remapScript(scriptFile, lineMap);
+    }
+    
     /**
      * Resets all profile data
      */
     public void reset() {
         profileDataMap.clear();
+        loopDataMap.clear();
+        variableTracker.reset();
+        waitTracker.reset();
+        threadUsage.reset();
+        flightRecorder.reset();
+        alertEngine.reset();
+        // Element IDs keep counting, so the old slots are dropped with the store
+        if (counterStore != null) {
+            counterStore = new OffHeapCounterStore();
+        }
         trackingStartTime = 0;
         trackingEndTime = 0;
     }
     
+    /**
+     * Gets the store holding element counters off the heap, or null if they are on the heap
+     */
+    public OffHeapCounterStore getCounterStore() {
+        return counterStore;
+    }
+    
     /**
      * Gets total profiling time in milliseconds
      */
@@ -0,0 +1,262 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.ProfilerContext;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Always-on flight recorder for lag spikes. Keeps a preallocated ring of raw execution events
+ * (element ID, start, duration, tick) that is written lock-free on the record path, whether or not
+ * a profiling session is running. When a tick exceeds the configured MSPT, the events of that tick
+ * and the few ticks before it are frozen and written to disk asynchronously, with rate limiting so
+ * sustained lag does not flood the disk.
+ *
+ * Element IDs are the recorder's own, so elements seen outside a session need no profile entry.
+ */
+public class FlightRecorder {
+    
+    private static final int MAX_ELEMENTS = 65536;
+    
+    private final ProfilerContext context;
+    private final int capacity;
+    private final int mask;
+    private final int[] elementIds;
+    private final long[] startTimes;
+    private final long[] durations;
+    private final long[] ticks;
+    // Sequence number published for each slot after its fields are written, -1 while they are being
+    // written (seqlock style)
+    private final AtomicLongArray published;
+    private final AtomicLong sequence;
+    private final Map<String, Integer> elementIdsByKey;
+    private final Map<Integer, String[]> elementLabels;
+    private final AtomicInteger nextElementId;
+    
+    private volatile boolean enabled;
+    private volatile long spikeThresholdNanos;
+    private volatile int ticksBefore;
+    private volatile long minDumpIntervalMs;
+    private volatile int maxDumps;
+    private long lastDumpTime;
+    private int dumpCount;
+    
+    public FlightRecorder(ProfilerContext context) {
+        this.context = context;
+        int requested = Math.max(1024, context.getSettings().getInt("flight-recorder.capacity", 65536));
+        this.capacity = Integer.highestOneBit(requested - 1) << 1;
+        this.mask = capacity - 1;
+        this.elementIds = new int[capacity];
+        this.startTimes = new long[capacity];
+        this.durations = new long[capacity];
+        this.ticks = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.sequence = new AtomicLong(0);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.elementIdsByKey = new ConcurrentHashMap<>();
+        this.elementLabels = new ConcurrentHashMap<>();
+        this.nextElementId = new AtomicInteger(0);
+        loadSettings();
+    }
+    
+    /**
+     * Reloads spike and rate limit settings from config
+     */
+    public void loadSettings() {
+        enabled = context.getSettings().getBoolean("flight-recorder.enabled", true);
+        spikeThresholdNanos = (long) (context.getSettings().getDouble("flight-recorder.spike-mspt", 100.0) * 1_000_000);
+        ticksBefore = Math.max(0, context.getSettings().getInt("flight-recorder.ticks-before", 3));
+        minDumpIntervalMs = Math.max(0, context.getSettings().getLong("flight-recorder.min-dump-interval", 60)) * 1000;
+        maxDumps = Math.max(0, context.getSettings().getInt("flight-recorder.max-dumps", 20));
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Appends a raw execution event of the element with the given "file:line:type" key to the ring
+     */
+    public void record(String key, String scriptFile, int lineNumber, String elementType, String elementName,
+                       long startNanos, long durationNanos, long tick) {
+        if (!enabled) return;
+        
+        Integer elementId = elementIdsByKey.get(key);
+        if (elementId == null) {
+            elementId = registerElement(key, scriptFile, lineNumber, elementType, elementName);
+        }
+        
+        long seq = sequence.getAndIncrement();
+        int slot = (int) (seq & mask);
+        // Readers reject the slot until the new sequence is published. A writer lapped by a full
+        // ring while storing these four fields could still interleave with the next one.
+        published.set(slot, -1);
+        VarHandle.storeStoreFence();
+        elementIds[slot] = elementId;
+        startTimes[slot] = startNanos;
+        durations[slot] = durationNanos;
+        ticks[slot] = tick;
+        published.set(slot, seq);
+    }
+    
+    private int registerElement(String key, String scriptFile, int lineNumber, String elementType, String elementName) {
+        // Racing threads may overshoot the cap by a few entries; each still gets its own ID
+        if (nextElementId.get() >= MAX_ELEMENTS) return -1;
+        return elementIdsByKey.computeIfAbsent(key, k -> {
+            int id = nextElementId.getAndIncrement();
+            elementLabels.put(id, new String[] {scriptFile + ":" + lineNumber, elementType + " " + elementName});
+            return id;
+        });
+    }
+    
+    /**
+     * Checks a completed tick's duration and dumps the recent events if it was a spike.
+     * Called from the main thread at each tick boundary.
+     */
+    public void onTickEnd(long tick, long tickDurationNanos) {
+        if (!enabled || tickDurationNanos < spikeThresholdNanos) return;
+        
+        long now = System.currentTimeMillis();
+        if (dumpCount >= maxDumps || now - lastDumpTime < minDumpIntervalMs) {
+            return;
+        }
+        lastDumpTime = now;
+        dumpCount++;
+        
+        Recording recording = freeze(tick - ticksBefore, tick);
+        context.runAsync(() -> writeDump(recording, tick, tickDurationNanos, now));
+    }
+    
+    /**
+     * Copies the events recorded between the given ticks (inclusive), oldest first
+     */
+    private Recording freeze(long fromTick, long toTick) {
+        long end = sequence.get();
+        long begin = Math.max(0, end - capacity);
+        
+        // Walk backwards from the newest event to find where the tick window starts
+        long first = end;
+        while (first > begin) {
+            long seq = first - 1;
+            int slot = (int) (seq & mask);
+            long version = published.get(slot);
+            long tick = ticks[slot];
+            VarHandle.loadLoadFence();
+            if (version == seq && published.get(slot) == seq) {
+                if (tick < fromTick) break;
+            } else if (version > seq) {
+                break; // Overwritten by a newer event, so everything older is gone too
+            }
+            first = seq;
+        }
+        
+        Recording recording = new Recording((int) (end - first));
+        for (long seq = first; seq < end; seq++) {
+            int slot = (int) (seq & mask);
+            if (published.get(slot) != seq) {
+                continue; // Being written or already overwritten
+            }
+            int elementId = elementIds[slot];
+            long start = startTimes[slot];
+            long duration = durations[slot];
+            long tick = ticks[slot];
+            VarHandle.loadLoadFence();
+            if (published.get(slot) != seq) {
+                continue; // Overwritten while copying
+            }
+            if (tick >= fromTick && tick <= toTick) {
+                recording.add(elementId, start, duration, tick);
+            }
+        }
+        return recording;
+    }
+    
+    private void writeDump(Recording recording, long spikeTick, long tickDurationNanos, long timestamp) {
+        File folder = new File(context.getDataFolder(), "flight-recordings");
+        if (!folder.exists() && !folder.mkdirs()) {
+            context.getLogger().warning("Could not create flight recording folder: " + folder.getAbsolutePath());
+            return;
+        }
+        
+        // Dumps within the same second are told apart by the tick, which only counts up
+        String name = "spike-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(timestamp))
+            + "-t" + spikeTick + ".txt";
+        File file = new File(folder, name);
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(String.format("# Lag spike at tick %d: %.2fms%n", spikeTick, tickDurationNanos / 1_000_000.0));
+            writer.write(String.format("# %d script execution(s) from tick %d to %d%n",
+                recording.size, spikeTick - ticksBefore, spikeTick));
+            writer.write("# tick\toffset_ms\tduration_ms\tlocation\telement\n");
+            
+            long origin = recording.size > 0 ? recording.startTimes[0] : 0;
+            for (int i = 0; i < recording.size; i++) {
+                String[] label = elementLabels.get(recording.elementIds[i]);
+                String location = label != null ? label[0] : "unknown";
+                String element = label != null ? label[1] : "#" + recording.elementIds[i];
+                writer.write(String.format("%d\t%.3f\t%.3f\t%s\t%s%n",
+                    recording.ticks[i],
+                    (recording.startTimes[i] - origin) / 1_000_000.0,
+                    recording.durations[i] / 1_000_000.0,
+                    location, element));
+            }
+            context.getLogger().warning(String.format("Lag spike of %.2fms at tick %d, flight recording saved to %s",
+                tickDurationNanos / 1_000_000.0, spikeTick, file.getName()));
+        } catch (IOException e) {
+            context.getLogger().warning("Failed to write flight recording: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Gets the number of dumps written since the last reset
+     */
+    public int getDumpCount() {
+        return dumpCount;
+    }
+    
+    /**
+     * Clears the dump rate limit at the start of a session; the ring keeps its events
+     */
+    public void reset() {
+        dumpCount = 0;
+        lastDumpTime = 0;
+    }
+    
+    /**
+     * A frozen copy of ring events
+     */
+    private static class Recording {
+        private final int[] elementIds;
+        private final long[] startTimes;
+        private final long[] durations;
+        private final long[] ticks;
+        private int size;
+        
+        Recording(int maxSize) {
+            this.elementIds = new int[maxSize];
+            this.startTimes = new long[maxSize];
+            this.durations = new long[maxSize];
+            this.ticks = new long[maxSize];
+        }
+        
+        void add(int elementId, long start, long duration, long tick) {
+            elementIds[size] = elementId;
+            startTimes[size] = start;
+            durations[size] = duration;
+            ticks[size] = tick;
+            size++;
+        }
+    }
+}
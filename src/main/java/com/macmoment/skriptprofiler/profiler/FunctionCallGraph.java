@@ -0,0 +1,311 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.model.CallEdge;
+import com.macmoment.skriptprofiler.model.CallGraphAnalysis;
+import com.macmoment.skriptprofiler.model.CallPath;
+import com.macmoment.skriptprofiler.model.CallSite;
+import com.macmoment.skriptprofiler.model.FunctionCost;
+import com.macmoment.skriptprofiler.model.LoopProfileData;
+import com.macmoment.skriptprofiler.model.ProfileData;
+import com.macmoment.skriptprofiler.model.ScriptInfo;
+import com.macmoment.skriptprofiler.model.ScriptNode;
+import com.macmoment.skriptprofiler.util.TopN;
+
+import java.io.File;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cross-script call graph linking function call sites to their definitions.
+ * Each script's contribution is kept separately so a changed script only re-indexes itself.
+ */
+public class FunctionCallGraph {
+    
+    private static final Pattern CALL_PATTERN = Pattern.compile("(?<![\\w.])([A-Za-z_]\\w*)\\(");
+    private static final int MAX_PATH_DEPTH = 8;
+    private static final int MAX_PATHS = 10000;
+    
+    private final Map<String, List<CallSite>> sitesByScript;
+    private final Map<String, Map<String, Integer>> definitionsByScript;
+    private final Map<String, String> definitionScripts;
+    private final Map<String, Set<CallSite>> callersByFunction;
+    
+    public FunctionCallGraph() {
+        this.sitesByScript = new HashMap<>();
+        this.definitionsByScript = new HashMap<>();
+        this.definitionScripts = new HashMap<>();
+        this.callersByFunction = new HashMap<>();
+    }
+    
+    /**
+     * Re-indexes the function definitions and call sites of a single script
+     */
+    public void updateScript(ScriptInfo script) {
+        ScriptNode tree = script.getBlockTree();
+        if (tree == null) {
+            removeScript(script.getFilePath());
+            return;
+        }
+        
+        // Scan outside the lock so scripts can be indexed in parallel
+        String scriptFile = script.getFilePath();
+        Map<String, Integer> definitions = new HashMap<>();
+        List<CallSite> sites = new ArrayList<>();
+        tree.walk(node -> {
+            if (node.getKind() == ScriptNode.Kind.FUNCTION) {
+                String name = functionName(node);
+                if (name != null) {
+                    definitions.put(name, node.getLineNumber());
+                }
+            } else if (!node.getKind().isTrigger() && node.getKind() != ScriptNode.Kind.ROOT) {
+                collectCalls(scriptFile, node, sites);
+            }
+        });
+        
+        synchronized (this) {
+            removeScript(scriptFile);
+            definitionsByScript.put(scriptFile, definitions);
+            for (String name : definitions.keySet()) {
+                definitionScripts.put(name, scriptFile);
+            }
+            sitesByScript.put(scriptFile, sites);
+            for (CallSite site : sites) {
+                callersByFunction.computeIfAbsent(site.getFunctionName(), k -> new LinkedHashSet<>()).add(site);
+            }
+        }
+    }
+    
+    /**
+     * Removes a script's definitions and call sites from the graph
+     */
+    public synchronized void removeScript(String scriptFile) {
+        List<CallSite> oldSites = sitesByScript.remove(scriptFile);
+        if (oldSites != null) {
+            for (CallSite site : oldSites) {
+                Set<CallSite> callers = callersByFunction.get(site.getFunctionName());
+                if (callers != null) {
+                    callers.remove(site);
+                    if (callers.isEmpty()) {
+                        callersByFunction.remove(site.getFunctionName());
+                    }
+                }
+            }
+        }
+        
+        Map<String, Integer> oldDefinitions = definitionsByScript.remove(scriptFile);
+        if (oldDefinitions != null) {
+            for (String name : oldDefinitions.keySet()) {
+                definitionScripts.remove(name, scriptFile);
+            }
+        }
+    }
+    
+    public synchronized void clear() {
+        sitesByScript.clear();
+        definitionsByScript.clear();
+        definitionScripts.clear();
+        callersByFunction.clear();
+    }
+    
+    /**
+     * Gets the call sites of a function across all scripts
+     */
+    public synchronized List<CallSite> getCallSites(String functionName) {
+        Set<CallSite> callers = callersByFunction.get(functionName);
+        return callers == null ? new ArrayList<>() : new ArrayList<>(callers);
+    }
+    
+    public synchronized int getFunctionCount() {
+        return definitionScripts.size();
+    }
+    
+    /**
+     * Joins the graph with runtime data to estimate inclusive cost, hot call paths and per-site cost.
+     * A function's measured time is split across its call sites in proportion to how often each
+     * site ran: the enclosing trigger's executions times the average iterations of its enclosing loops.
+     */
+    public CallGraphAnalysis analyze(Map<String, ProfileData> profileData, List<LoopProfileData> loopData, int pathLimit) {
+        Map<String, Integer> definitionLines = new HashMap<>();
+        Map<String, String> definitionFiles;
+        List<CallSite> sites = new ArrayList<>();
+        synchronized (this) {
+            definitionFiles = new HashMap<>(definitionScripts);
+            for (Map.Entry<String, String> entry : definitionFiles.entrySet()) {
+                definitionLines.put(entry.getKey(), definitionsByScript.get(entry.getValue()).get(entry.getKey()));
+            }
+            for (Map.Entry<String, Set<CallSite>> entry : callersByFunction.entrySet()) {
+                if (definitionFiles.containsKey(entry.getKey())) {
+                    sites.addAll(entry.getValue());
+                }
+            }
+        }
+        if (definitionFiles.isEmpty()) {
+            return CallGraphAnalysis.empty();
+        }
+        
+        Map<String, ProfileData> byLocation = new HashMap<>();
+        for (ProfileData data : profileData.values()) {
+            byLocation.merge(data.getLocationString(), data,
+                (a, b) -> a.getTotalExecutionTimeNanos() >= b.getTotalExecutionTimeNanos() ? a : b);
+        }
+        Map<String, LoopProfileData> loopsByLocation = new HashMap<>();
+        for (LoopProfileData loop : loopData) {
+            loopsByLocation.put(loop.getLocationString(), loop);
+        }
+        
+        // Weight every call site by its estimated number of calls
+        Map<String, List<CallSite>> sitesByCallee = new HashMap<>();
+        Map<CallSite, Double> callsPerTrigger = new HashMap<>();
+        Map<CallSite, Long> triggerExecutions = new HashMap<>();
+        Map<String, Double> totalWeights = new HashMap<>();
+        for (CallSite site : sites) {
+            ProfileData trigger = byLocation.get(site.getTriggerLocationString());
+            long executions = trigger != null ? trigger.getExecutionCount() : 0;
+            double calls = 1.0;
+            for (int loopLine : site.getLoopLines()) {
+                LoopProfileData loop = loopsByLocation.get(site.getScriptFile() + ":" + loopLine);
+                if (loop != null && loop.getEntryCount() > 0) {
+                    calls *= loop.getAverageIterations();
+                }
+            }
+            callsPerTrigger.put(site, calls);
+            triggerExecutions.put(site, executions);
+            totalWeights.merge(site.getFunctionName(), executions * calls, Double::sum);
+            sitesByCallee.computeIfAbsent(site.getFunctionName(), k -> new ArrayList<>()).add(site);
+        }
+        
+        // Split each function's measured time across its call sites
+        Map<String, Long> inclusiveTimes = new HashMap<>();
+        List<CallEdge> edges = new ArrayList<>();
+        Map<String, List<CallEdge>> outgoing = new HashMap<>();
+        List<CallEdge> roots = new ArrayList<>();
+        for (Map.Entry<String, List<CallSite>> entry : sitesByCallee.entrySet()) {
+            String function = entry.getKey();
+            ProfileData measured = byLocation.get(definitionFiles.get(function) + ":" + definitionLines.get(function));
+            long functionTime = measured != null ? measured.getTotalExecutionTimeNanos() : 0;
+            double averageMs = measured != null ? measured.getAverageExecutionTimeMs() : 0;
+            double totalWeight = totalWeights.getOrDefault(function, 0.0);
+            List<CallSite> callSites = entry.getValue();
+            
+            for (CallSite site : callSites) {
+                double calls = callsPerTrigger.get(site);
+                long executions = triggerExecutions.get(site);
+                long attributed = totalWeight > 0
+                    ? Math.round(functionTime * (executions * calls / totalWeight))
+                    : functionTime / callSites.size();
+                CallEdge edge = new CallEdge(site, executions, calls, attributed, averageMs);
+                edges.add(edge);
+                if (site.isFromFunction()) {
+                    outgoing.computeIfAbsent(site.getTriggerName(), k -> new ArrayList<>()).add(edge);
+                } else {
+                    roots.add(edge);
+                }
+            }
+        }
+        
+        List<FunctionCost> costs = new ArrayList<>();
+        for (Map.Entry<String, String> entry : definitionFiles.entrySet()) {
+            String function = entry.getKey();
+            int line = definitionLines.get(function);
+            ProfileData measured = byLocation.get(entry.getValue() + ":" + line);
+            if (measured == null || measured.getExecutionCount() == 0) {
+                continue;
+            }
+            
+            long inclusive = measured.getTotalExecutionTimeNanos();
+            long calleeTime = 0;
+            for (CallEdge edge : outgoing.getOrDefault(function, Collections.emptyList())) {
+                calleeTime += edge.getAttributedTimeNanos();
+            }
+            List<CallSite> callSites = sitesByCallee.getOrDefault(function, Collections.emptyList());
+            Set<String> callers = new HashSet<>();
+            for (CallSite site : callSites) {
+                callers.add(site.getTriggerLocationString());
+            }
+            inclusiveTimes.put(function, inclusive);
+            costs.add(new FunctionCost(function, entry.getValue(), line, measured.getExecutionCount(),
+                inclusive, Math.max(0, inclusive - calleeTime), callSites.size(), callers.size()));
+        }
+        costs.sort((c1, c2) -> Long.compare(c2.getInclusiveTimeNanos(), c1.getInclusiveTimeNanos()));
+        
+        List<CallPath> paths = new ArrayList<>();
+        for (CallEdge root : roots) {
+            if (root.getAttributedTimeNanos() <= 0 || paths.size() >= MAX_PATHS) {
+                continue;
+            }
+            List<String> frames = new ArrayList<>();
+            frames.add(String.format("%s (%s:%d)", root.getSite().getTriggerName(),
+                new File(root.getSite().getScriptFile()).getName(), root.getSite().getTriggerLine()));
+            collectPaths(root, root.getAttributedTimeNanos(), frames, new HashSet<>(), outgoing, inclusiveTimes, paths);
+        }
+        
+        return new CallGraphAnalysis(costs,
+            TopN.select(paths, pathLimit, Comparator.comparingLong(CallPath::getEstimatedTimeNanos)), edges);
+    }
+    
+    /**
+     * Follows the time flowing through an edge into its callee's own calls, recording each path where it ends
+     */
+    private void collectPaths(CallEdge edge, long flow, List<String> frames, Set<String> visiting,
+                              Map<String, List<CallEdge>> outgoing, Map<String, Long> inclusiveTimes,
+                              List<CallPath> paths) {
+        String callee = edge.getSite().getFunctionName();
+        frames.add(callee + "()");
+        visiting.add(callee);
+        
+        boolean extended = false;
+        long inclusive = inclusiveTimes.getOrDefault(callee, 0L);
+        if (frames.size() <= MAX_PATH_DEPTH && inclusive > 0) {
+            for (CallEdge next : outgoing.getOrDefault(callee, Collections.emptyList())) {
+                long nextFlow = Math.round(next.getAttributedTimeNanos() * Math.min(1.0, flow / (double) inclusive));
+                if (nextFlow <= 0 || visiting.contains(next.getSite().getFunctionName()) || paths.size() >= MAX_PATHS) {
+                    continue;
+                }
+                extended = true;
+                collectPaths(next, nextFlow, frames, visiting, outgoing, inclusiveTimes, paths);
+            }
+        }
+        if (!extended) {
+            paths.add(new CallPath(frames, flow));
+        }
+        
+        visiting.remove(callee);
+        frames.remove(frames.size() - 1);
+    }
+    
+    private void collectCalls(String scriptFile, ScriptNode node, List<CallSite> sites) {
+        if (node.getText().indexOf('(') < 0) {
+            return;
+        }
+        Matcher matcher = CALL_PATTERN.matcher(node.getText());
+        if (!matcher.find()) {
+            return;
+        }
+        
+        ScriptNode trigger = node.getEnclosingTrigger();
+        List<Integer> loops = new ArrayList<>();
+        for (ScriptNode parent = node.getParent(); parent != null && parent != trigger; parent = parent.getParent()) {
+            if (parent.getKind() == ScriptNode.Kind.LOOP || parent.getKind() == ScriptNode.Kind.WHILE) {
+                loops.add(0, parent.getLineNumber());
+            }
+        }
+        int[] loopLines = loops.stream().mapToInt(Integer::intValue).toArray();
+        
+        int triggerLine = trigger != null ? trigger.getLineNumber() : 0;
+        ScriptNode.Kind triggerKind = trigger != null ? trigger.getKind() : ScriptNode.Kind.ROOT;
+        String triggerName = trigger == null ? "top level"
+            : trigger.getKind() == ScriptNode.Kind.FUNCTION ? Objects.requireNonNullElse(functionName(trigger), trigger.getText())
+            : trigger.getText();
+        
+        do {
+            sites.add(new CallSite(scriptFile, node.getLineNumber(), matcher.group(1),
+                triggerLine, triggerKind, triggerName, loopLines));
+        } while (matcher.find());
+    }
+    
+    private String functionName(ScriptNode functionNode) {
+        Matcher matcher = ScriptFileLoader.FUNCTION_PATTERN.matcher(functionNode.getText());
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
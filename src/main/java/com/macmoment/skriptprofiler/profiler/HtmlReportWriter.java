@@ -0,0 +1,575 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.model.CallGraphAnalysis;
+import com.macmoment.skriptprofiler.model.FunctionCost;
+import com.macmoment.skriptprofiler.model.LoopProfileData;
+import com.macmoment.skriptprofiler.model.PerformanceIssue;
+import com.macmoment.skriptprofiler.model.ProfileData;
+import com.macmoment.skriptprofiler.model.ProfileSnapshot;
+import com.macmoment.skriptprofiler.model.ScriptInfo;
+import com.macmoment.skriptprofiler.model.ThreadClass;
+import com.macmoment.skriptprofiler.model.ThreadUsage;
+import com.macmoment.skriptprofiler.model.VariableAccessData;
+import com.macmoment.skriptprofiler.model.WaitProfileData;
+import com.macmoment.skriptprofiler.util.LogHistogram;
+import com.macmoment.skriptprofiler.util.TickHistogram;
+import com.macmoment.skriptprofiler.util.TimeSeries;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes a session as a self-contained interactive HTML page: sortable tables, a per-script drilldown,
+ * histograms, per-second timelines and the full issue list. Rows are streamed straight to the writer, so memory stays flat
+ * however many elements the session has.
+ */
+public class HtmlReportWriter {
+    
+    private static final int HISTOGRAM_LIMIT = 10;
+    private static final int TIMELINE_POINTS = 600;
+    private static final DateTimeFormatter TIMELINE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+        .withZone(ZoneId.systemDefault());
+    
+    private static final String STYLE = """
+        body{font-family:system-ui,sans-serif;margin:24px;background:#1e1f22;color:#dcdcdc}
+        h1{color:#f0b429}h2{color:#4fc3f7;margin-top:32px}h3{margin-bottom:4px}
+        table{border-collapse:collapse;width:100%;font-size:13px}
+        th,td{padding:4px 8px;border-bottom:1px solid #3a3b3f;text-align:left}
+        th{cursor:pointer;background:#2b2d31;position:sticky;top:0}th.asc:after{content:" \\25B2"}th.desc:after{content:" \\25BC"}
+        td.n{text-align:right;font-variant-numeric:tabular-nums}
+        tr.script{cursor:pointer}tr.script:hover,tr.selected{background:#2f3a45}
+        .summary td:first-child{color:#9aa0a6;width:260px}
+        .bar{background:#4fc3f7;height:12px}.hist td{border:none;padding:1px 8px}
+        .timeline{width:100%;height:120px;background:#2b2d31}.timeline polyline{fill:none;stroke:#4fc3f7;stroke-width:1.5}
+        .axis{color:#9aa0a6;font-size:12px}
+        .CRITICAL{color:#ff5252}.HIGH{color:#ff8a65}.MEDIUM{color:#ffd54f}.LOW{color:#e0e0e0}
+        .issue{margin:8px 0;padding:8px;background:#2b2d31}.suggestion{color:#81c784}
+        input,select{background:#2b2d31;color:#dcdcdc;border:1px solid #3a3b3f;padding:4px;margin:4px 0}
+        """;
+    
+    private static final String SCRIPT = """
+        document.querySelectorAll('table.sortable th').forEach(function(th){th.onclick=function(){
+          var table=th.closest('table'),body=table.tBodies[0],index=th.cellIndex,desc=!th.classList.contains('desc');
+          table.querySelectorAll('th').forEach(function(h){h.classList.remove('asc','desc');});
+          th.classList.add(desc?'desc':'asc');
+          var rows=Array.prototype.slice.call(body.rows);
+          rows.sort(function(a,b){
+            var x=a.cells[index],y=b.cells[index],vx=x.dataset.v,vy=y.dataset.v;
+            var c=vx!==undefined?parseFloat(vx)-parseFloat(vy):x.textContent.localeCompare(y.textContent);
+            return desc?-c:c;});
+          rows.forEach(function(r){body.appendChild(r);});};});
+        var selectedScript=null;
+        function filterElements(){
+          var text=document.getElementById('element-filter').value.toLowerCase();
+          Array.prototype.forEach.call(document.getElementById('elements').tBodies[0].rows,function(r){
+            var show=(!selectedScript||r.dataset.script===selectedScript)&&(!text||r.textContent.toLowerCase().indexOf(text)>=0);
+            r.style.display=show?'':'none';});
+          document.getElementById('element-scope').textContent=selectedScript?'Showing '+selectedScript+' (click again to show all)':'Showing all scripts';}
+        document.querySelectorAll('tr.script').forEach(function(r){r.onclick=function(){
+          document.querySelectorAll('tr.script').forEach(function(o){o.classList.remove('selected');});
+          selectedScript=selectedScript===r.dataset.script?null:r.dataset.script;
+          if(selectedScript)r.classList.add('selected');
+          filterElements();document.getElementById('elements').scrollIntoView();};});
+        document.getElementById('element-filter').oninput=filterElements;
+        var severityFilter=document.getElementById('severity-filter');
+        if(severityFilter)severityFilter.onchange=function(){var s=this.value;
+          document.querySelectorAll('.issue').forEach(function(i){i.style.display=!s||i.classList.contains(s)?'':'none';});};
+        """;
+    
+    private final Writer writer;
+    private final boolean includeSuggestions;
+    
+    public HtmlReportWriter(Writer writer, boolean includeSuggestions) {
+        this.writer = writer;
+        this.includeSuggestions = includeSuggestions;
+    }
+    
+    /**
+     * Writes the whole page
+     */
+    public void write(ProfileSnapshot snapshot, List<PerformanceIssue> issues, Map<String, ScriptInfo> scripts,
+                      CallGraphAnalysis callGraph) throws IOException {
+        writer.write("<!DOCTYPE html>\n<html lang=\"en\"><head><meta charset=\"utf-8\"><title>Skript Profiler Report - ");
+        writeEscaped(snapshot.getSource());
+        writer.write("</title>\n<style>");
+        writer.write(STYLE);
+        writer.write("</style></head>\n<body>\n<h1>Skript Profiler Report</h1>\n");
+        
+        // Elements grouped per script, so every later section only walks references
+        Map<String, List<ProfileData>> byScript = new TreeMap<>();
+        for (ProfileData data : snapshot.getProfileData().values()) {
+            byScript.computeIfAbsent(data.getScriptFile(), k -> new ArrayList<>()).add(data);
+        }
+        
+        writeSummary(snapshot, byScript, scripts, issues);
+        writeScripts(byScript, scripts, issues);
+        writeElements(byScript);
+        writeHistograms(snapshot);
+        writeTimelines(snapshot);
+        writeLoops(snapshot.getLoopData());
+        writeWaits(snapshot.getWaitData());
+        writeFunctions(callGraph);
+        writeVariables(snapshot.getVariableData(), snapshot.getDurationMs());
+        writeIssues(issues);
+        
+        writer.write("<script>");
+        writer.write(SCRIPT);
+        writer.write("</script>\n</body></html>\n");
+        writer.flush();
+    }
+    
+    private void writeSummary(ProfileSnapshot snapshot, Map<String, List<ProfileData>> byScript,
+                              Map<String, ScriptInfo> scripts, List<PerformanceIssue> issues) throws IOException {
+        long executions = 0;
+        long totalNanos = 0;
+        int elements = 0;
+        for (List<ProfileData> scriptData : byScript.values()) {
+            for (ProfileData data : scriptData) {
+                executions += data.getExecutionCount();
+                totalNanos += data.getTotalExecutionTimeNanos();
+                elements++;
+            }
+        }
+        ThreadUsage threadUsage = snapshot.getThreadUsage();
+        
+        writer.write("<h2>Summary</h2>\n<table class=\"summary\">\n");
+        writeSummaryRow("Source", snapshot.getSource());
+        if (snapshot.getNodeCount() > 1) {
+            writeSummaryRow("Servers Merged", String.valueOf(snapshot.getNodeCount()));
+            writeSummaryRow("Average TPS", format("%.2f", snapshot.getTps()));
+        } else {
+            writeSummaryRow("TPS", format("%.2f", snapshot.getTps()));
+        }
+        TickHistogram ticks = snapshot.getTickHistogram();
+        if (ticks.getTickCount() > 0) {
+            writeSummaryRow("MSPT", format("%.2f avg, p50 %.1f, p95 %.1f, p99 %.1f, max %.1f (%d ticks)",
+                ticks.getMeanMs(), ticks.getPercentileMs(50), ticks.getPercentileMs(95), ticks.getPercentileMs(99),
+                ticks.getMaxMs(), ticks.getTickCount()));
+        }
+        writeSummaryRow("Duration", format("%.2f seconds", snapshot.getDurationMs() / 1000.0));
+        writeSummaryRow("Scripts Loaded", String.valueOf(scripts.size()));
+        writeSummaryRow("Elements Tracked", String.valueOf(elements));
+        writeSummaryRow("Total Executions", String.valueOf(executions));
+        writeSummaryRow("Total Execution Time (all threads)", format("%.2fms", totalNanos / 1_000_000.0));
+        writeSummaryRow("Main Thread Time", format("%.2fms (%.3fms/tick)",
+            threadUsage.getExecutionTimeNanos(ThreadClass.MAIN) / 1_000_000.0,
+            threadUsage.getMainThreadMsPerTick(snapshot.getTrackedTicks())));
+        if (threadUsage.getExecutionCount(ThreadClass.ASYNC) > 0) {
+            writeSummaryRow("Async Time", format("%.2fms (%d executions, %d peak concurrency)",
+                threadUsage.getExecutionTimeNanos(ThreadClass.ASYNC) / 1_000_000.0,
+                threadUsage.getExecutionCount(ThreadClass.ASYNC), threadUsage.getPeakAsync()));
+        }
+        writeSummaryRow("Issues", String.valueOf(issues.size()));
+        writer.write("</table>\n");
+    }
+    
+    /**
+     * Per-script totals; clicking a row narrows the element table to that script
+     */
+    private void writeScripts(Map<String, List<ProfileData>> byScript, Map<String, ScriptInfo> scripts,
+                              List<PerformanceIssue> issues) throws IOException {
+        Map<String, Integer> issueCounts = new TreeMap<>();
+        for (PerformanceIssue issue : issues) {
+            issueCounts.merge(String.valueOf(issue.getScriptFile()), 1, Integer::sum);
+        }
+        
+        writer.write("<h2>Scripts</h2>\n<table class=\"sortable\"><thead><tr><th>Script</th><th>Elements</th>"
+            + "<th>Executions</th><th>Total ms</th><th>Main Thread ms</th><th>Slowest Avg ms</th><th>Issues</th>"
+            + "<th>Events</th><th>Functions</th><th>Commands</th></tr></thead><tbody>\n");
+        for (Map.Entry<String, List<ProfileData>> entry : byScript.entrySet()) {
+            long executions = 0;
+            long totalNanos = 0;
+            long mainNanos = 0;
+            double slowest = 0;
+            for (ProfileData data : entry.getValue()) {
+                executions += data.getExecutionCount();
+                totalNanos += data.getTotalExecutionTimeNanos();
+                mainNanos += data.getMainThreadExecutionTimeNanos();
+                slowest = Math.max(slowest, data.getAverageExecutionTimeMs());
+            }
+            ScriptInfo info = scripts.get(entry.getKey());
+            
+            writer.write("<tr class=\"script\" data-script=\"");
+            writeEscaped(entry.getKey());
+            writer.write("\"><td title=\"");
+            writeEscaped(entry.getKey());
+            writer.write("\">");
+            writeEscaped(getShortFileName(entry.getKey()));
+            writer.write("</td>");
+            writeNumber(entry.getValue().size());
+            writeNumber(executions);
+            writeMillis(totalNanos);
+            writeMillis(mainNanos);
+            writeNumber(slowest, format("%.3f", slowest));
+            writeNumber(issueCounts.getOrDefault(entry.getKey(), 0));
+            writeNumber(info != null ? info.getTotalEventCount() : 0);
+            writeNumber(info != null ? info.getTotalFunctionCount() : 0);
+            writeNumber(info != null ? info.getTotalCommandCount() : 0);
+            writer.write("</tr>\n");
+        }
+        writer.write("</tbody></table>\n");
+    }
+    
+    private void writeElements(Map<String, List<ProfileData>> byScript) throws IOException {
+        writer.write("<h2>Elements</h2>\n<p id=\"element-scope\">Showing all scripts</p>"
+            + "<input id=\"element-filter\" placeholder=\"Filter elements\" size=\"40\">\n"
+            + "<table id=\"elements\" class=\"sortable\"><thead><tr><th>Script</th><th>Line</th><th>Type</th>"
+            + "<th>Element</th><th>Executions</th><th>Avg ms</th><th>Max ms</th><th>Total ms</th><th>Main Thread</th>"
+            + "</tr></thead><tbody>\n");
+        for (Map.Entry<String, List<ProfileData>> entry : byScript.entrySet()) {
+            String shortName = getShortFileName(entry.getKey());
+            List<ProfileData> scriptData = entry.getValue();
+            scriptData.sort(Comparator.comparingInt(ProfileData::getLineNumber));
+            
+            for (ProfileData data : scriptData) {
+                writer.write("<tr data-script=\"");
+                writeEscaped(entry.getKey());
+                writer.write("\"><td>");
+                writeEscaped(shortName);
+                writer.write("</td>");
+                writeNumber(data.getLineNumber());
+                writer.write("<td>");
+                writeEscaped(data.getElementType());
+                writer.write("</td><td>");
+                writeEscaped(data.getElementName());
+                writer.write("</td>");
+                if (data.isEstimated()) {
+                    writeNumber(data.getExecutionCount(),
+                        format("~%d &plusmn;%.0f", data.getExecutionCount(), data.getCountConfidence()));
+                } else {
+                    writeNumber(data.getExecutionCount());
+                }
+                writeNumber(data.getAverageExecutionTimeMs(), format("%.3f", data.getAverageExecutionTimeMs()));
+                writeNumber(data.getMaxExecutionTimeMs(), format("%.3f", data.getMaxExecutionTimeMs()));
+                writeMillis(data.getTotalExecutionTimeNanos());
+                writeNumber(data.getMainThreadShare(), format("%.0f%%", data.getMainThreadShare() * 100));
+                writer.write("</tr>\n");
+            }
+        }
+        writer.write("</tbody></table>\n");
+    }
+    
+    private void writeHistograms(ProfileSnapshot snapshot) throws IOException {
+        writer.write("<h2>Histograms</h2>\n");
+        
+        LogHistogram averages = new LogHistogram();
+        for (ProfileData data : snapshot.getProfileData().values()) {
+            if (data.getExecutionCount() > 0) {
+                averages.record(data.getTotalExecutionTimeNanos() / data.getExecutionCount());
+            }
+        }
+        writeHistogram("Average execution time per element", averages, true);
+        
+        TickHistogram ticks = snapshot.getTickHistogram();
+        if (ticks.getTickCount() > 0) {
+            writeHistogram("Tick duration", ticks.toLogHistogram(), true);
+        }
+        
+        LogHistogram concurrency = snapshot.getThreadUsage().getAsyncConcurrency();
+        if (concurrency.getTotalCount() > 0) {
+            writeHistogram("Concurrent async executions", concurrency, false);
+        }
+        
+        List<LoopProfileData> loops = new ArrayList<>(snapshot.getLoopData());
+        loops.sort(Comparator.comparingLong(LoopProfileData::getTotalBodyTimeNanos).reversed());
+        for (LoopProfileData loop : loops.subList(0, Math.min(HISTOGRAM_LIMIT, loops.size()))) {
+            writeHistogram("Iterations per entry: " + getShortFileName(loop.getScriptFile()) + ":" + loop.getLineNumber()
+                + " loop " + loop.getLoopExpression(), loop.getIterationHistogram(), false);
+        }
+        
+        List<WaitProfileData> waits = new ArrayList<>(snapshot.getWaitData());
+        waits.sort(Comparator.comparingLong(WaitProfileData::getTotalSuspensions).reversed());
+        for (WaitProfileData wait : waits.subList(0, Math.min(HISTOGRAM_LIMIT, waits.size()))) {
+            writeHistogram("Parked ms: " + getShortFileName(wait.getScriptFile()) + ":" + wait.getLineNumber(),
+                wait.getParkedMillisHistogram(), false);
+        }
+    }
+    
+    /**
+     * Writes the non-empty buckets of a histogram as bars scaled to the largest bucket
+     */
+    private void writeHistogram(String title, LogHistogram histogram, boolean nanos) throws IOException {
+        long max = 0;
+        for (int i = 0; i < LogHistogram.BUCKET_COUNT; i++) {
+            max = Math.max(max, histogram.getBucketCount(i));
+        }
+        
+        writer.write("<h3>");
+        writeEscaped(title);
+        writer.write("</h3>\n<table class=\"hist\">\n");
+        for (int i = 0; i < LogHistogram.BUCKET_COUNT; i++) {
+            long count = histogram.getBucketCount(i);
+            if (count == 0) continue;
+            
+            long low = LogHistogram.bucketLowerBound(i);
+            long high = LogHistogram.bucketUpperBound(i);
+            String range = nanos ? formatNanos(low) + " - " + formatNanos(high)
+                : low == high ? String.valueOf(low) : low + " - " + high;
+            writer.write("<tr><td style=\"width:160px\">");
+            writer.write(range);
+            writer.write("</td><td style=\"width:60%\"><div class=\"bar\" style=\"width:");
+            writer.write(format("%.1f", Math.max(0.5, count * 100.0 / max)));
+            writer.write("%\"></div></td><td class=\"n\">");
+            writer.write(Long.toString(count));
+            writer.write("</td></tr>\n");
+        }
+        writer.write("</table>\n");
+    }
+    
+    /**
+     * Charts the per-second history of the elements with the most execution time
+     */
+    private void writeTimelines(ProfileSnapshot snapshot) throws IOException {
+        List<ProfileData> elements = new ArrayList<>();
+        for (ProfileData data : snapshot.getProfileData().values()) {
+            if (data.getHistory() != null && !data.getHistory().isEmpty()) {
+                elements.add(data);
+            }
+        }
+        if (elements.isEmpty()) return;
+        
+        elements.sort(Comparator.comparingLong(ProfileData::getTotalExecutionTimeNanos).reversed());
+        writer.write("<h2>Timeline</h2>\n<p class=\"axis\">Execution time per second, averaged over each point of the chart</p>\n");
+        for (ProfileData data : elements.subList(0, Math.min(HISTOGRAM_LIMIT, elements.size()))) {
+            writeTimeline(getShortFileName(data.getScriptFile()) + ":" + data.getLineNumber() + " "
+                + data.getElementType() + " " + data.getElementName(), data.getHistory());
+        }
+    }
+    
+    /**
+     * Writes a line chart of ms per second, folding the seconds into at most TIMELINE_POINTS points
+     */
+    private void writeTimeline(String title, TimeSeries history) throws IOException {
+        long first = history.getFirstTimestamp();
+        long span = history.getLastTimestamp() - first + 1;
+        long secondsPerPoint = Math.max(1, (span + TIMELINE_POINTS - 1) / TIMELINE_POINTS);
+        int points = (int) ((span + secondsPerPoint - 1) / secondsPerPoint);
+        long[] nanos = new long[points];
+        history.forEach((timestamp, values) -> nanos[(int) ((timestamp - first) / secondsPerPoint)] += values[1]);
+        
+        long max = 1;
+        for (long value : nanos) {
+            max = Math.max(max, value);
+        }
+        StringBuilder line = new StringBuilder(points * 12);
+        for (int i = 0; i < points; i++) {
+            line.append(i).append(',').append(format("%.1f", 100 - nanos[i] * 100.0 / max)).append(' ');
+        }
+        
+        writer.write("<h3>");
+        writeEscaped(title);
+        writer.write("</h3>\n<svg class=\"timeline\" viewBox=\"0 0 ");
+        writer.write(Integer.toString(Math.max(1, points - 1)));
+        writer.write(" 100\" preserveAspectRatio=\"none\"><polyline vector-effect=\"non-scaling-stroke\" points=\"");
+        writer.write(line.toString());
+        writer.write("\"/></svg>\n<div class=\"axis\">");
+        writer.write(TIMELINE_TIME.format(Instant.ofEpochSecond(first)));
+        writer.write(" - ");
+        writer.write(TIMELINE_TIME.format(Instant.ofEpochSecond(history.getLastTimestamp())));
+        writer.write(format(", peak %.2fms/s", max / (double) secondsPerPoint / 1_000_000.0));
+        writer.write("</div>\n");
+    }
+    
+    private void writeLoops(List<LoopProfileData> loopData) throws IOException {
+        if (loopData.isEmpty()) return;
+        
+        writer.write("<h2>Loops</h2>\n<table class=\"sortable\"><thead><tr><th>Script</th><th>Line</th><th>Loop</th>"
+            + "<th>Entries</th><th>Avg Iterations</th><th>Max Iterations</th><th>ms/Iteration</th><th>Body ms</th>"
+            + "</tr></thead><tbody>\n");
+        for (LoopProfileData data : loopData) {
+            writeLocationCells(data.getScriptFile(), data.getLineNumber());
+            writer.write("<td>");
+            writeEscaped(data.getLoopExpression());
+            writer.write("</td>");
+            writeNumber(data.getEntryCount());
+            writeNumber(data.getAverageIterations(), format("%.1f", data.getAverageIterations()));
+            writeNumber(data.getMaxIterations());
+            writeNumber(data.getAverageIterationTimeMs(), format("%.4f", data.getAverageIterationTimeMs()));
+            writeMillis(data.getTotalBodyTimeNanos());
+            writer.write("</tr>\n");
+        }
+        writer.write("</tbody></table>\n");
+    }
+    
+    private void writeWaits(List<WaitProfileData> waitData) throws IOException {
+        if (waitData.isEmpty()) return;
+        
+        writer.write("<h2>Wait Statements</h2>\n<table class=\"sortable\"><thead><tr><th>Script</th><th>Line</th>"
+            + "<th>Suspensions</th><th>Suspended Now</th><th>Peak Suspended</th><th>Avg Parked ms</th>"
+            + "<th>Max Parked ms</th><th>Max Resumes/Tick</th></tr></thead><tbody>\n");
+        for (WaitProfileData data : waitData) {
+            writeLocationCells(data.getScriptFile(), data.getLineNumber());
+            writeNumber(data.getTotalSuspensions());
+            writeNumber(data.getCurrentlySuspended());
+            writeNumber(data.getPeakSuspended());
+            writeNumber(data.getAverageParkedTimeMs(), format("%.1f", data.getAverageParkedTimeMs()));
+            writeNumber(data.getMaxParkedTimeMs(), format("%.1f", data.getMaxParkedTimeMs()));
+            writeNumber(data.getMaxResumesInTick());
+            writer.write("</tr>\n");
+        }
+        writer.write("</tbody></table>\n");
+    }
+    
+    private void writeFunctions(CallGraphAnalysis callGraph) throws IOException {
+        if (callGraph.isEmpty()) return;
+        
+        writer.write("<h2>Function Costs</h2>\n<table class=\"sortable\"><thead><tr><th>Script</th><th>Line</th>"
+            + "<th>Function</th><th>Calls</th><th>Inclusive ms</th><th>Self ms</th><th>Call Sites</th>"
+            + "<th>Callers</th></tr></thead><tbody>\n");
+        for (FunctionCost cost : callGraph.getFunctionCosts()) {
+            writeLocationCells(cost.getScriptFile(), cost.getLineNumber());
+            writer.write("<td>");
+            writeEscaped(cost.getFunctionName());
+            writer.write("()</td>");
+            writeNumber(cost.getExecutionCount());
+            writeMillis(cost.getInclusiveTimeNanos());
+            writeMillis(cost.getSelfTimeNanos());
+            writeNumber(cost.getCallSiteCount());
+            writeNumber(cost.getCallerCount());
+            writer.write("</tr>\n");
+        }
+        writer.write("</tbody></table>\n");
+    }
+    
+    private void writeVariables(List<VariableAccessData> variableData, long durationMs) throws IOException {
+        if (variableData.isEmpty()) return;
+        
+        writer.write("<h2>Variable Access</h2>\n<table class=\"sortable\"><thead><tr><th>Script</th><th>Line</th>"
+            + "<th>Variable</th><th>Reads</th><th>Writes</th><th>Rate/s</th><th>Distinct Keys</th>"
+            + "</tr></thead><tbody>\n");
+        for (VariableAccessData data : variableData) {
+            writeLocationCells(data.getScriptFile(), data.getLineNumber());
+            writer.write("<td>");
+            writeEscaped(data.getPattern());
+            writer.write("</td>");
+            writeNumber(data.getReadCount());
+            writeNumber(data.getWriteCount());
+            double rate = data.getAccessRate(durationMs);
+            writeNumber(rate, format("%.1f", rate));
+            writeNumber(data.getEstimatedDistinctKeys(), "~" + data.getEstimatedDistinctKeys());
+            writer.write("</tr>\n");
+        }
+        writer.write("</tbody></table>\n");
+    }
+    
+    private void writeIssues(List<PerformanceIssue> issues) throws IOException {
+        writer.write("<h2>Issues</h2>\n");
+        if (issues.isEmpty()) {
+            writer.write("<p>No performance issues detected.</p>\n");
+            return;
+        }
+        
+        writer.write("<select id=\"severity-filter\"><option value=\"\">All severities</option>");
+        for (PerformanceIssue.Severity severity : PerformanceIssue.Severity.values()) {
+            writer.write("<option>" + severity.name() + "</option>");
+        }
+        writer.write("</select>\n");
+        for (PerformanceIssue issue : issues) {
+            writer.write("<div class=\"issue " + issue.getSeverity().name() + "\"><b>[" + issue.getSeverity().name() + "] ");
+            writeEscaped(issue.getTitle());
+            writer.write("</b> &mdash; ");
+            writeEscaped(getShortFileName(issue.getScriptFile()));
+            writer.write(":" + issue.getLineNumber() + "<br>");
+            writeEscaped(issue.getDescription());
+            if (includeSuggestions) {
+                writer.write("<br><span class=\"suggestion\">Suggestion: ");
+                writeEscaped(issue.getSuggestion());
+                writer.write("</span>");
+            }
+            writer.write("</div>\n");
+        }
+    }
+    
+    private void writeSummaryRow(String label, String value) throws IOException {
+        writer.write("<tr><td>");
+        writer.write(label);
+        writer.write("</td><td>");
+        writeEscaped(value);
+        writer.write("</td></tr>\n");
+    }
+    
+    private void writeLocationCells(String scriptFile, int lineNumber) throws IOException {
+        writer.write("<tr><td title=\"");
+        writeEscaped(scriptFile);
+        writer.write("\">");
+        writeEscaped(getShortFileName(scriptFile));
+        writer.write("</td>");
+        writeNumber(lineNumber);
+    }
+    
+    private void writeNumber(long value) throws IOException {
+        String text = Long.toString(value);
+        writer.write("<td class=\"n\" data-v=\"");
+        writer.write(text);
+        writer.write("\">");
+        writer.write(text);
+        writer.write("</td>");
+    }
+    
+    /**
+     * Writes a numeric cell that sorts by its raw value but shows formatted text (already HTML-safe)
+     */
+    private void writeNumber(double value, String text) throws IOException {
+        writer.write("<td class=\"n\" data-v=\"");
+        writer.write(Double.toString(value));
+        writer.write("\">");
+        writer.write(text);
+        writer.write("</td>");
+    }
+    
+    private void writeMillis(long nanos) throws IOException {
+        double millis = nanos / 1_000_000.0;
+        writeNumber(millis, format("%.2f", millis));
+    }
+    
+    /**
+     * Writes text with HTML special characters escaped, copying unescaped runs straight to the writer
+     */
+    private void writeEscaped(String value) throws IOException {
+        if (value == null) return;
+        
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement = switch (value.charAt(i)) {
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '&' -> "&amp;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement == null) continue;
+            
+            writer.write(value, start, i - start);
+            writer.write(replacement);
+            start = i + 1;
+        }
+        writer.write(value, start, value.length() - start);
+    }
+    
+    // Numbers in the page must not depend on the server locale
+    private static String format(String pattern, Object... args) {
+        return String.format(Locale.ROOT, pattern, args);
+    }
+    
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000) return format("%.1fms", nanos / 1_000_000.0);
+        if (nanos >= 1_000) return format("%.1fµs", nanos / 1_000.0);
+        return nanos + "ns";
+    }
+    
+    private static String getShortFileName(String fullPath) {
+        if (fullPath == null) return "unknown";
+        int lastSeparator = Math.max(fullPath.lastIndexOf('/'), fullPath.lastIndexOf('\\'));
+        return lastSeparator >= 0 ? fullPath.substring(lastSeparator + 1) : fullPath;
+    }
+}
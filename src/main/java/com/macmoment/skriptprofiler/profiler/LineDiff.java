@@ -0,0 +1,203 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the lines of a script to their position in an edited version, so data recorded against the old
+ * line numbers can follow the code it belongs to. Uses Myers' shortest edit script on the lines between
+ * the common prefix and suffix, falling back to matching unique lines for large rewrites; indentation
+ * changes do not count as edits.
+ */
+public final class LineDiff {
+    
+    // Trace memory grows with the square of the edit distance; larger rewrites fall back to unique lines
+    private static final int MAX_EDITS = 1000;
+    
+    private LineDiff() {
+    }
+    
+    /**
+     * Maps each old line number to its new line number
+     *
+     * @return array indexed by old line number (index 0 unused) holding the new line number,
+     *         or 0 if the line was removed or changed
+     */
+    public static int[] mapLines(List<String> oldLines, List<String> newLines) {
+        int oldSize = oldLines.size();
+        int newSize = newLines.size();
+        int[] lineMap = new int[oldSize + 1];
+        
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize && same(oldLines.get(prefix), newLines.get(prefix))) {
+            prefix++;
+            lineMap[prefix] = prefix;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && same(oldLines.get(oldSize - 1 - suffix), newLines.get(newSize - 1 - suffix))) {
+            lineMap[oldSize - suffix] = newSize - suffix;
+            suffix++;
+        }
+        
+        int[][] middle = intern(oldLines.subList(prefix, oldSize - suffix), newLines.subList(prefix, newSize - suffix));
+        alignMiddle(middle[0], middle[1], prefix, lineMap);
+        return lineMap;
+    }
+    
+    /**
+     * Looks up the new line of an old line number. Lines at or below 0 are not tied to a line and are kept.
+     *
+     * @return the new line number, or 0 if the line no longer exists
+     */
+    public static int mapLine(int[] lineMap, int lineNumber) {
+        if (lineNumber <= 0) {
+            return lineNumber;
+        }
+        return lineNumber < lineMap.length ? lineMap[lineNumber] : 0;
+    }
+    
+    /**
+     * Replaces lines by ids so the edit search compares ints
+     */
+    private static int[][] intern(List<String> oldLines, List<String> newLines) {
+        Map<String, Integer> ids = new HashMap<>();
+        int[] a = new int[oldLines.size()];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = ids.computeIfAbsent(oldLines.get(i).strip(), k -> ids.size());
+        }
+        int[] b = new int[newLines.size()];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = ids.computeIfAbsent(newLines.get(i).strip(), k -> ids.size());
+        }
+        return new int[][] {a, b};
+    }
+    
+    private static void alignMiddle(int[] a, int[] b, int offset, int[] lineMap) {
+        int n = a.length;
+        int m = b.length;
+        if (n == 0 || m == 0) {
+            return;
+        }
+        
+        // Forward pass: v[k] is the furthest x reached on diagonal k; keep the -d..d slice of every round
+        int max = Math.min(n + m, MAX_EDITS);
+        int[] v = new int[2 * max + 3];
+        int center = max + 1;
+        List<int[]> trace = new ArrayList<>();
+        int edits = -1;
+        
+        search:
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[center + k - 1] < v[center + k + 1])
+                    ? v[center + k + 1]
+                    : v[center + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[x] == b[y]) {
+                    x++;
+                    y++;
+                }
+                v[center + k] = x;
+                if (x >= n && y >= m) {
+                    trace.add(slice(v, center, d));
+                    edits = d;
+                    break search;
+                }
+            }
+            trace.add(slice(v, center, d));
+        }
+        if (edits < 0) {
+            alignUniqueLines(a, b, offset, lineMap);
+            return;
+        }
+        
+        // Walk back through the rounds; every diagonal step is a line kept in both versions
+        int x = n;
+        int y = m;
+        for (int d = edits; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+            int previousK = k == -d || (k != d && previous[k - 1 + d - 1] < previous[k + 1 + d - 1]) ? k + 1 : k - 1;
+            int previousX = previous[previousK + d - 1];
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+                lineMap[offset + x + 1] = offset + y + 1;
+            }
+            x = previousX;
+            y = previousY;
+        }
+        while (x > 0 && y > 0) {
+            x--;
+            y--;
+            lineMap[offset + x + 1] = offset + y + 1;
+        }
+    }
+    
+    /**
+     * Fallback for large rewrites: keeps lines that occur exactly once in both versions, in order
+     * (the longest increasing run of their new positions, as in patience diff)
+     */
+    private static void alignUniqueLines(int[] a, int[] b, int offset, int[] lineMap) {
+        Map<Integer, Integer> oldPositions = uniquePositions(a);
+        Map<Integer, Integer> newPositions = uniquePositions(b);
+        
+        List<int[]> pairs = new ArrayList<>();
+        for (int x = 0; x < a.length; x++) {
+            Integer y = newPositions.get(a[x]);
+            if (y != null && oldPositions.containsKey(a[x])) {
+                pairs.add(new int[] {x, y});
+            }
+        }
+        
+        // Longest increasing subsequence of new positions, with back links to rebuild it
+        int[] tails = new int[pairs.size()];
+        int[] previous = new int[pairs.size()];
+        int length = 0;
+        for (int i = 0; i < pairs.size(); i++) {
+            int y = pairs.get(i)[1];
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (pairs.get(tails[mid])[1] < y) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            length = Math.max(length, low + 1);
+        }
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            lineMap[offset + pairs.get(i)[0] + 1] = offset + pairs.get(i)[1] + 1;
+        }
+    }
+    
+    /**
+     * Gets the position of every id that occurs exactly once
+     */
+    private static Map<Integer, Integer> uniquePositions(int[] ids) {
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            positions.merge(ids[i], i, (first, second) -> -1);
+        }
+        positions.values().removeIf(position -> position < 0);
+        return positions;
+    }
+    
+    private static int[] slice(int[] v, int center, int d) {
+        int[] slice = new int[2 * d + 1];
+        System.arraycopy(v, center - d, slice, 0, slice.length);
+        return slice;
+    }
+    
+    private static boolean same(String oldLine, String newLine) {
+        return oldLine.strip().equals(newLine.strip());
+    }
+}
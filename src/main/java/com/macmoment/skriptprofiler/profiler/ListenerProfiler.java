@@ -0,0 +1,170 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.model.ProfileData;
+import com.macmoment.skriptprofiler.model.ThreadClass;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times the event listeners of every plugin, Skript included, so script time can be compared with
+ * the rest of the server. Each RegisteredListener in the server's handler lists is swapped for a
+ * timing wrapper; time is aggregated per plugin and event class into ProfileData whose script file
+ * is the plugin name.
+ *
+ * Listeners registered after wrapping are not timed. Unwrapping puts the original listeners back
+ * in their original order. The profiler's own listeners are left alone.
+ */
+public class ListenerProfiler {
+    
+    public static final String ELEMENT_TYPE = "listener";
+    
+    private final Plugin self;
+    private final Map<String, ProfileData> listenerData;
+    private final List<HandlerList> wrappedLists;
+    private volatile boolean recording;
+    // Bumped on reset so wrappers drop the entries they cached
+    private volatile int generation;
+    
+    public ListenerProfiler(Plugin self) {
+        this.self = self;
+        this.listenerData = new ConcurrentHashMap<>();
+        this.wrappedLists = new ArrayList<>();
+    }
+    
+    /**
+     * Wraps every listener currently registered, must be called on the main thread
+     *
+     * @return the number of listeners wrapped
+     */
+    public synchronized int wrap() {
+        recording = true;
+        int wrapped = 0;
+        // New handler lists are added as event classes load, under the list's own lock
+        List<HandlerList> allLists = HandlerList.getHandlerLists();
+        List<HandlerList> lists;
+        synchronized (allLists) {
+            lists = new ArrayList<>(allLists);
+        }
+        for (HandlerList handlers : lists) {
+            // Holding the list's lock keeps other threads from baking it while listeners are swapped
+            synchronized (handlers) {
+                RegisteredListener[] listeners = handlers.getRegisteredListeners();
+                boolean any = false;
+                for (RegisteredListener listener : listeners) {
+                    if (!(listener instanceof TimedListener) && listener.getPlugin() != self) {
+                        any = true;
+                        break;
+                    }
+                }
+                if (!any) continue;
+                
+                // Re-registering every listener of the list in turn keeps their order within a priority
+                for (RegisteredListener listener : listeners) {
+                    handlers.unregister(listener);
+                }
+                for (RegisteredListener listener : listeners) {
+                    if (!(listener instanceof TimedListener) && listener.getPlugin() != self) {
+                        handlers.register(new TimedListener(listener));
+                        wrapped++;
+                    } else {
+                        handlers.register(listener);
+                    }
+                }
+                wrappedLists.add(handlers);
+            }
+        }
+        return wrapped;
+    }
+    
+    /**
+     * Puts the original listeners back and stops recording, must be called on the main thread
+     */
+    public synchronized void unwrap() {
+        recording = false;
+        for (HandlerList handlers : wrappedLists) {
+            synchronized (handlers) {
+                // Wrappers removed in the meantime, e.g. by a plugin disabling, stay removed
+                RegisteredListener[] listeners = handlers.getRegisteredListeners();
+                for (RegisteredListener listener : listeners) {
+                    handlers.unregister(listener);
+                }
+                for (RegisteredListener listener : listeners) {
+                    handlers.register(listener instanceof TimedListener timed ? timed.original : listener);
+                }
+            }
+        }
+        wrappedLists.clear();
+    }
+    
+    public boolean isWrapped() {
+        return recording;
+    }
+    
+    /**
+     * Gets the time per plugin and event class, keyed by "plugin:event class"
+     */
+    public Map<String, ProfileData> getListenerData() {
+        return listenerData;
+    }
+    
+    public void reset() {
+        generation++;
+        listenerData.clear();
+    }
+    
+    /**
+     * Finds the entry of a plugin and event class, called once per wrapper and event class
+     */
+    private ProfileData getOrCreate(String pluginName, Class<? extends Event> eventClass) {
+        return listenerData.computeIfAbsent(pluginName + ":" + eventClass.getName(),
+            k -> new ProfileData(pluginName, 0, ELEMENT_TYPE, eventClass.getSimpleName()));
+    }
+    
+    /**
+     * Times the original listener. The entry of the last event class seen is cached, so a call costs
+     * two nanoTime reads and the counter updates.
+     */
+    private final class TimedListener extends RegisteredListener {
+        private final RegisteredListener original;
+        private final String pluginName;
+        private volatile Target target;
+        
+        TimedListener(RegisteredListener original) {
+            super(original.getListener(), (listener, event) -> original.callEvent(event), original.getPriority(),
+                original.getPlugin(), original.isIgnoringCancelled());
+            this.original = original;
+            this.pluginName = original.getPlugin().getName();
+        }
+        
+        @Override
+        public void callEvent(Event event) throws EventException {
+            if (!recording) {
+                original.callEvent(event);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                original.callEvent(event);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                Target current = target;
+                if (current == null || current.eventClass != event.getClass() || current.generation != generation) {
+                    current = new Target(event.getClass(), generation, getOrCreate(pluginName, event.getClass()));
+                    target = current;
+                }
+                current.data.recordExecution(elapsed, event.isAsynchronous() ? ThreadClass.ASYNC : ThreadClass.MAIN);
+            }
+        }
+    }
+    
+    private record Target(Class<? extends Event> eventClass, int generation, ProfileData data) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.SkriptProfilerPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.boss.BarColor;
+import org.bukkit.boss.BarStyle;
+import org.bukkit.boss.BossBar;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-game boss bar dashboard showing main thread Skript ms per tick and the top offending scripts.
+ * Refreshes once per second while at least one player is viewing it.
+ */
+public class LiveDashboard {
+    
+    private static final double TICK_BUDGET_MS = 50.0;
+    
+    private final SkriptProfilerPlugin plugin;
+    private final ExecutionTracker executionTracker;
+    private final LiveLeaderboard leaderboard;
+    private final Set<UUID> viewers;
+    private BossBar bossBar;
+    private BukkitTask refreshTask;
+    
+    public LiveDashboard(SkriptProfilerPlugin plugin, ExecutionTracker executionTracker) {
+        this.plugin = plugin;
+        this.executionTracker = executionTracker;
+        this.leaderboard = new LiveLeaderboard(Math.max(1, plugin.getConfig().getInt("reporting.live-top-scripts", 3)));
+        this.viewers = ConcurrentHashMap.newKeySet();
+    }
+    
+    /**
+     * Toggles the dashboard for a player
+     *
+     * @return true if the dashboard is now shown to the player
+     */
+    public boolean toggle(Player player) {
+        dropOfflineViewers();
+        if (viewers.remove(player.getUniqueId())) {
+            bossBar.removePlayer(player);
+            if (viewers.isEmpty()) {
+                stopRefreshing();
+            }
+            return false;
+        }
+        
+        if (bossBar == null) {
+            bossBar = Bukkit.createBossBar("SkriptProfiler", BarColor.GREEN, BarStyle.SEGMENTED_10);
+        }
+        viewers.add(player.getUniqueId());
+        bossBar.addPlayer(player);
+        if (refreshTask == null) {
+            leaderboard.reset();
+            refreshTask = Bukkit.getScheduler().runTaskTimer(plugin, this::refresh, 0L, 20L);
+        }
+        return true;
+    }
+    
+    /**
+     * Refreshes the leaderboard and the boss bar
+     */
+    private void refresh() {
+        dropOfflineViewers();
+        if (viewers.isEmpty()) {
+            stopRefreshing();
+            return;
+        }
+        
+        if (!executionTracker.isTracking()) {
+            bossBar.setTitle(ChatColor.GRAY + "SkriptProfiler: not profiling");
+            bossBar.setColor(BarColor.WHITE);
+            bossBar.setProgress(0);
+            return;
+        }
+        
+        leaderboard.refresh(executionTracker.getProfileData().values(), executionTracker.getServerTick());
+        double msPerTick = leaderboard.getSkriptMsPerTick();
+        List<LiveLeaderboard.Entry> topScripts = leaderboard.getTopScripts();
+        
+        String scripts = topScripts.stream()
+            .map(entry -> String.format("%s %.2f", getShortFileName(entry.getScriptFile()), entry.getMsPerTick()))
+            .collect(Collectors.joining(ChatColor.GRAY + ", " + ChatColor.WHITE));
+        bossBar.setTitle(String.format("%sSkript %s%.2fms/tick%s%s",
+            ChatColor.AQUA, ChatColor.WHITE, msPerTick,
+            scripts.isEmpty() ? "" : ChatColor.GRAY + " | " + ChatColor.WHITE, scripts));
+        bossBar.setProgress(Math.min(1.0, msPerTick / TICK_BUDGET_MS));
+        bossBar.setColor(msPerTick >= TICK_BUDGET_MS / 2 ? BarColor.RED :
+                         msPerTick >= TICK_BUDGET_MS / 5 ? BarColor.YELLOW : BarColor.GREEN);
+    }
+    
+    /**
+     * Drops viewers who logged out from the viewers and the boss bar. A player who rejoined has a new
+     * Player handle, so the stale one on the bar is removed and the player counts as not viewing.
+     */
+    private void dropOfflineViewers() {
+        if (bossBar == null) return;
+        for (Player shown : bossBar.getPlayers()) {
+            if (Bukkit.getPlayer(shown.getUniqueId()) != shown) {
+                bossBar.removePlayer(shown);
+                viewers.remove(shown.getUniqueId());
+            }
+        }
+        viewers.removeIf(id -> Bukkit.getPlayer(id) == null);
+    }
+    
+    private void stopRefreshing() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+    
+    /**
+     * Hides the dashboard from everyone and stops refreshing
+     */
+    public void shutdown() {
+        stopRefreshing();
+        viewers.clear();
+        if (bossBar != null) {
+            bossBar.removeAll();
+            bossBar = null;
+        }
+    }
+    
+    /**
+     * Gets short filename from full path
+     */
+    private String getShortFileName(String fullPath) {
+        int lastSeparator = Math.max(fullPath.lastIndexOf('/'), fullPath.lastIndexOf('\\'));
+        return lastSeparator >= 0 ? fullPath.substring(lastSeparator + 1) : fullPath;
+    }
+}
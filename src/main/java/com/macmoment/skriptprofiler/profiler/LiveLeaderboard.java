@@ -0,0 +1,120 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.model.ProfileData;
+import com.macmoment.skriptprofiler.util.TopN;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains a top-N leaderboard of scripts by main thread Skript time per tick since the previous refresh.
+ * Async time does not hold up the tick, so it is left out of the figures compared with the tick budget.
+ * Each refresh is a single O(N) pass over the elements plus a bounded top-N selection.
+ */
+public class LiveLeaderboard {
+    
+    private final int size;
+    private Map<ProfileData, Long> lastTotals;
+    private long lastTick;
+    private volatile List<Entry> topScripts;
+    private volatile double skriptMsPerTick;
+    
+    public LiveLeaderboard(int size) {
+        this.size = size;
+        this.lastTotals = new HashMap<>();
+        this.lastTick = -1;
+        this.topScripts = new ArrayList<>();
+        this.skriptMsPerTick = 0;
+    }
+    
+    /**
+     * Recomputes per-script main thread time since the last refresh
+     *
+     * @param profileData all current profile entries
+     * @param currentTick the current server tick, used to convert time deltas to per-tick values
+     */
+    public synchronized void refresh(Collection<ProfileData> profileData, long currentTick) {
+        Map<ProfileData, Long> totals = new HashMap<>(profileData.size() * 2);
+        Map<String, Long> scriptDeltas = new HashMap<>();
+        long totalDelta = 0;
+        
+        for (ProfileData data : profileData) {
+            long total = data.getMainThreadExecutionTimeNanos();
+            totals.put(data, total);
+            
+            Long previous = lastTotals.get(data);
+            long delta = total - (previous == null ? 0 : previous);
+            if (delta > 0) {
+                scriptDeltas.merge(data.getScriptFile(), delta, Long::sum);
+                totalDelta += delta;
+            }
+        }
+        
+        long ticks = lastTick < 0 ? 0 : currentTick - lastTick;
+        lastTotals = totals;
+        lastTick = currentTick;
+        
+        // The first refresh only primes the totals
+        if (ticks <= 0) {
+            topScripts = new ArrayList<>();
+            skriptMsPerTick = 0;
+            return;
+        }
+        
+        List<Entry> entries = new ArrayList<>(scriptDeltas.size());
+        for (Map.Entry<String, Long> delta : scriptDeltas.entrySet()) {
+            entries.add(new Entry(delta.getKey(), delta.getValue() / 1_000_000.0 / ticks));
+        }
+        topScripts = TopN.select(entries, size, Comparator.comparingDouble(Entry::getMsPerTick));
+        skriptMsPerTick = totalDelta / 1_000_000.0 / ticks;
+    }
+    
+    /**
+     * Gets the top scripts from the last refresh, slowest first
+     */
+    public List<Entry> getTopScripts() {
+        return topScripts;
+    }
+    
+    /**
+     * Gets the main thread Skript milliseconds per tick from the last refresh
+     */
+    public double getSkriptMsPerTick() {
+        return skriptMsPerTick;
+    }
+    
+    /**
+     * Clears all snapshot state
+     */
+    public synchronized void reset() {
+        lastTotals = new HashMap<>();
+        lastTick = -1;
+        topScripts = new ArrayList<>();
+        skriptMsPerTick = 0;
+    }
+    
+    /**
+     * A script's main thread Skript time in the last refresh window
+     */
+    public static class Entry {
+        private final String scriptFile;
+        private final double msPerTick;
+        
+        Entry(String scriptFile, double msPerTick) {
+            this.scriptFile = scriptFile;
+            this.msPerTick = msPerTick;
+        }
+        
+        public String getScriptFile() {
+            return scriptFile;
+        }
+        
+        public double getMsPerTick() {
+            return msPerTick;
+        }
+    }
+}
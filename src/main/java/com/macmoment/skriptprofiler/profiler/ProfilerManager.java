@@ -1,12 +1,35 @@
 package com.macmoment.skriptprofiler.profiler;
 
 import com.macmoment.skriptprofiler.SkriptProfilerPlugin;
+import com.macmoment.skriptprofiler.jfr.ProfilingSessionEvent;
+import com.macmoment.skriptprofiler.jfr.ReportGenerationEvent;
+import com.macmoment.skriptprofiler.model.CallGraphAnalysis;
+import com.macmoment.skriptprofiler.model.PerformanceIssue;
 import com.macmoment.skriptprofiler.model.ProfileData;
+import com.macmoment.skriptprofiler.model.ProfileSnapshot;
+import com.macmoment.skriptprofiler.model.ScriptInfo;
 import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
 import org.bukkit.scheduler.BukkitTask;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Manages the profiling lifecycle and coordinates all profiler components
@@ -15,23 +38,53 @@ public class ProfilerManager {
     
     private final SkriptProfilerPlugin plugin;
     private final ScriptFileLoader scriptLoader;
+    private final ScriptWatcher scriptWatcher;
     private final ExecutionTracker executionTracker;
     private final BottleneckAnalyzer bottleneckAnalyzer;
     private final ReportGenerator reportGenerator;
+    private final LiveDashboard liveDashboard;
     
     private volatile boolean isProfiling;
     private long profilingStartTime;
     private BukkitTask tpsMonitorTask;
-    private double currentTPS;
+    private BukkitTask populationTask;
+    private BukkitTask tickTask;
+    private BukkitTask recorderTask;
+    private BukkitTask schedulerTask;
+    private ProfilingSessionEvent sessionEvent;
+    private final TickMonitor tickMonitor;
+    private final ListenerProfiler listenerProfiler;
+    private final SchedulerProfiler schedulerProfiler;
+    private Listener tickListener;
     
     public ProfilerManager(SkriptProfilerPlugin plugin) {
         this.plugin = plugin;
         this.scriptLoader = new ScriptFileLoader(plugin);
+        this.scriptWatcher = new ScriptWatcher(plugin, scriptLoader);
+        this.scriptLoader.setReloadListener(this::remapEditedScript);
         this.executionTracker = new ExecutionTracker(plugin);
+        this.executionTracker.getAlertEngine().setStaffSink(this::notifyStaff);
         this.bottleneckAnalyzer = new BottleneckAnalyzer(plugin);
         this.reportGenerator = new ReportGenerator(plugin);
+        this.liveDashboard = new LiveDashboard(plugin, executionTracker);
+        this.tickMonitor = new TickMonitor();
+        this.listenerProfiler = new ListenerProfiler(plugin);
+        this.schedulerProfiler = new SchedulerProfiler(plugin, plugin.getLogger());
         this.isProfiling = false;
-        this.currentTPS = 20.0;
+        startFlightRecorder();
+    }
+    
+    /**
+     * Marks tick boundaries between sessions so the flight recorder keeps checking for lag spikes;
+     * during a session the session's tick task does this
+     */
+    private void startFlightRecorder() {
+        if (!plugin.getConfig().getBoolean("flight-recorder.enabled", true)) return;
+        recorderTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            if (!isProfiling) {
+                executionTracker.onServerTick();
+            }
+        }, 1L, 1L);
     }
     
     /**
@@ -47,11 +100,46 @@ public class ProfilerManager {
         // Load all script files
         scriptLoader.loadAllScripts();
         
+        // Keep loaded scripts current while the session runs
+        scriptWatcher.start();
+        
         // Reset tracker
         executionTracker.reset();
         
         // Start tracking
         executionTracker.startTracking();
+        sessionEvent = new ProfilingSessionEvent();
+        sessionEvent.begin();
+        
+        // Measure every tick, by busy time where the server has tick events
+        tickMonitor.reset();
+        tickMonitor.start(registerTickEvents());
+        
+        // Time every plugin's listeners for comparison with Skript
+        listenerProfiler.reset();
+        if (plugin.getConfig().getBoolean("profiling.time-all-listeners", false)) {
+            int wrapped = listenerProfiler.wrap();
+            plugin.getLogger().info("Timing " + wrapped + " event listeners of all plugins");
+        }
+        
+        // Sample every plugin's scheduler tasks once per second
+        schedulerProfiler.reset();
+        if (plugin.getConfig().getBoolean("profiling.track-scheduler", true)) {
+            if (plugin.getConfig().getBoolean("profiling.time-scheduler-tasks", false)) {
+                schedulerProfiler.startTiming();
+            }
+            schedulerTask = Bukkit.getScheduler().runTaskTimer(plugin,
+                () -> schedulerProfiler.sample(Bukkit.getScheduler()), 20L, 20L);
+        }
+        
+        // Mark tick boundaries for per-tick counters
+        tickTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            tickMonitor.onSchedulerTick();
+            executionTracker.onServerTick();
+        }, 0L, 1L);
+        
+        // Sample players and entities so loop sizes can be correlated with them
+        startPopulationSampling();
         
         // Start TPS monitoring if enabled
         if (plugin.getConfig().getBoolean("profiling.tps-aware", true)) {
@@ -83,6 +171,9 @@ public class ProfilerManager {
         
         // Stop tracking
         executionTracker.stopTracking();
+        commitSessionEvent();
+        
+        scriptWatcher.stop();
         
         // Stop TPS monitoring
         if (tpsMonitorTask != null) {
@@ -90,6 +181,32 @@ public class ProfilerManager {
             tpsMonitorTask = null;
         }
         
+        // Stop tick boundary task
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        if (tickListener != null) {
+            HandlerList.unregisterAll(tickListener);
+            tickListener = null;
+        }
+        if (listenerProfiler.isWrapped()) {
+            listenerProfiler.unwrap();
+        }
+        
+        // Stop scheduler sampling and put timed tasks back
+        if (schedulerTask != null) {
+            schedulerTask.cancel();
+            schedulerTask = null;
+        }
+        schedulerProfiler.stop();
+        
+        // Stop population sampling
+        if (populationTask != null) {
+            populationTask.cancel();
+            populationTask = null;
+        }
+        
         isProfiling = false;
         
         plugin.getLogger().info("Profiling session stopped!");
@@ -97,42 +214,312 @@ public class ProfilerManager {
     }
     
     /**
-     * Generates a performance report
+     * Ends the JFR session event, if any recording is interested in it
      */
-    public String generateReport(boolean detailed) {
+    private void commitSessionEvent() {
+        if (sessionEvent == null) return;
+        
+        sessionEvent.end();
+        if (sessionEvent.shouldCommit()) {
+            Map<String, ProfileData> profileData = executionTracker.getProfileData();
+            sessionEvent.setScriptsLoaded(scriptLoader.getLoadedScripts().size());
+            sessionEvent.setElementsTracked(profileData.size());
+            sessionEvent.setTotalExecutions(profileData.values().stream().mapToLong(ProfileData::getExecutionCount).sum());
+            sessionEvent.commit();
+        }
+        sessionEvent = null;
+    }
+    
+    /**
+     * Moves recorded data to the new line numbers of a script edited during the session. Called from the
+     * script watcher; the line diff is computed there and the data is moved on the main thread, where
+     * scripts record.
+     */
+    private void remapEditedScript(ScriptInfo previous, ScriptInfo current) {
+        List<String> oldLines = previous.getLines();
+        List<String> newLines = current != null ? current.getLines() : List.of();
+        if (oldLines.equals(newLines) || !plugin.isEnabled()) {
+            return;
+        }
+        
+        int[] lineMap = LineDiff.mapLines(oldLines, newLines);
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            int retired = executionTracker.remapScript(previous.getFilePath(), lineMap);
+            if (retired > 0) {
+                plugin.getLogger().info("Retired profile data for " + retired + " removed line(s) in " + previous.getFileName());
+            }
+        });
+    }
+    
+    /**
+     * Sends an alert to online players allowed to receive them. Called from the alert thread.
+     */
+    private void notifyStaff(String message) {
+        if (!plugin.isEnabled()) return;
+        
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                if (player.hasPermission("skriptprofiler.alerts")) {
+                    player.sendMessage(ChatColor.GOLD + "[SkriptProfiler] " + ChatColor.YELLOW + message);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Generates a performance report in the background. The snapshot is taken on the calling thread;
+     * the analysis and formatting run off the main thread.
+     *
+     * @param callback receives the report on the main thread
+     */
+    public void generateReport(boolean detailed, Consumer<String> callback) {
         Map<String, ProfileData> profileData = executionTracker.getProfileData();
         
         if (profileData.isEmpty()) {
-            return "No profiling data available. Start profiling first!";
+            callback.accept("No profiling data available. Start profiling first!");
+            return;
         }
         
-        // Analyze for bottlenecks
-        bottleneckAnalyzer.analyze(profileData, scriptLoader.getLoadedScripts());
+        ProfileSnapshot snapshot = createSnapshot();
+        Map<String, ScriptInfo> scripts = scriptLoader.getLoadedScripts();
         
-        // Generate report
-        long duration = isProfiling ? 
-            (System.currentTimeMillis() - profilingStartTime) : 
-            executionTracker.getTotalProfilingTime();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            ReportGenerationEvent reportEvent = new ReportGenerationEvent();
+            reportEvent.begin();
+            
+            // Analyze for bottlenecks
+            CallGraphAnalysis callGraph = scriptLoader.getCallGraph().analyze(snapshot.getProfileData(), snapshot.getLoopData(), 5);
+            List<PerformanceIssue> issues = bottleneckAnalyzer.analyze(snapshot, scripts, callGraph);
+            
+            // Generate report
+            String report = reportGenerator.generateReport(snapshot, issues, scripts, callGraph, detailed);
             
-        return reportGenerator.generateReport(
-            profileData,
-            bottleneckAnalyzer.getIssues(),
-            scriptLoader.getLoadedScripts(),
+            reportEvent.end();
+            if (reportEvent.shouldCommit()) {
+                reportEvent.setElements(snapshot.getProfileData().size());
+                reportEvent.setIssues(issues.size());
+                reportEvent.setDetailed(detailed);
+                reportEvent.commit();
+            }
+            Bukkit.getScheduler().runTask(plugin, () -> callback.accept(report));
+        });
+    }
+    
+    /**
+     * Creates a snapshot of the current session backed by the tracker's live data
+     */
+    public ProfileSnapshot createSnapshot() {
+        long duration = isProfiling ?
+            (System.currentTimeMillis() - profilingStartTime) :
+            executionTracker.getTotalProfilingTime();
+        
+        String nodeName = plugin.getConfig().getString("fleet.node-name", "");
+        if (nodeName == null || nodeName.isEmpty()) {
+            nodeName = "server-" + Bukkit.getServer().getPort();
+        }
+        
+        return new ProfileSnapshot(
+            nodeName,
+            executionTracker.getProfileData(),
+            executionTracker.getLoopData(),
+            executionTracker.getVariableData(),
+            executionTracker.getWaitData(),
+            executionTracker.getResumeStorms(),
+            executionTracker.getResumeStormCount(),
+            executionTracker.getThreadUsage(),
+            executionTracker.getTrackedTicks(),
             duration,
-            currentTPS,
-            detailed
+            tickMonitor.getAverageTps(),
+            tickMonitor.getHistogram(),
+            listenerProfiler.getListenerData(),
+            schedulerProfiler.getTaskData(),
+            schedulerProfiler.getTaskCounts()
         );
     }
     
+    /**
+     * Saves the current session to the sessions folder in the background so it can be merged with other servers'
+     *
+     * @param callback receives a status message on the main thread
+     */
+    public void saveSession(Consumer<String> callback) {
+        ProfileSnapshot snapshot = createSnapshot();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            String message;
+            File folder = new File(plugin.getDataFolder(), "sessions");
+            String name = snapshot.getSource().replaceAll("[^\\w.-]", "_") + "-"
+                + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + SessionFile.EXTENSION;
+            File file = new File(folder, name);
+            if (!folder.exists() && !folder.mkdirs()) {
+                message = ChatColor.RED + "Could not create sessions folder: " + folder.getAbsolutePath();
+            } else {
+                try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                    SessionFile.write(snapshot, writer);
+                    message = ChatColor.GREEN + "Session saved to sessions/" + name;
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Failed to save session: " + e.getMessage());
+                    message = ChatColor.RED + "Failed to save session: " + e.getMessage();
+                }
+            }
+            String result = message;
+            Bukkit.getScheduler().runTask(plugin, () -> callback.accept(result));
+        });
+    }
+    
+    /**
+     * Merges every saved session in the sessions folder (or a subfolder of it) into a fleet-wide report,
+     * written to the reports folder. Runs in the background.
+     *
+     * @param callback receives status messages on the main thread
+     */
+    public void mergeSessions(String subfolder, Consumer<String> callback) {
+        File sessionsFolder = new File(plugin.getDataFolder(), "sessions");
+        File folder = subfolder != null ? new File(sessionsFolder, subfolder) : sessionsFolder;
+        Map<String, ScriptInfo> scripts = scriptLoader.getLoadedScripts();
+        int threads = plugin.getConfig().getInt("fleet.merge-threads", 4);
+        
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            String message;
+            try {
+                List<Path> files = folder.isDirectory() ? SessionMerger.findSessionFiles(folder.toPath()) : List.of();
+                if (files.isEmpty()) {
+                    message = ChatColor.YELLOW + "No " + SessionFile.EXTENSION + " files found in " + folder.getPath();
+                } else {
+                    ProfileSnapshot fleet = new SessionMerger(threads).merge(files, "fleet");
+                    CallGraphAnalysis callGraph = scriptLoader.getCallGraph().analyze(
+                        fleet.getProfileData(), fleet.getLoopData(), 5);
+                    List<PerformanceIssue> issues = bottleneckAnalyzer.analyze(fleet, scripts, callGraph);
+                    String report = reportGenerator.generateReport(fleet, issues, scripts, callGraph, true);
+                    
+                    File reportsFolder = new File(plugin.getDataFolder(), "reports");
+                    if (!reportsFolder.exists() && !reportsFolder.mkdirs()) {
+                        throw new IOException("Could not create reports folder: " + reportsFolder.getAbsolutePath());
+                    }
+                    File reportFile = new File(reportsFolder,
+                        "fleet-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".txt");
+                    Files.writeString(reportFile.toPath(), ChatColor.stripColor(report), StandardCharsets.UTF_8);
+                    message = String.format("%sMerged %d session(s) from %d server(s) with %d issue(s). Report saved to reports/%s",
+                        ChatColor.GREEN, files.size(), fleet.getNodeCount(), issues.size(), reportFile.getName());
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to merge sessions: " + e.getMessage());
+                message = ChatColor.RED + "Failed to merge sessions: " + e.getMessage();
+            }
+            String result = message;
+            Bukkit.getScheduler().runTask(plugin, () -> callback.accept(result));
+        });
+    }
+    
+    /**
+     * Exports the current session with its issues in the background: "html" writes an interactive
+     * report to the reports folder, "json" and "csv" write raw data to the exports folder.
+     * Every format is streamed to disk as it is written.
+     *
+     * @param callback receives a status message on the main thread
+     */
+    public void exportReport(String format, Consumer<String> callback) {
+        ProfileSnapshot snapshot = createSnapshot();
+        Map<String, ScriptInfo> scripts = scriptLoader.getLoadedScripts();
+        boolean includeSuggestions = plugin.getConfig().getBoolean("reporting.include-suggestions", true);
+        
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            String message;
+            try {
+                CallGraphAnalysis callGraph = scriptLoader.getCallGraph().analyze(
+                    snapshot.getProfileData(), snapshot.getLoopData(), 5);
+                List<PerformanceIssue> issues = bottleneckAnalyzer.analyze(snapshot, scripts, callGraph);
+                
+                String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+                File folder = new File(plugin.getDataFolder(), format.equals("html") ? "reports" : "exports");
+                if (!folder.exists() && !folder.mkdirs()) {
+                    throw new IOException("Could not create folder: " + folder.getAbsolutePath());
+                }
+                
+                String written;
+                switch (format) {
+                    case "html" -> {
+                        written = "report-" + timestamp + ".html";
+                        try (BufferedWriter writer = openExport(folder, written)) {
+                            new HtmlReportWriter(writer, includeSuggestions).write(snapshot, issues, scripts, callGraph);
+                        }
+                    }
+                    case "json" -> {
+                        written = "export-" + timestamp + ".json";
+                        try (BufferedWriter writer = openExport(folder, written)) {
+                            new DataExporter(writer).writeJson(snapshot, issues);
+                        }
+                    }
+                    default -> {
+                        // One table per file so each loads straight into a spreadsheet or dataframe
+                        String prefix = "export-" + timestamp;
+                        try (BufferedWriter writer = openExport(folder, prefix + "-elements.csv")) {
+                            new DataExporter(writer).writeElementsCsv(snapshot.getProfileData().values());
+                        }
+                        try (BufferedWriter writer = openExport(folder, prefix + "-loops.csv")) {
+                            new DataExporter(writer).writeLoopsCsv(snapshot.getLoopData());
+                        }
+                        try (BufferedWriter writer = openExport(folder, prefix + "-waits.csv")) {
+                            new DataExporter(writer).writeWaitsCsv(snapshot.getWaitData());
+                        }
+                        try (BufferedWriter writer = openExport(folder, prefix + "-variables.csv")) {
+                            new DataExporter(writer).writeVariablesCsv(snapshot.getVariableData());
+                        }
+                        try (BufferedWriter writer = openExport(folder, prefix + "-issues.csv")) {
+                            new DataExporter(writer).writeIssuesCsv(issues);
+                        }
+                        written = prefix + "-*.csv";
+                    }
+                }
+                message = String.format("%sExported %d element(s) and %d issue(s) to %s/%s",
+                    ChatColor.GREEN, snapshot.getProfileData().size(), issues.size(), folder.getName(), written);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to export " + format + ": " + e.getMessage());
+                message = ChatColor.RED + "Failed to export " + format + ": " + e.getMessage();
+            }
+            String result = message;
+            Bukkit.getScheduler().runTask(plugin, () -> callback.accept(result));
+        });
+    }
+    
+    private static BufferedWriter openExport(File folder, String name) throws IOException {
+        return Files.newBufferedWriter(new File(folder, name).toPath(), StandardCharsets.UTF_8);
+    }
+    
     /**
      * Resets all profiling data
      */
     public void reset() {
         executionTracker.reset();
+        listenerProfiler.reset();
+        schedulerProfiler.reset();
         bottleneckAnalyzer.reset();
         scriptLoader.clearCache();
     }
     
+    /**
+     * Toggles the live boss bar dashboard for a player
+     *
+     * @return true if the dashboard is now shown
+     */
+    public boolean toggleLiveDashboard(Player player) {
+        return liveDashboard.toggle(player);
+    }
+    
+    /**
+     * Stops profiling, the flight recorder, the live dashboard and the analysis threads on plugin disable
+     */
+    public void shutdown() {
+        if (isProfiling) {
+            stopProfiling();
+        }
+        if (recorderTask != null) {
+            recorderTask.cancel();
+            recorderTask = null;
+        }
+        liveDashboard.shutdown();
+        bottleneckAnalyzer.shutdown();
+    }
+    
     /**
      * Checks if profiling is currently active
      */
@@ -141,25 +528,47 @@ public class ProfilerManager {
     }
     
     /**
-     * Gets the current TPS
+     * Gets the current TPS, measured over about the last second of ticks
      */
     public double getCurrentTPS() {
-        return currentTPS;
+        return tickMonitor.getCurrentTps();
     }
     
     /**
-     * Starts monitoring TPS
+     * Gets the tick duration measurements of the current or last session
+     */
+    public TickMonitor getTickMonitor() {
+        return tickMonitor;
+    }
+    
+    /**
+     * Listens to Paper's tick start and end events where the server has them
+     *
+     * @return true if the events are registered
+     */
+    private boolean registerTickEvents() {
+        Class<? extends Event> startEvent;
+        Class<? extends Event> endEvent;
+        try {
+            startEvent = Class.forName("com.destroystokyo.paper.event.server.ServerTickStartEvent").asSubclass(Event.class);
+            endEvent = Class.forName("com.destroystokyo.paper.event.server.ServerTickEndEvent").asSubclass(Event.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            return false;
+        }
+        tickListener = new Listener() {};
+        Bukkit.getPluginManager().registerEvent(startEvent, tickListener, EventPriority.LOWEST,
+            (listener, event) -> tickMonitor.onTickStart(), plugin);
+        Bukkit.getPluginManager().registerEvent(endEvent, tickListener, EventPriority.MONITOR,
+            (listener, event) -> tickMonitor.onTickEnd(), plugin);
+        return true;
+    }
+    
+    /**
+     * Starts warning about low TPS once a second
      */
     private void startTPSMonitoring() {
         tpsMonitorTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
-            // Calculate TPS using Bukkit's TPS method
-            try {
-                double[] recentTps = Bukkit.getTPS();
-                currentTPS = recentTps[0]; // 1-minute average
-            } catch (Exception e) {
-                // Fallback if TPS method is not available
-                currentTPS = 20.0;
-            }
+            double currentTPS = tickMonitor.getCurrentTps();
             
             // Adjust sampling if TPS is low
             if (plugin.getConfig().getBoolean("profiling.tps-aware", true)) {
@@ -171,7 +580,20 @@ public class ProfilerManager {
                     );
                 }
             }
-        }, 0L, 20L); // Update every second
+        }, 0L, 20L); // Check every second
+    }
+    
+    /**
+     * Starts sampling online players and loaded entities once per second
+     */
+    private void startPopulationSampling() {
+        populationTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            int entities = 0;
+            for (World world : Bukkit.getWorlds()) {
+                entities += world.getEntities().size();
+            }
+            executionTracker.updateServerPopulation(Bukkit.getOnlinePlayers().size(), entities);
+        }, 0L, 20L);
     }
     
     public ExecutionTracker getExecutionTracker() {
@@ -1,12 +1,29 @@
 package com.macmoment.skriptprofiler.profiler;
 
-import com.macmoment.skriptprofiler.SkriptProfilerPlugin;
+import com.macmoment.skriptprofiler.ProfilerContext;
+import com.macmoment.skriptprofiler.model.AttributionData;
+import com.macmoment.skriptprofiler.model.CallGraphAnalysis;
+import com.macmoment.skriptprofiler.model.CallPath;
+import com.macmoment.skriptprofiler.model.FunctionCost;
+import com.macmoment.skriptprofiler.model.LoopProfileData;
 import com.macmoment.skriptprofiler.model.PerformanceIssue;
 import com.macmoment.skriptprofiler.model.ProfileData;
+import com.macmoment.skriptprofiler.model.ProfileSnapshot;
+import com.macmoment.skriptprofiler.model.ResumeStorm;
 import com.macmoment.skriptprofiler.model.ScriptInfo;
+import com.macmoment.skriptprofiler.model.ScriptNode;
+import com.macmoment.skriptprofiler.model.TaskCounts;
+import com.macmoment.skriptprofiler.model.ThreadClass;
+import com.macmoment.skriptprofiler.model.ThreadUsage;
+import com.macmoment.skriptprofiler.model.VariableAccessData;
+import com.macmoment.skriptprofiler.model.WaitProfileData;
+import com.macmoment.skriptprofiler.util.SpaceSaving;
+import com.macmoment.skriptprofiler.util.TickHistogram;
+import com.macmoment.skriptprofiler.util.TopN;
 import org.bukkit.ChatColor;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -14,21 +31,26 @@ import java.util.stream.Collectors;
  */
 public class ReportGenerator {
     
-    private final SkriptProfilerPlugin plugin;
+    private final ProfilerContext context;
     
-    public ReportGenerator(SkriptProfilerPlugin plugin) {
-        this.plugin = plugin;
+    public ReportGenerator(ProfilerContext context) {
+        this.context = context;
     }
     
     /**
      * Generates a comprehensive performance report
      */
-    public String generateReport(Map<String, ProfileData> profileData,
+    public String generateReport(ProfileSnapshot snapshot,
                                  List<PerformanceIssue> issues,
                                  Map<String, ScriptInfo> scripts,
-                                 long duration,
-                                 double currentTPS,
+                                 CallGraphAnalysis callGraph,
                                  boolean detailed) {
+        Map<String, ProfileData> profileData = snapshot.getProfileData();
+        List<LoopProfileData> loopData = snapshot.getLoopData();
+        List<VariableAccessData> variableData = snapshot.getVariableData();
+        List<WaitProfileData> waitData = snapshot.getWaitData();
+        List<ResumeStorm> resumeStorms = snapshot.getResumeStorms();
+        long duration = snapshot.getDurationMs();
         StringBuilder report = new StringBuilder();
         
         // Header
@@ -36,13 +58,61 @@ public class ReportGenerator {
         report.append("\n");
         
         // Summary section
-        appendSummary(report, profileData, scripts, duration, currentTPS);
+        appendSummary(report, snapshot, profileData, scripts);
+        appendThreadUsage(report, snapshot.getThreadUsage(), snapshot.getTrackedTicks());
         report.append("\n");
         
         // Top performers (slowest operations)
         appendTopPerformers(report, profileData, 10);
         report.append("\n");
         
+        // Skript's share of event time against other plugins
+        Map<String, ProfileData> listenerData = snapshot.getListenerData();
+        if (!listenerData.isEmpty()) {
+            appendListenerShares(report, listenerData, 10);
+            report.append("\n");
+        }
+        
+        // Scheduler tasks per plugin and the cost of Skript's periodic triggers
+        Map<String, ProfileData> taskData = snapshot.getTaskData();
+        Map<String, TaskCounts> taskCounts = snapshot.getTaskCounts();
+        if (!taskCounts.isEmpty() || !taskData.isEmpty()) {
+            appendSchedulerTasks(report, taskCounts, taskData, 5);
+            report.append("\n");
+        }
+        if (scripts.values().stream().anyMatch(info -> !info.getPeriodicTriggers().isEmpty())) {
+            appendPeriodicTriggers(report, profileData, taskData, scripts, duration, 10);
+            report.append("\n");
+        }
+        
+        // Loop iterations
+        if (!loopData.isEmpty()) {
+            appendLoopBreakdown(report, loopData, 5);
+            report.append("\n");
+        }
+        
+        // Wait statements and resume storms
+        if (!waitData.isEmpty()) {
+            appendWaitBreakdown(report, waitData, 5);
+            report.append("\n");
+        }
+        if (!resumeStorms.isEmpty()) {
+            appendResumeStorms(report, resumeStorms, snapshot.getResumeStormCount(), 5);
+            report.append("\n");
+        }
+        
+        // Function costs through the call graph
+        if (!callGraph.isEmpty()) {
+            appendCallGraph(report, callGraph, 5);
+            report.append("\n");
+        }
+        
+        // Runtime variable access
+        if (!variableData.isEmpty()) {
+            appendVariableHotspots(report, variableData, duration, 10);
+            report.append("\n");
+        }
+        
         // Issues section
         if (!issues.isEmpty()) {
             appendIssues(report, issues);
@@ -73,11 +143,22 @@ public class ReportGenerator {
     /**
      * Appends summary section
      */
-    private void appendSummary(StringBuilder report, Map<String, ProfileData> profileData,
-                               Map<String, ScriptInfo> scripts, long duration, double currentTPS) {
+    private void appendSummary(StringBuilder report, ProfileSnapshot snapshot, Map<String, ProfileData> profileData,
+                               Map<String, ScriptInfo> scripts) {
         report.append(ChatColor.AQUA).append("Summary:\n").append(ChatColor.RESET);
-        report.append(String.format("  Duration: %.2f seconds\n", duration / 1000.0));
-        report.append(String.format("  Current TPS: %.2f\n", currentTPS));
+        report.append(String.format("  Duration: %.2f seconds\n", snapshot.getDurationMs() / 1000.0));
+        if (snapshot.getNodeCount() > 1) {
+            report.append(String.format("  Servers Merged: %d (%s)\n", snapshot.getNodeCount(), snapshot.getSource()));
+            report.append(String.format("  Average TPS: %.2f\n", snapshot.getTps()));
+        } else {
+            report.append(String.format("  TPS: %.2f\n", snapshot.getTps()));
+        }
+        TickHistogram ticks = snapshot.getTickHistogram();
+        if (ticks.getTickCount() > 0) {
+            report.append(String.format("  MSPT: %.2f avg, p50 %.1f, p95 %.1f, p99 %.1f, max %.1f (%d ticks)\n",
+                ticks.getMeanMs(), ticks.getPercentileMs(50), ticks.getPercentileMs(95), ticks.getPercentileMs(99),
+                ticks.getMaxMs(), ticks.getTickCount()));
+        }
         report.append(String.format("  Scripts Analyzed: %d\n", scripts.size()));
         report.append(String.format("  Total Events/Functions Tracked: %d\n", profileData.size()));
         
@@ -85,13 +166,43 @@ public class ReportGenerator {
         long totalExecutions = profileData.values().stream()
             .mapToLong(ProfileData::getExecutionCount)
             .sum();
-        report.append(String.format("  Total Executions: %d\n", totalExecutions));
+        // Sampled elements are independent estimates, so their variances add up
+        double countVariance = profileData.values().stream().mapToDouble(ProfileData::getCountVariance).sum();
+        double timeVarianceMs = profileData.values().stream().mapToDouble(ProfileData::getTimeVarianceMs).sum();
+        report.append(String.format("  Total Executions: %d%s\n", totalExecutions,
+            countVariance > 0 ? String.format(" (±%.0f, 95%% confidence)", 1.96 * Math.sqrt(countVariance)) : ""));
         
         // Calculate total time spent
         double totalTimeMs = profileData.values().stream()
             .mapToDouble(d -> d.getTotalExecutionTimeNanos() / 1_000_000.0)
             .sum();
-        report.append(String.format("  Total Execution Time: %.2fms\n", totalTimeMs));
+        report.append(String.format("  Total Execution Time (all threads): %.2fms%s\n", totalTimeMs,
+            timeVarianceMs > 0 ? String.format(" (±%.2fms, 95%% confidence)", 1.96 * Math.sqrt(timeVarianceMs)) : ""));
+        if (countVariance > 0) {
+            report.append("  Sampled elements are estimated from timed executions scaled up (~), ± is the 95% confidence interval\n");
+        }
+    }
+    
+    /**
+     * Appends main thread impact separately from async and other thread time
+     */
+    private void appendThreadUsage(StringBuilder report, ThreadUsage threadUsage, long trackedTicks) {
+        report.append(String.format("  Main Thread Time: %.2fms (%.3fms/tick)\n",
+            threadUsage.getExecutionTimeNanos(ThreadClass.MAIN) / 1_000_000.0,
+            threadUsage.getMainThreadMsPerTick(trackedTicks)));
+        
+        if (threadUsage.getExecutionCount(ThreadClass.ASYNC) > 0) {
+            report.append(String.format("  Async Time: %.2fms (%d executions) | Concurrency: %d peak, %d p95\n",
+                threadUsage.getExecutionTimeNanos(ThreadClass.ASYNC) / 1_000_000.0,
+                threadUsage.getExecutionCount(ThreadClass.ASYNC),
+                threadUsage.getPeakAsync(),
+                threadUsage.getAsyncConcurrency().getPercentile(95)));
+        }
+        if (threadUsage.getExecutionCount(ThreadClass.OTHER) > 0) {
+            report.append(String.format("  Other Thread Time: %.2fms (%d executions)\n",
+                threadUsage.getExecutionTimeNanos(ThreadClass.OTHER) / 1_000_000.0,
+                threadUsage.getExecutionCount(ThreadClass.OTHER)));
+        }
     }
     
     /**
@@ -100,10 +211,8 @@ public class ReportGenerator {
     private void appendTopPerformers(StringBuilder report, Map<String, ProfileData> profileData, int limit) {
         report.append(ChatColor.AQUA).append("\nTop Slowest Operations:\n").append(ChatColor.RESET);
         
-        List<ProfileData> sorted = profileData.values().stream()
-            .sorted((d1, d2) -> Double.compare(d2.getAverageExecutionTimeMs(), d1.getAverageExecutionTimeMs()))
-            .limit(limit)
-            .collect(Collectors.toList());
+        List<ProfileData> sorted = TopN.select(profileData.values(), limit,
+            Comparator.comparingDouble(ProfileData::getAverageExecutionTimeMs));
         
         if (sorted.isEmpty()) {
             report.append("  No execution data available.\n");
@@ -118,19 +227,314 @@ public class ReportGenerator {
             
             report.append(String.format("  %s%d. %s:%d - %s\n",
                 color, rank++, getShortFileName(data.getScriptFile()), data.getLineNumber(), data.getElementName()));
-            report.append(String.format("     Avg: %.2fms | Max: %.2fms | Count: %d\n",
-                data.getAverageExecutionTimeMs(), data.getMaxExecutionTimeMs(), data.getExecutionCount()));
+            report.append(String.format("     Avg: %.2fms | Max: %.2fms | Count: %s%s\n",
+                data.getAverageExecutionTimeMs(), data.getMaxExecutionTimeMs(), formatCount(data),
+                data.getMainThreadShare() < 1.0 ? String.format(" | Main Thread: %.0f%%", data.getMainThreadShare() * 100) : ""));
+            if (data.isEstimated()) {
+                report.append(String.format("     Total: ~%.2fms ±%.2fms from %d sampled executions\n",
+                    data.getTotalExecutionTimeNanos() / 1_000_000.0, data.getTotalTimeConfidenceMs(),
+                    data.getSampledExecutions()));
+            }
             report.append(ChatColor.RESET);
         }
     }
     
+    /**
+     * Appends each plugin's share of the time spent in event listeners, with its most expensive event
+     */
+    private void appendListenerShares(StringBuilder report, Map<String, ProfileData> listenerData, int limit) {
+        report.append(ChatColor.AQUA).append("\nEvent Time by Plugin:\n").append(ChatColor.RESET);
+        
+        Map<String, List<ProfileData>> byPlugin = listenerData.values().stream()
+            .collect(Collectors.groupingBy(ProfileData::getScriptFile));
+        Map<String, Long> pluginNanos = new HashMap<>();
+        long totalNanos = 0;
+        for (Map.Entry<String, List<ProfileData>> entry : byPlugin.entrySet()) {
+            long nanos = entry.getValue().stream().mapToLong(ProfileData::getTotalExecutionTimeNanos).sum();
+            pluginNanos.put(entry.getKey(), nanos);
+            totalNanos += nanos;
+        }
+        if (totalNanos == 0) {
+            report.append("  No listener time recorded.\n");
+            return;
+        }
+        
+        List<String> plugins = new ArrayList<>(byPlugin.keySet());
+        plugins.sort(Comparator.comparingLong(pluginNanos::get).reversed());
+        int rank = 1;
+        for (String plugin : plugins.subList(0, Math.min(limit, plugins.size()))) {
+            List<ProfileData> events = byPlugin.get(plugin);
+            long nanos = pluginNanos.get(plugin);
+            long calls = events.stream().mapToLong(ProfileData::getExecutionCount).sum();
+            ProfileData slowest = Collections.max(events, Comparator.comparingLong(ProfileData::getTotalExecutionTimeNanos));
+            report.append(String.format("  %s%d. %s - %.2fms (%.1f%%)%s\n",
+                plugin.equals("Skript") ? ChatColor.YELLOW : ChatColor.WHITE, rank++, plugin,
+                nanos / 1_000_000.0, nanos * 100.0 / totalNanos, ChatColor.RESET));
+            report.append(String.format("     Calls: %d | Top Event: %s %.2fms\n",
+                calls, slowest.getElementName(), slowest.getTotalExecutionTimeNanos() / 1_000_000.0));
+        }
+        if (!byPlugin.containsKey("Skript")) {
+            report.append("  Skript had no timed listeners this session.\n");
+        }
+    }
+    
+    /**
+     * Appends each plugin's scheduler backlog and the tasks that took the most time
+     */
+    private void appendSchedulerTasks(StringBuilder report, Map<String, TaskCounts> taskCounts,
+                                      Map<String, ProfileData> taskData, int limit) {
+        report.append(ChatColor.AQUA).append("\nScheduler Tasks:\n").append(ChatColor.RESET);
+        
+        List<TaskCounts> plugins = taskCounts.values().stream()
+            .filter(counts -> counts.getPeakPending() > 0 || counts.getPeakActive() > 0)
+            .sorted(Comparator.comparingDouble(TaskCounts::getAveragePending).reversed())
+            .limit(limit)
+            .collect(Collectors.toList());
+        int rank = 1;
+        for (TaskCounts counts : plugins) {
+            report.append(String.format("  %d. %s - %d pending (%d sync, %d async), %.1f avg, %d peak\n",
+                rank++, counts.getPlugin(), counts.getPendingSync() + counts.getPendingAsync(),
+                counts.getPendingSync(), counts.getPendingAsync(), counts.getAveragePending(), counts.getPeakPending()));
+            report.append(String.format("     Running async: %d now, %d peak\n", counts.getActive(), counts.getPeakActive()));
+        }
+        
+        if (taskData.isEmpty()) {
+            return;
+        }
+        report.append("  Slowest tasks:\n");
+        List<ProfileData> sorted = taskData.values().stream()
+            .sorted((t1, t2) -> Long.compare(t2.getTotalExecutionTimeNanos(), t1.getTotalExecutionTimeNanos()))
+            .limit(limit)
+            .collect(Collectors.toList());
+        for (ProfileData data : sorted) {
+            String period = data.getLineNumber() > 0 ? "every " + data.getLineNumber() + " ticks" : "once";
+            report.append(String.format("  %s%s%s %s (%s) - %.2fms total, %.3fms avg, %d runs\n",
+                ChatColor.YELLOW, data.getScriptFile(), ChatColor.RESET, data.getElementName(), period,
+                data.getTotalExecutionTimeNanos() / 1_000_000.0, data.getAverageExecutionTimeMs(), data.getExecutionCount()));
+        }
+    }
+    
+    /**
+     * Appends the cost per second of each script's "every ..." triggers. A trigger's cost is the time of
+     * the lines in its block; triggers without line timings fall back to Skript's scheduler tasks of the
+     * same period, shared evenly between the triggers with that period and marked "~".
+     */
+    private void appendPeriodicTriggers(StringBuilder report, Map<String, ProfileData> profileData,
+                                        Map<String, ProfileData> taskData, Map<String, ScriptInfo> scripts,
+                                        long durationMs, int limit) {
+        report.append(ChatColor.AQUA).append("\nPeriodic Triggers:\n").append(ChatColor.RESET);
+        if (durationMs <= 0) {
+            report.append("  No session time recorded.\n");
+            return;
+        }
+        double seconds = durationMs / 1000.0;
+        
+        Map<String, Map<Integer, Long>> lineNanos = new HashMap<>();
+        for (ProfileData data : profileData.values()) {
+            lineNanos.computeIfAbsent(data.getScriptFile(), k -> new HashMap<>())
+                .merge(data.getLineNumber(), data.getTotalExecutionTimeNanos(), Long::sum);
+        }
+        Map<Long, Long> skriptTaskNanos = new HashMap<>();
+        for (ProfileData task : taskData.values()) {
+            if (task.getScriptFile().equals("Skript") && task.getLineNumber() > 0) {
+                skriptTaskNanos.merge((long) task.getLineNumber(), task.getTotalExecutionTimeNanos(), Long::sum);
+            }
+        }
+        Map<Long, Integer> triggersPerPeriod = new HashMap<>();
+        for (ScriptInfo info : scripts.values()) {
+            for (long period : info.getPeriodicTriggers().values()) {
+                triggersPerPeriod.merge(period, 1, Integer::sum);
+            }
+        }
+        
+        Map<String, Map<Integer, TriggerCost>> costs = new HashMap<>();
+        for (ScriptInfo info : scripts.values()) {
+            Map<Integer, Long> triggers = info.getPeriodicTriggers();
+            if (triggers.isEmpty()) continue;
+            Map<Integer, Long> lines = lineNanos.getOrDefault(info.getFilePath(), Map.of());
+            Map<Integer, Long> triggerNanos = new HashMap<>();
+            if (info.getBlockTree() != null) {
+                for (ScriptNode node : info.getBlockTree().getChildren()) {
+                    if (!triggers.containsKey(node.getLineNumber())) continue;
+                    long[] nanos = new long[1];
+                    node.walk(child -> nanos[0] += lines.getOrDefault(child.getLineNumber(), 0L));
+                    triggerNanos.put(node.getLineNumber(), nanos[0]);
+                }
+            }
+            Map<Integer, TriggerCost> scriptCosts = new TreeMap<>();
+            for (Map.Entry<Integer, Long> trigger : triggers.entrySet()) {
+                long nanos = triggerNanos.getOrDefault(trigger.getKey(), 0L);
+                Long taskNanos = skriptTaskNanos.get(trigger.getValue());
+                if (nanos == 0 && taskNanos != null) {
+                    scriptCosts.put(trigger.getKey(), new TriggerCost(
+                        taskNanos / 1_000_000.0 / seconds / triggersPerPeriod.get(trigger.getValue()), true));
+                } else {
+                    scriptCosts.put(trigger.getKey(), new TriggerCost(nanos / 1_000_000.0 / seconds, false));
+                }
+            }
+            costs.put(info.getFilePath(), scriptCosts);
+        }
+        
+        List<String> sorted = new ArrayList<>(costs.keySet());
+        Map<String, Double> scriptTotals = new HashMap<>();
+        for (String file : sorted) {
+            scriptTotals.put(file, costs.get(file).values().stream().mapToDouble(TriggerCost::msPerSecond).sum());
+        }
+        sorted.sort(Comparator.comparingDouble(scriptTotals::get).reversed());
+        int rank = 1;
+        for (String file : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            Map<Integer, TriggerCost> scriptCosts = costs.get(file);
+            boolean estimated = scriptCosts.values().stream().anyMatch(TriggerCost::estimated);
+            report.append(String.format("  %d. %s%s%s - %s%.3fms/s (%d triggers)\n",
+                rank++, ChatColor.YELLOW, getShortFileName(file), ChatColor.RESET, estimated ? "~" : "",
+                scriptTotals.get(file), scriptCosts.size()));
+            ScriptInfo info = scripts.get(file);
+            for (Map.Entry<Integer, TriggerCost> trigger : scriptCosts.entrySet()) {
+                TriggerCost cost = trigger.getValue();
+                report.append(String.format("     Line %d: %s - %s%.3fms/s\n", trigger.getKey(),
+                    info.getLineContent(trigger.getKey()).trim(), cost.estimated() ? "~" : "", cost.msPerSecond()));
+            }
+        }
+    }
+    
+    private record TriggerCost(double msPerSecond, boolean estimated) {
+    }
+    
+    /**
+     * Appends the most expensive loops and loops whose iteration count scales with the server population
+     */
+    private void appendLoopBreakdown(StringBuilder report, List<LoopProfileData> loopData, int limit) {
+        report.append(ChatColor.AQUA).append("\nLoop Iterations:\n").append(ChatColor.RESET);
+        
+        List<LoopProfileData> sorted = loopData.stream()
+            .sorted((l1, l2) -> Long.compare(l2.getTotalBodyTimeNanos(), l1.getTotalBodyTimeNanos()))
+            .limit(limit)
+            .collect(Collectors.toList());
+        
+        for (LoopProfileData data : sorted) {
+            report.append(String.format("  %s%s:%d%s - loop %s\n",
+                ChatColor.YELLOW, getShortFileName(data.getScriptFile()), data.getLineNumber(), ChatColor.RESET,
+                data.getLoopExpression()));
+            report.append(String.format("     Entries: %d | Iterations: %.1f avg, %d max | %.3fms/iteration\n",
+                data.getEntryCount(), data.getAverageIterations(), data.getMaxIterations(),
+                data.getAverageIterationTimeMs()));
+            report.append(String.format("     Histogram: %s\n", data.getIterationHistogram().formatBuckets()));
+        }
+        
+        double scalingCorrelation = context.getSettings().getDouble("thresholds.loop-scaling-correlation", 0.7);
+        List<LoopProfileData> scaling = loopData.stream()
+            .filter(l -> l.scalesWithPlayers(scalingCorrelation) || l.scalesWithEntities(scalingCorrelation))
+            .collect(Collectors.toList());
+        if (scaling.isEmpty()) {
+            return;
+        }
+        
+        report.append(ChatColor.RED).append("\n  Loops scaling with population (possible O(n²)):\n").append(ChatColor.RESET);
+        for (LoopProfileData data : scaling) {
+            boolean players = data.scalesWithPlayers(scalingCorrelation);
+            report.append(String.format("  %s:%d - %.1f avg iterations vs %.1f avg %s\n",
+                getShortFileName(data.getScriptFile()), data.getLineNumber(), data.getAverageIterations(),
+                players ? data.getAveragePlayers() : data.getAverageEntities(),
+                players ? "players" : "entities"));
+        }
+    }
+    
+    /**
+     * Appends the wait lines with the most suspended triggers
+     */
+    private void appendWaitBreakdown(StringBuilder report, List<WaitProfileData> waitData, int limit) {
+        report.append(ChatColor.AQUA).append("\nWait Statements:\n").append(ChatColor.RESET);
+        
+        List<WaitProfileData> sorted = waitData.stream()
+            .sorted((w1, w2) -> Long.compare(w2.getTotalSuspensions(), w1.getTotalSuspensions()))
+            .limit(limit)
+            .collect(Collectors.toList());
+        
+        for (WaitProfileData data : sorted) {
+            report.append(String.format("  %s%s:%d%s - %d suspensions\n",
+                ChatColor.YELLOW, getShortFileName(data.getScriptFile()), data.getLineNumber(), ChatColor.RESET,
+                data.getTotalSuspensions()));
+            report.append(String.format("     Suspended: %d now, %d peak | Parked: %.1fms avg, %.1fms max | Max Resumes/Tick: %d\n",
+                data.getCurrentlySuspended(), data.getPeakSuspended(), data.getAverageParkedTimeMs(),
+                data.getMaxParkedTimeMs(), data.getMaxResumesInTick()));
+        }
+    }
+    
+    /**
+     * Appends the largest resume storms (ticks where many waits expired at once)
+     */
+    private void appendResumeStorms(StringBuilder report, List<ResumeStorm> resumeStorms, long totalStorms, int limit) {
+        report.append(ChatColor.AQUA).append("\nResume Storms:\n").append(ChatColor.RESET);
+        report.append(String.format("  %d tick(s) with mass wait expiry this session\n", totalStorms));
+        
+        List<ResumeStorm> sorted = resumeStorms.stream()
+            .sorted((s1, s2) -> Integer.compare(s2.getResumeCount(), s1.getResumeCount()))
+            .limit(limit)
+            .collect(Collectors.toList());
+        
+        for (ResumeStorm storm : sorted) {
+            report.append(String.format("  %sTick %d: %d resumes%s\n",
+                ChatColor.RED, storm.getTick(), storm.getResumeCount(), ChatColor.RESET));
+            for (Map.Entry<String, Integer> contributor : storm.getContributors().entrySet()) {
+                report.append(String.format("     %s - %d\n",
+                    getShortLocation(contributor.getKey()), contributor.getValue()));
+            }
+        }
+    }
+    
+    /**
+     * Appends the functions with the highest inclusive cost and the hottest call paths
+     */
+    private void appendCallGraph(StringBuilder report, CallGraphAnalysis callGraph, int limit) {
+        report.append(ChatColor.AQUA).append("\nFunction Costs:\n").append(ChatColor.RESET);
+        
+        for (FunctionCost cost : callGraph.getFunctionCosts().stream().limit(limit).collect(Collectors.toList())) {
+            report.append(String.format("  %s%s()%s - %s:%d\n",
+                ChatColor.YELLOW, cost.getFunctionName(), ChatColor.RESET,
+                getShortFileName(cost.getScriptFile()), cost.getLineNumber()));
+            report.append(String.format("     Calls: %d | Inclusive: %.2fms | Self: %.2fms | Call Sites: %d from %d trigger(s)\n",
+                cost.getExecutionCount(), cost.getInclusiveTimeMs(), cost.getSelfTimeMs(),
+                cost.getCallSiteCount(), cost.getCallerCount()));
+        }
+        
+        if (callGraph.getHotPaths().isEmpty()) {
+            return;
+        }
+        report.append(ChatColor.AQUA).append("\n  Hot Call Paths:\n").append(ChatColor.RESET);
+        for (CallPath path : callGraph.getHotPaths()) {
+            report.append(String.format("  %.2fms - %s\n", path.getEstimatedTimeMs(), path));
+        }
+    }
+    
+    /**
+     * Appends the most accessed variable patterns
+     */
+    private void appendVariableHotspots(StringBuilder report, List<VariableAccessData> variableData,
+                                        long duration, int limit) {
+        report.append(ChatColor.AQUA).append("\nVariable Access Hotspots:\n").append(ChatColor.RESET);
+        
+        List<VariableAccessData> sorted = variableData.stream()
+            .sorted((v1, v2) -> Long.compare(v2.getTotalAccessCount(), v1.getTotalAccessCount()))
+            .limit(limit)
+            .collect(Collectors.toList());
+        
+        for (VariableAccessData data : sorted) {
+            report.append(String.format("  %s%s%s - %s:%d\n",
+                ChatColor.YELLOW, data.getPattern(), ChatColor.RESET,
+                getShortFileName(data.getScriptFile()), data.getLineNumber()));
+            report.append(String.format("     Reads: %d | Writes: %d | Rate: %.1f/s | Distinct Keys: ~%d\n",
+                data.getReadCount(), data.getWriteCount(), data.getAccessRate(duration),
+                data.getEstimatedDistinctKeys()));
+        }
+    }
+    
     /**
      * Appends issues section
      */
     private void appendIssues(StringBuilder report, List<PerformanceIssue> issues) {
         report.append(ChatColor.AQUA).append("\nPerformance Issues Detected:\n").append(ChatColor.RESET);
         
-        int maxIssues = plugin.getConfig().getInt("reporting.max-issues", 10);
+        int maxIssues = context.getSettings().getInt("reporting.max-issues", 10);
         List<PerformanceIssue> limitedIssues = issues.stream().limit(maxIssues).collect(Collectors.toList());
         
         for (PerformanceIssue issue : limitedIssues) {
@@ -142,12 +546,12 @@ public class ReportGenerator {
             };
             
             report.append(String.format("\n  %s[%s] %s\n",
-                color, issue.getSeverity(), issue.getType().getDisplayName()));
+                color, issue.getSeverity(), issue.getTitle()));
             report.append(String.format("  Location: %s:%d\n",
                 getShortFileName(issue.getScriptFile()), issue.getLineNumber()));
             report.append(String.format("  Issue: %s\n", issue.getDescription()));
             
-            if (plugin.getConfig().getBoolean("reporting.include-suggestions", true)) {
+            if (context.getSettings().getBoolean("reporting.include-suggestions", true)) {
                 report.append(ChatColor.GREEN).append("  Suggestion: ").append(issue.getSuggestion()).append("\n");
             }
             report.append(ChatColor.RESET);
@@ -184,14 +588,40 @@ public class ReportGenerator {
                 .sorted((d1, d2) -> Double.compare(d2.getAverageExecutionTimeMs(), d1.getAverageExecutionTimeMs()))
                 .limit(5)
                 .forEach(data -> {
-                    report.append(String.format("    Line %d: %.2fms avg (%d executions)\n",
-                        data.getLineNumber(), data.getAverageExecutionTimeMs(), data.getExecutionCount()));
+                    report.append(String.format("    Line %d: %.2fms avg (%s executions)\n",
+                        data.getLineNumber(), data.getAverageExecutionTimeMs(), formatCount(data)));
+                    appendTopContributors(report, data.getAttribution());
                 });
             
             report.append(ChatColor.RESET);
         }
     }
     
+    /**
+     * Appends the top players, worlds and chunks contributing to an element's execution time
+     */
+    private void appendTopContributors(StringBuilder report, AttributionData attribution) {
+        if (attribution == null) return;
+        
+        appendTopContributors(report, "Players", attribution.getPlayers(), UUID::toString);
+        appendTopContributors(report, "Worlds", attribution.getWorlds(), Function.identity());
+        appendTopContributors(report, "Chunks", attribution.getChunks(), AttributionData::getChunkName);
+    }
+    
+    private <K> void appendTopContributors(StringBuilder report, String label, SpaceSaving<K> sketch,
+                                           Function<K, String> names) {
+        long total = sketch.getTotalWeight();
+        if (total == 0) return;
+        
+        // Entries that are mostly eviction error are not reliable heavy hitters
+        String contributors = sketch.getTop(3).stream()
+            .filter(entry -> entry.getError() < entry.getCount() / 2)
+            .map(entry -> String.format("%s (%.0f%%)", names.apply(entry.getKey()), entry.getCount() * 100.0 / total))
+            .collect(Collectors.joining(", "));
+        if (contributors.isEmpty()) return;
+        report.append(String.format("      %s%s: %s%s\n", ChatColor.GRAY, label, contributors, ChatColor.RESET));
+    }
+    
     /**
      * Appends recommendations
      */
@@ -204,6 +634,15 @@ public class ReportGenerator {
         if (issues.stream().anyMatch(i -> i.getType() == PerformanceIssue.IssueType.INEFFICIENT_LOOP)) {
             report.append("  • Review loops for unnecessary iterations or complex operations\n");
         }
+        if (issues.stream().anyMatch(i -> i.getType() == PerformanceIssue.IssueType.NESTED_LOOP)) {
+            report.append("  • Replace nested loops over all players/entities with keyed lookups or radius checks\n");
+        }
+        if (issues.stream().anyMatch(i -> i.getType() == PerformanceIssue.IssueType.FUNCTION_IN_LOOP)) {
+            report.append("  • Move loop-invariant work out of functions called inside loops\n");
+        }
+        if (issues.stream().anyMatch(i -> i.getType() == PerformanceIssue.IssueType.WAIT_IN_LOOP)) {
+            report.append("  • Avoid waits inside loops; batch the work in a periodic event instead\n");
+        }
         if (issues.stream().anyMatch(i -> i.getType() == PerformanceIssue.IssueType.EXCESSIVE_VARIABLES)) {
             report.append("  • Consider reducing variable operations or using more efficient data structures\n");
         }
@@ -213,6 +652,25 @@ public class ReportGenerator {
         report.append("  • Cache frequently accessed data when possible\n");
     }
     
+    /**
+     * Formats an execution count, marking sampled estimates with their 95% confidence interval
+     */
+    private String formatCount(ProfileData data) {
+        if (!data.isEstimated()) {
+            return String.valueOf(data.getExecutionCount());
+        }
+        return String.format("~%d ±%.0f", data.getExecutionCount(), data.getCountConfidence());
+    }
+    
+    /**
+     * Gets short file:line location from a full file:line location
+     */
+    private String getShortLocation(String location) {
+        int lineSeparator = location.lastIndexOf(':');
+        if (lineSeparator < 0) return getShortFileName(location);
+        return getShortFileName(location.substring(0, lineSeparator)) + location.substring(lineSeparator);
+    }
+    
     /**
      * Gets short filename from full path
      */
@@ -0,0 +1,263 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.model.ProfileData;
+import com.macmoment.skriptprofiler.model.TaskCounts;
+import com.macmoment.skriptprofiler.model.ThreadClass;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.scheduler.BukkitWorker;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Profiles the Bukkit scheduler, where Skript's periodic events and other plugins' timers run.
+ * Once per second it counts every plugin's pending and running tasks and, if enabled, times the
+ * tasks it finds: the Runnable or Consumer inside each scheduled task is swapped for a timing
+ * wrapper. The scheduler has no API for this, so the swap uses reflection on the server's task
+ * class and is skipped with a warning where its fields are not found.
+ *
+ * Task time is aggregated per plugin, period and task class into ProfileData whose script file is
+ * the plugin name and whose line number is the period in ticks (0 for one-shot tasks), so Skript's
+ * repeating tasks can be matched with the "every ..." triggers of the same period.
+ * Tasks that finish within a second of being scheduled are mostly missed; the profiler's own
+ * tasks are left alone.
+ */
+public class SchedulerProfiler {
+    
+    public static final String ELEMENT_TYPE = "task";
+    
+    private final Plugin self;
+    private final Logger logger;
+    private final Map<String, TaskCounts> taskCounts;
+    private final Map<String, ProfileData> taskData;
+    // Tasks whose runnable was swapped, by task ID, so they can be put back
+    private final Map<Integer, WrappedTask> wrappedTasks;
+    private volatile boolean timing;
+    private boolean warned;
+    
+    public SchedulerProfiler(Plugin self, Logger logger) {
+        this.self = self;
+        this.logger = logger;
+        this.taskCounts = new ConcurrentHashMap<>();
+        this.taskData = new ConcurrentHashMap<>();
+        this.wrappedTasks = new HashMap<>();
+    }
+    
+    /**
+     * Starts timing tasks found from the next sample on
+     */
+    public synchronized void startTiming() {
+        timing = true;
+    }
+    
+    /**
+     * Counts the pending and running tasks of every plugin and wraps new tasks if timing, called
+     * once per second on the main thread
+     */
+    public synchronized void sample(BukkitScheduler scheduler) {
+        List<BukkitTask> pending = scheduler.getPendingTasks();
+        Map<String, int[]> counts = new HashMap<>();
+        for (BukkitTask task : pending) {
+            if (task.getOwner() == self) continue;
+            int[] count = counts.computeIfAbsent(task.getOwner().getName(), k -> new int[3]);
+            count[task.isSync() ? 0 : 1]++;
+        }
+        for (BukkitWorker worker : scheduler.getActiveWorkers()) {
+            if (worker.getOwner() == self) continue;
+            counts.computeIfAbsent(worker.getOwner().getName(), k -> new int[3])[2]++;
+        }
+        // Plugins without tasks this second still record a zero sample
+        for (String plugin : taskCounts.keySet()) {
+            counts.putIfAbsent(plugin, new int[3]);
+        }
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            int[] count = entry.getValue();
+            taskCounts.computeIfAbsent(entry.getKey(), TaskCounts::new).sample(count[0], count[1], count[2]);
+        }
+        
+        if (!timing) return;
+        Set<Integer> seen = new HashSet<>();
+        for (BukkitTask task : pending) {
+            seen.add(task.getTaskId());
+            if (task.getOwner() != self && !wrappedTasks.containsKey(task.getTaskId())) {
+                wrap(task);
+            }
+        }
+        // Finished one-shot tasks are gone from the scheduler
+        wrappedTasks.keySet().retainAll(seen);
+    }
+    
+    private void wrap(BukkitTask task) {
+        try {
+            // CraftBukkit keeps either a Runnable or a Consumer, the other field is null
+            Field field = findField(task.getClass(), Runnable.class);
+            if (field == null || field.get(task) == null) {
+                field = findField(task.getClass(), Consumer.class);
+            }
+            Object original = field != null ? field.get(task) : null;
+            if (original == null) {
+                warnOnce("no runnable field in " + task.getClass().getName());
+                return;
+            }
+            if (original instanceof TimedTask) return;
+            
+            String plugin = task.getOwner().getName();
+            long period = readPeriod(task);
+            String name = describe(original);
+            field.set(task, new TimedTask(original, plugin + ":" + period + ":" + name, plugin, period, name,
+                task.isSync() ? ThreadClass.MAIN : ThreadClass.ASYNC));
+            wrappedTasks.put(task.getTaskId(), new WrappedTask(task, field, original));
+        } catch (IllegalAccessException | RuntimeException e) {
+            warnOnce(e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Stops timing and puts the original runnables back into the tasks still scheduled
+     */
+    public synchronized void stop() {
+        timing = false;
+        for (Iterator<WrappedTask> iterator = wrappedTasks.values().iterator(); iterator.hasNext(); ) {
+            WrappedTask wrapped = iterator.next();
+            try {
+                wrapped.field.set(wrapped.task, wrapped.original);
+            } catch (IllegalAccessException | RuntimeException e) {
+                warnOnce("could not restore a task of " + wrapped.task.getOwner().getName() + ": " + e.getMessage());
+            }
+            iterator.remove();
+        }
+    }
+    
+    public synchronized void reset() {
+        taskCounts.clear();
+        taskData.clear();
+    }
+    
+    /**
+     * Gets the sampled task counts by plugin name
+     */
+    public Map<String, TaskCounts> getTaskCounts() {
+        return taskCounts;
+    }
+    
+    /**
+     * Gets task time keyed by "plugin:period:task class"
+     */
+    public Map<String, ProfileData> getTaskData() {
+        return taskData;
+    }
+    
+    private void warnOnce(String reason) {
+        if (warned) return;
+        warned = true;
+        logger.warning("Scheduler task timing is not supported on this server (" + reason
+            + "); task counts are still sampled");
+    }
+    
+    /**
+     * Finds the first instance field of the given type in the class or its superclasses
+     */
+    private static Field findField(Class<?> type, Class<?> fieldType) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getType() == fieldType && !Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Reads the task's period in ticks, 0 for one-shot tasks or when it cannot be read
+     */
+    private static long readPeriod(BukkitTask task) {
+        for (Class<?> current = task.getClass(); current != null && current != Object.class; current = current.getSuperclass()) {
+            try {
+                Field field = current.getDeclaredField("period");
+                field.setAccessible(true);
+                return Math.max(0, field.getLong(task));
+            } catch (NoSuchFieldException e) {
+                // Declared further up
+            } catch (IllegalAccessException | RuntimeException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Names a task by its runnable's class, without the suffix that differs per lambda instance
+     */
+    private static String describe(Object runnable) {
+        String name = runnable.getClass().getName();
+        int hidden = name.indexOf('/');
+        return hidden >= 0 ? name.substring(0, hidden) : name;
+    }
+    
+    private record WrappedTask(BukkitTask task, Field field, Object original) {
+    }
+    
+    /**
+     * Times the original runnable or consumer. The entry is looked up per run, which is cheap next
+     * to a scheduler task and keeps working across resets.
+     */
+    private final class TimedTask implements Runnable, Consumer<BukkitTask> {
+        private final Runnable runnable;
+        private final Consumer<BukkitTask> consumer;
+        private final String key;
+        private final String plugin;
+        private final long period;
+        private final String name;
+        private final ThreadClass threadClass;
+        
+        @SuppressWarnings("unchecked")
+        TimedTask(Object original, String key, String plugin, long period, String name, ThreadClass threadClass) {
+            this.runnable = original instanceof Runnable r ? r : null;
+            this.consumer = this.runnable == null ? (Consumer<BukkitTask>) original : null;
+            this.key = key;
+            this.plugin = plugin;
+            this.period = period;
+            this.name = name;
+            this.threadClass = threadClass;
+        }
+        
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                runnable.run();
+            } finally {
+                record(System.nanoTime() - start);
+            }
+        }
+        
+        @Override
+        public void accept(BukkitTask task) {
+            long start = System.nanoTime();
+            try {
+                consumer.accept(task);
+            } finally {
+                record(System.nanoTime() - start);
+            }
+        }
+        
+        private void record(long nanos) {
+            if (!timing) return;
+            taskData.computeIfAbsent(key, k -> new ProfileData(plugin, (int) Math.min(Integer.MAX_VALUE, period),
+                ELEMENT_TYPE, name)).recordExecution(nanos, threadClass);
+        }
+    }
+}
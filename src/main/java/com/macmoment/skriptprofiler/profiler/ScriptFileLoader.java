@@ -1,8 +1,7 @@
 package com.macmoment.skriptprofiler.profiler;
 
-import com.macmoment.skriptprofiler.SkriptProfilerPlugin;
+import com.macmoment.skriptprofiler.ProfilerContext;
 import com.macmoment.skriptprofiler.model.ScriptInfo;
-import org.bukkit.Bukkit;
 
 import java.io.File;
 import java.io.IOException;
@@ -10,28 +9,39 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Loads and analyzes Skript files from the scripts folder
  */
 public class ScriptFileLoader {
     
-    private final SkriptProfilerPlugin plugin;
+    private final ProfilerContext context;
     private final Map<String, ScriptInfo> loadedScripts;
+    private final FunctionCallGraph callGraph;
+    private volatile BiConsumer<ScriptInfo, ScriptInfo> reloadListener;
     
     // Patterns for detecting Skript elements
-    private static final Pattern EVENT_PATTERN = Pattern.compile("^\\s*on\\s+(.+):", Pattern.CASE_INSENSITIVE);
-    private static final Pattern FUNCTION_PATTERN = Pattern.compile("^\\s*function\\s+([\\w_]+)\\s*\\(", Pattern.CASE_INSENSITIVE);
-    private static final Pattern COMMAND_PATTERN = Pattern.compile("^\\s*command\\s+/?(\\w+)", Pattern.CASE_INSENSITIVE);
-    private static final Pattern LOOP_PATTERN = Pattern.compile("^\\s*loop\\s+", Pattern.CASE_INSENSITIVE);
+    static final Pattern EVENT_PATTERN = Pattern.compile("^\\s*on\\s+(.+):", Pattern.CASE_INSENSITIVE);
+    static final Pattern FUNCTION_PATTERN = Pattern.compile("^\\s*function\\s+([\\w_]+)\\s*\\(", Pattern.CASE_INSENSITIVE);
+    static final Pattern COMMAND_PATTERN = Pattern.compile("^\\s*command\\s+/?(\\w+)", Pattern.CASE_INSENSITIVE);
+    static final Pattern PERIODIC_PATTERN = Pattern.compile("^\\s*every\\s+(.+):", Pattern.CASE_INSENSITIVE);
+    static final Pattern LOOP_PATTERN = Pattern.compile("^\\s*loop\\s+", Pattern.CASE_INSENSITIVE);
     private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{[^}]+\\}");
+    // One term of a timespan such as "1 minute and 30 seconds" or "2 real hours"
+    private static final Pattern TIMESPAN_TERM = Pattern.compile(
+        "(\\d+(?:\\.\\d+)?)?\\s*(?:(?:real|rl|irl)\\s+|(minecraft|mc)\\s+)?(tick|second|minute|hour|day)s?\\b",
+        Pattern.CASE_INSENSITIVE);
     private static final Pattern WAIT_PATTERN = Pattern.compile("^\\s*wait\\s+(\\d+)\\s*(tick|second|minute)", Pattern.CASE_INSENSITIVE);
     
-    public ScriptFileLoader(SkriptProfilerPlugin plugin) {
-        this.plugin = plugin;
+    public ScriptFileLoader(ProfilerContext context) {
+        this.context = context;
         this.loadedScripts = new ConcurrentHashMap<>();
+        this.callGraph = new FunctionCallGraph();
     }
     
     /**
@@ -39,44 +49,38 @@ public class ScriptFileLoader {
      */
     public void loadAllScripts() {
         loadedScripts.clear();
+        callGraph.clear();
         
-        File scriptsFolder = getSkriptFolder();
+        File scriptsFolder = context.getScriptsFolder();
         if (scriptsFolder == null || !scriptsFolder.exists()) {
-            plugin.getLogger().warning("Skript scripts folder not found!");
+            context.getLogger().warning("Skript scripts folder not found!");
             return;
         }
         
-        plugin.getLogger().info("Loading Skript files from: " + scriptsFolder.getAbsolutePath());
+        context.getLogger().info("Loading Skript files from: " + scriptsFolder.getAbsolutePath());
         
         try {
             loadScriptsRecursively(scriptsFolder.toPath());
-            plugin.getLogger().info("Loaded " + loadedScripts.size() + " script file(s)");
+            context.getLogger().info("Loaded " + loadedScripts.size() + " script file(s)");
         } catch (Exception e) {
-            plugin.getLogger().severe("Error loading scripts: " + e.getMessage());
+            context.getLogger().severe("Error loading scripts: " + e.getMessage());
             e.printStackTrace();
         }
     }
     
     /**
-     * Gets the Skript scripts folder
-     */
-    private File getSkriptFolder() {
-        File pluginsFolder = plugin.getDataFolder().getParentFile();
-        File skriptFolder = new File(pluginsFolder, "Skript");
-        return new File(skriptFolder, "scripts");
-    }
-    
-    /**
-     * Recursively loads scripts from a directory
+     * Recursively loads scripts from a directory, parsing files in parallel
      */
     private void loadScriptsRecursively(Path directory) throws IOException {
         if (!Files.isDirectory(directory)) {
             return;
         }
         
-        Files.walk(directory)
-            .filter(path -> path.toString().endsWith(".sk"))
-            .forEach(this::loadScript);
+        List<Path> scripts;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            scripts = paths.filter(path -> path.toString().endsWith(".sk")).collect(Collectors.toList());
+        }
+        scripts.parallelStream().forEach(this::loadScript);
     }
     
     /**
@@ -92,12 +96,67 @@ public class ScriptFileLoader {
             analyzeScript(scriptInfo, lines);
             
             loadedScripts.put(filePath, scriptInfo);
+            callGraph.updateScript(scriptInfo);
             
         } catch (IOException e) {
-            plugin.getLogger().warning("Failed to load script: " + scriptPath + " - " + e.getMessage());
+            context.getLogger().warning("Failed to load script: " + scriptPath + " - " + e.getMessage());
         }
     }
     
+    /**
+     * Reloads a single changed script, re-indexing only its part of the call graph
+     */
+    public void reloadScript(Path scriptPath) {
+        String filePath = scriptPath.toString();
+        ScriptInfo previous = loadedScripts.get(filePath);
+        if (Files.exists(scriptPath)) {
+            loadScript(scriptPath);
+        } else {
+            loadedScripts.remove(filePath);
+            callGraph.removeScript(filePath);
+        }
+        
+        ScriptInfo current = loadedScripts.get(filePath);
+        BiConsumer<ScriptInfo, ScriptInfo> listener = reloadListener;
+        if (listener != null && previous != null && current != previous) {
+            listener.accept(previous, current);
+        }
+    }
+    
+    /**
+     * Sets a listener called after a loaded script was reloaded or deleted, with the previous
+     * and the new version (null if deleted). Runs on the thread that reloaded the script.
+     */
+    public void setReloadListener(BiConsumer<ScriptInfo, ScriptInfo> reloadListener) {
+        this.reloadListener = reloadListener;
+    }
+    
+    /**
+     * Converts the timespan of a periodic event, e.g. "5 seconds", "minute" or "1 minute and 30 seconds in "world"",
+     * to ticks. Returns -1 if no time unit is found.
+     */
+    static long parsePeriodTicks(String timespan) {
+        int world = timespan.toLowerCase(Locale.ROOT).indexOf(" in ");
+        String span = world >= 0 ? timespan.substring(0, world) : timespan;
+        Matcher matcher = TIMESPAN_TERM.matcher(span);
+        double ticks = 0;
+        boolean found = false;
+        while (matcher.find()) {
+            double amount = matcher.group(1) != null ? Double.parseDouble(matcher.group(1)) : 1;
+            boolean minecraft = matcher.group(2) != null;
+            double unitTicks = switch (matcher.group(3).toLowerCase(Locale.ROOT)) {
+                case "tick" -> 1;
+                case "second" -> minecraft ? 1000.0 / 3600 : 20;
+                case "minute" -> minecraft ? 1000.0 / 60 : 1200;
+                case "hour" -> minecraft ? 1000 : 72_000;
+                default -> minecraft ? 24_000 : 1_728_000;
+            };
+            ticks += amount * unitTicks;
+            found = true;
+        }
+        return found ? Math.max(1, Math.round(ticks)) : -1;
+    }
+    
     /**
      * Analyzes a script for various elements
      */
@@ -111,47 +170,75 @@ public class ScriptFileLoader {
         for (int i = 0; i < lines.size(); i++) {
             String line = lines.get(i);
             int lineNumber = i + 1;
+            // Every element pattern is anchored to the first word, which skips the regexes on most lines
+            String firstWord = ScriptTreeBuilder.firstWord(line);
             
-            // Detect events
-            Matcher eventMatcher = EVENT_PATTERN.matcher(line);
-            if (eventMatcher.find()) {
-                String eventName = eventMatcher.group(1).trim();
-                scriptInfo.addLineElement(lineNumber, "Event: " + eventName);
-                eventCount++;
-            }
-            
-            // Detect functions
-            Matcher functionMatcher = FUNCTION_PATTERN.matcher(line);
-            if (functionMatcher.find()) {
-                String functionName = functionMatcher.group(1);
-                scriptInfo.addLineElement(lineNumber, "Function: " + functionName);
-                functionCount++;
-            }
-            
-            // Detect commands
-            Matcher commandMatcher = COMMAND_PATTERN.matcher(line);
-            if (commandMatcher.find()) {
-                String commandName = commandMatcher.group(1);
-                scriptInfo.addLineElement(lineNumber, "Command: " + commandName);
-                commandCount++;
-            }
-            
-            // Detect loops
-            if (LOOP_PATTERN.matcher(line).find()) {
-                scriptInfo.addLineElement(lineNumber, "Loop");
-                loopCount++;
+            switch (firstWord) {
+                case "on" -> {
+                    // Detect events
+                    Matcher eventMatcher = EVENT_PATTERN.matcher(line);
+                    if (eventMatcher.find()) {
+                        String eventName = eventMatcher.group(1).trim();
+                        scriptInfo.addLineElement(lineNumber, "Event: " + eventName);
+                        eventCount++;
+                        // "on every 5 seconds:" is the periodic event with the optional "on"
+                        if (eventName.regionMatches(true, 0, "every ", 0, 6)) {
+                            scriptInfo.addPeriodicTrigger(lineNumber, parsePeriodTicks(eventName.substring(6)));
+                        }
+                    }
+                }
+                case "every" -> {
+                    // Detect periodic events, which Skript runs as repeating scheduler tasks
+                    Matcher periodicMatcher = PERIODIC_PATTERN.matcher(line);
+                    if (periodicMatcher.find()) {
+                        String period = periodicMatcher.group(1).trim();
+                        scriptInfo.addLineElement(lineNumber, "Event: every " + period);
+                        scriptInfo.addPeriodicTrigger(lineNumber, parsePeriodTicks(period));
+                        eventCount++;
+                    }
+                }
+                case "function" -> {
+                    // Detect functions
+                    Matcher functionMatcher = FUNCTION_PATTERN.matcher(line);
+                    if (functionMatcher.find()) {
+                        String functionName = functionMatcher.group(1);
+                        scriptInfo.addLineElement(lineNumber, "Function: " + functionName);
+                        functionCount++;
+                    }
+                }
+                case "command" -> {
+                    // Detect commands
+                    Matcher commandMatcher = COMMAND_PATTERN.matcher(line);
+                    if (commandMatcher.find()) {
+                        String commandName = commandMatcher.group(1);
+                        scriptInfo.addLineElement(lineNumber, "Command: " + commandName);
+                        commandCount++;
+                    }
+                }
+                case "loop" -> {
+                    // Detect loops
+                    if (LOOP_PATTERN.matcher(line).find()) {
+                        scriptInfo.addLineElement(lineNumber, "Loop");
+                        loopCount++;
+                    }
+                }
+                case "wait" -> {
+                    // Detect wait statements
+                    Matcher waitMatcher = WAIT_PATTERN.matcher(line);
+                    if (waitMatcher.find()) {
+                        scriptInfo.addLineElement(lineNumber, "Wait: " + waitMatcher.group(1) + " " + waitMatcher.group(2));
+                    }
+                }
+                default -> {
+                }
             }
             
             // Count variable accesses
-            Matcher variableMatcher = VARIABLE_PATTERN.matcher(line);
-            while (variableMatcher.find()) {
-                variableAccessCount++;
-            }
-            
-            // Detect wait statements
-            Matcher waitMatcher = WAIT_PATTERN.matcher(line);
-            if (waitMatcher.find()) {
-                scriptInfo.addLineElement(lineNumber, "Wait: " + waitMatcher.group(1) + " " + waitMatcher.group(2));
+            if (line.indexOf('{') >= 0) {
+                Matcher variableMatcher = VARIABLE_PATTERN.matcher(line);
+                while (variableMatcher.find()) {
+                    variableAccessCount++;
+                }
             }
         }
         
@@ -160,6 +247,7 @@ public class ScriptFileLoader {
         scriptInfo.setTotalCommandCount(commandCount);
         scriptInfo.setTotalLoopCount(loopCount);
         scriptInfo.setTotalVariableAccess(variableAccessCount);
+        scriptInfo.setBlockTree(ScriptTreeBuilder.build(lines));
     }
     
     /**
@@ -176,10 +264,18 @@ public class ScriptFileLoader {
         return loadedScripts.get(filePath);
     }
     
+    /**
+     * Gets the cross-script function call graph
+     */
+    public FunctionCallGraph getCallGraph() {
+        return callGraph;
+    }
+    
     /**
      * Clears the script cache
      */
     public void clearCache() {
         loadedScripts.clear();
+        callGraph.clear();
     }
 }
@@ -0,0 +1,141 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.model.ScriptNode;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Builds an indentation-aware block tree from the lines of a script
+ */
+public final class ScriptTreeBuilder {
+    
+    private static final int TAB_WIDTH = 4;
+    private static final Pattern PERIODIC_PATTERN = Pattern.compile("^\\s*every\\s+.+:", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHILE_PATTERN = Pattern.compile("^\\s*(do\\s+)?while\\s+", Pattern.CASE_INSENSITIVE);
+    
+    private ScriptTreeBuilder() {
+    }
+    
+    /**
+     * Builds the block tree for a script. Blank and comment-only lines are skipped.
+     */
+    public static ScriptNode build(List<String> lines) {
+        ScriptNode root = new ScriptNode(ScriptNode.Kind.ROOT, 0, -1, "", null);
+        Deque<ScriptNode> open = new ArrayDeque<>();
+        open.push(root);
+        
+        for (int i = 0; i < lines.size(); i++) {
+            String line = stripComment(lines.get(i));
+            if (line.isBlank()) {
+                continue;
+            }
+            
+            int indent = measureIndent(line);
+            while (open.peek().getIndent() >= indent) {
+                open.pop();
+            }
+            
+            ScriptNode parent = open.peek();
+            String trimmed = line.trim();
+            boolean opensBlock = trimmed.endsWith(":");
+            String text = opensBlock ? trimmed.substring(0, trimmed.length() - 1).trim() : trimmed;
+            
+            ScriptNode node = new ScriptNode(classify(line, opensBlock), i + 1, indent, text, parent);
+            parent.addChild(node);
+            if (opensBlock) {
+                open.push(node);
+            }
+        }
+        return root;
+    }
+    
+    private static ScriptNode.Kind classify(String line, boolean opensBlock) {
+        // Dispatch on the first word so most lines never reach a regex
+        switch (firstWord(line)) {
+            case "on" -> {
+                if (ScriptFileLoader.EVENT_PATTERN.matcher(line).find()) return ScriptNode.Kind.EVENT;
+            }
+            case "function" -> {
+                if (ScriptFileLoader.FUNCTION_PATTERN.matcher(line).find()) return ScriptNode.Kind.FUNCTION;
+            }
+            case "command" -> {
+                if (ScriptFileLoader.COMMAND_PATTERN.matcher(line).find()) return ScriptNode.Kind.COMMAND;
+            }
+            case "every" -> {
+                if (PERIODIC_PATTERN.matcher(line).find()) return ScriptNode.Kind.PERIODIC;
+            }
+            case "loop" -> {
+                if (ScriptFileLoader.LOOP_PATTERN.matcher(line).find()) return ScriptNode.Kind.LOOP;
+            }
+            case "while", "do" -> {
+                if (WHILE_PATTERN.matcher(line).find()) return ScriptNode.Kind.WHILE;
+            }
+            case "wait", "halt", "sleep" -> {
+                return ScriptNode.Kind.WAIT;
+            }
+            case "if", "else" -> {
+                return ScriptNode.Kind.CONDITION;
+            }
+            default -> {
+            }
+        }
+        return opensBlock ? ScriptNode.Kind.SECTION : ScriptNode.Kind.STATEMENT;
+    }
+    
+    /**
+     * Gets the first word of a line in lower case, skipping indentation
+     */
+    static String firstWord(String line) {
+        int start = 0;
+        while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < line.length() && Character.isLetter(line.charAt(end))) {
+            end++;
+        }
+        return line.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Measures leading whitespace, counting a tab as four spaces
+     */
+    private static int measureIndent(String line) {
+        int indent = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ' ') {
+                indent++;
+            } else if (c == '\t') {
+                indent += TAB_WIDTH;
+            } else {
+                break;
+            }
+        }
+        return indent;
+    }
+    
+    /**
+     * Removes a trailing comment. Skript comments start with '#' outside of strings; '##' is an escaped '#'.
+     */
+    private static String stripComment(String line) {
+        boolean inString = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                inString = !inString;
+            } else if (c == '#' && !inString) {
+                if (i + 1 < line.length() && line.charAt(i + 1) == '#') {
+                    i++;
+                    continue;
+                }
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+}
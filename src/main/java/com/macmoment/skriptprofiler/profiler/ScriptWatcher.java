@@ -0,0 +1,221 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.ProfilerContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches the scripts folder on a background thread and reloads only the scripts that changed.
+ * Bursts of events (editors often write a file several times per save) are debounced into one reload per file.
+ */
+public class ScriptWatcher {
+    
+    private final ProfilerContext context;
+    private final ScriptFileLoader loader;
+    private final Map<WatchKey, Path> directories;
+    
+    private volatile WatchService watchService;
+    private Thread thread;
+    
+    public ScriptWatcher(ProfilerContext context, ScriptFileLoader loader) {
+        this.context = context;
+        this.loader = loader;
+        this.directories = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Starts watching the scripts folder, if enabled and not already running
+     */
+    public synchronized void start() {
+        if (thread != null || !context.getSettings().getBoolean("script-watcher.enabled", true)) {
+            return;
+        }
+        
+        File scriptsFolder = context.getScriptsFolder();
+        if (scriptsFolder == null || !scriptsFolder.isDirectory()) {
+            return;
+        }
+        
+        long debounceMs = Math.max(10L, context.getSettings().getLong("script-watcher.debounce-ms", 500L));
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            registerAll(scriptsFolder.toPath());
+        } catch (IOException e) {
+            context.getLogger().warning("Could not watch scripts folder: " + e.getMessage());
+            stop();
+            return;
+        }
+        
+        WatchService service = watchService;
+        thread = new Thread(() -> watch(service, debounceMs), "SkriptProfiler-ScriptWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Stops watching and releases the watch service
+     */
+    public synchronized void stop() {
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ignored) {
+                // Closing only fails if the service is already broken
+            }
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        directories.clear();
+    }
+    
+    public boolean isRunning() {
+        return watchService != null;
+    }
+    
+    private void watch(WatchService service, long debounceMs) {
+        Set<Path> pending = new LinkedHashSet<>();
+        try {
+            while (true) {
+                // Block until something changes, then keep collecting until the folder has been quiet for the debounce window
+                boolean overflow = collect(service.take(), pending);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMs * 10);
+                WatchKey key;
+                while (System.nanoTime() < deadline && (key = service.poll(debounceMs, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(key, pending);
+                }
+                
+                if (overflow) {
+                    pending.clear();
+                    reloadAll();
+                } else {
+                    reload(pending);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+    
+    /**
+     * Adds the scripts touched by a key's events to the pending set
+     *
+     * @return true if events were lost and the whole folder has to be rescanned
+     */
+    private boolean collect(WatchKey key, Set<Path> pending) {
+        Path directory = directories.get(key);
+        boolean overflow = false;
+        
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            if (directory == null) {
+                continue;
+            }
+            
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                // New folders are not covered by the parent's key and may already contain scripts
+                try {
+                    registerAll(path);
+                    try (Stream<Path> paths = Files.walk(path)) {
+                        paths.filter(ScriptWatcher::isScript).forEach(pending::add);
+                    }
+                } catch (IOException e) {
+                    context.getLogger().warning("Could not watch script folder " + path + ": " + e.getMessage());
+                }
+            } else if (isScript(path)) {
+                pending.add(path);
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                // A removed folder takes its scripts with it without an event per file
+                for (String loaded : loader.getLoadedScripts().keySet()) {
+                    Path script = Path.of(loaded);
+                    if (script.startsWith(path)) {
+                        pending.add(script);
+                    }
+                }
+            }
+        }
+        
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+        return overflow;
+    }
+    
+    private void reload(Set<Path> pending) {
+        for (Path path : pending) {
+            try {
+                loader.reloadScript(path);
+            } catch (RuntimeException e) {
+                context.getLogger().warning("Failed to reload script " + path + ": " + e.getMessage());
+            }
+        }
+        if (!pending.isEmpty() && context.getSettings().getBoolean("script-watcher.log-reloads", false)) {
+            context.getLogger().info("Reloaded " + pending.size() + " changed script(s)");
+        }
+        pending.clear();
+    }
+    
+    /**
+     * Rescans every script after the watch service dropped events
+     */
+    private void reloadAll() {
+        File scriptsFolder = context.getScriptsFolder();
+        Set<Path> scripts = new LinkedHashSet<>();
+        try (Stream<Path> paths = Files.walk(scriptsFolder.toPath())) {
+            paths.filter(ScriptWatcher::isScript).forEach(scripts::add);
+        } catch (IOException e) {
+            context.getLogger().warning("Could not rescan scripts folder: " + e.getMessage());
+            return;
+        }
+        // Scripts that disappeared while events were lost
+        for (String loaded : loader.getLoadedScripts().keySet()) {
+            Path path = Path.of(loaded);
+            if (!scripts.contains(path)) {
+                scripts.add(path);
+            }
+        }
+        reload(scripts);
+    }
+    
+    private void registerAll(Path root) throws IOException {
+        WatchService service = watchService;
+        if (service == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path directory : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                directories.put(key, directory);
+            }
+        }
+    }
+    
+    private static boolean isScript(Path path) {
+        return path.toString().endsWith(".sk");
+    }
+}
@@ -0,0 +1,413 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.model.AttributionData;
+import com.macmoment.skriptprofiler.model.LoopProfileData;
+import com.macmoment.skriptprofiler.model.ProfileData;
+import com.macmoment.skriptprofiler.model.ProfileSnapshot;
+import com.macmoment.skriptprofiler.model.ResumeStorm;
+import com.macmoment.skriptprofiler.model.TaskCounts;
+import com.macmoment.skriptprofiler.model.ThreadClass;
+import com.macmoment.skriptprofiler.model.ThreadUsage;
+import com.macmoment.skriptprofiler.model.VariableAccessData;
+import com.macmoment.skriptprofiler.model.WaitProfileData;
+import com.macmoment.skriptprofiler.util.HyperLogLog;
+import com.macmoment.skriptprofiler.util.LogHistogram;
+import com.macmoment.skriptprofiler.util.SpaceSaving;
+import com.macmoment.skriptprofiler.util.TickHistogram;
+import com.macmoment.skriptprofiler.util.TimeSeries;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Reads and writes saved profiling sessions. Sessions keep the raw mergeable state (counters,
+ * histogram buckets, sketch registers and counters) rather than derived figures, so files from
+ * several servers can be merged losslessly. The format is one tab-separated record per line and
+ * is read as a stream, merging each record straight into a target snapshot.
+ */
+public final class SessionFile {
+    
+    public static final String EXTENSION = ".session";
+    private static final String HEADER = "#skriptprofiler-session\t1";
+    
+    private SessionFile() {
+    }
+    
+    /**
+     * Writes a snapshot as a session file
+     */
+    public static void write(ProfileSnapshot snapshot, Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        writeRecord(writer, "session", snapshot.getSource(), snapshot.getNodeCount(), snapshot.getDurationMs(),
+            snapshot.getTrackedTicks(), snapshot.getTps(), snapshot.getResumeStormCount());
+        
+        ThreadUsage threads = snapshot.getThreadUsage();
+        for (ThreadClass threadClass : ThreadClass.values()) {
+            writeRecord(writer, "threads", threadClass.name(), threads.getExecutionCount(threadClass),
+                threads.getExecutionTimeNanos(threadClass));
+        }
+        writeRecord(writer, "concurrency", threads.getPeakAsync(), encodeHistogram(threads.getAsyncConcurrency()));
+        
+        TickHistogram ticks = snapshot.getTickHistogram();
+        if (ticks.getTickCount() > 0) {
+            writeRecord(writer, "ticks", ticks.getTotalNanos(), ticks.getMaxNanos(), encodeTicks(ticks));
+        }
+        
+        for (Map.Entry<String, ProfileData> entry : snapshot.getProfileData().entrySet()) {
+            ProfileData data = entry.getValue();
+            writeRecord(writer, "element", entry.getKey(), data.getScriptFile(), data.getLineNumber(),
+                data.getElementType(), data.getElementName(), data.getExecutionCount(),
+                data.getTotalExecutionTimeNanos(), data.getMainThreadExecutionTimeNanos(),
+                data.getMinExecutionTimeNanos(), data.getMaxExecutionTimeNanos());
+            if (data.isEstimated()) {
+                writeRecord(writer, "sampling", data.getSampledExecutions(), data.getCountVariance(),
+                    data.getTimeVarianceMs());
+            }
+            AttributionData attribution = data.getAttribution();
+            if (attribution != null) {
+                writeSketch(writer, "players", attribution.getPlayers(), UUID::toString);
+                writeSketch(writer, "worlds", attribution.getWorlds(), Function.identity());
+                writeSketch(writer, "chunks", attribution.getChunks(), AttributionData::getChunkName);
+            }
+            TimeSeries history = data.getHistory();
+            if (history != null && !history.isEmpty()) {
+                writeRecord(writer, "history", Base64.getEncoder().encodeToString(history.toByteArray()));
+            }
+        }
+        
+        for (Map.Entry<String, ProfileData> entry : snapshot.getListenerData().entrySet()) {
+            ProfileData data = entry.getValue();
+            writeRecord(writer, "listener", entry.getKey(), data.getScriptFile(), data.getElementName(),
+                data.getExecutionCount(), data.getTotalExecutionTimeNanos(), data.getMainThreadExecutionTimeNanos(),
+                data.getMinExecutionTimeNanos(), data.getMaxExecutionTimeNanos());
+        }
+        
+        for (Map.Entry<String, ProfileData> entry : snapshot.getTaskData().entrySet()) {
+            ProfileData data = entry.getValue();
+            writeRecord(writer, "task", entry.getKey(), data.getScriptFile(), data.getLineNumber(), data.getElementName(),
+                data.getExecutionCount(), data.getTotalExecutionTimeNanos(), data.getMainThreadExecutionTimeNanos(),
+                data.getMinExecutionTimeNanos(), data.getMaxExecutionTimeNanos());
+        }
+        
+        for (TaskCounts counts : snapshot.getTaskCounts().values()) {
+            writeRecord(writer, "taskcounts", counts.getPlugin(), counts.getPendingSync(), counts.getPendingAsync(),
+                counts.getActive(), counts.getPeakPending(), counts.getPeakActive(), counts.getSamples(),
+                counts.getPendingSum());
+        }
+        
+        for (LoopProfileData loop : snapshot.getLoopData()) {
+            List<Object> fields = new ArrayList<>(List.of(loop.getScriptFile(), loop.getLineNumber(),
+                loop.getLoopExpression(), loop.getEntryCount(), loop.getTotalIterations(),
+                loop.getTotalBodyTimeNanos(), loop.getMaxIterations(), encodeHistogram(loop.getIterationHistogram())));
+            for (double sum : loop.getPopulationSums()) {
+                fields.add(sum);
+            }
+            writeRecord(writer, "loop", fields.toArray());
+        }
+        
+        for (VariableAccessData variable : snapshot.getVariableData()) {
+            writeRecord(writer, "variable", variable.getPattern(), variable.getScriptFile(), variable.getLineNumber(),
+                variable.getReadCount(), variable.getWriteCount(),
+                Base64.getEncoder().encodeToString(variable.getDistinctKeys().toByteArray()));
+        }
+        
+        for (WaitProfileData wait : snapshot.getWaitData()) {
+            writeRecord(writer, "wait", wait.getScriptFile(), wait.getLineNumber(), wait.getCurrentlySuspended(),
+                wait.getTotalSuspensions(), wait.getTotalResumes(), wait.getTotalParkedTimeNanos(),
+                wait.getPeakSuspended(), wait.getMaxParkedTimeNanos(), wait.getMaxResumesInTick(),
+                encodeHistogram(wait.getParkedMillisHistogram()));
+        }
+        
+        for (ResumeStorm storm : snapshot.getResumeStorms()) {
+            List<Object> fields = new ArrayList<>(List.of(storm.getTick(), storm.getTimestamp(), storm.getResumeCount()));
+            for (Map.Entry<String, Integer> contributor : storm.getContributors().entrySet()) {
+                fields.add(contributor.getKey());
+                fields.add(contributor.getValue());
+            }
+            writeRecord(writer, "storm", fields.toArray());
+        }
+        writer.flush();
+    }
+    
+    /**
+     * Reads a session file and merges it into the target snapshot record by record
+     */
+    public static void mergeInto(Reader reader, ProfileSnapshot target) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        String header = lines.readLine();
+        if (!HEADER.equals(header)) {
+            throw new IOException("Not a SkriptProfiler session file (unsupported header: " + header + ")");
+        }
+        
+        // Sampling, attribution and history records follow their element, so the element is merged once the next record starts
+        String pendingKey = null;
+        ProfileData pending = null;
+        int lineNumber = 1;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty()) continue;
+            
+            String[] fields = splitRecord(line);
+            try {
+                if (pending != null && !isElementDetail(fields[0])) {
+                    target.mergeProfileData(pendingKey, pending);
+                    pending = null;
+                }
+                
+                switch (fields[0]) {
+                    case "session" -> target.mergeSession(Integer.parseInt(fields[2]), Long.parseLong(fields[3]),
+                        Long.parseLong(fields[4]), Double.parseDouble(fields[5]), Long.parseLong(fields[6]));
+                    case "threads" -> target.getThreadUsage().addAggregate(ThreadClass.valueOf(fields[1]),
+                        Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+                    case "concurrency" -> target.getThreadUsage().addConcurrency(Integer.parseInt(fields[1]),
+                        decodeHistogram(fields[2]));
+                    case "ticks" -> readTicks(fields, target.getTickHistogram());
+                    case "element" -> {
+                        pendingKey = fields[1];
+                        pending = new ProfileData(fields[2], Integer.parseInt(fields[3]), fields[4], fields[5]);
+                        pending.addAggregate(Long.parseLong(fields[6]), Long.parseLong(fields[7]),
+                            Long.parseLong(fields[8]), Long.parseLong(fields[9]), Long.parseLong(fields[10]));
+                    }
+                    case "sampling" -> {
+                        if (pending == null) {
+                            throw new IOException("Sampling record without an element");
+                        }
+                        pending.addSamplingAggregate(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                            Double.parseDouble(fields[3]));
+                    }
+                    case "players", "worlds", "chunks" -> {
+                        if (pending == null) {
+                            throw new IOException("Attribution record without an element");
+                        }
+                        readSketch(fields, pending);
+                    }
+                    case "history" -> {
+                        if (pending == null) {
+                            throw new IOException("History record without an element");
+                        }
+                        pending.mergeHistory(TimeSeries.fromByteArray(Base64.getDecoder().decode(fields[1]), null));
+                    }
+                    case "listener" -> {
+                        ProfileData listener = new ProfileData(fields[2], 0, ListenerProfiler.ELEMENT_TYPE, fields[3]);
+                        listener.addAggregate(Long.parseLong(fields[4]), Long.parseLong(fields[5]),
+                            Long.parseLong(fields[6]), Long.parseLong(fields[7]), Long.parseLong(fields[8]));
+                        target.mergeListenerData(fields[1], listener);
+                    }
+                    case "task" -> {
+                        ProfileData task = new ProfileData(fields[2], Integer.parseInt(fields[3]),
+                            SchedulerProfiler.ELEMENT_TYPE, fields[4]);
+                        task.addAggregate(Long.parseLong(fields[5]), Long.parseLong(fields[6]),
+                            Long.parseLong(fields[7]), Long.parseLong(fields[8]), Long.parseLong(fields[9]));
+                        target.mergeTaskData(fields[1], task);
+                    }
+                    case "taskcounts" -> {
+                        TaskCounts counts = new TaskCounts(fields[1]);
+                        counts.addAggregate(Integer.parseInt(fields[2]), Integer.parseInt(fields[3]),
+                            Integer.parseInt(fields[4]), Integer.parseInt(fields[5]), Integer.parseInt(fields[6]),
+                            Long.parseLong(fields[7]), Long.parseLong(fields[8]));
+                        target.mergeTaskCounts(counts);
+                    }
+                    case "loop" -> {
+                        LoopProfileData loop = new LoopProfileData(fields[1], Integer.parseInt(fields[2]), fields[3]);
+                        double[] sums = new double[9];
+                        for (int i = 0; i < sums.length; i++) {
+                            sums[i] = Double.parseDouble(fields[9 + i]);
+                        }
+                        loop.addAggregate(Long.parseLong(fields[4]), Long.parseLong(fields[5]), Long.parseLong(fields[6]),
+                            Long.parseLong(fields[7]), decodeHistogram(fields[8]), sums);
+                        target.mergeLoop(loop);
+                    }
+                    case "variable" -> {
+                        HyperLogLog keys = HyperLogLog.fromByteArray(Base64.getDecoder().decode(fields[6]));
+                        VariableAccessData variable = new VariableAccessData(fields[1], fields[2],
+                            Integer.parseInt(fields[3]), keys.getPrecision());
+                        variable.addAggregate(Long.parseLong(fields[4]), Long.parseLong(fields[5]), keys);
+                        target.mergeVariable(variable);
+                    }
+                    case "wait" -> {
+                        WaitProfileData wait = new WaitProfileData(fields[1], Integer.parseInt(fields[2]));
+                        wait.addAggregate(Integer.parseInt(fields[3]), Long.parseLong(fields[4]), Long.parseLong(fields[5]),
+                            Long.parseLong(fields[6]), Integer.parseInt(fields[7]), Long.parseLong(fields[8]),
+                            Integer.parseInt(fields[9]), decodeHistogram(fields[10]));
+                        target.mergeWait(wait);
+                    }
+                    case "storm" -> {
+                        Map<String, Integer> contributors = new LinkedHashMap<>();
+                        for (int i = 4; i + 1 < fields.length; i += 2) {
+                            contributors.put(fields[i], Integer.parseInt(fields[i + 1]));
+                        }
+                        target.mergeResumeStorm(new ResumeStorm(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                            Integer.parseInt(fields[3]), contributors));
+                    }
+                    default -> {
+                        // Unknown records from newer versions are skipped
+                    }
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed session record on line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        
+        if (pending != null) {
+            target.mergeProfileData(pendingKey, pending);
+        }
+    }
+    
+    private static boolean isElementDetail(String type) {
+        return type.equals("sampling") || type.equals("players") || type.equals("worlds") || type.equals("chunks")
+            || type.equals("history");
+    }
+    
+    private static <K> void writeSketch(Writer writer, String dimension, SpaceSaving<K> sketch,
+                                        Function<K, String> names) throws IOException {
+        List<Object> fields = new ArrayList<>(List.of(sketch.getCapacity(), sketch.getTotalWeight()));
+        for (SpaceSaving.Entry<K> entry : sketch.getTop(Integer.MAX_VALUE)) {
+            fields.add(names.apply(entry.getKey()));
+            fields.add(entry.getCount());
+            fields.add(entry.getError());
+        }
+        writeRecord(writer, dimension, fields.toArray());
+    }
+    
+    private static void readSketch(String[] fields, ProfileData element) {
+        int capacity = Integer.parseInt(fields[1]);
+        AttributionData attribution = element.getOrCreateAttribution(capacity);
+        switch (fields[0]) {
+            case "players" -> readSketch(fields, attribution.getPlayers(), UUID::fromString);
+            case "worlds" -> readSketch(fields, attribution.getWorlds(), Function.identity());
+            default -> readSketch(fields, attribution.getChunks(), AttributionData::parseChunkKey);
+        }
+    }
+    
+    private static <K> void readSketch(String[] fields, SpaceSaving<K> sketch, Function<String, K> keys) {
+        int capacity = Integer.parseInt(fields[1]);
+        long totalWeight = Long.parseLong(fields[2]);
+        List<SpaceSaving.Entry<K>> entries = new ArrayList<>();
+        for (int i = 3; i + 2 < fields.length; i += 3) {
+            entries.add(new SpaceSaving.Entry<>(keys.apply(fields[i]), Long.parseLong(fields[i + 1]),
+                Long.parseLong(fields[i + 2])));
+        }
+        sketch.merge(entries, totalWeight, capacity);
+    }
+    
+    /**
+     * Encodes non-empty histogram buckets as "bucket:count" pairs, or "-" if empty
+     */
+    private static String encodeHistogram(LogHistogram histogram) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < LogHistogram.BUCKET_COUNT; i++) {
+            long count = histogram.getBucketCount(i);
+            if (count == 0) continue;
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(i).append(':').append(count);
+        }
+        return builder.length() == 0 ? "-" : builder.toString();
+    }
+    
+    private static LogHistogram decodeHistogram(String encoded) {
+        LogHistogram histogram = new LogHistogram();
+        if (encoded.equals("-")) {
+            return histogram;
+        }
+        for (String pair : encoded.split(",")) {
+            int separator = pair.indexOf(':');
+            histogram.addToBucket(Integer.parseInt(pair.substring(0, separator)),
+                Long.parseLong(pair.substring(separator + 1)));
+        }
+        return histogram;
+    }
+    
+    /**
+     * Encodes non-empty tick buckets as "bucket:count" pairs
+     */
+    private static String encodeTicks(TickHistogram histogram) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < TickHistogram.BUCKET_COUNT; i++) {
+            long count = histogram.getBucketCount(i);
+            if (count == 0) continue;
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(i).append(':').append(count);
+        }
+        return builder.toString();
+    }
+    
+    private static void readTicks(String[] fields, TickHistogram histogram) {
+        for (String pair : fields[3].split(",")) {
+            int separator = pair.indexOf(':');
+            histogram.addToBucket(Integer.parseInt(pair.substring(0, separator)),
+                Long.parseLong(pair.substring(separator + 1)));
+        }
+        histogram.addTotals(Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+    }
+    
+    private static void writeRecord(Writer writer, String type, Object... fields) throws IOException {
+        writer.write(type);
+        for (Object field : fields) {
+            writer.write('\t');
+            writer.write(escape(String.valueOf(field)));
+        }
+        writer.write('\n');
+    }
+    
+    private static String escape(String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf('\t') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        StringBuilder builder = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> builder.append("\\\\");
+                case '\t' -> builder.append("\\t");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                default -> builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+    
+    private static String[] splitRecord(String line) {
+        String[] fields = line.split("\t", -1);
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].indexOf('\\') >= 0) {
+                fields[i] = unescape(fields[i]);
+            }
+        }
+        return fields;
+    }
+    
+    private static String unescape(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                builder.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
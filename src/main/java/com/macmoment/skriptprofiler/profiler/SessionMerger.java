@@ -0,0 +1,93 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.model.ProfileSnapshot;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merges saved sessions from several servers into one fleet-wide snapshot.
+ * Each worker streams files into its own accumulator and the accumulators are merged at the end,
+ * so memory grows with the number of workers and distinct script elements, not with the number of files.
+ */
+public class SessionMerger {
+    
+    private final int threads;
+    
+    public SessionMerger(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Finds the session files in a folder, in name order
+     */
+    public static List<Path> findSessionFiles(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SessionFile.EXTENSION))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+    
+    /**
+     * Merges the given session files
+     *
+     * @throws IOException if any file cannot be read or parsed
+     */
+    public ProfileSnapshot merge(List<Path> files, String source) throws IOException {
+        Queue<Path> remaining = new ConcurrentLinkedQueue<>(files);
+        int workers = Math.min(threads, Math.max(1, files.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "SkriptProfiler-SessionMerger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        try {
+            List<Future<ProfileSnapshot>> results = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                results.add(executor.submit(() -> mergeQueue(remaining, source)));
+            }
+            
+            ProfileSnapshot fleet = new ProfileSnapshot(source);
+            for (Future<ProfileSnapshot> result : results) {
+                fleet.merge(result.get());
+            }
+            return fleet;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while merging sessions", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private ProfileSnapshot mergeQueue(Queue<Path> remaining, String source) throws IOException {
+        ProfileSnapshot accumulator = new ProfileSnapshot(source);
+        Path file;
+        while ((file = remaining.poll()) != null) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                SessionFile.mergeInto(reader, accumulator);
+            } catch (IOException e) {
+                throw new IOException(file.getFileName() + ": " + e.getMessage(), e);
+            }
+        }
+        return accumulator;
+    }
+}
@@ -0,0 +1,189 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.ProfilerContext;
+import com.macmoment.skriptprofiler.model.PerformanceIssue;
+import com.macmoment.skriptprofiler.model.ScriptInfo;
+import com.macmoment.skriptprofiler.model.ScriptNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Estimates the static cost of script block trees to catch O(n²) code before it ships.
+ * Flags nested loops over server-wide collections, loops in high-frequency events and waits inside loops.
+ */
+public class StaticCostEstimator {
+    
+    private static final List<String> DEFAULT_HOT_EVENTS = Arrays.asList(
+        "move", "walk", "step", "damage", "click", "physics", "redstone", "tick",
+        "spawn", "hopper", "inventory move", "item move", "flow"
+    );
+    
+    // Collections whose size grows with the server, unless scoped to a radius
+    private static final Pattern SERVER_WIDE_LOOP = Pattern.compile(
+        "^loop\\s+(all\\s+)?(the\\s+)?(online\\s+|offline\\s+|loaded\\s+)?" +
+        "(players|entities|living entities|mobs|\\w+\\s+entities|worlds|chunks|\\w+s\\s+in\\s+(world|all worlds))\\b",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern SCOPED_LOOP = Pattern.compile("\\b(radius|within|around)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PERIODIC_TICKS = Pattern.compile("^every\\s+(\\d+)?\\s*(real\\s+)?ticks?\\b", Pattern.CASE_INSENSITIVE);
+    private static final int HOT_PERIOD_TICKS = 5;
+    
+    private final ProfilerContext context;
+    
+    public StaticCostEstimator(ProfilerContext context) {
+        this.context = context;
+    }
+    
+    /**
+     * Estimates costs for all scripts and returns the detected issues
+     */
+    public List<PerformanceIssue> estimate(Map<String, ScriptInfo> scripts) {
+        List<PerformanceIssue> issues = new ArrayList<>();
+        if (!context.getSettings().getBoolean("static-analysis.enabled", true)) {
+            return issues;
+        }
+        
+        List<String> hotEvents = context.getSettings().getStringList("static-analysis.high-frequency-events");
+        if (hotEvents == null || hotEvents.isEmpty()) {
+            hotEvents = DEFAULT_HOT_EVENTS;
+        }
+        
+        // Scripts are independent, so large folders are estimated in parallel
+        List<String> events = hotEvents;
+        return scripts.values().parallelStream()
+            .filter(script -> script.getBlockTree() != null)
+            .flatMap(script -> {
+                List<PerformanceIssue> scriptIssues = new ArrayList<>();
+                estimateScript(script.getFilePath(), script.getBlockTree(), events, scriptIssues);
+                return scriptIssues.stream();
+            })
+            .collect(Collectors.toList());
+    }
+    
+    private void estimateScript(String scriptFile, ScriptNode tree, List<String> hotEvents, List<PerformanceIssue> issues) {
+        tree.walk(node -> {
+            if (node.getKind() == ScriptNode.Kind.LOOP) {
+                checkLoop(scriptFile, node, hotEvents, issues);
+            } else if (node.getKind() == ScriptNode.Kind.WAIT) {
+                checkWait(scriptFile, node, hotEvents, issues);
+            }
+        });
+    }
+    
+    private void checkLoop(String scriptFile, ScriptNode loop, List<String> hotEvents, List<PerformanceIssue> issues) {
+        ScriptNode trigger = loop.getEnclosingTrigger();
+        boolean hot = trigger != null && isHighFrequency(trigger, hotEvents);
+        boolean serverWide = isServerWide(loop);
+        String triggerName = trigger != null ? trigger.getText() : "top level";
+        
+        if (serverWide) {
+            int order = serverWideLoopDepth(loop);
+            if (order >= 2) {
+                issues.add(new PerformanceIssue(
+                    PerformanceIssue.IssueType.NESTED_LOOP,
+                    hot ? PerformanceIssue.Severity.CRITICAL : PerformanceIssue.Severity.HIGH,
+                    scriptFile,
+                    loop.getLineNumber(),
+                    String.format("'%s' is nested inside %d other server-wide loop(s) in '%s': O(n%s)",
+                        loop.getText(), order - 1, triggerName, superscript(order)),
+                    "Nested loops over all players/entities grow quadratically with the server. Loop once and look up the inner data by key, or restrict the inner loop to a radius.",
+                    null
+                ));
+                return;
+            }
+        }
+        
+        if (hot) {
+            issues.add(new PerformanceIssue(
+                PerformanceIssue.IssueType.LOOP_IN_HOT_EVENT,
+                serverWide ? PerformanceIssue.Severity.HIGH : PerformanceIssue.Severity.MEDIUM,
+                scriptFile,
+                loop.getLineNumber(),
+                String.format("'%s' runs inside high-frequency trigger '%s'%s",
+                    loop.getText(), triggerName, serverWide ? " and iterates a server-wide collection" : ""),
+                "This trigger fires many times per second. Move the loop to a periodic event, cache its result, or exit early before looping.",
+                null
+            ));
+        }
+    }
+    
+    private void checkWait(String scriptFile, ScriptNode wait, List<String> hotEvents, List<PerformanceIssue> issues) {
+        ScriptNode loop = null;
+        for (ScriptNode node = wait.getParent(); node != null && !node.getKind().isTrigger(); node = node.getParent()) {
+            if (node.getKind() == ScriptNode.Kind.LOOP) {
+                loop = node;
+                break;
+            }
+        }
+        if (loop == null) {
+            return;
+        }
+        
+        ScriptNode trigger = wait.getEnclosingTrigger();
+        boolean hot = trigger != null && isHighFrequency(trigger, hotEvents);
+        issues.add(new PerformanceIssue(
+            PerformanceIssue.IssueType.WAIT_IN_LOOP,
+            hot ? PerformanceIssue.Severity.HIGH : PerformanceIssue.Severity.MEDIUM,
+            scriptFile,
+            wait.getLineNumber(),
+            String.format("'%s' suspends the trigger inside '%s' (line %d)",
+                wait.getText(), loop.getText(), loop.getLineNumber()),
+            "Each wait keeps the whole trigger and its loop suspended, so overlapping runs pile up. Collect the work first and process it in a periodic event instead.",
+            null
+        ));
+    }
+    
+    /**
+     * Counts this loop and its enclosing loops that iterate server-wide collections, i.e. the polynomial order
+     */
+    private int serverWideLoopDepth(ScriptNode loop) {
+        int depth = 0;
+        for (ScriptNode node = loop; node != null && !node.getKind().isTrigger(); node = node.getParent()) {
+            if (node.getKind() == ScriptNode.Kind.LOOP && isServerWide(node)) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+    
+    private boolean isServerWide(ScriptNode loop) {
+        String text = loop.getText();
+        return SERVER_WIDE_LOOP.matcher(text).find() && !SCOPED_LOOP.matcher(text).find();
+    }
+    
+    private boolean isHighFrequency(ScriptNode trigger, List<String> hotEvents) {
+        if (trigger.getKind() == ScriptNode.Kind.PERIODIC) {
+            Matcher matcher = PERIODIC_TICKS.matcher(trigger.getText());
+            if (!matcher.find()) {
+                return false;
+            }
+            int ticks = matcher.group(1) != null ? Integer.parseInt(matcher.group(1)) : 1;
+            return ticks <= HOT_PERIOD_TICKS;
+        }
+        if (trigger.getKind() != ScriptNode.Kind.EVENT) {
+            return false;
+        }
+        
+        String event = trigger.getText().toLowerCase(Locale.ROOT);
+        for (String hotEvent : hotEvents) {
+            if (event.contains(hotEvent.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private String superscript(int order) {
+        return switch (order) {
+            case 2 -> "²";
+            case 3 -> "³";
+            default -> "^" + order;
+        };
+    }
+}
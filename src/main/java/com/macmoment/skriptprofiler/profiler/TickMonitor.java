@@ -0,0 +1,127 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.util.TickHistogram;
+
+/**
+ * Measures every server tick with nanoTime for the MSPT histogram, the current MSPT and TPS.
+ *
+ * Where the server fires tick start and end events, a tick is the time between the two, i.e. the
+ * time the server was busy. Otherwise a task that runs at the start of every tick marks the
+ * boundaries, and a tick lasts until the next one starts, including the sleep before it, so a
+ * server with time to spare reads about 50 ms.
+ *
+ * The tick methods are called on the main thread; the getters may be called from any thread.
+ */
+public class TickMonitor {
+    
+    private static final double TICK_BUDGET_MS = 50.0;
+    private static final long TICK_BUDGET_NANOS = 50_000_000;
+    // Smoothing for the current TPS, about one second of ticks
+    private static final double SMOOTHING = 1.0 / 20;
+    
+    private final TickHistogram histogram;
+    private volatile boolean tickEvents;
+    private volatile double currentMspt;
+    private volatile double smoothedMspt;
+    private volatile long ticks;
+    private volatile long scheduledNanos;
+    private long tickStartNanos;
+    
+    public TickMonitor() {
+        this.histogram = new TickHistogram();
+        this.smoothedMspt = TICK_BUDGET_MS;
+    }
+    
+    /**
+     * Starts or resumes measuring; the ticks before are kept until reset
+     *
+     * @param tickEvents whether the server calls {@link #onTickStart()} and {@link #onTickEnd()}, so busy time can be measured
+     */
+    public void start(boolean tickEvents) {
+        this.tickEvents = tickEvents;
+        this.tickStartNanos = 0;
+    }
+    
+    /**
+     * Checks whether ticks are measured from start to end event rather than boundary to boundary
+     */
+    public boolean isUsingTickEvents() {
+        return tickEvents;
+    }
+    
+    /**
+     * Called by the server's tick start event
+     */
+    public void onTickStart() {
+        tickStartNanos = System.nanoTime();
+    }
+    
+    /**
+     * Called by the server's tick end event
+     */
+    public void onTickEnd() {
+        if (!tickEvents || tickStartNanos == 0) return;
+        record(System.nanoTime() - tickStartNanos);
+    }
+    
+    /**
+     * Called by a task that runs once per tick; only measures when there are no tick events
+     */
+    public void onSchedulerTick() {
+        if (tickEvents) return;
+        long now = System.nanoTime();
+        // The previous tick ends where this one starts
+        if (tickStartNanos != 0) {
+            record(now - tickStartNanos);
+        }
+        tickStartNanos = now;
+    }
+    
+    private void record(long nanos) {
+        histogram.record(nanos);
+        double mspt = nanos / 1_000_000.0;
+        currentMspt = mspt;
+        smoothedMspt += (mspt - smoothedMspt) * SMOOTHING;
+        ticks++;
+        // A tick that finishes early still takes its 50 ms slot
+        scheduledNanos += Math.max(TICK_BUDGET_NANOS, nanos);
+    }
+    
+    /**
+     * Gets the duration of the last tick in ms
+     */
+    public double getCurrentMspt() {
+        return currentMspt;
+    }
+    
+    /**
+     * Gets the current TPS from the tick durations of about the last second
+     */
+    public double getCurrentTps() {
+        return 1000.0 / Math.max(TICK_BUDGET_MS, smoothedMspt);
+    }
+    
+    /**
+     * Gets the TPS averaged over every tick measured since the last reset
+     */
+    public double getAverageTps() {
+        long scheduled = scheduledNanos;
+        return scheduled == 0 ? 20.0 : ticks * 1_000_000_000.0 / scheduled;
+    }
+    
+    /**
+     * Gets the histogram of every tick measured since the last reset
+     */
+    public TickHistogram getHistogram() {
+        return histogram;
+    }
+    
+    public void reset() {
+        histogram.reset();
+        currentMspt = 0;
+        smoothedMspt = TICK_BUDGET_MS;
+        ticks = 0;
+        scheduledNanos = 0;
+        tickStartNanos = 0;
+    }
+}
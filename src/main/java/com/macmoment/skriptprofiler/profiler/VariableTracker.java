@@ -0,0 +1,211 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.ProfilerContext;
+import com.macmoment.skriptprofiler.model.VariableAccessData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks runtime variable reads and writes aggregated by normalized variable pattern.
+ * Memory is bounded by the pattern cap, the fixed-size distinct key sketch per pattern and the
+ * capped set of values remembered per list key position.
+ */
+public class VariableTracker {
+    
+    /**
+     * Pattern that absorbs accesses once the pattern cap is reached
+     */
+    public static final String OVERFLOW_PATTERN = "{<other>}";
+    
+    /**
+     * Placeholder for a list key position that took too many distinct values, e.g. player names
+     */
+    public static final String KEY_PLACEHOLDER = "%key%";
+    
+    private static final int HLL_PRECISION = 11;
+    
+    private final ProfilerContext context;
+    private final Map<String, VariableAccessData> variableDataMap;
+    // Distinct values seen per list key position, keyed by the pattern prefix before the position
+    private final Map<String, KeyPosition> keyPositions;
+    private volatile int maxPatterns;
+    private volatile int keyThreshold;
+    
+    public VariableTracker(ProfilerContext context) {
+        this.context = context;
+        this.variableDataMap = new ConcurrentHashMap<>();
+        this.keyPositions = new ConcurrentHashMap<>();
+        this.maxPatterns = 1000;
+        this.keyThreshold = 32;
+    }
+    
+    /**
+     * Reloads the pattern cap and key threshold from config
+     */
+    public void loadSettings() {
+        maxPatterns = Math.max(1, context.getSettings().getInt("advanced.max-variable-patterns", 1000));
+        keyThreshold = Math.max(1, context.getSettings().getInt("advanced.variable-key-threshold", 32));
+    }
+    
+    /**
+     * Records an access to a concrete variable name, normalizing it to a pattern
+     */
+    public void recordAccess(String scriptFile, int lineNumber, String variableName, boolean write) {
+        recordAccess(scriptFile, lineNumber, normalizePattern(variableName), variableName, write);
+    }
+    
+    /**
+     * Records an access where the source pattern is already known (e.g. from the parsed variable string)
+     */
+    public void recordAccess(String scriptFile, int lineNumber, String pattern, String key, boolean write) {
+        VariableAccessData data = variableDataMap.get(pattern);
+        if (data == null) {
+            // Racing threads may overshoot the cap by a few entries, which is harmless
+            String bucket = variableDataMap.size() < maxPatterns ? pattern : OVERFLOW_PATTERN;
+            data = variableDataMap.computeIfAbsent(bucket,
+                k -> new VariableAccessData(k, scriptFile, lineNumber, HLL_PRECISION));
+        }
+        data.recordAccess(key, write);
+    }
+    
+    /**
+     * Normalizes a concrete variable name into a pattern by replacing per-entity list segments.
+     * UUIDs and numbers are replaced right away, so "stats::069a79f4-44e9-4726-a5be-fca90e38aaf5::kills"
+     * becomes "{stats::%uuid%::kills}". Other list keys are kept until their position has taken more
+     * distinct values than the key threshold, after which "home::Steve" becomes "{home::%key%}";
+     * the values seen before that keep their own patterns.
+     */
+    public String normalizePattern(String variableName) {
+        int start = 0;
+        int end = variableName.length();
+        if (end >= 2 && variableName.charAt(0) == '{' && variableName.charAt(end - 1) == '}') {
+            start++;
+            end--;
+        }
+        
+        StringBuilder pattern = new StringBuilder(end - start + 2).append('{');
+        int segmentStart = start;
+        for (int depth = 0; ; depth++) {
+            int segmentEnd = variableName.indexOf("::", segmentStart);
+            if (segmentEnd < 0 || segmentEnd > end) {
+                segmentEnd = end;
+            }
+            if (depth > 0) {
+                pattern.append("::");
+            }
+            if (isUuid(variableName, segmentStart, segmentEnd)) {
+                pattern.append("%uuid%");
+            } else if (isNumber(variableName, segmentStart, segmentEnd)) {
+                pattern.append("%number%");
+            } else if (depth > 0 && isHighCardinality(pattern.toString(), variableName, segmentStart, segmentEnd)) {
+                pattern.append(KEY_PLACEHOLDER);
+            } else {
+                pattern.append(variableName, segmentStart, segmentEnd);
+            }
+            if (segmentEnd == end) break;
+            segmentStart = segmentEnd + 2;
+        }
+        return pattern.append('}').toString();
+    }
+    
+    /**
+     * Remembers a list key under its position and checks whether the position has passed the threshold
+     */
+    private boolean isHighCardinality(String prefix, String name, int start, int end) {
+        KeyPosition position = keyPositions.get(prefix);
+        if (position == null) {
+            // Racing threads may overshoot the cap by a few entries, which is harmless
+            if (keyPositions.size() >= maxPatterns) return false;
+            position = keyPositions.computeIfAbsent(prefix, k -> new KeyPosition());
+        }
+        return position.observe(name, start, end, keyThreshold);
+    }
+    
+    private static boolean isUuid(String name, int start, int end) {
+        if (end - start != 36) return false;
+        for (int i = 0; i < 36; i++) {
+            char c = name.charAt(start + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return false;
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Checks for an optionally negative integer or decimal such as "-12" or "3.5"
+     */
+    private static boolean isNumber(String name, int start, int end) {
+        int i = start;
+        if (i < end && name.charAt(i) == '-') i++;
+        int digits = i;
+        while (i < end && isDigit(name.charAt(i))) i++;
+        if (i == digits) return false;
+        if (i == end) return true;
+        if (name.charAt(i) != '.') return false;
+        int decimals = ++i;
+        while (i < end && isDigit(name.charAt(i))) i++;
+        return i == end && i > decimals;
+    }
+    
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+    
+    /**
+     * Gets all variable access data
+     */
+    public List<VariableAccessData> getVariableData() {
+        return new ArrayList<>(variableDataMap.values());
+    }
+    
+    /**
+     * Moves the first-access lines of a script's variable patterns after an edit.
+     * Patterns are not tied to one line, so a removed line keeps the pattern at its old line.
+     */
+    public void remapScript(String scriptFile, int[] lineMap) {
+        for (VariableAccessData data : variableDataMap.values()) {
+            if (data.getScriptFile().equals(scriptFile)) {
+                int lineNumber = LineDiff.mapLine(lineMap, data.getLineNumber());
+                if (lineNumber != 0) {
+                    data.relocate(lineNumber);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Resets all variable access data
+     */
+    public void reset() {
+        variableDataMap.clear();
+        keyPositions.clear();
+    }
+    
+    /**
+     * Distinct values of one list key position, remembered until the threshold is passed
+     */
+    private static final class KeyPosition {
+        private final Set<String> values = ConcurrentHashMap.newKeySet();
+        private volatile boolean collapsed;
+        
+        boolean observe(String name, int start, int end, int threshold) {
+            if (collapsed) return true;
+            String value = name.substring(start, end);
+            if (values.contains(value)) return false;
+            if (values.size() >= threshold) {
+                collapsed = true;
+                values.clear();
+                return true;
+            }
+            values.add(value);
+            return false;
+        }
+    }
+}
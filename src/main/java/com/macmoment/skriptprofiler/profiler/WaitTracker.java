@@ -0,0 +1,177 @@
+package com.macmoment.skriptprofiler.profiler;
+
+import com.macmoment.skriptprofiler.ProfilerContext;
+import com.macmoment.skriptprofiler.model.ResumeStorm;
+import com.macmoment.skriptprofiler.model.WaitProfileData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks triggers suspended at wait statements, keyed by script line, and detects resume storms
+ * (ticks where a large number of waits expire at once)
+ */
+public class WaitTracker {
+    
+    private static final int MAX_STORMS = 50;
+    private static final int MAX_STORM_CONTRIBUTORS = 5;
+    
+    private final ProfilerContext context;
+    private final Map<String, WaitProfileData> waitDataMap;
+    private final AtomicInteger resumesThisTick;
+    private final Deque<ResumeStorm> storms;
+    private volatile int stormThreshold;
+    private long totalStorms;
+    
+    public WaitTracker(ProfilerContext context) {
+        this.context = context;
+        this.waitDataMap = new ConcurrentHashMap<>();
+        this.resumesThisTick = new AtomicInteger(0);
+        this.storms = new ArrayDeque<>();
+        this.stormThreshold = 200;
+    }
+    
+    /**
+     * Reloads the storm threshold from config
+     */
+    public void loadSettings() {
+        stormThreshold = Math.max(1, context.getSettings().getInt("thresholds.resume-storm", 200));
+    }
+    
+    /**
+     * Records a trigger being suspended at a wait line
+     *
+     * @return a token to pass to recordResume
+     */
+    public long recordSuspend(String scriptFile, int lineNumber) {
+        getOrCreate(scriptFile, lineNumber).recordSuspend();
+        return System.nanoTime();
+    }
+    
+    /**
+     * Records a trigger resuming after a wait
+     */
+    public void recordResume(String scriptFile, int lineNumber, long suspendToken, long currentTick) {
+        long parkedNanos = System.nanoTime() - suspendToken;
+        getOrCreate(scriptFile, lineNumber).recordResume(parkedNanos, currentTick);
+        resumesThisTick.incrementAndGet();
+    }
+    
+    /**
+     * Closes a tick, recording a resume storm if too many waits expired in it.
+     * Called once per server tick from the main thread.
+     */
+    public void onTickEnd(long tick) {
+        int resumes = resumesThisTick.getAndSet(0);
+        
+        if (resumes >= stormThreshold) {
+            recordStorm(tick, resumes);
+        }
+    }
+    
+    private void recordStorm(long tick, int resumes) {
+        // Counts are read once: async resumes can still land in this tick while the contributors are sorted
+        List<Map.Entry<String, Integer>> contributors = new ArrayList<>();
+        for (WaitProfileData data : waitDataMap.values()) {
+            int resumesInTick = data.getResumesInTick(tick);
+            if (resumesInTick > 0) {
+                contributors.add(Map.entry(data.getLocationString(), resumesInTick));
+            }
+        }
+        contributors.sort((w1, w2) -> Integer.compare(w2.getValue(), w1.getValue()));
+        
+        Map<String, Integer> topContributors = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> contributor : contributors.subList(0, Math.min(MAX_STORM_CONTRIBUTORS, contributors.size()))) {
+            topContributors.put(contributor.getKey(), contributor.getValue());
+        }
+        
+        synchronized (storms) {
+            totalStorms++;
+            if (storms.size() >= MAX_STORMS) {
+                storms.removeFirst();
+            }
+            storms.addLast(new ResumeStorm(tick, System.currentTimeMillis(), resumes, topContributors));
+        }
+    }
+    
+    private WaitProfileData getOrCreate(String scriptFile, int lineNumber) {
+        String key = scriptFile + ":" + lineNumber;
+        return waitDataMap.computeIfAbsent(key, k -> new WaitProfileData(scriptFile, lineNumber));
+    }
+    
+    /**
+     * Moves a script's wait lines to their line numbers after an edit, dropping lines that were removed
+     *
+     * @return number of retired wait lines
+     */
+    public int remapScript(String scriptFile, int[] lineMap) {
+        int retired = 0;
+        List<WaitProfileData> moved = new ArrayList<>();
+        for (Iterator<WaitProfileData> iterator = waitDataMap.values().iterator(); iterator.hasNext(); ) {
+            WaitProfileData data = iterator.next();
+            if (!data.getScriptFile().equals(scriptFile)) continue;
+            
+            int lineNumber = LineDiff.mapLine(lineMap, data.getLineNumber());
+            if (lineNumber == data.getLineNumber()) continue;
+            
+            iterator.remove();
+            if (lineNumber == 0) {
+                retired++;
+            } else {
+                data.relocate(lineNumber);
+                moved.add(data);
+            }
+        }
+        for (WaitProfileData data : moved) {
+            WaitProfileData existing = waitDataMap.putIfAbsent(data.getLocationString(), data);
+            if (existing != null) {
+                existing.merge(data);
+            }
+        }
+        return retired;
+    }
+    
+    /**
+     * Gets all wait line data
+     */
+    public List<WaitProfileData> getWaitData() {
+        return new ArrayList<>(waitDataMap.values());
+    }
+    
+    /**
+     * Gets the most recent resume storms, oldest first
+     */
+    public List<ResumeStorm> getResumeStorms() {
+        synchronized (storms) {
+            return new ArrayList<>(storms);
+        }
+    }
+    
+    /**
+     * Gets the total number of resume storms, including ones no longer retained
+     */
+    public long getTotalStormCount() {
+        synchronized (storms) {
+            return totalStorms;
+        }
+    }
+    
+    /**
+     * Resets all wait data and storms
+     */
+    public void reset() {
+        waitDataMap.clear();
+        resumesThisTick.set(0);
+        synchronized (storms) {
+            storms.clear();
+            totalStorms = 0;
+        }
+    }
+}
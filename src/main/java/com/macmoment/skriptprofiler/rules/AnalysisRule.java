@@ -0,0 +1,55 @@
+package com.macmoment.skriptprofiler.rules;
+
+import com.macmoment.skriptprofiler.model.PerformanceIssue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A bottleneck check run by the analyzer. Rules are evaluated in parallel with each other over the
+ * same read-only data, so an implementation must not keep state between or during evaluations.
+ *
+ * Rules outside the plugin are added with {@link RuleRegistry#register}, or listed in
+ * META-INF/services/com.macmoment.skriptprofiler.rules.AnalysisRule of a jar in the rules folder.
+ */
+public interface AnalysisRule {
+    
+    /**
+     * Gets the unique ID, used to disable the rule in config and to replace it in the registry
+     */
+    String getId();
+    
+    /**
+     * Gets the inputs the rule reads; the context only hands out the declared ones
+     */
+    Set<RuleInput> getInputs();
+    
+    /**
+     * Evaluates the rule and returns the issues it found. May run parallel streams, which share the analyzer's pool.
+     */
+    List<PerformanceIssue> evaluate(RuleContext context);
+    
+    /**
+     * Creates a rule from a function
+     */
+    static AnalysisRule of(String id, Set<RuleInput> inputs, Function<RuleContext, List<PerformanceIssue>> evaluator) {
+        Set<RuleInput> declared = Set.copyOf(inputs);
+        return new AnalysisRule() {
+            @Override
+            public String getId() {
+                return id;
+            }
+            
+            @Override
+            public Set<RuleInput> getInputs() {
+                return declared;
+            }
+            
+            @Override
+            public List<PerformanceIssue> evaluate(RuleContext context) {
+                return evaluator.apply(context);
+            }
+        };
+    }
+}
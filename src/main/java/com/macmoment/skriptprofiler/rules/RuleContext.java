@@ -0,0 +1,63 @@
+package com.macmoment.skriptprofiler.rules;
+
+import com.macmoment.skriptprofiler.ProfilerSettings;
+import com.macmoment.skriptprofiler.model.CallGraphAnalysis;
+import com.macmoment.skriptprofiler.model.ProfileSnapshot;
+import com.macmoment.skriptprofiler.model.ScriptInfo;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The inputs one rule evaluation may read. Every rule of an analysis sees the same snapshot, which no
+ * longer changes while the rules run; asking for an input the rule did not declare is an error.
+ */
+public final class RuleContext {
+    
+    private final AnalysisRule rule;
+    private final ProfileSnapshot snapshot;
+    private final Map<String, ScriptInfo> scripts;
+    private final CallGraphAnalysis callGraph;
+    private final ProfilerSettings settings;
+    
+    public RuleContext(AnalysisRule rule, ProfileSnapshot snapshot, Map<String, ScriptInfo> scripts,
+                       CallGraphAnalysis callGraph, ProfilerSettings settings) {
+        this.rule = rule;
+        this.snapshot = snapshot;
+        this.scripts = scripts;
+        this.callGraph = callGraph;
+        this.settings = settings;
+    }
+    
+    public ProfileSnapshot getSnapshot() {
+        require(RuleInput.PROFILE);
+        return snapshot;
+    }
+    
+    /**
+     * Gets the loaded scripts keyed by file path
+     */
+    public Map<String, ScriptInfo> getScripts() {
+        require(RuleInput.SCRIPTS);
+        return scripts;
+    }
+    
+    public CallGraphAnalysis getCallGraph() {
+        require(RuleInput.CALL_GRAPH);
+        return callGraph;
+    }
+    
+    /**
+     * Gets the settings, so rules can read their thresholds from config
+     */
+    public ProfilerSettings getSettings() {
+        return settings;
+    }
+    
+    private void require(RuleInput input) {
+        Set<RuleInput> inputs = rule.getInputs();
+        if (!inputs.contains(input)) {
+            throw new IllegalStateException("Rule " + rule.getId() + " did not declare input " + input);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.macmoment.skriptprofiler.rules;
+
+/**
+ * Data an analysis rule reads. Rules whose inputs are not available, e.g. runtime data in a
+ * static CI run, are not scheduled.
+ */
+public enum RuleInput {
+    /** Runtime data: element timings, loops, waits, variables and resume storms */
+    PROFILE,
+    /** Script sources and their block trees */
+    SCRIPTS,
+    /** The function call graph joined with runtime data */
+    CALL_GRAPH
+}
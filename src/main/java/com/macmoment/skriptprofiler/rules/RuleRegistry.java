@@ -0,0 +1,96 @@
+package com.macmoment.skriptprofiler.rules;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Holds the rules added on top of the built-in ones, e.g. by another plugin on enable:
+ *
+ * <pre>
+ * RuleRegistry.register(new ShopPriceLoopRule());
+ * </pre>
+ *
+ * Every analysis picks up the rules registered at the time it starts.
+ */
+public final class RuleRegistry {
+    
+    private static final List<AnalysisRule> RULES = new CopyOnWriteArrayList<>();
+    
+    private RuleRegistry() {
+    }
+    
+    /**
+     * Registers a rule, replacing any registered rule with the same ID
+     */
+    public static synchronized void register(AnalysisRule rule) {
+        unregister(rule.getId());
+        RULES.add(rule);
+    }
+    
+    /**
+     * Removes a registered rule
+     *
+     * @return true if a rule with the ID was registered
+     */
+    public static synchronized boolean unregister(String id) {
+        return RULES.removeIf(rule -> rule.getId().equals(id));
+    }
+    
+    /**
+     * Gets the registered rules in registration order
+     */
+    public static List<AnalysisRule> getRules() {
+        return new ArrayList<>(RULES);
+    }
+    
+    /**
+     * Registers the rules listed as services on the class loader's class path
+     *
+     * @return the number of rules registered
+     */
+    public static int loadServices(ClassLoader classLoader, Logger logger) {
+        int loaded = 0;
+        try {
+            for (AnalysisRule rule : ServiceLoader.load(AnalysisRule.class, classLoader)) {
+                register(rule);
+                loaded++;
+            }
+        } catch (ServiceConfigurationError e) {
+            logger.warning("Failed to load analysis rule: " + e.getMessage());
+        }
+        return loaded;
+    }
+    
+    /**
+     * Registers the rules listed as services in the jars of a folder
+     *
+     * @return the number of rules registered
+     */
+    public static int loadJars(File folder, ClassLoader parent, Logger logger) {
+        File[] jars = folder.listFiles((dir, name) -> name.endsWith(".jar"));
+        if (jars == null || jars.length == 0) {
+            return 0;
+        }
+        Arrays.sort(jars);
+        
+        List<URL> urls = new ArrayList<>();
+        for (File jar : jars) {
+            try {
+                urls.add(jar.toURI().toURL());
+            } catch (MalformedURLException e) {
+                logger.warning("Skipping rule jar " + jar.getName() + ": " + e.getMessage());
+            }
+        }
+        // The loader stays open for as long as the rules it defined are registered
+        return loadServices(new URLClassLoader(urls.toArray(new URL[0]), parent), logger);
+    }
+}
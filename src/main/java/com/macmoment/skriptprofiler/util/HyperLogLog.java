@@ -0,0 +1,126 @@
+package com.macmoment.skriptprofiler.util;
+
+/**
+ * Fixed-size HyperLogLog sketch for estimating the number of distinct values.
+ * Memory use is 2^precision bytes regardless of how many values are offered.
+ *
+ * Register updates are not synchronized. A racing update can at worst be lost,
+ * which only makes the estimate very slightly low, so the hot path stays lock-free.
+ */
+public class HyperLogLog {
+    
+    private final int precision;
+    private final byte[] registers;
+    
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 16: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+    
+    /**
+     * Adds a value to the sketch
+     */
+    public void offer(String value) {
+        offerHash(hash64(value));
+    }
+    
+    /**
+     * Adds an already hashed value to the sketch
+     */
+    public void offerHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // The guard bit bounds the rank to 64 - precision + 1
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+    
+    /**
+     * Returns the estimated number of distinct values offered
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeroRegisters = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+        
+        double alpha = switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+        double estimate = alpha * m * m / sum;
+        
+        // Linear counting is more accurate for small cardinalities
+        if (estimate <= 2.5 * m && zeroRegisters > 0) {
+            estimate = m * Math.log((double) m / zeroRegisters);
+        }
+        return Math.round(estimate);
+    }
+    
+    /**
+     * Merges another sketch of the same precision into this one
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches with different precision");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+    
+    public int getPrecision() {
+        return precision;
+    }
+    
+    /**
+     * Gets a copy of the registers, e.g. for saving the sketch
+     */
+    public byte[] toByteArray() {
+        return registers.clone();
+    }
+    
+    /**
+     * Restores a sketch from its registers; the precision follows from their length
+     */
+    public static HyperLogLog fromByteArray(byte[] registers) {
+        int precision = Integer.numberOfTrailingZeros(registers.length);
+        if (registers.length != 1 << precision) {
+            throw new IllegalArgumentException("HyperLogLog register count must be a power of two: " + registers.length);
+        }
+        HyperLogLog sketch = new HyperLogLog(precision);
+        System.arraycopy(registers, 0, sketch.registers, 0, registers.length);
+        return sketch;
+    }
+    
+    /**
+     * 64-bit FNV-1a over the string's chars, finished with the MurmurHash3 mixer
+     */
+    public static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
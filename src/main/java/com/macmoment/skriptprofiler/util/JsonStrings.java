@@ -0,0 +1,47 @@
+package com.macmoment.skriptprofiler.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes JSON string literals without building an escaped copy of the value
+ */
+public final class JsonStrings {
+    
+    private JsonStrings() {
+    }
+    
+    /**
+     * Writes a JSON string literal, or null for a null value, copying unescaped runs straight to the writer
+     */
+    public static void write(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            writer.write(value, start, i - start);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    writer.write("\\u00");
+                    writer.write(Character.forDigit(c >> 4, 16));
+                    writer.write(Character.forDigit(c & 0xF, 16));
+                }
+            }
+            start = i + 1;
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+}
@@ -0,0 +1,115 @@
+package com.macmoment.skriptprofiler.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram with power-of-two buckets.
+ * Bucket 0 holds zero, bucket i holds values in [2^(i-1), 2^i - 1].
+ */
+public class LogHistogram {
+    
+    public static final int BUCKET_COUNT = 64;
+    
+    private final AtomicLongArray buckets;
+    
+    public LogHistogram() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+    }
+    
+    /**
+     * Records a single value
+     */
+    public void record(long value) {
+        buckets.incrementAndGet(bucketFor(value));
+    }
+    
+    /**
+     * Gets the bucket index a value falls into
+     */
+    public static int bucketFor(long value) {
+        return value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+    
+    public static long bucketLowerBound(int bucket) {
+        return bucket == 0 ? 0 : 1L << (bucket - 1);
+    }
+    
+    public static long bucketUpperBound(int bucket) {
+        if (bucket == 0) return 0;
+        return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+    
+    public long getBucketCount(int bucket) {
+        return buckets.get(bucket);
+    }
+    
+    /**
+     * Adds a count directly to a bucket, e.g. when restoring a saved histogram
+     */
+    public void addToBucket(int bucket, long count) {
+        buckets.addAndGet(bucket, count);
+    }
+    
+    public long getTotalCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+        return total;
+    }
+    
+    /**
+     * Returns the upper bound of the bucket containing the given percentile (0-100)
+     */
+    public long getPercentile(double percentile) {
+        long total = getTotalCount();
+        if (total == 0) return 0;
+        
+        long target = (long) Math.ceil(total * (percentile / 100.0));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += buckets.get(i);
+            if (cumulative >= Math.max(1, target)) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(BUCKET_COUNT - 1);
+    }
+    
+    /**
+     * Adds all counts from another histogram into this one
+     */
+    public void merge(LogHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.buckets.get(i);
+            if (count != 0) {
+                buckets.addAndGet(i, count);
+            }
+        }
+    }
+    
+    /**
+     * Formats non-empty buckets as "range:count" pairs, e.g. "1:4 2-3:10 4-7:2"
+     */
+    public String formatBuckets() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = buckets.get(i);
+            if (count == 0) continue;
+            
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            long low = bucketLowerBound(i);
+            long high = bucketUpperBound(i);
+            builder.append(low == high ? String.valueOf(low) : low + "-" + high).append(':').append(count);
+        }
+        return builder.toString();
+    }
+    
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.macmoment.skriptprofiler.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted Space-Saving heavy hitters sketch. Keeps at most a fixed number of counters, so memory
+ * does not grow with the number of distinct keys. Any key whose true weight exceeds
+ * totalWeight / capacity is guaranteed to be present, and each count overestimates by at most its error.
+ * Sketches can be merged, so per-node summaries combine into one with the same guarantees.
+ * Keys are kept as given, so callers can offer keys they already hold and format them only when read.
+ */
+public class SpaceSaving<K> {
+    
+    private final int capacity;
+    private final Map<K, Entry<K>> counters;
+    private long totalWeight;
+    
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Space-Saving capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+    
+    /**
+     * Adds weight to a key, evicting the smallest counter if the sketch is full
+     */
+    public synchronized void offer(K key, long weight) {
+        totalWeight += weight;
+        
+        Entry<K> entry = counters.get(key);
+        if (entry != null) {
+            entry.count += weight;
+            return;
+        }
+        
+        if (counters.size() < capacity) {
+            counters.put(key, new Entry<>(key, weight, 0));
+            return;
+        }
+        
+        // Capacity is small, so a linear scan for the minimum is cheaper than maintaining a heap
+        Entry<K> min = null;
+        for (Entry<K> candidate : counters.values()) {
+            if (min == null || candidate.count < min.count) {
+                min = candidate;
+            }
+        }
+        counters.remove(min.key);
+        counters.put(key, new Entry<>(key, min.count + weight, min.count));
+    }
+    
+    /**
+     * Gets the heaviest keys, largest first
+     */
+    public synchronized List<Entry<K>> getTop(int limit) {
+        List<Entry<K>> entries = new ArrayList<>(counters.size());
+        for (Entry<K> entry : counters.values()) {
+            entries.add(new Entry<>(entry.key, entry.count, entry.error));
+        }
+        entries.sort((e1, e2) -> Long.compare(e2.count, e1.count));
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, limit)) : entries;
+    }
+    
+    /**
+     * Merges another sketch into this one
+     */
+    public void merge(SpaceSaving<K> other) {
+        List<Entry<K>> entries;
+        long otherTotal;
+        synchronized (other) {
+            entries = other.getTop(Integer.MAX_VALUE);
+            otherTotal = other.totalWeight;
+        }
+        merge(entries, otherTotal, other.capacity);
+    }
+    
+    /**
+     * Merges the counters of another sketch with the given capacity, e.g. one read back from a file.
+     * A key missing from a full sketch may have had up to its smallest count, so that amount is
+     * added to both the count and the error of keys only the other side tracks.
+     */
+    public synchronized void merge(List<Entry<K>> entries, long otherTotalWeight, int otherCapacity) {
+        long thisMin = minimumCount(counters.values(), capacity);
+        long otherMin = minimumCount(entries, otherCapacity);
+        
+        Map<K, Entry<K>> combined = new HashMap<>(counters.size() + entries.size());
+        for (Entry<K> entry : counters.values()) {
+            combined.put(entry.key, new Entry<>(entry.key, entry.count + otherMin, entry.error + otherMin));
+        }
+        for (Entry<K> entry : entries) {
+            Entry<K> existing = combined.get(entry.key);
+            if (existing != null) {
+                // Replace the assumed minimum with the other side's actual counter
+                combined.put(entry.key, new Entry<>(entry.key,
+                    existing.count - otherMin + entry.count, existing.error - otherMin + entry.error));
+            } else {
+                combined.put(entry.key, new Entry<>(entry.key, entry.count + thisMin, entry.error + thisMin));
+            }
+        }
+        
+        List<Entry<K>> sorted = new ArrayList<>(combined.values());
+        sorted.sort((e1, e2) -> Long.compare(e2.count, e1.count));
+        counters.clear();
+        for (int i = 0; i < sorted.size() && i < capacity; i++) {
+            counters.put(sorted.get(i).key, sorted.get(i));
+        }
+        totalWeight += otherTotalWeight;
+    }
+    
+    private static long minimumCount(Iterable<? extends Entry<?>> entries, int capacity) {
+        long min = Long.MAX_VALUE;
+        int size = 0;
+        for (Entry<?> entry : entries) {
+            min = Math.min(min, entry.count);
+            size++;
+        }
+        // A sketch that never filled up has seen every key exactly
+        return size < capacity ? 0 : min;
+    }
+    
+    public synchronized long getTotalWeight() {
+        return totalWeight;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * A tracked key with its (over)estimated weight and maximum overestimation
+     */
+    public static class Entry<K> {
+        private final K key;
+        private long count;
+        private final long error;
+        
+        public Entry(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+        
+        public K getKey() {
+            return key;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.macmoment.skriptprofiler.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of tick durations with linear 0.1 ms buckets up to 500 ms, so percentiles around the
+ * 50 ms tick budget keep their precision. Longer ticks share the last bucket; the exact maximum
+ * and the total are kept separately.
+ */
+public class TickHistogram {
+    
+    public static final long BUCKET_NANOS = 100_000;
+    public static final int BUCKET_COUNT = 5001;
+    
+    private final AtomicLongArray buckets;
+    private final AtomicLong totalNanos;
+    private final AtomicLong maxNanos;
+    
+    public TickHistogram() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.totalNanos = new AtomicLong();
+        this.maxNanos = new AtomicLong();
+    }
+    
+    /**
+     * Records the duration of one tick
+     */
+    public void record(long nanos) {
+        buckets.incrementAndGet(bucketFor(nanos));
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+    
+    public static int bucketFor(long nanos) {
+        return (int) Math.min(BUCKET_COUNT - 1, Math.max(0, nanos / BUCKET_NANOS));
+    }
+    
+    public long getBucketCount(int bucket) {
+        return buckets.get(bucket);
+    }
+    
+    /**
+     * Adds a count directly to a bucket, e.g. when restoring a saved histogram
+     */
+    public void addToBucket(int bucket, long count) {
+        buckets.addAndGet(bucket, count);
+    }
+    
+    /**
+     * Adds totals recorded elsewhere, e.g. when restoring a saved histogram
+     */
+    public void addTotals(long totalNanos, long maxNanos) {
+        this.totalNanos.addAndGet(totalNanos);
+        this.maxNanos.accumulateAndGet(maxNanos, Math::max);
+    }
+    
+    public long getTickCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+        return total;
+    }
+    
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+    
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+    
+    public double getMeanMs() {
+        long ticks = getTickCount();
+        return ticks == 0 ? 0 : totalNanos.get() / (double) ticks / 1_000_000.0;
+    }
+    
+    public double getMaxMs() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+    
+    /**
+     * Returns the upper bound in nanoseconds of the bucket containing the given percentile (0-100),
+     * or the maximum if it falls among the longest ticks
+     */
+    public long getPercentileNanos(double percentile) {
+        long total = getTickCount();
+        if (total == 0) return 0;
+        
+        long target = Math.max(1, (long) Math.ceil(total * (percentile / 100.0)));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+            cumulative += buckets.get(i);
+            if (cumulative >= target) {
+                return Math.min((i + 1) * BUCKET_NANOS, maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+    
+    public double getPercentileMs(double percentile) {
+        return getPercentileNanos(percentile) / 1_000_000.0;
+    }
+    
+    /**
+     * Folds the buckets into power-of-two nanosecond buckets, e.g. for charts shared with other histograms
+     */
+    public LogHistogram toLogHistogram() {
+        LogHistogram histogram = new LogHistogram();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = buckets.get(i);
+            if (count != 0) {
+                histogram.addToBucket(LogHistogram.bucketFor(i * BUCKET_NANOS + BUCKET_NANOS / 2), count);
+            }
+        }
+        return histogram;
+    }
+    
+    /**
+     * Adds all ticks from another histogram into this one
+     */
+    public void merge(TickHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.buckets.get(i);
+            if (count != 0) {
+                buckets.addAndGet(i, count);
+            }
+        }
+        addTotals(other.totalNanos.get(), other.maxNanos.get());
+    }
+    
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+}
@@ -0,0 +1,522 @@
+package com.macmoment.skriptprofiler.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Compressed series of timestamped points with a fixed number of long columns, e.g. executions
+ * and nanoseconds per second of one element.
+ *
+ * Points are appended to an open block of plain arrays. A full block is sealed: compressed in the
+ * style of Gorilla, with delta-of-delta timestamps (one bit for a regular interval) and zigzag
+ * varint deltas of each column, on the given executor. Queries skip blocks outside their range
+ * and decode the others one point at a time.
+ *
+ * Appending and queries may run on different threads; timestamps must not decrease.
+ */
+public class TimeSeries {
+    
+    private static final int FORMAT_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 8;
+    
+    private final int columns;
+    private final int blockPoints;
+    private final Executor sealer;
+    private final List<Block> blocks;
+    private long[] openTimestamps;
+    private long[][] openValues;
+    private int openSize;
+    private long pointCount;
+    private long lastTimestamp = Long.MIN_VALUE;
+    
+    /**
+     * @param columns number of values per point
+     * @param blockPoints number of points per block before it is sealed
+     * @param sealer runs the compression of full blocks, or null to compress while appending
+     */
+    public TimeSeries(int columns, int blockPoints, Executor sealer) {
+        if (columns < 1 || blockPoints < 2) {
+            throw new IllegalArgumentException("A time series needs at least 1 column and 2 points per block");
+        }
+        this.columns = columns;
+        this.blockPoints = blockPoints;
+        this.sealer = sealer;
+        this.blocks = new ArrayList<>();
+    }
+    
+    /**
+     * Receives the points of a range query. The values array is reused between points.
+     */
+    @FunctionalInterface
+    public interface PointVisitor {
+        void accept(long timestamp, long[] values);
+    }
+    
+    /**
+     * Appends a point with one value per column
+     */
+    public synchronized void append(long timestamp, long... values) {
+        if (values.length != columns) {
+            throw new IllegalArgumentException("Expected " + columns + " values, got " + values.length);
+        }
+        if (timestamp < lastTimestamp) {
+            throw new IllegalArgumentException("Timestamp " + timestamp + " is before " + lastTimestamp);
+        }
+        if (openTimestamps == null) {
+            openTimestamps = new long[Math.min(INITIAL_CAPACITY, blockPoints)];
+            openValues = new long[columns][openTimestamps.length];
+        } else if (openSize == openTimestamps.length) {
+            // Grown as points arrive, so the many rarely running elements stay small
+            int capacity = Math.min(blockPoints, openSize * 2);
+            openTimestamps = Arrays.copyOf(openTimestamps, capacity);
+            for (int column = 0; column < columns; column++) {
+                openValues[column] = Arrays.copyOf(openValues[column], capacity);
+            }
+        }
+        openTimestamps[openSize] = timestamp;
+        for (int column = 0; column < columns; column++) {
+            openValues[column][openSize] = values[column];
+        }
+        openSize++;
+        pointCount++;
+        lastTimestamp = timestamp;
+        
+        if (openSize == blockPoints) {
+            Block block = new Block(openTimestamps, openValues, openSize);
+            blocks.add(block);
+            openTimestamps = null;
+            openValues = null;
+            openSize = 0;
+            seal(block);
+        }
+    }
+    
+    private void seal(Block block) {
+        if (sealer != null) {
+            try {
+                sealer.execute(block::seal);
+                return;
+            } catch (RuntimeException e) {
+                // Executor shut down, seal right away instead
+            }
+        }
+        block.seal();
+    }
+    
+    /**
+     * Visits every point with a timestamp between from and to (both inclusive) in order
+     */
+    public void forEach(long from, long to, PointVisitor visitor) {
+        long[] values = new long[columns];
+        for (Block block : snapshotBlocks()) {
+            if (block.lastTimestamp < from || block.firstTimestamp > to) continue;
+            if (!block.forEach(from, to, values, visitor)) return;
+        }
+    }
+    
+    /**
+     * Visits every point in order
+     */
+    public void forEach(PointVisitor visitor) {
+        forEach(Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+    
+    /**
+     * Gets the sealed blocks and a frozen copy of the open block
+     */
+    private synchronized List<Block> snapshotBlocks() {
+        List<Block> snapshot = new ArrayList<>(blocks);
+        if (openSize > 0) {
+            long[][] values = new long[columns][];
+            for (int column = 0; column < columns; column++) {
+                values[column] = Arrays.copyOf(openValues[column], openSize);
+            }
+            snapshot.add(new Block(Arrays.copyOf(openTimestamps, openSize), values, openSize));
+        }
+        return snapshot;
+    }
+    
+    public int getColumns() {
+        return columns;
+    }
+    
+    public synchronized long getPointCount() {
+        return pointCount;
+    }
+    
+    public synchronized boolean isEmpty() {
+        return pointCount == 0;
+    }
+    
+    /**
+     * Gets the first timestamp, or Long.MAX_VALUE if the series is empty
+     */
+    public synchronized long getFirstTimestamp() {
+        if (!blocks.isEmpty()) return blocks.get(0).firstTimestamp;
+        return openSize > 0 ? openTimestamps[0] : Long.MAX_VALUE;
+    }
+    
+    /**
+     * Gets the last timestamp, or Long.MIN_VALUE if the series is empty
+     */
+    public synchronized long getLastTimestamp() {
+        return lastTimestamp;
+    }
+    
+    /**
+     * Gets the approximate memory held by the points in bytes
+     */
+    public synchronized long getMemoryBytes() {
+        long bytes = openTimestamps != null ? (long) openTimestamps.length * (columns + 1) * Long.BYTES : 0;
+        for (Block block : blocks) {
+            bytes += block.getMemoryBytes();
+        }
+        return bytes;
+    }
+    
+    /**
+     * Copies the series. Sealed blocks never change, so the copy shares them.
+     */
+    public TimeSeries copy() {
+        TimeSeries copy = new TimeSeries(columns, blockPoints, null);
+        copy.merge(this);
+        return copy;
+    }
+    
+    /**
+     * Adds the points of another series with the same columns; values at equal timestamps are summed
+     */
+    public void merge(TimeSeries other) {
+        if (other.columns != columns) {
+            throw new IllegalArgumentException("Cannot merge a series of " + other.columns + " columns into " + columns);
+        }
+        List<Block> otherBlocks = other.snapshotBlocks();
+        if (otherBlocks.isEmpty()) return;
+        
+        synchronized (this) {
+            if (pointCount == 0) {
+                // Nothing to interleave with, so the blocks are adopted as they are
+                for (Block block : otherBlocks) {
+                    blocks.add(block);
+                    pointCount += block.size;
+                }
+                lastTimestamp = otherBlocks.get(otherBlocks.size() - 1).lastTimestamp;
+                return;
+            }
+            
+            TreeMap<Long, long[]> points = new TreeMap<>();
+            List<Block> all = new ArrayList<>(snapshotBlocks());
+            all.addAll(otherBlocks);
+            long[] values = new long[columns];
+            for (Block block : all) {
+                block.forEach(Long.MIN_VALUE, Long.MAX_VALUE, values, (timestamp, point) -> {
+                    long[] sum = points.computeIfAbsent(timestamp, t -> new long[columns]);
+                    for (int column = 0; column < columns; column++) {
+                        sum[column] += point[column];
+                    }
+                });
+            }
+            
+            blocks.clear();
+            openTimestamps = null;
+            openValues = null;
+            openSize = 0;
+            pointCount = 0;
+            lastTimestamp = Long.MIN_VALUE;
+            for (Map.Entry<Long, long[]> point : points.entrySet()) {
+                append(point.getKey(), point.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Serializes the series with every block compressed
+     */
+    public byte[] toByteArray() {
+        List<Block> snapshot = snapshotBlocks();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(columns);
+            out.writeInt(blockPoints);
+            out.writeInt(snapshot.size());
+            for (Block block : snapshot) {
+                byte[] encoded = block.seal();
+                out.writeLong(block.firstTimestamp);
+                out.writeLong(block.lastTimestamp);
+                out.writeInt(block.size);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed", e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Reads a series written by {@link #toByteArray()}; its blocks stay compressed until queried
+     *
+     * @throws IllegalArgumentException if the data is not a serialized series
+     */
+    public static TimeSeries fromByteArray(byte[] data, Executor sealer) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported time series version: " + version);
+            }
+            TimeSeries series = new TimeSeries(in.readInt(), in.readInt(), sealer);
+            int blockCount = in.readInt();
+            for (int i = 0; i < blockCount; i++) {
+                long first = in.readLong();
+                long last = in.readLong();
+                int size = in.readInt();
+                byte[] encoded = new byte[in.readInt()];
+                in.readFully(encoded);
+                if (first < series.lastTimestamp || last < first || size < 1) {
+                    throw new IllegalArgumentException("Time series blocks out of order");
+                }
+                series.blocks.add(new Block(series.columns, first, last, size, encoded));
+                series.pointCount += size;
+                series.lastTimestamp = last;
+            }
+            return series;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Truncated time series", e);
+        }
+    }
+    
+    /**
+     * A run of points, held as plain arrays until sealed and as compressed bits after
+     */
+    private static final class Block {
+        private final int columns;
+        private final int size;
+        private final long firstTimestamp;
+        private final long lastTimestamp;
+        private volatile long[] rawTimestamps;
+        private volatile long[][] rawValues;
+        private volatile byte[] encoded;
+        
+        Block(long[] timestamps, long[][] values, int size) {
+            this.columns = values.length;
+            this.size = size;
+            this.firstTimestamp = timestamps[0];
+            this.lastTimestamp = timestamps[size - 1];
+            this.rawValues = values;
+            this.rawTimestamps = timestamps;
+        }
+        
+        Block(int columns, long firstTimestamp, long lastTimestamp, int size, byte[] encoded) {
+            this.columns = columns;
+            this.size = size;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.encoded = encoded;
+        }
+        
+        /**
+         * Compresses the points and drops the arrays; returns the compressed bits
+         */
+        synchronized byte[] seal() {
+            if (encoded == null) {
+                encoded = encode(rawTimestamps, rawValues, size);
+                // The encoded bits are published before the arrays go, so readers always find one of them
+                rawTimestamps = null;
+                rawValues = null;
+            }
+            return encoded;
+        }
+        
+        long getMemoryBytes() {
+            byte[] bits = encoded;
+            return bits != null ? bits.length : (long) size * (columns + 1) * Long.BYTES;
+        }
+        
+        /**
+         * Visits the points between from and to; returns false once a point after to was reached
+         */
+        boolean forEach(long from, long to, long[] values, PointVisitor visitor) {
+            long[] timestamps = rawTimestamps;
+            long[][] raw = rawValues;
+            if (timestamps != null && raw != null) {
+                for (int i = 0; i < size; i++) {
+                    if (timestamps[i] > to) return false;
+                    if (timestamps[i] < from) continue;
+                    for (int column = 0; column < columns; column++) {
+                        values[column] = raw[column][i];
+                    }
+                    visitor.accept(timestamps[i], values);
+                }
+                return true;
+            }
+            
+            BitReader bits = new BitReader(encoded);
+            long timestamp = 0;
+            long delta = 0;
+            long[] previous = new long[columns];
+            for (int i = 0; i < size; i++) {
+                if (i == 0) {
+                    timestamp = bits.read(64);
+                } else {
+                    delta += readDeltaOfDelta(bits);
+                    timestamp += delta;
+                }
+                for (int column = 0; column < columns; column++) {
+                    if (i == 0 || bits.read(1) == 1) {
+                        previous[column] += zigzagDecode(bits.readVarint());
+                    }
+                }
+                if (timestamp > to) return false;
+                if (timestamp < from) continue;
+                System.arraycopy(previous, 0, values, 0, columns);
+                visitor.accept(timestamp, values);
+            }
+            return true;
+        }
+        
+        private static byte[] encode(long[] timestamps, long[][] values, int size) {
+            BitWriter bits = new BitWriter(size * 4 + 16);
+            long previousDelta = 0;
+            for (int i = 0; i < size; i++) {
+                if (i == 0) {
+                    bits.write(timestamps[0], 64);
+                } else {
+                    long delta = timestamps[i] - timestamps[i - 1];
+                    writeDeltaOfDelta(bits, delta - previousDelta);
+                    previousDelta = delta;
+                }
+                for (int column = 0; column < values.length; column++) {
+                    long change = values[column][i] - (i == 0 ? 0 : values[column][i - 1]);
+                    if (i == 0) {
+                        bits.writeVarint(zigzagEncode(change));
+                    } else if (change == 0) {
+                        bits.write(0, 1);
+                    } else {
+                        bits.write(1, 1);
+                        bits.writeVarint(zigzagEncode(change));
+                    }
+                }
+            }
+            return bits.toByteArray();
+        }
+    }
+    
+    // Gorilla's timestamp buckets: a steady interval costs one bit
+    private static void writeDeltaOfDelta(BitWriter bits, long value) {
+        if (value == 0) {
+            bits.write(0b0, 1);
+        } else if (value >= -63 && value <= 64) {
+            bits.write(0b10, 2);
+            bits.write(value + 63, 7);
+        } else if (value >= -255 && value <= 256) {
+            bits.write(0b110, 3);
+            bits.write(value + 255, 9);
+        } else if (value >= -2047 && value <= 2048) {
+            bits.write(0b1110, 4);
+            bits.write(value + 2047, 12);
+        } else {
+            bits.write(0b1111, 4);
+            bits.write(value, 64);
+        }
+    }
+    
+    private static long readDeltaOfDelta(BitReader bits) {
+        if (bits.read(1) == 0) return 0;
+        if (bits.read(1) == 0) return bits.read(7) - 63;
+        if (bits.read(1) == 0) return bits.read(9) - 255;
+        if (bits.read(1) == 0) return bits.read(12) - 2047;
+        return bits.read(64);
+    }
+    
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private static final class BitWriter {
+        private byte[] buffer;
+        private long position;
+        
+        BitWriter(int initialBytes) {
+            this.buffer = new byte[Math.max(16, initialBytes)];
+        }
+        
+        /**
+         * Writes the lowest count bits of value, most significant first
+         */
+        void write(long value, int count) {
+            for (int bit = count - 1; bit >= 0; bit--) {
+                int index = (int) (position >>> 3);
+                if (index == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                if (((value >>> bit) & 1) != 0) {
+                    buffer[index] |= (byte) (0x80 >>> (position & 7));
+                }
+                position++;
+            }
+        }
+        
+        /**
+         * Writes 7 bits per group with a continuation bit in front
+         */
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write(0x80 | (value & 0x7F), 8);
+                value >>>= 7;
+            }
+            write(value, 8);
+        }
+        
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (int) ((position + 7) >>> 3));
+        }
+    }
+    
+    private static final class BitReader {
+        private final byte[] buffer;
+        private long position;
+        
+        BitReader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+        
+        long read(int count) {
+            long value = 0;
+            for (int i = 0; i < count; i++) {
+                int index = (int) (position >>> 3);
+                if (index >= buffer.length) {
+                    throw new IllegalArgumentException("Time series block is truncated");
+                }
+                value = (value << 1) | ((buffer[index] >>> (7 - (position & 7))) & 1);
+                position++;
+            }
+            return value;
+        }
+        
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                long group = read(8);
+                value |= (group & 0x7F) << shift;
+                if ((group & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in time series block");
+        }
+    }
+}
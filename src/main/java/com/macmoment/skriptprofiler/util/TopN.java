@@ -0,0 +1,43 @@
+package com.macmoment.skriptprofiler.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Bounded top-N selection in O(n log limit) instead of sorting the whole collection
+ */
+public final class TopN {
+    
+    private TopN() {
+    }
+    
+    /**
+     * Selects the largest items according to the comparator, largest first
+     */
+    public static <T> List<T> select(Iterable<T> items, int limit, Comparator<? super T> comparator) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        
+        // Min-heap of the current best candidates; the root is the weakest one kept
+        PriorityQueue<T> heap = new PriorityQueue<>(limit + 1, comparator);
+        for (T item : items) {
+            if (heap.size() < limit) {
+                heap.add(item);
+            } else if (comparator.compare(item, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+        
+        List<T> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+}